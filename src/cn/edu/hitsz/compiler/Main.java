@@ -25,6 +25,10 @@ public class Main {
         // 词法分析
         final var lexer = new LexicalAnalyzer(symbolTable);
         lexer.loadFile(FilePathConfig.SRC_CODE_PATH);
+        // // 对于非常大的源文件, 也可以使用内存映射的方式读取, 以避免把整个文件读入内存
+        // lexer.loadMappedFile(FilePathConfig.SRC_CODE_PATH);
+        // // 或使用由码点文件构造的转移表驱动词法分析
+        // lexer.setLexerTable(LexerTable.fromTokenKinds());
         lexer.run();
         lexer.dumpTokens(FilePathConfig.TOKEN_PATH);
         final var tokens = lexer.getTokens();
@@ -40,10 +44,35 @@ public class Main {
         // final var lrTable = tableGenerator.getTable();
         // lrTable.dumpTable("data/out/lrTable.csv");
 
+        // // 语法文件与码点文件不变时, 也可以直接读取上次构造并缓存在磁盘上的分析表, 不同种类的分析表分别缓存
+        // final var mode = TableGenerator.Mode.LALR;
+        // final var lrTable = TableCache.forGrammar(mode).getOrBuild(() -> {
+        //     final var tableGenerator = new TableGenerator(mode);
+        //     tableGenerator.run();
+        //     return tableGenerator.getTable();
+        // });
+
+        // // 对于语句非常多的源程序, 可以逐条语句地完成以下全部流程, 使内存占用不随语句条数增长, 输出文件与以下流程相同
+        // new StreamingCompiler(lrTable.compile()).compile(FilePathConfig.SRC_CODE_PATH);
+        // return;
+
         // 加载 LR 分析驱动程序
         final var parser = new SyntaxAnalyzer(symbolTable);
         parser.loadTokens(tokens);
         parser.loadLRTable(lrTable);
+        // // 或将分析表编译为稠密的整数矩阵, 由更快的驱动程序使用
+        // parser.loadCompiledTable(lrTable.compile());
+        // // 文法很大时可改用压缩存储的分析表, 查表速度与稠密矩阵相当
+        // parser.loadCompiledTable(lrTable.compress());
+        // // 还可以让分析表越过 E -> A 等单产生式的规约, ProductionCollector 仍会收到这些规约
+        // parser.loadCompiledTable(lrTable.compile().bypassUnitReductions());
+        // // 加载整数编码的分析表后, 还可以把算术表达式交给优先级爬升的子分析器解析
+        // parser.enableExpressionFastPath(GrammarInfo.getNonTerminal("E"));
+        // // 或使用 ParserGenerator 预先生成的内嵌分析表的分析器, 此时不需要读取分析表
+        // final var parser = new GeneratedSyntaxAnalyzer(symbolTable);
+
+        // // 有多个处理器时, 还可以让各 Observer 在各自的线程中处理动作事件, 与语法分析重叠进行. 须在注册 Observer 之前调用
+        // parser.enableConcurrentDispatch();
 
         // 加入生成规约列表的 Observer
         final var productionCollector = new ProductionCollector(GrammarInfo.getBeginProduction());
@@ -56,9 +85,14 @@ public class Main {
         // 加入用作 IR 生成的 Observer
         final var irGenerator = new IRGenerator();
         parser.registerObserver(irGenerator);
+        // // 或以由 ActionCompiler 根据 grammar_actions.txt 生成的 Observer 代替以上两个 Observer, 同时完成语义检查与 IR 生成,
+        // // 此时中间代码改由 translator.getIR() 取得
+        // final var translator = new GeneratedTranslator();
+        // parser.registerObserver(translator);
 
         // 执行语法解析并在解析过程中依次调用各 Observer
         parser.run();
+        parser.awaitObservers();
 
         // 各 Observer 输出结果
         productionCollector.dumpToFile(FilePathConfig.PARSER_PATH);
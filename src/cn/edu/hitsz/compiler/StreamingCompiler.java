@@ -0,0 +1,225 @@
+package cn.edu.hitsz.compiler;
+
+import cn.edu.hitsz.compiler.asm.AssemblyGenerator;
+import cn.edu.hitsz.compiler.ir.Instruction;
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.lexer.TokenSource;
+import cn.edu.hitsz.compiler.parser.ActionObserver;
+import cn.edu.hitsz.compiler.parser.IRGenerator;
+import cn.edu.hitsz.compiler.parser.ProductionWriter;
+import cn.edu.hitsz.compiler.parser.SemanticAnalyzer;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+import cn.edu.hitsz.compiler.utils.IREmulator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 逐条语句地完成整个编译流程, 使内存占用不随源程序的语句条数增长
+ * <br>
+ * 词法分析按需产生词法单元 ({@link LexicalAnalyzer#tokenStream()}), 语法分析折叠状态栈中重复的语句
+ * ({@link SyntaxAnalyzer#enableStackFolding(TokenKind)}), 每条语句的中间代码在其分号被移入时即被模拟执行, 生成汇编并写出,
+ * 随后便被丢弃. 输出文件与 {@link Main} 的完全相同: 寄存器的挑选不受被丢弃的变量影响 (见 {@link AssemblyGenerator#startStreaming(int)}),
+ * 汇编生成也会检查每个变量都不会在其寄存器被复用之后再被读取.
+ * <br>
+ * 寄存器分配需要知道每个变量在整个程序中的引用次数, 因此源文件会被分析两遍: 第一遍输出词法单元并统计具名变量的引用次数,
+ * 第二遍输出其余结果. 两遍都不保存词法单元或中间代码. 仍随输入增长的只有符号表与变量的值, 它们与不同变量名的个数成正比.
+ */
+public class StreamingCompiler {
+    /**
+     * @param table 整数编码的 LR 分析表
+     */
+    public StreamingCompiler(PackedLRTable table) {
+        this.table = table;
+        this.separator = TokenKind.fromString("Semicolon");
+    }
+
+    private final PackedLRTable table;
+    private final TokenKind separator;
+
+    /**
+     * 编译源文件, 结果输出到 {@link FilePathConfig} 中的各个路径
+     *
+     * @param path 源文件路径
+     */
+    public void compile(String path) {
+        final var symbolTable = new SymbolTable();
+        final var asmGenerator = new AssemblyGenerator();
+
+        // 第一遍: 词法单元与具名变量的引用次数
+        final var irGenerator = new IRGenerator();
+        try (final var tokenWriter = FileUtils.newWriter(FilePathConfig.TOKEN_PATH)) {
+            final var parser = newParser(symbolTable, path, tokenWriter);
+            irGenerator.setInstructionSink(asmGenerator::countIR);
+            parser.registerObserver(irGenerator);
+            parser.run();
+            // 接受时 EOF 只被查看而不被消耗
+            tokenWriter.write(Token.eof().toString());
+            tokenWriter.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception for " + FilePathConfig.TOKEN_PATH, e);
+        }
+        symbolTable.dumpTable(FilePathConfig.OLD_SYMBOL_TABLE);
+
+        // 第二遍生成的中间代码与第一遍相同, 汇编生成插入的临时变量从第一遍用过的编号之后开始
+        asmGenerator.startStreaming(irGenerator.nextTempIndex());
+
+        // 第二遍: 其余结果
+        final var emulator = IREmulator.empty();
+        try (final var productionWriter = new ProductionWriter(GrammarInfo.getBeginProduction(), FilePathConfig.PARSER_PATH);
+             final var irWriter = FileUtils.newWriter(FilePathConfig.INTERMEDIATE_CODE_PATH);
+             final var asmWriter = FileUtils.newWriter(FilePathConfig.ASSEMBLY_LANGUAGE_PATH)) {
+            asmWriter.write(".text");
+            asmWriter.newLine();
+
+            final var parser = newParser(symbolTable, path, null);
+            parser.registerObserver(productionWriter);
+            parser.registerObserver(new SemanticAnalyzer());
+
+            final var statement = new ArrayList<Instruction>();
+            final var statementGenerator = new IRGenerator();
+            statementGenerator.setInstructionSink(statement::add);
+            parser.registerObserver(statementGenerator);
+            parser.registerObserver(new StatementFlusher(statement, emulator, asmGenerator, irWriter, asmWriter));
+            parser.run();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on writing streaming output", e);
+        }
+
+        symbolTable.dumpTable(FilePathConfig.NEW_SYMBOL_TABLE);
+        FileUtils.writeFile(FilePathConfig.EMULATE_RESULT, emulator.getReturnValue().map(Objects::toString).orElse("No return value"));
+    }
+
+    /**
+     * @param tokenWriter 非空时, 把语法分析读入的每个词法单元写入其中
+     * @return 从源文件按需读入词法单元, 并折叠状态栈的语法分析器
+     */
+    private SyntaxAnalyzer newParser(SymbolStore symbolTable, String path, BufferedWriter tokenWriter) {
+        final var lexer = new LexicalAnalyzer(symbolTable);
+        lexer.loadMappedFile(path);
+        final var tokens = lexer.tokenStream();
+
+        final var parser = new SyntaxAnalyzer(symbolTable);
+        parser.loadTokens(tokenWriter == null ? tokens : new RecordingTokenSource(tokens, tokenWriter));
+        parser.loadCompiledTable(table);
+        parser.enableStackFolding(separator);
+        return parser;
+    }
+
+    /**
+     * 把被消耗的词法单元依次写出的词法单元来源
+     */
+    private record RecordingTokenSource(TokenSource tokens, BufferedWriter writer) implements TokenSource {
+        @Override
+        public Token peek() {
+            return tokens.peek();
+        }
+
+        @Override
+        public TokenKind peekKind() {
+            return tokens.peekKind();
+        }
+
+        @Override
+        public Token consume() {
+            final var token = tokens.consume();
+            try {
+                writer.write(token.toString());
+                writer.newLine();
+            } catch (IOException e) {
+                throw new RuntimeException("IO Exception on writing token", e);
+            }
+            return token;
+        }
+    }
+
+    /**
+     * 在每条语句结束 (移入分号) 与接受时, 输出并执行已生成的中间代码, 然后丢弃它们
+     * <br>
+     * 须注册在 {@link IRGenerator} 之后, 以便看到它对同一动作生成的中间代码.
+     */
+    private class StatementFlusher implements ActionObserver {
+        private final List<Instruction> statement;
+        private final IREmulator emulator;
+        private final AssemblyGenerator asmGenerator;
+        private final BufferedWriter irWriter;
+        private final BufferedWriter asmWriter;
+
+        StatementFlusher(List<Instruction> statement, IREmulator emulator, AssemblyGenerator asmGenerator,
+                         BufferedWriter irWriter, BufferedWriter asmWriter) {
+            this.statement = statement;
+            this.emulator = emulator;
+            this.asmGenerator = asmGenerator;
+            this.irWriter = irWriter;
+            this.asmWriter = asmWriter;
+        }
+
+        @Override
+        public void whenShift(Status currentStatus, Token currentToken) {
+            if (currentToken.getKind().equals(separator)) {
+                flush();
+            }
+        }
+
+        @Override
+        public void whenReduce(Status currentStatus, Production production) {
+            // do nothing
+        }
+
+        @Override
+        public boolean wantsUnitReductions() {
+            return false;
+        }
+
+        @Override
+        public void whenAccept(Status currentStatus) {
+            flush();
+        }
+
+        @Override
+        public void setSymbolTable(SymbolStore table) {
+            // do nothing
+        }
+
+        private void flush() {
+            if (statement.isEmpty()) {
+                return;
+            }
+
+            try {
+                for (final var instruction : statement) {
+                    irWriter.write(instruction.toString());
+                    irWriter.newLine();
+                    emulator.execute(instruction);
+                }
+                asmGenerator.runIR(statement, this::writeAssembly);
+            } catch (IOException e) {
+                throw new RuntimeException("IO Exception on writing intermediate code", e);
+            }
+            emulator.discardTemps();
+            statement.clear();
+        }
+
+        private void writeAssembly(String line) {
+            try {
+                asmWriter.write("\t" + line);
+                asmWriter.newLine();
+            } catch (IOException e) {
+                throw new RuntimeException("IO Exception on writing assembly", e);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import cn.edu.hitsz.compiler.ir.*;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 
 /**
@@ -32,6 +33,18 @@ public class AssemblyGenerator {
     /** 在代码生成时, 约定使用RISC-V临时寄存器: t0-t6 */
     List<String> registers = List.of("t0", "t1", "t2", "t3", "t4", "t5", "t6");
 
+    /** 流式生成时的状态, 见 {@link #startStreaming(int)} */
+    boolean streaming = false;
+    /** 预处理插入的下一个临时变量的编号 */
+    int nextTemp = 0;
+    /** 上一条语句结束后仍占用寄存器的临时变量 */
+    Set<IRValue> residentTemps = new HashSet<>();
+    /** 当前语句中出现的临时变量 */
+    List<IRValue> statementTemps = new ArrayList<>();
+    /** 是否已经处理过 Ret 指令 (计数与生成分别记录) */
+    boolean countReturned = false;
+    boolean returned = false;
+
     /**
      * 加载前端提供的中间代码
      * <br>
@@ -44,122 +57,252 @@ public class AssemblyGenerator {
         // 读入前端提供的中间代码并生成所需要的信息
         /* 对读入的代码进行预处理：
         * 将操作两个立即数的指令直接进行求值得到结果, 然后替换成MOV指令;
-        * 将操作一个立即数的指令 (除了乘法和左立即数减法) 进行调整, 使之满足a := b op imm 的格式;
+        * 将操作一个立即数的指令 (除了乘法和左立即数减法) 进行调整, 使之满足a := b op imm 的格式 (右立即数减法改为加上其相反数);
         * 将操作一个立即数的乘法和左立即数减法调整, 前插一条MOV a, imm, 用a替换原立即数, 将指令调整为无立即数指令;
         * 对于一个操作数的指令:
         * 根据语言规定，当遇到 Ret 指令后直接舍弃后续指令  */
+        // 预处理插入的临时变量排在中间代码中已有的临时变量之后
         for (Instruction instruction : originInstructions) {
-            switch (instruction.getKind()) {
-                case MOV -> {
-                    // MOV指令无需处理
-                    instructions.add(instruction);
-                    // 记录产生式变量的引用
-                    doCount(instruction.getResult());
-                    doCount(instruction.getFrom());
+            for (IRValue operand : instruction.getOperands()) {
+                if (operand instanceof IRVariable variable && variable.isTemp()) {
+                    nextTemp = Math.max(nextTemp, variable.getTempIndex() + 1);
                 }
-                case ADD -> {
-                    IRValue lhs = instruction.getLHS();
-                    IRValue rhs = instruction.getRHS();
-                    if (lhs.isImmediate()) {
-                        if (rhs.isImmediate()) {
-                            // 左右操作数全是立即数, 立即求值, 用MOV指令代替
-                            IRImmediate ilhs = (IRImmediate) lhs;
-                            IRImmediate irhs = (IRImmediate) rhs;
-                            int result = ilhs.getValue() + irhs.getValue();
-                            IRImmediate iResult = IRImmediate.of(result);
-                            instructions.add(Instruction.createMov(instruction.getResult(), iResult));
-                            doCount(instruction.getResult());
-                        } else {
-                            // 只有左操作数为立即数, 调换左右操作数
-                            instructions.add(Instruction.createAdd(instruction.getResult(), rhs, lhs));
-                            doCount(rhs);
-                            doCount(instruction.getResult());
-                        }
+            }
+            if (!instruction.getKind().isReturn()) {
+                nextTemp = Math.max(nextTemp, instruction.getResult().getTempIndex() + 1);
+            }
+        }
+        for (Instruction instruction : originInstructions) {
+            if (!preprocess(instruction, instructions)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 预处理一条中间代码, 并对其中的变量计数
+     *
+     * @param instruction 中间代码
+     * @param output      接收预处理后的指令
+     * @return 是否还需处理之后的指令; 遇到 Ret 指令后返回 false
+     */
+    private boolean preprocess(Instruction instruction, List<Instruction> output) {
+        switch (instruction.getKind()) {
+            case MOV -> {
+                // MOV指令无需处理
+                output.add(instruction);
+                // 记录产生式变量的引用
+                doCount(instruction.getResult());
+                doCount(instruction.getFrom());
+            }
+            case ADD -> {
+                IRValue lhs = instruction.getLHS();
+                IRValue rhs = instruction.getRHS();
+                if (lhs.isImmediate()) {
+                    if (rhs.isImmediate()) {
+                        // 左右操作数全是立即数, 立即求值, 用MOV指令代替
+                        IRImmediate ilhs = (IRImmediate) lhs;
+                        IRImmediate irhs = (IRImmediate) rhs;
+                        int result = ilhs.getValue() + irhs.getValue();
+                        IRImmediate iResult = IRImmediate.of(result);
+                        output.add(Instruction.createMov(instruction.getResult(), iResult));
+                        doCount(instruction.getResult());
                     } else {
-                        // 左操作数不是立即数, 不用处理
-                        instructions.add(instruction);
-                        doCount(lhs);
+                        // 只有左操作数为立即数, 调换左右操作数
+                        output.add(Instruction.createAdd(instruction.getResult(), rhs, lhs));
                         doCount(rhs);
                         doCount(instruction.getResult());
                     }
+                } else {
+                    // 左操作数不是立即数, 不用处理
+                    output.add(instruction);
+                    doCount(lhs);
+                    doCount(rhs);
+                    doCount(instruction.getResult());
                 }
-                case SUB -> {
-                    IRValue lhs = instruction.getLHS();
-                    IRValue rhs = instruction.getRHS();
-                    if (lhs.isImmediate()) {
-                        if (rhs.isImmediate()) {
-                            // 左右操作数全是立即数, 立即求值, 用MOV指令代替
-                            IRImmediate ilhs = (IRImmediate) lhs;
-                            IRImmediate irhs = (IRImmediate) rhs;
-                            int result = ilhs.getValue() - irhs.getValue();
-                            IRImmediate iResult = IRImmediate.of(result);
-                            instructions.add(Instruction.createMov(instruction.getResult(), iResult));
-                            doCount(instruction.getResult());
-                        } else {
-                            // 只有左操作数为立即数, 前插一条MOV指令, 使其变为对变量的操作
-                            IRVariable temp = IRVariable.temp();
-                            instructions.add(Instruction.createMov(temp, lhs));
-                            instructions.add(Instruction.createSub(instruction.getResult(), temp, rhs));
-                            doCount(temp);
-                            doCount(lhs);
-                            doCount(rhs);
-                            doCount(instruction.getResult());
-                        }
+            }
+            case SUB -> {
+                IRValue lhs = instruction.getLHS();
+                IRValue rhs = instruction.getRHS();
+                if (lhs.isImmediate()) {
+                    if (rhs.isImmediate()) {
+                        // 左右操作数全是立即数, 立即求值, 用MOV指令代替
+                        IRImmediate ilhs = (IRImmediate) lhs;
+                        IRImmediate irhs = (IRImmediate) rhs;
+                        int result = ilhs.getValue() - irhs.getValue();
+                        IRImmediate iResult = IRImmediate.of(result);
+                        output.add(Instruction.createMov(instruction.getResult(), iResult));
+                        doCount(instruction.getResult());
                     } else {
-                        // 左操作数不是立即数, 不用处理
-                        instructions.add(instruction);
+                        // 只有左操作数为立即数, 前插一条MOV指令, 使其变为对变量的操作
+                        IRVariable temp = newTemp();
+                        output.add(Instruction.createMov(temp, lhs));
+                        output.add(Instruction.createSub(instruction.getResult(), temp, rhs));
+                        // 插入的临时变量被写入与读取各一次
+                        doCount(temp);
+                        doCount(temp);
                         doCount(lhs);
                         doCount(rhs);
                         doCount(instruction.getResult());
                     }
+                } else if (rhs.isImmediate()) {
+                    // 只有右操作数为立即数, 减去立即数即加上其相反数, 调整为 a := b + (-imm) 的格式
+                    IRImmediate irhs = (IRImmediate) rhs;
+                    output.add(Instruction.createAdd(instruction.getResult(), lhs, IRImmediate.of(-irhs.getValue())));
+                    doCount(lhs);
+                    doCount(instruction.getResult());
+                } else {
+                    // 左右操作数全是变量, 不用处理
+                    output.add(instruction);
+                    doCount(lhs);
+                    doCount(rhs);
+                    doCount(instruction.getResult());
                 }
-                case MUL -> {
-                    IRValue lhs = instruction.getLHS();
-                    IRValue rhs = instruction.getRHS();
-                    if (lhs.isImmediate()) {
-                        if (rhs.isImmediate()) {
-                            // 左右操作数全是立即数, 立即求值, 用MOV指令代替
-                            IRImmediate ilhs = (IRImmediate) lhs;
-                            IRImmediate irhs = (IRImmediate) rhs;
-                            int result = ilhs.getValue() * irhs.getValue();
-                            IRImmediate iResult = IRImmediate.of(result);
-                            instructions.add(Instruction.createMov(instruction.getResult(), iResult));
-                            doCount(instruction.getResult());
-                        } else {
-                            // 只有左操作数为立即数, 前插一条MOV指令, 使其变为对变量的操作
-                            IRVariable temp = IRVariable.temp();
-                            instructions.add(Instruction.createMov(temp, lhs));
-                            instructions.add(Instruction.createAdd(instruction.getResult(), temp, rhs));
-                            doCount(temp);
-                            doCount(lhs);
-                            doCount(rhs);
-                            doCount(instruction.getResult());
-                        }
-                    } else if (rhs.isImmediate()) {
-                        // 只有左操作数为立即数, 也要前插一条MOV指令, 使其变为对变量的操作
-                        IRVariable temp = IRVariable.temp();
-                        instructions.add(Instruction.createMov(temp, rhs));
-                        instructions.add(Instruction.createAdd(instruction.getResult(), lhs, temp));
-                        doCount(temp);
-                        doCount(lhs);
-                        doCount(rhs);
+            }
+            case MUL -> {
+                IRValue lhs = instruction.getLHS();
+                IRValue rhs = instruction.getRHS();
+                if (lhs.isImmediate()) {
+                    if (rhs.isImmediate()) {
+                        // 左右操作数全是立即数, 立即求值, 用MOV指令代替
+                        IRImmediate ilhs = (IRImmediate) lhs;
+                        IRImmediate irhs = (IRImmediate) rhs;
+                        int result = ilhs.getValue() * irhs.getValue();
+                        IRImmediate iResult = IRImmediate.of(result);
+                        output.add(Instruction.createMov(instruction.getResult(), iResult));
                         doCount(instruction.getResult());
                     } else {
-                        // 对于乘法, 只有左右操作数全为变量, 才可以不用处理
-                        instructions.add(instruction);
+                        // 只有左操作数为立即数, 前插一条MOV指令, 使其变为对变量的操作
+                        IRVariable temp = newTemp();
+                        output.add(Instruction.createMov(temp, lhs));
+                        output.add(Instruction.createMul(instruction.getResult(), temp, rhs));
+                        // 插入的临时变量被写入与读取各一次
+                        doCount(temp);
+                        doCount(temp);
                         doCount(lhs);
                         doCount(rhs);
                         doCount(instruction.getResult());
                     }
+                } else if (rhs.isImmediate()) {
+                    // 只有右操作数为立即数, 也要前插一条MOV指令, 使其变为对变量的操作
+                    IRVariable temp = newTemp();
+                    output.add(Instruction.createMov(temp, rhs));
+                    output.add(Instruction.createMul(instruction.getResult(), lhs, temp));
+                    // 插入的临时变量被写入与读取各一次
+                    doCount(temp);
+                    doCount(temp);
+                    doCount(lhs);
+                    doCount(rhs);
+                    doCount(instruction.getResult());
+                } else {
+                    // 对于乘法, 只有左右操作数全为变量, 才可以不用处理
+                    output.add(instruction);
+                    doCount(lhs);
+                    doCount(rhs);
+                    doCount(instruction.getResult());
                 }
-                case RET -> {
-                    instructions.add(instruction);
-                    // return语句使用a0寄存器返回, 故不用再寄存器表中注册引用
-                    return;
-                }
-                default -> throw new RuntimeException("Unknown instruction kind: " + instruction.getKind());
+            }
+            case RET -> {
+                output.add(instruction);
+                // 返回值在生成 mv a0 时也要从寄存器中读取, 同样需要计数, 否则它可能在返回之前就被挤出寄存器
+                doCount(instruction.getReturnValue());
+                return false;
+            }
+            default -> throw new RuntimeException("Unknown instruction kind: " + instruction.getKind());
+        }
+        return true;
+    }
+
+    /**
+     * 流式生成的第一遍: 只对一条中间代码中出现的具名变量计数
+     * <br>
+     * 寄存器分配依赖变量在整个程序中的引用次数, 流式生成时须先完整地看过一遍中间代码. 临时变量只在产生它的语句内被引用,
+     * 留到第二遍逐条语句计数即可, 所以第一遍不需要保存任何指令. 预处理不会改变具名变量的引用次数.
+     *
+     * @param instruction 中间代码
+     */
+    public void countIR(Instruction instruction) {
+        if (countReturned) {
+            return;
+        }
+        switch (instruction.getKind()) {
+            case MOV -> {
+                countNamed(instruction.getResult());
+                countNamed(instruction.getFrom());
+            }
+            case ADD, SUB, MUL -> {
+                countNamed(instruction.getResult());
+                countNamed(instruction.getLHS());
+                countNamed(instruction.getRHS());
+            }
+            case RET -> {
+                countNamed(instruction.getReturnValue());
+                countReturned = true;
+            }
+            default -> throw new RuntimeException("Unknown instruction kind: " + instruction.getKind());
+        }
+    }
+
+    private void countNamed(IRValue irValue) {
+        if (irValue instanceof IRVariable irVariable && irVariable.isNamed()) {
+            doCount(irVariable);
+        }
+    }
+
+    /**
+     * 结束第一遍计数, 开始逐条语句地生成汇编代码
+     * <br>
+     * 此后不再保存中间代码与汇编代码, 每条语句结束后即丢弃其中不再被引用且不占用寄存器的临时变量.
+     * 被丢弃的变量既不占用寄存器, 也不会再被引用, 不影响寄存器的挑选, 所以生成的汇编代码与 {@link #run()} 完全相同.
+     *
+     * @param firstTempIndex 预处理插入的临时变量从该编号开始, 须大于中间代码中所有临时变量的编号
+     */
+    public void startStreaming(int firstTempIndex) {
+        streaming = true;
+        nextTemp = firstTempIndex;
+    }
+
+    /**
+     * 流式生成的第二遍: 为一条语句的中间代码生成汇编代码
+     *
+     * @param statement 一条语句的中间代码
+     * @param output    接收生成的汇编指令
+     * @return 是否还需处理之后的语句; 遇到 Ret 指令后返回 false
+     */
+    public boolean runIR(List<Instruction> statement, Consumer<String> output) {
+        if (!streaming) {
+            throw new RuntimeException("Streaming generation is not started");
+        }
+        if (returned) {
+            return false;
+        }
+
+        final var preprocessed = new ArrayList<Instruction>();
+        for (final var instruction : statement) {
+            if (!preprocess(instruction, preprocessed)) {
+                returned = true;
+                break;
+            }
+        }
+        for (final var instruction : preprocessed) {
+            if (!generate(instruction, output)) {
+                returned = true;
+                break;
             }
         }
+
+        // 丢弃不再被引用的临时变量; 仍占用寄存器的须保留, 以便之后复用其寄存器
+        statementTemps.addAll(residentTemps);
+        residentTemps.clear();
+        for (final var temp : statementTemps) {
+            if (usageCounter.get(temp) == 0 && !registerUsage.containsValue(temp)) {
+                usageCounter.remove(temp);
+            } else {
+                residentTemps.add(temp);
+            }
+        }
+        statementTemps.clear();
+        return !returned;
     }
 
     /**
@@ -174,71 +317,85 @@ public class AssemblyGenerator {
     public void run() {
         // 执行寄存器分配与代码生成
         for (Instruction instruction : instructions) {
-            IRValue rst;
-            String resultValue = "";
-            if (!instruction.getKind().isReturn()) {
-                rst = instruction.getResult();
-                resultValue = registerAllocate(rst);
+            if (!generate(instruction, AsmInstructions::add)) {
+                return;
             }
-            IRValue lhs;
-            IRValue rhs;
-            switch (instruction.getKind()) {
-                case MOV -> {
-                    IRValue form = instruction.getFrom();
-                    String num = "";
-                    String asm = "";
-                    if (form.isImmediate()) {
-                        IRImmediate iForm = (IRImmediate) form;
-                        num = iForm.toString();
-                        asm = "li " + resultValue + ", " + num + " \t\t#" + instruction;
-                    } else {
-                        // 操作数是变量
-                        num = registerAllocate(form);
-                        asm = "mv " + resultValue + ", " + num + " \t\t#" + instruction;
-                    }
-                    AsmInstructions.add(asm);
-                }
-                case ADD -> {
-                    lhs = instruction.getLHS();
-                    rhs = instruction.getRHS();
-                    String a = registerAllocate(lhs);
-                    String b = "";
-                    String asm = "";
-                    if (rhs.isImmediate()) {
-                        IRImmediate irhs = (IRImmediate) rhs;
-                        b = irhs.toString();
-                        asm = "addi " + resultValue + ", " + a + ", " + b + " \t\t#" + instruction;
-                    } else {
-                        // 两个操作数全是变量
-                        b = registerAllocate(rhs);
-                        asm = "add " + resultValue + ", " + a + ", " + b + " \t\t#" + instruction;
-                    }
-                    AsmInstructions.add(asm);
+        }
+    }
+
+    /**
+     * 为一条预处理过的指令分配寄存器并生成汇编代码
+     *
+     * @param instruction 预处理过的指令
+     * @param output      接收生成的汇编指令
+     * @return 是否还需处理之后的指令; 遇到 Ret 指令后返回 false
+     */
+    private boolean generate(Instruction instruction, Consumer<String> output) {
+        IRValue rst;
+        String resultValue = "";
+        if (!instruction.getKind().isReturn()) {
+            rst = instruction.getResult();
+            resultValue = registerAllocate(rst);
+        }
+        IRValue lhs;
+        IRValue rhs;
+        switch (instruction.getKind()) {
+            case MOV -> {
+                IRValue form = instruction.getFrom();
+                String num = "";
+                String asm = "";
+                if (form.isImmediate()) {
+                    IRImmediate iForm = (IRImmediate) form;
+                    num = iForm.toString();
+                    asm = "li " + resultValue + ", " + num + " \t\t#" + instruction;
+                } else {
+                    // 操作数是变量
+                    num = registerAllocate(form);
+                    asm = "mv " + resultValue + ", " + num + " \t\t#" + instruction;
                 }
-                case SUB, MUL -> {
-                    // 经过预处理, 乘法和减法的两个操作数全为变量
-                    lhs = instruction.getLHS();
-                    rhs = instruction.getRHS();
-                    String a = registerAllocate(lhs);
-                    String b = registerAllocate(rhs);
-                    String op = "";
-                    switch (instruction.getKind()) {
-                        case SUB -> op = "sub";
-                        case MUL -> op = "mul";
-                        default -> throw new RuntimeException("Unexpected Wrong!");
-                    }
-                    String asm = op + " " + resultValue + ", " + a + ", " + b + " \t\t#" + instruction;
-                    AsmInstructions.add(asm);
+                output.accept(asm);
+            }
+            case ADD -> {
+                lhs = instruction.getLHS();
+                rhs = instruction.getRHS();
+                String a = registerAllocate(lhs);
+                String b = "";
+                String asm = "";
+                if (rhs.isImmediate()) {
+                    IRImmediate irhs = (IRImmediate) rhs;
+                    b = irhs.toString();
+                    asm = "addi " + resultValue + ", " + a + ", " + b + " \t\t#" + instruction;
+                } else {
+                    // 两个操作数全是变量
+                    b = registerAllocate(rhs);
+                    asm = "add " + resultValue + ", " + a + ", " + b + " \t\t#" + instruction;
                 }
-                case RET -> {
-                    String returnValue = registerAllocate(instruction.getReturnValue());
-                    String asm = "mv a0, " + returnValue + " \t\t#" + instruction;
-                    AsmInstructions.add(asm);
-                    return;
+                output.accept(asm);
+            }
+            case SUB, MUL -> {
+                // 经过预处理, 乘法和减法的两个操作数全为变量
+                lhs = instruction.getLHS();
+                rhs = instruction.getRHS();
+                String a = registerAllocate(lhs);
+                String b = registerAllocate(rhs);
+                String op = "";
+                switch (instruction.getKind()) {
+                    case SUB -> op = "sub";
+                    case MUL -> op = "mul";
+                    default -> throw new RuntimeException("Unexpected Wrong!");
                 }
-                default -> throw new RuntimeException("Unknown instruction kind: " + instruction.getKind());
+                String asm = op + " " + resultValue + ", " + a + ", " + b + " \t\t#" + instruction;
+                output.accept(asm);
+            }
+            case RET -> {
+                String returnValue = registerAllocate(instruction.getReturnValue());
+                String asm = "mv a0, " + returnValue + " \t\t#" + instruction;
+                output.accept(asm);
+                return false;
             }
+            default -> throw new RuntimeException("Unknown instruction kind: " + instruction.getKind());
         }
+        return true;
     }
 
     /**
@@ -248,6 +405,15 @@ public class AssemblyGenerator {
     private void doCount(IRValue irValue) {
         if (irValue.isIRVariable()) {
             IRVariable irVariable = (IRVariable) irValue;
+            if (streaming) {
+                // 具名变量已在第一遍计数
+                if (irVariable.isNamed()) {
+                    return;
+                }
+                if (!usageCounter.containsKey(irVariable)) {
+                    statementTemps.add(irVariable);
+                }
+            }
             if (usageCounter.containsKey(irVariable)) {
                 // 在表中注册过的变量, 将其计数加一
                 Integer num = usageCounter.get(irValue);
@@ -262,50 +428,58 @@ public class AssemblyGenerator {
     /**
      * 不完备的寄存器分配算法: 若有寄存器空闲, 则指派任意空闲寄存器分配;
      * 当无寄存器空闲时, 判断当前是否有寄存器被不再使用的变量占用,
-     * 若有则指派任意满足该条件的寄存器, 若无则直接报错
+     * 若有则按 t0-t6 的顺序指派第一个满足该条件的寄存器, 若无则直接报错
+     * <br>
+     * 挑选被复用的寄存器只取决于各寄存器中变量的剩余引用次数, 而与引用计数表中还有哪些变量无关, 所以流式生成与批量生成的结果相同.
      * @return 分配到的寄存器名称
      */
     private String registerAllocate(IRValue irValue) {
-        String register = "";
         if (registerUsage.containsValue(irValue)) {
             // 该变量已经在寄存器中, 使用原本的寄存器
-            register = registerUsage.getByValue(irValue);
-            // 更新该变量对寄存器的引用次数
-            int cnt = usageCounter.get(irValue);
-            usageCounter.put(irValue, cnt-1);
-        } else {
-            for (String t : registers) {
-                if (!registerUsage.containsKey(t)) {
-                    // 遍历寄存器表, 找到一个未被引用的可用寄存器
-                    register = t;
-                    registerUsage.replace(register, irValue);
-                    // 更新该变量对寄存器的引用次数
-                    int cnt = usageCounter.get(irValue);
-                    usageCounter.put(irValue, cnt-1);
-                    return register;
-                }
+            release(irValue);
+            return registerUsage.getByValue(irValue);
+        }
+        for (String t : registers) {
+            if (!registerUsage.containsKey(t)) {
+                // 遍历寄存器表, 找到一个未被引用的可用寄存器
+                registerUsage.replace(t, irValue);
+                release(irValue);
+                return t;
             }
         }
-        if ("".equals(register)) {
-            // 无引用寄存器分配失败, 试图获取一个未被引用的寄存器
-            for (IRValue i : usageCounter.keySet()) {
-                Integer num = usageCounter.get(i);
-                if (num == 0) {
-                    register = registerUsage.getByValue(i);
-                    if (register != null) {
-                        // 得到了一个空闲的寄存器
-                        registerUsage.replace(register, irValue);
-                        // 更新该变量对寄存器的引用次数
-                        int cnt = usageCounter.get(irValue);
-                        usageCounter.put(irValue, cnt-1);
-                        return register;
-                    }
-                }
+        // 无引用寄存器分配失败, 试图获取一个未被引用的寄存器
+        for (String t : registers) {
+            if (usageCounter.get(registerUsage.getByKey(t)) == 0) {
+                // 得到了一个空闲的寄存器
+                registerUsage.replace(t, irValue);
+                release(irValue);
+                return t;
             }
-            // 获取不到未被引用的寄存器, 直接报错
-            throw new RuntimeException("There is no more register");
         }
-        return register;
+        // 获取不到未被引用的寄存器, 直接报错
+        throw new RuntimeException("There is no more register");
+    }
+
+    /**
+     * 变量在代码生成中被使用一次, 将其引用次数减一
+     * <br>
+     * 寄存器只在其中变量的引用次数降为 0 后才会被复用. 若引用次数降到 0 以下, 说明该变量在计数之外还被使用过,
+     * 它的寄存器可能已被其它变量占用, 生成的代码不再正确, 因此直接报错而不是输出错误的汇编代码.
+     * @param irValue 被使用的变量
+     */
+    private void release(IRValue irValue) {
+        final int remaining = usageCounter.get(irValue) - 1;
+        if (remaining < 0) {
+            throw new RuntimeException("Invalid register allocation: " + irValue + " is used more times than counted");
+        }
+        usageCounter.put(irValue, remaining);
+    }
+
+    /**
+     * @return 预处理插入的新临时变量
+     */
+    private IRVariable newTemp() {
+        return IRVariable.temp(nextTemp++);
     }
 
     /**
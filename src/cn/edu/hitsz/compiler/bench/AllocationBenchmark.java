@@ -0,0 +1,63 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.TokenBuffer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Consumer;
+
+/**
+ * 统计语法分析驱动程序在预热之后每个词法单元分配的字节数
+ * <br>
+ * 需在项目根目录下运行, 且依赖 HotSpot 提供的 {@link com.sun.management.ThreadMXBean} 统计当前线程分配的字节数.
+ * 可选参数为生成的赋值语句条数. 分析器与词法单元来源在计时之外构造, 统计的只是 {@link SyntaxAnalyzer#run()} 本身.
+ */
+public class AllocationBenchmark {
+    private static final int WARMUP = 10;
+
+    public static void main(String[] args) {
+        final var statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+            || !threads.isThreadAllocatedMemorySupported()) {
+            throw new RuntimeException("Thread allocation counting is not supported by this JVM");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        TokenKind.loadTokenKinds();
+        final var lexer = new LexicalAnalyzer(new SymbolTable());
+        lexer.loadFile(SourceGenerator.generateFile(statements, 42));
+        final var tokens = lexer.runToBuffer();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        System.out.printf("%d tokens%n", tokens.size());
+
+        final var parser = new SyntaxAnalyzer(new SymbolTable());
+        measure(threads, "object graph table", tokens.size(), parser, p -> p.loadLRTable(table), tokens);
+        measure(threads, "compiled dense table", tokens.size(), parser, load(table.compile()), tokens);
+        measure(threads, "compressed table", tokens.size(), parser, load(table.compress()), tokens);
+    }
+
+    private static Consumer<SyntaxAnalyzer> load(PackedLRTable table) {
+        return parser -> parser.loadCompiledTable(table);
+    }
+
+    private static void measure(com.sun.management.ThreadMXBean threads, String name, int tokenCount,
+                                SyntaxAnalyzer parser, Consumer<SyntaxAnalyzer> loadTable,
+                                TokenBuffer tokens) {
+        loadTable.accept(parser);
+        final var threadId = Thread.currentThread().getId();
+        var allocated = 0L;
+        for (int i = 0; i <= WARMUP; i++) {
+            parser.loadTokens(tokens.cursor());
+            final var before = threads.getThreadAllocatedBytes(threadId);
+            parser.run();
+            allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        }
+        System.out.printf("%-32s %12d bytes  %10.4f bytes/token%n", name, allocated, (double) allocated / tokenCount);
+    }
+}
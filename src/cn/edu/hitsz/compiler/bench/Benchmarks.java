@@ -0,0 +1,40 @@
+package cn.edu.hitsz.compiler.bench;
+
+import java.util.Arrays;
+
+/**
+ * 基准测试的计时工具
+ * <br>
+ * 先执行若干轮预热以便 JIT 完成编译, 再多轮计时并输出最好与中位的耗时.
+ */
+public class Benchmarks {
+    /**
+     * @param name   被测对象的名称
+     * @param warmup 预热轮数
+     * @param rounds 计时轮数
+     * @param units  每轮处理的单位数 (如词法单元数), 用于换算单位耗时
+     * @param task   被测任务
+     * @return 中位耗时 (纳秒)
+     */
+    public static long measure(String name, int warmup, int rounds, long units, Runnable task) {
+        for (int i = 0; i < warmup; i++) {
+            task.run();
+        }
+
+        final var times = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            final var start = System.nanoTime();
+            task.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+
+        final var median = times[rounds / 2];
+        System.out.printf("%-32s best %8.2f ms  median %8.2f ms  %7.2f ns/unit%n",
+            name, times[0] / 1e6, median / 1e6, (double) median / units);
+        return median;
+    }
+
+    private Benchmarks() {
+    }
+}
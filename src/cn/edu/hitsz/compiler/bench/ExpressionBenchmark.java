@@ -0,0 +1,51 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.TokenBuffer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.ProductionCollector;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+/**
+ * 比较纯 LR 驱动程序与把算术表达式交给优先级爬升子分析器的混合模式在长表达式上的吞吐量
+ * <br>
+ * 需在项目根目录下运行. 可选参数为赋值语句条数与赋值语句右部加减项的最大个数.
+ * 分别测量不注册观察者 (只有查表与维护栈的开销) 与注册 {@link ProductionCollector} (需要构造完整的事件序列) 两种情况.
+ */
+public class ExpressionBenchmark {
+    public static void main(String[] args) {
+        final var statements = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        final var maxTerms = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+
+        TokenKind.loadTokenKinds();
+        final var lexer = new LexicalAnalyzer(new SymbolTable());
+        lexer.loadFile(SourceGenerator.generateFile(statements, 42, maxTerms));
+        final var tokens = lexer.runToBuffer();
+        System.out.printf("%d tokens, %.1f tokens per statement%n", tokens.size(), (double) tokens.size() / statements);
+
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH).compile();
+        for (final var collect : new boolean[]{false, true}) {
+            final var suffix = collect ? " + collector" : "";
+            Benchmarks.measure("LR driver" + suffix, 5, 10, tokens.size(), () -> parse(tokens, table, false, collect));
+            Benchmarks.measure("precedence fast path" + suffix, 5, 10, tokens.size(), () -> parse(tokens, table, true, collect));
+        }
+    }
+
+    private static void parse(TokenBuffer tokens, PackedLRTable table, boolean fastPath, boolean collect) {
+        final var parser = new SyntaxAnalyzer(new SymbolTable());
+        parser.loadTokens(tokens.cursor());
+        parser.loadCompiledTable(table);
+        if (fastPath) {
+            parser.enableExpressionFastPath(GrammarInfo.getNonTerminal("E"));
+        }
+        if (collect) {
+            parser.registerObserver(new ProductionCollector(GrammarInfo.getBeginProduction()));
+        }
+        parser.run();
+    }
+}
@@ -0,0 +1,96 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.IncrementalLexer;
+import cn.edu.hitsz.compiler.lexer.LexerTable;
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.IncrementalParser;
+import cn.edu.hitsz.compiler.parser.ProductionCollector;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 比较 {@link IncrementalParser} 完整分析与在文件中部修改一个词法单元后增量分析的耗时
+ * <br>
+ * 需在项目根目录下运行. 可选参数为各个测试文件的语句条数. 修改交替地把文件中部的一个标识符换成另一个标识符,
+ * 使每次修改都确实改变了词法单元串. 另外单独测量把全部事件重放给 {@link ProductionCollector} 的耗时,
+ * 以及修改源代码中的一个字符后由 {@link IncrementalLexer} 重新词法分析并交给增量语法分析的耗时.
+ */
+public class IncrementalBenchmark {
+    public static void main(String[] args) {
+        final var sizes = new ArrayList<Integer>();
+        for (final var arg : args) {
+            sizes.add(Integer.parseInt(arg));
+        }
+        if (sizes.isEmpty()) {
+            sizes.addAll(List.of(1_000, 10_000, 100_000));
+        }
+
+        TokenKind.loadTokenKinds();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH).compile();
+        final var separator = TokenKind.fromString("Semicolon");
+        for (final var size : sizes) {
+            final var tokens = tokenize(size);
+
+            final var parser = new IncrementalParser(table, separator);
+            Benchmarks.measure("%d statements full".formatted(size), 3, 5, tokens.size(), () -> parser.parse(tokens));
+
+            // 文件中部的一个标识符, 与另一个标识符交替替换
+            var middle = tokens.size() / 2;
+            while (!tokens.get(middle).getKindId().equals("id")) {
+                middle++;
+            }
+            final var index = middle;
+            final var replacements = List.of(Token.normal("id", "edited"), tokens.get(index));
+            final var round = new int[]{0};
+            Benchmarks.measure("%d statements edit".formatted(size), 200, 1000, 1, () ->
+                parser.edit(index, index + 1, List.of(replacements.get(round[0]++ & 1))));
+            System.out.printf("  %d of %d segments, %d of %d tokens reparsed%n",
+                parser.getReparsedSegmentCount(), parser.getSegmentCount(), parser.getReparsedTokenCount(), tokens.size());
+
+            Benchmarks.measure("%d statements replay".formatted(size), 3, 5, tokens.size(), () ->
+                parser.replay(new ProductionCollector(GrammarInfo.getBeginProduction())));
+
+            measureRelex(size, table, separator);
+        }
+    }
+
+    /**
+     * 交替地把源代码中部的一个数字改为另一个数字, 重新词法分析后交给增量语法分析
+     */
+    private static void measureRelex(int statements, PackedLRTable table, TokenKind separator) {
+        final var source = SourceGenerator.generate(statements, 42);
+        final var lexer = new IncrementalLexer(new SymbolTable(), LexerTable.fromTokenKinds());
+        Benchmarks.measure("%d statements full lex".formatted(statements), 3, 5, source.length(), () -> lexer.load(source));
+
+        final var parser = new IncrementalParser(table, separator);
+        parser.parse(lexer.getTokens());
+        var middle = source.length() / 2;
+        while (!Character.isDigit(source.charAt(middle))) {
+            middle++;
+        }
+        final var offset = middle;
+        final var digits = List.of("7", source.substring(offset, offset + 1));
+        final var round = new int[]{0};
+        Benchmarks.measure("%d statements relex + reparse".formatted(statements), 200, 1000, 1, () ->
+            parser.edit(lexer.edit(offset, 1, digits.get(round[0]++ & 1))));
+    }
+
+    private static List<Token> tokenize(int statements) {
+        final var lexer = new LexicalAnalyzer(new SymbolTable());
+        lexer.loadFile(SourceGenerator.generateFile(statements, 42));
+        final var buffer = lexer.runToBuffer();
+        final var tokens = new ArrayList<Token>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            tokens.add(buffer.token(i));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,51 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 比较 {@link LexicalAnalyzer#runToBuffer()} 顺序分析与在公共 fork-join 线程池上按分号切分后并行分析的耗时
+ * <br>
+ * 需在项目根目录下运行. 可选参数为各个测试文件的语句条数, 每种大小都分别测量内存映射与读入 buffer 两种加载方式.
+ * 加速比受限于机器的核数, 且只有输入远大于 {@code PARALLEL_MIN_CHUNK} 时并行分析才会切分.
+ */
+public class LexerBenchmark {
+    public static void main(String[] args) {
+        final var sizes = new ArrayList<Integer>();
+        for (final var arg : args) {
+            sizes.add(Integer.parseInt(arg));
+        }
+        if (sizes.isEmpty()) {
+            sizes.addAll(List.of(100_000, 1_000_000));
+        }
+
+        TokenKind.loadTokenKinds();
+        System.out.printf("parallelism %d%n", ForkJoinPool.commonPool().getParallelism());
+        for (final var size : sizes) {
+            final var path = SourceGenerator.generateFile(size, 42);
+            final var bytes = new File(path).length();
+            for (final var mapped : new boolean[]{true, false}) {
+                final var name = "%d statements %s".formatted(size, mapped ? "mapped" : "buffer");
+                Benchmarks.measure(name, 2, 5, bytes, () -> run(path, mapped, null));
+                Benchmarks.measure(name + " parallel", 2, 5, bytes, () -> run(path, mapped, ForkJoinPool.commonPool()));
+            }
+        }
+    }
+
+    private static void run(String path, boolean mapped, ForkJoinPool pool) {
+        final var lexer = new LexicalAnalyzer(new SymbolTable());
+        if (mapped) {
+            lexer.loadMappedFile(path);
+        } else {
+            lexer.loadFile(path);
+        }
+        lexer.enableParallelLexing(pool);
+        lexer.runToBuffer();
+    }
+}
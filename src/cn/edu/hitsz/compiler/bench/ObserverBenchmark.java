@@ -0,0 +1,69 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.TokenBuffer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.GeneratedTranslator;
+import cn.edu.hitsz.compiler.parser.IRGenerator;
+import cn.edu.hitsz.compiler.parser.ProductionCollector;
+import cn.edu.hitsz.compiler.parser.SemanticAnalyzer;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+/**
+ * 比较各观察者在驱动程序线程中依次执行与在各自线程中并行执行时, 语法分析及语义动作的总耗时,
+ * 以及用由语义动作文件生成的 {@link GeneratedTranslator} 代替 {@link SemanticAnalyzer} 与 {@link IRGenerator} 时的耗时
+ * <br>
+ * 需在项目根目录下运行, 可选参数为生成的赋值语句条数.
+ */
+public class ObserverBenchmark {
+    public static void main(String[] args) {
+        final var statements = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        TokenKind.loadTokenKinds();
+        final var lexer = new LexicalAnalyzer(new SymbolTable());
+        lexer.loadFile(SourceGenerator.generateFile(statements, 42));
+        final var tokens = lexer.runToBuffer();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH).compile();
+        System.out.printf("%d tokens%n", tokens.size());
+
+        Benchmarks.measure("sequential observers", 3, 7, tokens.size(),
+            () -> parse(tokens, table, false, false));
+        Benchmarks.measure("concurrent observers", 3, 7, tokens.size(),
+            () -> parse(tokens, table, true, false));
+        Benchmarks.measure("generated translator", 3, 7, tokens.size(),
+            () -> parse(tokens, table, false, true));
+    }
+
+    private static void parse(TokenBuffer tokens, PackedLRTable table, boolean concurrent, boolean generated) {
+        // 语义分析会为标识符设置类型, 因此每轮都需要一张新的符号表.
+        // 按词法单元的顺序登记标识符, 得到的编号与词法分析时分配给各词法单元的编号相同
+        final var symbolTable = new SymbolTable();
+        final var id = TokenKind.fromString("id");
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.kind(i) == id) {
+                symbolTable.intern(tokens.text(i));
+            }
+        }
+
+        final var parser = new SyntaxAnalyzer(symbolTable);
+        if (concurrent) {
+            parser.enableConcurrentDispatch();
+        }
+        parser.registerObserver(new ProductionCollector(GrammarInfo.getBeginProduction()));
+        if (generated) {
+            parser.registerObserver(new GeneratedTranslator());
+        } else {
+            parser.registerObserver(new SemanticAnalyzer());
+            parser.registerObserver(new IRGenerator());
+        }
+        parser.loadTokens(tokens.cursor());
+        parser.loadCompiledTable(table);
+        parser.run();
+        parser.awaitObservers();
+    }
+}
@@ -0,0 +1,111 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenBuffer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.ActionObserver;
+import cn.edu.hitsz.compiler.parser.GeneratedSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+/**
+ * 比较对象图形式的 LR 分析表, 编译后的稠密矩阵, 内嵌分析表的生成类, 压缩表与越过单产生式规约的分析表在语法分析驱动程序中的性能,
+ * 并报告压缩表的内存占用与每个词法单元的规约次数
+ * <br>
+ * 需在项目根目录下运行, 以便读取码点文件与 LR 分析表. 可选参数为生成的赋值语句条数.
+ * 未注册观察者, 因此测得的只是驱动程序本身查表与维护栈的开销.
+ */
+public class ParserBenchmark {
+    public static void main(String[] args) {
+        final var statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        TokenKind.loadTokenKinds();
+        final var lexer = new LexicalAnalyzer(new SymbolTable());
+        lexer.loadFile(SourceGenerator.generateFile(statements, 42));
+        final var tokens = lexer.runToBuffer();
+
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        final var compiled = table.compile();
+        final var compressed = table.compress();
+        final var bypassed = compiled.bypassUnitReductions();
+        System.out.printf("%d tokens%n%s%n", tokens.size(), compressed.footprintReport(compiled));
+        System.out.printf("reduce steps per token: %.3f (compiled), %.3f (unit reductions bypassed, %d gotos rewritten)%n",
+            countReduces(tokens, compiled), countReduces(tokens, bypassed), bypassed.getBypassedCount());
+
+        Benchmarks.measure("object graph table", 5, 10, tokens.size(), () -> {
+            final var parser = newParser(tokens);
+            parser.loadLRTable(table);
+            parser.run();
+        });
+        Benchmarks.measure("compiled dense table", 5, 10, tokens.size(), () -> {
+            final var parser = newParser(tokens);
+            parser.loadCompiledTable(compiled);
+            parser.run();
+        });
+        Benchmarks.measure("generated parser", 5, 10, tokens.size(), () -> {
+            final var parser = new GeneratedSyntaxAnalyzer(new SymbolTable());
+            parser.loadTokens(tokens.cursor());
+            parser.run();
+        });
+        Benchmarks.measure("compressed table", 5, 10, tokens.size(), () -> {
+            final var parser = newParser(tokens);
+            parser.loadCompiledTable(compressed);
+            parser.run();
+        });
+        Benchmarks.measure("unit reductions bypassed", 5, 10, tokens.size(), () -> {
+            final var parser = newParser(tokens);
+            parser.loadCompiledTable(bypassed);
+            parser.run();
+        });
+    }
+
+    /**
+     * @return 驱动程序平均每个词法单元执行的规约次数 (不含被越过的单产生式)
+     */
+    private static double countReduces(TokenBuffer tokens, PackedLRTable table) {
+        final var counter = new ActionObserver() {
+            long reduces = 0;
+
+            @Override
+            public void whenShift(Status currentStatus, Token currentToken) {
+            }
+
+            @Override
+            public void whenReduce(Status currentStatus, Production production) {
+                reduces++;
+            }
+
+            @Override
+            public void whenAccept(Status currentStatus) {
+            }
+
+            @Override
+            public boolean wantsUnitReductions() {
+                return false;
+            }
+
+            @Override
+            public void setSymbolTable(SymbolStore table) {
+            }
+        };
+
+        final var parser = newParser(tokens);
+        parser.loadCompiledTable(table);
+        parser.registerObserver(counter);
+        parser.run();
+        return (double) counter.reduces / tokens.size();
+    }
+
+    private static SyntaxAnalyzer newParser(TokenBuffer tokens) {
+        final var parser = new SyntaxAnalyzer(new SymbolTable());
+        parser.loadTokens(tokens.cursor());
+        return parser;
+    }
+}
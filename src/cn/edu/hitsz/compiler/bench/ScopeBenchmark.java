@@ -0,0 +1,116 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.symtab.ScopedSymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolTableEntry;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 在深层嵌套且标识符密集的代码上比较 {@link ScopedSymbolTable} 与每进入一层作用域就复制一份可见符号表的做法
+ * <br>
+ * 可选参数依次为嵌套深度, 标识符的个数, 每层声明的符号数与每层查找的次数. 模拟的代码由若干轮组成, 每轮从全局作用域逐层进入到最深处,
+ * 每层先声明若干个随机的名字 (经常遮蔽外层的同名声明), 再查找若干个随机的名字, 然后逐层退出. 两种实现查找到的结果须完全相同.
+ */
+public class ScopeBenchmark {
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        final var depth = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        final var names = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        final var declarations = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        final var lookups = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        final var vocabulary = new String[names];
+        for (int i = 0; i < names; i++) {
+            vocabulary[i] = "v" + i;
+        }
+        final var random = new Random(42);
+        final var declared = new int[ROUNDS * depth][declarations];
+        final var looked = new int[ROUNDS * depth][lookups];
+        for (int block = 0; block < ROUNDS * depth; block++) {
+            for (int i = 0; i < declarations; i++) {
+                declared[block][i] = random.nextInt(names);
+            }
+            for (int i = 0; i < lookups; i++) {
+                looked[block][i] = random.nextInt(names);
+            }
+        }
+
+        System.out.printf("depth %d, %d names, %d declarations and %d lookups per scope%n", depth, names, declarations, lookups);
+        final var units = (long) ROUNDS * depth * (declarations + lookups);
+        final var results = new long[2];
+        Benchmarks.measure("scoped (undo log)", 2, 5, units,
+            () -> results[0] = runScoped(vocabulary, depth, declared, looked));
+        Benchmarks.measure("copy on enter", 1, 3, units,
+            () -> results[1] = runCopying(vocabulary, depth, declared, looked));
+        if (results[0] != results[1]) {
+            throw new RuntimeException("Scoped lookups differ: %d vs %d".formatted(results[0], results[1]));
+        }
+    }
+
+    /**
+     * @return 查找结果的校验和: 每次查找得到的声明所在的块的编号之和, 全局声明记为 -1
+     */
+    private static long runScoped(String[] vocabulary, int depth, int[][] declared, int[][] looked) {
+        final var table = new ScopedSymbolTable();
+        // 与词法分析一样, 先把所有标识符登记到全局作用域
+        final var symbols = new int[vocabulary.length];
+        for (int i = 0; i < vocabulary.length; i++) {
+            symbols[i] = table.intern(vocabulary[i]);
+        }
+        final var blocks = new HashMap<SymbolTableEntry, Integer>();
+
+        var checksum = 0L;
+        var block = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int level = 0; level < depth; level++, block++) {
+                table.enterScope();
+                for (final var name : declared[block]) {
+                    if (blocks.getOrDefault(table.get(symbols[name]), -1) != block) {
+                        blocks.put(table.declare(vocabulary[name]), block);
+                    }
+                }
+                for (final var name : looked[block]) {
+                    checksum += blocks.getOrDefault(table.get(symbols[name]), -1);
+                }
+            }
+            for (int level = 0; level < depth; level++) {
+                table.exitScope();
+            }
+        }
+        return checksum;
+    }
+
+    private static long runCopying(String[] vocabulary, int depth, int[][] declared, int[][] looked) {
+        final var global = new HashMap<String, SymbolTableEntry>();
+        for (int i = 0; i < vocabulary.length; i++) {
+            global.put(vocabulary[i], new SymbolTableEntry(vocabulary[i], i));
+        }
+        final var blocks = new HashMap<SymbolTableEntry, Integer>();
+
+        var checksum = 0L;
+        var block = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            final var scopes = new ArrayDeque<Map<String, SymbolTableEntry>>(List.of(global));
+            for (int level = 0; level < depth; level++, block++) {
+                final var scope = new HashMap<>(scopes.peek());
+                scopes.push(scope);
+                for (final var name : declared[block]) {
+                    if (blocks.getOrDefault(scope.get(vocabulary[name]), -1) != block) {
+                        final var entry = new SymbolTableEntry(vocabulary[name], name);
+                        scope.put(vocabulary[name], entry);
+                        blocks.put(entry, block);
+                    }
+                }
+                for (final var name : looked[block]) {
+                    checksum += blocks.getOrDefault(scope.get(vocabulary[name]), -1);
+                }
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,122 @@
+package cn.edu.hitsz.compiler.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * 为基准测试生成合法的源程序
+ * <br>
+ * 生成的程序先声明若干变量并为其赋初值, 再由一系列赋值语句组成, 每条赋值语句的右部为随机生成的算术表达式,
+ * 最后返回其中一个变量. 程序只使用语法中出现的结构, 因此可以被完整地编译与模拟执行.
+ */
+public class SourceGenerator {
+    /**
+     * @param statements 赋值语句的条数
+     * @param seed       随机数种子, 相同的种子生成相同的程序
+     * @return 源程序文本
+     */
+    public static String generate(int statements, long seed) {
+        return generate(statements, seed, DEFAULT_MAX_TERMS);
+    }
+
+    /**
+     * @param statements 赋值语句的条数
+     * @param seed       随机数种子
+     * @param maxTerms   赋值语句右部 (不含括号内) 加减项的最大个数, 用于生成较长的表达式
+     * @return 源程序文本
+     */
+    public static String generate(int statements, long seed, int maxTerms) {
+        return new SourceGenerator(seed, maxTerms).program(statements);
+    }
+
+    /**
+     * 生成源程序并写入临时文件, 供只能从文件读取源代码的各个部分使用. 临时文件在虚拟机退出时删除
+     *
+     * @param statements 赋值语句的条数
+     * @param seed       随机数种子
+     * @return 临时文件路径
+     */
+    public static String generateFile(int statements, long seed) {
+        return generateFile(statements, seed, DEFAULT_MAX_TERMS);
+    }
+
+    /**
+     * @param statements 赋值语句的条数
+     * @param seed       随机数种子
+     * @param maxTerms   赋值语句右部加减项的最大个数
+     * @return 临时文件路径
+     */
+    public static String generateFile(int statements, long seed, int maxTerms) {
+        try {
+            final var path = Files.createTempFile("bench-", ".txt");
+            path.toFile().deleteOnExit();
+            Files.writeString(path, generate(statements, seed, maxTerms));
+            return path.toString();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on writing generated source", e);
+        }
+    }
+
+    private static final int VARIABLE_COUNT = 16;
+    private static final int MAX_DEPTH = 4;
+    private static final int DEFAULT_MAX_TERMS = 3;
+
+    private final Random random;
+    private final int maxTerms;
+    private final StringBuilder builder = new StringBuilder();
+
+    private SourceGenerator(long seed, int maxTerms) {
+        this.random = new Random(seed);
+        this.maxTerms = maxTerms;
+    }
+
+    private String program(int statements) {
+        for (int i = 0; i < VARIABLE_COUNT; i++) {
+            builder.append("int v").append(i).append(";\n");
+        }
+        for (int i = 0; i < VARIABLE_COUNT; i++) {
+            builder.append('v').append(i).append(" = ").append(random.nextInt(100)).append(";\n");
+        }
+        for (int i = 0; i < statements; i++) {
+            builder.append('v').append(random.nextInt(VARIABLE_COUNT)).append(" = ");
+            expression(0);
+            builder.append(";\n");
+        }
+        builder.append("return v0;");
+        return builder.toString();
+    }
+
+    private void expression(int depth) {
+        final var terms = 1 + random.nextInt(depth == 0 ? maxTerms : DEFAULT_MAX_TERMS);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                builder.append(random.nextBoolean() ? " + " : " - ");
+            }
+            term(depth);
+        }
+    }
+
+    private void term(int depth) {
+        final var factors = 1 + random.nextInt(2);
+        for (int i = 0; i < factors; i++) {
+            if (i > 0) {
+                builder.append(" * ");
+            }
+            factor(depth);
+        }
+    }
+
+    private void factor(int depth) {
+        final var choice = random.nextInt(depth < MAX_DEPTH ? 3 : 2);
+        switch (choice) {
+            case 0 -> builder.append('v').append(random.nextInt(VARIABLE_COUNT));
+            case 1 -> builder.append(random.nextInt(10));
+            default -> {
+                builder.append("( ");
+                expression(depth + 1);
+                builder.append(" )");
+            }
+        }
+    }
+}
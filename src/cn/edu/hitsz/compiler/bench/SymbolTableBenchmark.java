@@ -0,0 +1,134 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.symtab.ConcurrentSymbolTable;
+import cn.edu.hitsz.compiler.symtab.SourceCodeType;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolTableEntry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 多个线程同时登记标识符并设置其类型, 比较 {@link ConcurrentSymbolTable} 与以 synchronized 保护的 {@link SymbolTable} 的吞吐量
+ * <br>
+ * 可选参数依次为不同标识符的个数与每个线程登记的次数. 各线程以不同的随机顺序登记同一组标识符, 每次登记后都尝试设置类型,
+ * 模拟词法分析与语义分析同时进行. 每种线程数测量结束后检查符号表: 每个标识符恰有一个条目, 编号互不相同且稠密,
+ * 并且恰有一次设置类型成功. 加速比受限于机器的核数.
+ */
+public class SymbolTableBenchmark {
+    public static void main(String[] args) {
+        final var names = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        final var operations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        final var vocabulary = new String[names];
+        for (int i = 0; i < names; i++) {
+            vocabulary[i] = "v" + i;
+        }
+
+        final var processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d processors, %d names, %d operations per thread%n", processors, names, operations);
+        for (int threads = 1; threads <= Math.max(4, processors * 2); threads *= 2) {
+            final var orders = orders(threads, operations, names);
+            final var units = (long) threads * operations;
+            Benchmarks.measure("%d threads synchronized".formatted(threads), 2, 5, units,
+                () -> run(new LockedSymbolTable(), vocabulary, orders));
+            Benchmarks.measure("%d threads concurrent".formatted(threads), 2, 5, units,
+                () -> run(new ConcurrentSymbolTable(), vocabulary, orders));
+            check(ConcurrentSymbolTable::new, vocabulary, orders);
+        }
+    }
+
+    /**
+     * @return 各线程登记标识符的顺序
+     */
+    private static int[][] orders(int threads, int operations, int names) {
+        final var random = new Random(42);
+        final var orders = new int[threads][operations];
+        for (final var order : orders) {
+            for (int i = 0; i < operations; i++) {
+                order[i] = random.nextInt(names);
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * @return 设置类型成功的次数
+     */
+    private static int run(SymbolStore table, String[] vocabulary, int[][] orders) {
+        final var typed = new AtomicInteger();
+        final var workers = new ArrayList<Thread>();
+        for (final var order : orders) {
+            workers.add(new Thread(() -> {
+                var success = 0;
+                for (final var index : order) {
+                    final var entry = table.get(table.intern(vocabulary[index]));
+                    if (entry.getType() == null) {
+                        try {
+                            entry.setType(SourceCodeType.Int);
+                            success++;
+                        } catch (RuntimeException e) {
+                            // 其它线程抢先设置了类型
+                        }
+                    }
+                }
+                typed.addAndGet(success);
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (final var worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return typed.get();
+    }
+
+    private static void check(Supplier<SymbolStore> tables, String[] vocabulary, int[][] orders) {
+        final var table = tables.get();
+        final var typed = run(table, vocabulary, orders);
+
+        final var expected = new HashSet<String>();
+        for (final var order : orders) {
+            for (final var index : order) {
+                expected.add(vocabulary[index]);
+            }
+        }
+        final var ids = new HashSet<Integer>();
+        for (final var name : expected) {
+            final var id = table.lookup(name);
+            if (id < 0 || id >= expected.size() || !ids.add(id) || !table.get(id).getText().equals(name)) {
+                throw new RuntimeException("Lost or duplicated entry for " + name);
+            }
+        }
+        if (table.size() != expected.size() || typed != expected.size()) {
+            throw new RuntimeException("Expected %d entries typed once, got %d entries typed %d times"
+                .formatted(expected.size(), table.size(), typed));
+        }
+    }
+
+    /**
+     * 以 synchronized 保护所有操作的符号表, 作为比较的基准
+     */
+    private static class LockedSymbolTable extends SymbolTable {
+        @Override
+        public synchronized int intern(CharSequence text) {
+            return super.intern(text);
+        }
+
+        @Override
+        public synchronized int lookup(CharSequence text) {
+            return super.lookup(text);
+        }
+
+        @Override
+        public synchronized SymbolTableEntry get(int id) {
+            return super.get(id);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.NonTerminal;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.TableGenerator;
+import cn.edu.hitsz.compiler.parser.table.Term;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 报告 {@link TableGenerator} 在各种模式下构造分析表的耗时
+ * <br>
+ * 除语法文件中的文法外, 还会由 {@link #generateGrammar(int)} 生成含有数百条产生式的文法.
+ * 需在项目根目录下运行, 以便读取码点文件与语法文件. 可选参数为各个生成文法中语句的种数.
+ * 每种模式都分别测量顺序构造与在公共 fork-join 线程池上逐层并行构造的耗时.
+ * SLR(1) 模式仍使用原先基于项目集合的实现, 文法较大时耗时很长, 因此只在种数不超过 {@link #SLR_KIND_LIMIT} 时测量.
+ */
+public class TableGeneratorBenchmark {
+    private static final int SLR_KIND_LIMIT = 10;
+
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+
+        final var kinds = new ArrayList<Integer>();
+        for (final var arg : args) {
+            kinds.add(Integer.parseInt(arg));
+        }
+        if (kinds.isEmpty()) {
+            kinds.addAll(List.of(10, 25, 50));
+        }
+
+        measure("grammar.txt", GrammarInfo.getProductionsInOrder(), true);
+        for (final var kind : kinds) {
+            measure("%d kinds".formatted(kind), generateGrammar(kind), kind <= SLR_KIND_LIMIT);
+        }
+    }
+
+    private static void measure(String name, List<Production> productions, boolean includeSLR) {
+        for (final var mode : TableGenerator.Mode.values()) {
+            if (mode == TableGenerator.Mode.SLR && !includeSLR) {
+                continue;
+            }
+
+            final var generator = new TableGenerator(productions, mode);
+            generator.run();
+            final var states = generator.getTable().compile().getStateCount();
+            Benchmarks.measure("%s %s (%d prods, %d states)".formatted(name, mode, productions.size(), states),
+                2, 5, productions.size(), () -> new TableGenerator(productions, mode).run());
+            Benchmarks.measure("%s %s parallel".formatted(name, mode), 2, 5, productions.size(), () -> {
+                final var parallel = new TableGenerator(productions, mode);
+                parallel.enableParallelConstruction(ForkJoinPool.commonPool());
+                parallel.run();
+            });
+        }
+    }
+
+    /**
+     * 生成含有多种赋值语句的文法, 每种语句以不同个数的 return 开头, 并各自拥有一套表达式的非终结符:
+     * <pre>
+     *     P -> S_list
+     *     S_list -> S Semicolon S_list | S Semicolon
+     *     S -> D id
+     *     D -> int
+     *     S -> return^j id = Ej_0                              (0 <= j < kinds)
+     *     Ej_0 -> Ej_0 + Ej_1 | Ej_0 - Ej_1 | Ej_1
+     *     Ej_1 -> Ej_1 * Ej_2 | Ej_1 / Ej_2 | Ej_2
+     *     Ej_2 -> ( Ej_0 ) | - Ej_2 | id | IntConst
+     * </pre>
+     *
+     * @param kinds 语句的种数, 每种语句对应 11 条产生式
+     * @return 按顺序编号的产生式
+     */
+    public static List<Production> generateGrammar(int kinds) {
+        final var program = new NonTerminal("P", 0);
+        final var statements = new NonTerminal("S_list", 1);
+        final var statement = new NonTerminal("S", 2);
+        final var declaration = new NonTerminal("D", 3);
+
+        final var id = TokenKind.fromString("id");
+        final var productions = new ArrayList<Production>();
+        add(productions, program, statements);
+        add(productions, statements, statement, TokenKind.fromString("Semicolon"), statements);
+        add(productions, statements, statement, TokenKind.fromString("Semicolon"));
+        add(productions, statement, declaration, id);
+        add(productions, declaration, TokenKind.fromString("int"));
+
+        for (int j = 0; j < kinds; j++) {
+            final var sum = new NonTerminal("E%d_0".formatted(j), 4 + 3 * j);
+            final var product = new NonTerminal("E%d_1".formatted(j), 5 + 3 * j);
+            final var factor = new NonTerminal("E%d_2".formatted(j), 6 + 3 * j);
+
+            final var body = new ArrayList<Term>();
+            for (int i = 0; i < j; i++) {
+                body.add(TokenKind.fromString("return"));
+            }
+            body.addAll(List.of(id, TokenKind.fromString("="), sum));
+            add(productions, statement, body.toArray(Term[]::new));
+
+            add(productions, sum, sum, TokenKind.fromString("+"), product);
+            add(productions, sum, sum, TokenKind.fromString("-"), product);
+            add(productions, sum, product);
+            add(productions, product, product, TokenKind.fromString("*"), factor);
+            add(productions, product, product, TokenKind.fromString("/"), factor);
+            add(productions, product, factor);
+            add(productions, factor, TokenKind.fromString("("), sum, TokenKind.fromString(")"));
+            add(productions, factor, TokenKind.fromString("-"), factor);
+            add(productions, factor, id);
+            add(productions, factor, TokenKind.fromString("IntConst"));
+        }
+        return productions;
+    }
+
+    private static void add(List<Production> productions, NonTerminal head, Term... body) {
+        productions.add(new Production(productions.size() + 1, head, List.of(body)));
+    }
+}
@@ -0,0 +1,272 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.bench.SourceGenerator;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenBuffer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.AbstractSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.ActionObserver;
+import cn.edu.hitsz.compiler.parser.AttributeObserver;
+import cn.edu.hitsz.compiler.parser.AttributeStack;
+import cn.edu.hitsz.compiler.parser.GeneratedSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.IRGenerator;
+import cn.edu.hitsz.compiler.parser.IncrementalParser;
+import cn.edu.hitsz.compiler.parser.SemanticAnalyzer;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 检查 {@link SemanticAnalyzer} 与 {@link IRGenerator} 使用驱动程序共用的属性栈, 与各自使用自己的属性栈时得到的中间代码与符号表相同
+ * <br>
+ * 两个观察者直接注册到驱动程序时共用一个属性栈; 包装在不实现 {@link AttributeObserver} 的观察者中,
+ * 或由 {@link IncrementalParser} 直接重放事件时, 它们各自维护自己的属性栈. 对两种情况分别在普通的分析表, 折叠状态栈
+ * (折叠与换回属性栈) 与越过单产生式的分析表 (新行复制产生式体中第一个符号的属性) 上检查.
+ * <br>
+ * 这两个观察者只读取语句内的属性, 察觉不到语句之间的符号被折叠错位. 因此另外注册一个记录每个符号覆盖的词法单元范围的观察者,
+ * 检查每次规约时产生式体中相邻的符号在源代码中也相邻.
+ */
+public class AttributeStackCheck {
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        final var compiled = table.compile();
+        final var bypassed = compiled.bypassUnitReductions();
+        final var semicolon = TokenKind.fromString("Semicolon");
+
+        final var modes = new LinkedHashMap<String, Mode>();
+        for (final var wrapped : List.of(false, true)) {
+            final var stack = wrapped ? " with private stacks" : " with a shared stack";
+            modes.put("LR driver" + stack, (symbolTable, tokens, observers) -> {
+                final var parser = new SyntaxAnalyzer(symbolTable);
+                parser.loadLRTable(table);
+                register(parser, observers, wrapped);
+                parser.loadTokens(tokens.cursor());
+                parser.run();
+            });
+            modes.put("stack folding" + stack, (symbolTable, tokens, observers) -> {
+                final var parser = new SyntaxAnalyzer(symbolTable);
+                parser.loadCompiledTable(compiled);
+                parser.enableStackFolding(semicolon);
+                register(parser, observers, wrapped);
+                parser.loadTokens(tokens.cursor());
+                parser.run();
+            });
+            modes.put("bypassed table" + stack, (symbolTable, tokens, observers) -> {
+                final var parser = new SyntaxAnalyzer(symbolTable);
+                parser.loadCompiledTable(bypassed);
+                register(parser, observers, wrapped);
+                parser.loadTokens(tokens.cursor());
+                parser.run();
+            });
+        }
+        modes.put("generated parser with a shared stack", (symbolTable, tokens, observers) -> {
+            final var parser = new GeneratedSyntaxAnalyzer(symbolTable);
+            register(parser, observers, false);
+            parser.loadTokens(tokens.cursor());
+            parser.run();
+        });
+        modes.put("incremental replay with private stacks", (symbolTable, tokens, observers) -> {
+            final var list = new ArrayList<Token>();
+            for (int i = 0; i < tokens.size(); i++) {
+                list.add(tokens.token(i));
+            }
+            final var parser = new IncrementalParser(compiled, semicolon);
+            parser.parse(list);
+            for (final var observer : observers) {
+                observer.setSymbolTable(symbolTable);
+            }
+            parser.replay(observers.toArray(ActionObserver[]::new));
+        });
+
+        final var sources = new ArrayList<String>();
+        sources.add(FilePathConfig.SRC_CODE_PATH);
+        for (int seed = 1; seed <= 5; seed++) {
+            sources.add(SourceGenerator.generateFile(200, seed, 8));
+        }
+        for (final var source : sources) {
+            final var expected = run(source, modes.get("LR driver with private stacks"));
+            for (final var mode : modes.entrySet()) {
+                final var actual = run(source, mode.getValue());
+                Checks.expectEquals(mode.getKey() + " IR on " + source, expected.ir(), actual.ir());
+                Checks.expectEquals(mode.getKey() + " symbol table on " + source, expected.symbols(), actual.symbols());
+            }
+            expectSpans(source, modes);
+        }
+
+        Checks.finish();
+    }
+
+    private static void register(AbstractSyntaxAnalyzer parser, List<ActionObserver> observers, boolean wrapped) {
+        for (final var observer : observers) {
+            parser.registerObserver(wrapped ? new Wrapper(observer) : observer);
+        }
+    }
+
+    private static void expectSpans(String source, Map<String, Mode> modes) {
+        final var tokens = Checks.lex(source, new SymbolTable());
+        final var expected = new SpanObserver();
+        modes.get("LR driver with a shared stack").run(new SymbolTable(), tokens, List.of(expected));
+        Checks.expectEquals("spans with the LR driver on " + source, 0, expected.gaps);
+        for (final var mode : List.of("stack folding with a shared stack", "bypassed table with a shared stack",
+            "generated parser with a shared stack")) {
+            final var actual = new SpanObserver();
+            modes.get(mode).run(new SymbolTable(), tokens, List.of(actual));
+            Checks.expectEquals(mode + " spans on " + source, 0, actual.gaps);
+            // 折叠后补回的符号不记录范围, 越过的单产生式规约不发出, 所以只要求记录到的规约依次出现在 LR 驱动程序的记录中
+            Checks.expect(mode + " reductions on " + source, isSubsequence(actual.reductions, expected.reductions));
+        }
+    }
+
+    private static boolean isSubsequence(List<String> sub, List<String> list) {
+        var index = 0;
+        for (final var element : list) {
+            if (index < sub.size() && sub.get(index).equals(element)) {
+                index++;
+            }
+        }
+        return index == sub.size();
+    }
+
+    private static Outcome run(String source, Mode mode) {
+        final var symbolTable = new SymbolTable();
+        final var tokens = Checks.lex(source, symbolTable);
+        final var irGenerator = new IRGenerator();
+        mode.run(symbolTable, tokens, List.of(new SemanticAnalyzer(), irGenerator));
+
+        final var ir = irGenerator.getIR().stream().map(Objects::toString).toList();
+        try {
+            final var path = Checks.sourceFile("");
+            symbolTable.dumpTable(path);
+            return new Outcome(ir, Files.readString(Path.of(path)));
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on reading the dumped table", e);
+        }
+    }
+
+    /**
+     * 为每个符号记录它覆盖的词法单元的起点与个数. 折叠后补回的占位符号个数为 0, 不参与检查
+     */
+    private static class SpanObserver implements AttributeObserver {
+        private AttributeStack attributes;
+        private int startSlot;
+        private int widthSlot;
+        private int shifted = 0;
+        // 产生式体中相邻的两个符号在源代码中不相邻的次数
+        int gaps = 0;
+        // 产生式体中没有占位符号的规约及其范围
+        final List<String> reductions = new ArrayList<>();
+
+        @Override
+        public void setAttributeStack(AttributeStack attributes) {
+            this.attributes = attributes;
+            startSlot = attributes.declare("span start");
+            widthSlot = attributes.declare("span width");
+        }
+
+        @Override
+        public void whenShift(Status currentStatus, Token currentToken) {
+            attributes.set(startSlot, shifted++);
+            attributes.set(widthSlot, 1);
+        }
+
+        @Override
+        public void whenReduce(Status currentStatus, Production production) {
+            final var length = production.body().size();
+            var complete = true;
+            for (int i = 0; i < length; i++) {
+                if (attributes.get(widthSlot, i) == 0) {
+                    complete = false;
+                } else if (i > 0 && attributes.get(widthSlot, i - 1) != 0
+                    && attributes.get(startSlot, i) != attributes.get(startSlot, i - 1) + attributes.get(widthSlot, i - 1)) {
+                    gaps++;
+                }
+            }
+            if (!complete) {
+                attributes.set(widthSlot, 0);
+                return;
+            }
+            final var start = attributes.get(startSlot, 0);
+            final var width = attributes.get(startSlot, length - 1) + attributes.get(widthSlot, length - 1) - start;
+            attributes.set(widthSlot, width);
+            if (length != 1) {
+                reductions.add(production + " " + start + " " + width);
+            }
+        }
+
+        @Override
+        public void whenAccept(Status currentStatus) {
+        }
+
+        @Override
+        public void setSymbolTable(SymbolStore table) {
+        }
+    }
+
+    /**
+     * 以某种方式分析词法单元并把事件分发给观察者
+     */
+    private interface Mode {
+        void run(SymbolStore symbolTable, TokenBuffer tokens, List<ActionObserver> observers);
+    }
+
+    /**
+     * @param ir      中间代码
+     * @param symbols 输出的符号表
+     */
+    private record Outcome(List<String> ir, String symbols) {
+    }
+
+    /**
+     * 只转发事件的观察者. 它不是 {@link cn.edu.hitsz.compiler.parser.AttributeObserver}, 被包装的观察者因此不会拿到共用的属性栈
+     */
+    private record Wrapper(ActionObserver delegate) implements ActionObserver {
+        @Override
+        public void whenShift(Status currentStatus, Token currentToken) {
+            delegate.whenShift(currentStatus, currentToken);
+        }
+
+        @Override
+        public void whenReduce(Status currentStatus, Production production) {
+            delegate.whenReduce(currentStatus, production);
+        }
+
+        @Override
+        public void whenAccept(Status currentStatus) {
+            delegate.whenAccept(currentStatus);
+        }
+
+        @Override
+        public boolean wantsUnitReductions() {
+            return delegate.wantsUnitReductions();
+        }
+
+        @Override
+        public void whenFold(int length, int above) {
+            delegate.whenFold(length, above);
+        }
+
+        @Override
+        public void whenUnfold(int length, int above) {
+            delegate.whenUnfold(length, above);
+        }
+
+        @Override
+        public void setSymbolTable(SymbolStore table) {
+            delegate.setSymbolTable(table);
+        }
+    }
+}
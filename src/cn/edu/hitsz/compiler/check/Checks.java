@@ -0,0 +1,118 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.TokenBuffer;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 等价性检查的断言工具
+ * <br>
+ * 各检查程序需在项目根目录下以 main 方法运行, 逐项输出检查结果, 最后调用 {@link #finish()} 汇总; 有检查未通过时以非零状态退出.
+ */
+public class Checks {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    /**
+     * @param name 检查项的名称
+     * @param ok   是否通过
+     */
+    public static void expect(String name, boolean ok) {
+        if (ok) {
+            passed++;
+        } else {
+            failed++;
+            System.out.println("FAIL " + name);
+        }
+    }
+
+    /**
+     * 比较两个对象是否相等; 都是列表时输出第一个不同的元素
+     *
+     * @param name     检查项的名称
+     * @param expected 参照实现的结果
+     * @param actual   被检查实现的结果
+     */
+    public static void expectEquals(String name, Object expected, Object actual) {
+        if (Objects.equals(expected, actual)) {
+            passed++;
+            return;
+        }
+
+        failed++;
+        if (expected instanceof List<?> expectedList && actual instanceof List<?> actualList) {
+            var index = 0;
+            while (index < expectedList.size() && index < actualList.size()
+                && Objects.equals(expectedList.get(index), actualList.get(index))) {
+                index++;
+            }
+            System.out.printf("FAIL %s: size %d vs %d, first difference at %d: %s vs %s%n", name,
+                expectedList.size(), actualList.size(), index,
+                index < expectedList.size() ? expectedList.get(index) : "<end>",
+                index < actualList.size() ? actualList.get(index) : "<end>");
+        } else {
+            System.out.printf("FAIL %s: expected %s, got %s%n", name, expected, actual);
+        }
+    }
+
+    /**
+     * @param name 检查项的名称
+     * @param task 应当抛出 RuntimeException 的任务
+     */
+    public static void expectThrows(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            passed++;
+            return;
+        }
+        failed++;
+        System.out.println("FAIL " + name + ": no exception");
+    }
+
+    /**
+     * 把源程序写入临时文件, 供只能从文件读取源代码的各个部分使用. 临时文件在虚拟机退出时删除
+     *
+     * @param source 源程序文本
+     * @return 临时文件路径
+     */
+    public static String sourceFile(String source) {
+        try {
+            final var path = Files.createTempFile("check-", ".txt");
+            path.toFile().deleteOnExit();
+            Files.writeString(path, source);
+            return path.toString();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on writing source", e);
+        }
+    }
+
+    /**
+     * @param path        源程序路径
+     * @param symbolTable 词法分析使用的符号表
+     * @return 源程序的全部词法单元
+     */
+    public static TokenBuffer lex(String path, SymbolStore symbolTable) {
+        final var lexer = new LexicalAnalyzer(symbolTable);
+        lexer.loadFile(path);
+        return lexer.runToBuffer();
+    }
+
+    /**
+     * 输出通过与未通过的检查项数, 有未通过的检查项时以状态 1 退出
+     */
+    public static void finish() {
+        System.out.printf("%d passed, %d failed%n", passed, failed);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private Checks() {
+    }
+}
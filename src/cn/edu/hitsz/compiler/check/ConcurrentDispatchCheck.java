@@ -0,0 +1,160 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.bench.SourceGenerator;
+import cn.edu.hitsz.compiler.ir.Instruction;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.AbstractSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.GeneratedSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.GeneratedTranslator;
+import cn.edu.hitsz.compiler.parser.IRGenerator;
+import cn.edu.hitsz.compiler.parser.SemanticAnalyzer;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.ConcurrentSymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 检查在独立线程中运行的观察者 (见 {@link AbstractSyntaxAnalyzer#enableConcurrentDispatch()}) 得到的结果与在驱动程序的线程中运行时相同
+ * <br>
+ * 除记录事件的观察者外, 分别注册手写的语义分析与 IR 生成, 或生成的翻译器 (两者都登记符号的类型, 不能同时注册),
+ * 比较事件序列, 中间代码与符号表. 另外检查语法错误与观察者报错时异常能传回调用者, 且之后不会留下观察者线程.
+ */
+public class ConcurrentDispatchCheck {
+    private static final String THREAD_PREFIX = "observer-";
+
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        final var compiled = table.compile();
+
+        final var drivers = new LinkedHashMap<String, Function<SymbolStore, AbstractSyntaxAnalyzer>>();
+        drivers.put("LR driver", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadLRTable(table);
+            return parser;
+        });
+        drivers.put("stack folding", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(compiled);
+            parser.enableStackFolding(TokenKind.fromString("Semicolon"));
+            return parser;
+        });
+        drivers.put("bypassed table", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(compiled.bypassUnitReductions());
+            return parser;
+        });
+        drivers.put("generated parser", GeneratedSyntaxAnalyzer::new);
+
+        final var sources = new ArrayList<String>();
+        sources.add(FilePathConfig.SRC_CODE_PATH);
+        for (int seed = 1; seed <= 3; seed++) {
+            sources.add(SourceGenerator.generateFile(500, seed, 8));
+        }
+        for (final var source : sources) {
+            for (final var driver : drivers.entrySet()) {
+                for (final var generated : List.of(false, true)) {
+                    final var name = driver.getKey() + (generated ? " generated" : " handwritten") + " on " + source;
+                    final var expected = run(source, driver.getValue(), generated, false);
+                    Checks.expect(name + " sequential succeeds", expected.failure() == null);
+                    Checks.expectEquals(name, expected, run(source, driver.getValue(), generated, true));
+                }
+            }
+        }
+        Checks.expectEquals("no observer threads after successful runs", List.of(), observerThreads());
+
+        final var syntaxError = Checks.sourceFile("int a;\na = ( 1 + 2 ;\nreturn a;");
+        final var redeclaration = Checks.sourceFile("int a;\nint a;\na = 1;\nreturn a;");
+        for (final var driver : drivers.entrySet()) {
+            for (final var source : List.of(syntaxError, redeclaration)) {
+                for (final var generated : List.of(false, true)) {
+                    final var name = driver.getKey() + (generated ? " generated" : " handwritten") + " on " + source;
+                    final var expected = run(source, driver.getValue(), generated, false);
+                    final var actual = run(source, driver.getValue(), generated, true);
+                    Checks.expect(name + " sequential fails", expected.failure() != null);
+                    Checks.expectEquals(name + " concurrent fails", expected.failure(), actual.failure());
+                    Checks.expectEquals(name + " observer threads", List.of(), observerThreads());
+                }
+            }
+        }
+
+        final var parser = new SyntaxAnalyzer(new ConcurrentSymbolTable());
+        parser.registerObserver(new EventRecorder());
+        Checks.expectThrows("enable after registering observers", parser::enableConcurrentDispatch);
+
+        Checks.finish();
+    }
+
+    /**
+     * @param generated  使用生成的翻译器, 否则使用手写的两个观察者
+     * @param concurrent 是否令观察者在独立线程中运行
+     */
+    private static Outcome run(String source, Function<SymbolStore, AbstractSyntaxAnalyzer> driver,
+                               boolean generated, boolean concurrent) {
+        final var symbolTable = new ConcurrentSymbolTable();
+        final var tokens = Checks.lex(source, symbolTable);
+        final var parser = driver.apply(symbolTable);
+        if (concurrent) {
+            parser.enableConcurrentDispatch();
+        }
+        final var recorder = new EventRecorder();
+        parser.registerObserver(recorder);
+        final Supplier<List<Instruction>> ir;
+        if (generated) {
+            final var translator = new GeneratedTranslator();
+            parser.registerObserver(translator);
+            ir = translator::getIR;
+        } else {
+            final var irGenerator = new IRGenerator();
+            parser.registerObserver(new SemanticAnalyzer());
+            parser.registerObserver(irGenerator);
+            ir = irGenerator::getIR;
+        }
+        parser.loadTokens(tokens.cursor());
+        try {
+            parser.run();
+            parser.awaitObservers();
+        } catch (RuntimeException e) {
+            return new Outcome(null, null, null, e.getClass().getName());
+        }
+
+        try {
+            final var path = Checks.sourceFile("");
+            symbolTable.dumpTable(path);
+            return new Outcome(recorder.getEvents(), ir.get().stream().map(Objects::toString).toList(),
+                Files.readString(Path.of(path)), null);
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on reading the dumped table", e);
+        }
+    }
+
+    /**
+     * @return 仍存活的观察者线程的名字
+     */
+    private static List<String> observerThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread.isAlive() && thread.getName().startsWith(THREAD_PREFIX))
+            .map(Thread::getName)
+            .toList();
+    }
+
+    /**
+     * @param events  记录到的事件
+     * @param ir      中间代码
+     * @param symbols 输出的符号表
+     * @param failure 分析报错时异常的类名, 否则为 null
+     */
+    private record Outcome(List<String> events, List<String> ir, String symbols, String failure) {
+    }
+}
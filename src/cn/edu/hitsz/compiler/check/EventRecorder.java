@@ -0,0 +1,45 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.parser.ActionObserver;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按顺序记录驱动程序发出的全部动作事件, 用于比较不同驱动程序的事件序列
+ * <br>
+ * 每个事件记录为一个字符串, 包含状态编号与词法单元或产生式. 折叠与换回状态栈的事件不记录, 它们只在启用折叠时才会发出.
+ */
+public class EventRecorder implements ActionObserver {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void whenShift(Status currentStatus, Token currentToken) {
+        events.add("shift " + currentStatus.index() + " " + currentToken);
+    }
+
+    @Override
+    public void whenReduce(Status currentStatus, Production production) {
+        events.add("reduce " + currentStatus.index() + " " + production);
+    }
+
+    @Override
+    public void whenAccept(Status currentStatus) {
+        events.add("accept " + currentStatus.index());
+    }
+
+    @Override
+    public void setSymbolTable(SymbolStore table) {
+    }
+
+    /**
+     * @return 已记录的事件
+     */
+    public List<String> getEvents() {
+        return events;
+    }
+}
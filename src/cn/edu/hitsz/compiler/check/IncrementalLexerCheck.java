@@ -0,0 +1,100 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.bench.SourceGenerator;
+import cn.edu.hitsz.compiler.lexer.IncrementalLexer;
+import cn.edu.hitsz.compiler.lexer.LexerTable;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * 检查 {@link IncrementalLexer} 在一系列修改之后的词法单元串与符号表与完整分析修改后的源代码相同
+ * <br>
+ * 修改随机地替换, 插入与删除字符, 其中包括空白与分界符, 使词法单元的边界发生变化. 每次修改返回的 {@link IncrementalLexer.TokenEdit}
+ * 被应用到另一份词法单元串上, 以检查它确实描述了词法单元串的变化. 最后逐字输入一个很长的标识符, 检查符号表没有随按键次数增长.
+ */
+public class IncrementalLexerCheck {
+    private static final int ROUNDS = 500;
+    private static final String ALPHABET = "abcxyz0123456789 ;=+-*()\n";
+
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+        final var table = LexerTable.fromTokenKinds();
+        final var symbolTable = new SymbolTable();
+        final var lexer = new IncrementalLexer(symbolTable, table);
+        lexer.load(SourceGenerator.generate(50, 11));
+        final var mirror = new ArrayList<>(lexer.getTokens());
+
+        final var random = new Random(5);
+        for (int round = 0; round < ROUNDS; round++) {
+            final var length = lexer.getText().length();
+            final var offset = random.nextInt(length + 1);
+            final var removed = Math.min(random.nextInt(4), length - offset);
+            final var inserted = new StringBuilder();
+            for (int i = random.nextInt(4); i > 0; i--) {
+                inserted.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+
+            final var edit = lexer.edit(offset, removed, inserted.toString());
+            final var range = mirror.subList(edit.from(), edit.to());
+            range.clear();
+            range.addAll(edit.replacement());
+            expectSameAsFullLex("edit " + round, lexer, symbolTable, mirror, table);
+        }
+
+        // 逐字输入标识符, 每次按键都使旧的标识符消失而新的标识符出现
+        final var end = lexer.getText().length();
+        lexer.edit(end, 0, "\nq");
+        for (int i = 0; i < 1_000; i++) {
+            lexer.edit(end + 2 + i, 0, "q");
+        }
+        final var probe = symbolTable.intern("probe");
+        symbolTable.remove("probe");
+        Checks.expect("ids stay bounded while typing: next id %d, %d symbols".formatted(probe, symbolTable.size()),
+            probe <= symbolTable.size() + 1);
+        expectSameAsFullLex("after typing", lexer, symbolTable, lexer.getTokens(), table);
+
+        Checks.finish();
+    }
+
+    private static void expectSameAsFullLex(String name, IncrementalLexer lexer, SymbolTable symbolTable,
+                                            List<Token> mirror, LexerTable table) {
+        final var fullSymbols = new SymbolTable();
+        final var full = new IncrementalLexer(fullSymbols, table);
+        full.load(lexer.getText().toString());
+        final var expected = render(full.getTokens());
+        Checks.expectEquals(name + " tokens", expected, render(lexer.getTokens()));
+        Checks.expectEquals(name + " token edit", expected, render(mirror));
+
+        final var reference = Checks.lex(Checks.sourceFile(lexer.getText().toString()), new SymbolTable());
+        final var referenceTokens = new ArrayList<Token>();
+        for (int i = 0; i < reference.size(); i++) {
+            referenceTokens.add(reference.token(i));
+        }
+        Checks.expectEquals(name + " vs LexicalAnalyzer", render(referenceTokens), expected);
+
+        final var identifiers = new TreeSet<String>();
+        for (final var token : full.getTokens()) {
+            if (token.getKindId().equals("id")) {
+                identifiers.add(token.getText());
+            }
+        }
+        final var symbols = new TreeSet<String>();
+        for (final var identifier : identifiers) {
+            if (symbolTable.has(identifier)) {
+                symbols.add(identifier);
+            }
+        }
+        Checks.expectEquals(name + " symbols", identifiers, symbols);
+        Checks.expectEquals(name + " symbol count", identifiers.size(), symbolTable.size());
+    }
+
+    private static List<String> render(List<Token> tokens) {
+        return tokens.stream().map(Token::toString).toList();
+    }
+}
@@ -0,0 +1,136 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.bench.SourceGenerator;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.lexer.TokenSource;
+import cn.edu.hitsz.compiler.parser.IncrementalParser;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 检查 {@link IncrementalParser} 在一系列修改之后重放的事件与完整分析修改后的词法单元串相同
+ * <br>
+ * 修改随机地替换标识符, 替换赋值语句的右部, 插入与删除语句, 并穿插使词法单元串有误的修改:
+ * 此时应当报错, 且在再次分析成功之前不能重放事件.
+ */
+public class IncrementalParserCheck {
+    private static final int ROUNDS = 300;
+
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH).compile();
+        final var separator = TokenKind.fromString("Semicolon");
+        final var semicolon = Token.simple(separator);
+        final var statement = tokens("x = ( 1 + y ) * 2 ;");
+        final var expression = tokens("a - 3 * ( b + c )");
+
+        final var parser = new IncrementalParser(table, separator);
+        Checks.expectThrows("replay before parsing", () -> parser.replay(new EventRecorder()));
+
+        final var tokens = tokens(SourceGenerator.generate(100, 7));
+        tokens.add(Token.eof());
+        parser.parse(tokens);
+        expectSameAsFullParse("initial parse", parser, table, separator);
+
+        final var random = new Random(17);
+        for (int round = 0; round < ROUNDS; round++) {
+            final var current = parser.getTokens();
+            final var semicolons = indicesOf(current, "Semicolon");
+            final var kind = random.nextInt(5);
+            final var name = "edit %d (kind %d)".formatted(round, kind);
+            switch (kind) {
+                case 0 -> {
+                    // 替换一个标识符
+                    final var ids = indicesOf(current, "id");
+                    final var index = ids.get(random.nextInt(ids.size()));
+                    parser.edit(index, index + 1, List.of(Token.normal("id", "edited" + round)));
+                }
+                case 1 -> {
+                    // 替换某条赋值语句的右部
+                    final var assigns = indicesOf(current, "=");
+                    final var from = assigns.get(random.nextInt(assigns.size())) + 1;
+                    var to = from;
+                    while (!current.get(to).getKindId().equals("Semicolon")) {
+                        to++;
+                    }
+                    parser.edit(from, to, expression);
+                }
+                case 2 -> {
+                    // 在某条语句之后插入一条语句
+                    final var at = semicolons.get(random.nextInt(semicolons.size())) + 1;
+                    parser.edit(at, at, statement);
+                }
+                case 3 -> {
+                    // 删除一条语句, 至少保留一条
+                    if (semicolons.size() > 1) {
+                        final var which = random.nextInt(semicolons.size());
+                        final var from = which == 0 ? 0 : semicolons.get(which - 1) + 1;
+                        parser.edit(from, semicolons.get(which) + 1, List.of());
+                    }
+                }
+                default -> {
+                    // 删除语句之间的分号使之有误, 再放回分号
+                    if (semicolons.size() > 1) {
+                        final var at = semicolons.get(random.nextInt(semicolons.size() - 1));
+                        Checks.expectThrows(name + " rejected", () -> parser.edit(at, at + 1, List.of()));
+                        Checks.expectThrows(name + " replay after failure", () -> parser.replay(new EventRecorder()));
+                        Checks.expectThrows(name + " segment count after failure", parser::getSegmentCount);
+                        parser.edit(at, at, List.of(semicolon));
+                    }
+                }
+            }
+            expectSameAsFullParse(name, parser, table, separator);
+        }
+
+        Checks.finish();
+    }
+
+    private static void expectSameAsFullParse(String name, IncrementalParser parser, PackedLRTable table, TokenKind separator) {
+        final var incremental = new EventRecorder();
+        parser.replay(incremental);
+
+        final var full = new IncrementalParser(table, separator);
+        full.parse(parser.getTokens());
+        final var fullEvents = new EventRecorder();
+        full.replay(fullEvents);
+        Checks.expectEquals(name + " vs full reparse", fullEvents.getEvents(), incremental.getEvents());
+
+        final var driver = new SyntaxAnalyzer(new SymbolTable());
+        driver.loadCompiledTable(table);
+        final var driverEvents = new EventRecorder();
+        driver.registerObserver(driverEvents);
+        driver.loadTokens(TokenSource.of(parser.getTokens()));
+        driver.run();
+        Checks.expectEquals(name + " vs LR driver", driverEvents.getEvents(), incremental.getEvents());
+    }
+
+    private static List<Integer> indicesOf(List<Token> tokens, String kind) {
+        final var result = new ArrayList<Integer>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i).getKindId().equals(kind)) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 源程序的词法单元, 不含 EOF
+     */
+    private static List<Token> tokens(String source) {
+        final var buffer = Checks.lex(Checks.sourceFile(source), new SymbolTable());
+        final var result = new ArrayList<Token>();
+        for (int i = 0; i < buffer.size() - 1; i++) {
+            result.add(buffer.token(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.TokenBuffer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.symtab.ConcurrentSymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 检查并行词法分析与顺序分析得到的词法单元缓冲区与符号表相同, 对读入内存与内存映射两种加载方式分别检查
+ * <br>
+ * 输入须大于若干个最小块才会被切分, 这里生成约 5 MB 的源代码, 标识符取自很大的词汇表, 使各块首次遇到的标识符互不相同,
+ * 以检查合并后编号仍按首次出现的顺序分配. 另外检查末尾很长一段没有分号的输入, 以及只在某一块中出现的错误.
+ * 使用 {@link ConcurrentSymbolTable} 时编号的顺序不确定, 只要求每个标识符的编号指向同一文本的条目.
+ */
+public class ParallelLexerCheck {
+    private static final int STATEMENTS = 150_000;
+    private static final int NAMES = 50_000;
+
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+        final var pool = new ForkJoinPool(4);
+
+        final var random = new Random(13);
+        final var statements = new StringBuilder();
+        for (int i = 0; i < STATEMENTS; i++) {
+            statement(random, statements);
+        }
+        final var source = statements.toString();
+        expectSameAsSequential("statements", Checks.sourceFile(source), pool);
+
+        // 最后 2 MB 中没有分号, 切分点之后找不到分号时须停止切分
+        final var tail = new StringBuilder(source);
+        while (tail.length() < source.length() + (2 << 20)) {
+            tail.append(" w").append(random.nextInt(NAMES)).append(" +");
+        }
+        expectSameAsSequential("trailing expression", Checks.sourceFile(tail.append(" 1").toString()), pool);
+
+        // 超出 int 范围的整数常量位于中间的某一块
+        final var overflow = new StringBuilder(source).insert(source.indexOf(';', source.length() / 2) + 1, "x = 99999999999;");
+        final var overflowPath = Checks.sourceFile(overflow.toString());
+        Checks.expectThrows("sequential overflow", () -> lex(overflowPath, false, null, new SymbolTable()));
+        Checks.expectThrows("parallel overflow", () -> lex(overflowPath, false, pool, new SymbolTable()));
+        Checks.expectThrows("parallel mapped overflow", () -> lex(overflowPath, true, pool, new SymbolTable()));
+
+        pool.shutdown();
+        Checks.finish();
+    }
+
+    private static void statement(Random random, StringBuilder builder) {
+        if (random.nextInt(8) == 0) {
+            builder.append("int w").append(random.nextInt(NAMES)).append(";\n");
+            return;
+        }
+        builder.append('w').append(random.nextInt(NAMES)).append(" = ( w").append(random.nextInt(NAMES))
+            .append(" + ").append(random.nextInt(1000)).append(" ) * w").append(random.nextInt(NAMES)).append(";\n");
+    }
+
+    private static void expectSameAsSequential(String name, String path, ForkJoinPool pool) {
+        for (final var mapped : List.of(false, true)) {
+            final var mode = name + (mapped ? " mapped" : " buffered");
+            final var expectedSymbols = new SymbolTable();
+            final var expected = lex(path, mapped, null, expectedSymbols);
+
+            final var actualSymbols = new SymbolTable();
+            final var actual = lex(path, mapped, pool, actualSymbols);
+            Checks.expectEquals(mode + " tokens", 0, mismatches(expected, actual, true));
+            Checks.expectEquals(mode + " symbols", symbols(expectedSymbols), symbols(actualSymbols));
+
+            final var sharedSymbols = new ConcurrentSymbolTable();
+            final var shared = lex(path, mapped, pool, sharedSymbols);
+            Checks.expectEquals(mode + " tokens with shared table", 0, mismatches(expected, shared, false));
+            Checks.expectEquals(mode + " symbol count with shared table", expectedSymbols.size(), sharedSymbols.size());
+            var wrongIds = 0;
+            for (int i = 0; i < shared.size(); i++) {
+                if (shared.kind(i).getIdentifier().equals("id") && !sharedSymbols.get(shared.value(i)).getText().equals(shared.text(i))) {
+                    wrongIds++;
+                }
+            }
+            Checks.expectEquals(mode + " ids with shared table", 0, wrongIds);
+        }
+    }
+
+    private static TokenBuffer lex(String path, boolean mapped, ForkJoinPool pool, SymbolStore symbolTable) {
+        final var lexer = new LexicalAnalyzer(symbolTable);
+        if (mapped) {
+            lexer.loadMappedFile(path);
+        } else {
+            lexer.loadFile(path);
+        }
+        lexer.enableParallelLexing(pool);
+        return lexer.runToBuffer();
+    }
+
+    /**
+     * @param compareIds 是否比较标识符的编号; 不比较时只比较其文本
+     * @return 与顺序分析不同的词法单元数, 个数不同时计入多出的部分
+     */
+    private static int mismatches(TokenBuffer expected, TokenBuffer actual, boolean compareIds) {
+        var result = Math.abs(expected.size() - actual.size());
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            final var isId = expected.kind(i).getIdentifier().equals("id");
+            if (expected.kind(i) != actual.kind(i) || expected.offset(i) != actual.offset(i)
+                || expected.length(i) != actual.length(i) || !expected.text(i).equals(actual.text(i))
+                || ((compareIds || !isId) && expected.value(i) != actual.value(i))) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 按编号排列的符号文本
+     */
+    private static List<String> symbols(SymbolTable table) {
+        final var result = new ArrayList<String>();
+        for (int id = 0; id < table.size(); id++) {
+            result.add(table.get(id).getText());
+        }
+        return result;
+    }
+}
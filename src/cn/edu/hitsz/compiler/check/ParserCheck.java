@@ -0,0 +1,156 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.bench.SourceGenerator;
+import cn.edu.hitsz.compiler.lexer.TokenBuffer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.AbstractSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.GeneratedSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.LRTable;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 检查各种分析模式与生成的分析器发出的事件序列与 LR 驱动程序相同
+ * <br>
+ * 对合法的输入比较完整的事件序列; 对有误的输入比较报错之前发出的事件, 并要求各模式都报错.
+ * 压缩的分析表采用默认规约 (见 {@link cn.edu.hitsz.compiler.parser.table.CompressedLRTable}),
+ * 越过单产生式的分析表在 GOTO 表项处才发现错误 (见 {@link cn.edu.hitsz.compiler.parser.table.UnitBypassLRTable}),
+ * 二者报错前都可能多发出若干规约, 因此对有误的输入只要求它们报错.
+ */
+public class ParserCheck {
+    private static final String[] INVALID_SOURCES = {
+        "a = b b;",
+        "a = ( 1 + 2 ;",
+        "a = 1 + ;",
+        "a = ( 1 ) ) ;",
+        "a = 1 * * 2;",
+        "a = 1 + 2 3;",
+        "return ;",
+        "int a; a = ( b + c ) * d e;",
+        "a = ( ( 1 ) + ( 2 * 3 ) ;",
+    };
+
+    // 按设计推迟发现错误的模式
+    private static final Set<String> DELAYED_ERRORS = Set.of(
+        "compressed table", "bypassed table", "expression fast path on bypassed table");
+
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        final var modes = modes(table);
+
+        final var valid = new ArrayList<String>();
+        valid.add(FilePathConfig.SRC_CODE_PATH);
+        for (int seed = 1; seed <= 5; seed++) {
+            valid.add(SourceGenerator.generateFile(200, seed, 8));
+        }
+        for (final var path : valid) {
+            final var tokens = Checks.lex(path, new SymbolTable());
+            final var expected = run(tokens, modes.get("LR driver"));
+            Checks.expect("LR driver accepts " + path, !expected.failed());
+            for (final var mode : modes.entrySet()) {
+                expectSame(mode.getKey() + " on " + path, expected, run(tokens, mode.getValue()));
+            }
+        }
+
+        for (final var source : INVALID_SOURCES) {
+            final var tokens = Checks.lex(Checks.sourceFile(source), new SymbolTable());
+            final var expected = run(tokens, modes.get("LR driver"));
+            Checks.expect("LR driver rejects " + source, expected.failed());
+            for (final var mode : modes.entrySet()) {
+                final var actual = run(tokens, mode.getValue());
+                if (DELAYED_ERRORS.contains(mode.getKey())) {
+                    Checks.expect(mode.getKey() + " rejects " + source, actual.failed());
+                } else {
+                    expectSame(mode.getKey() + " on " + source, expected, actual);
+                }
+            }
+        }
+
+        Checks.finish();
+    }
+
+    private static Map<String, Function<SymbolTable, AbstractSyntaxAnalyzer>> modes(LRTable table) {
+        final var compiled = table.compile();
+        final var compressed = table.compress();
+        final var bypassed = compiled.bypassUnitReductions();
+        final var expression = GrammarInfo.getNonTerminal("E");
+
+        final var modes = new LinkedHashMap<String, Function<SymbolTable, AbstractSyntaxAnalyzer>>();
+        modes.put("LR driver", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadLRTable(table);
+            return parser;
+        });
+        modes.put("compiled table", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(compiled);
+            return parser;
+        });
+        modes.put("compressed table", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(compressed);
+            return parser;
+        });
+        modes.put("bypassed table", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(bypassed);
+            return parser;
+        });
+        modes.put("expression fast path", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(compiled);
+            parser.enableExpressionFastPath(expression);
+            return parser;
+        });
+        modes.put("expression fast path on bypassed table", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(bypassed);
+            parser.enableExpressionFastPath(expression);
+            return parser;
+        });
+        modes.put("stack folding", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(compiled);
+            parser.enableStackFolding(TokenKind.fromString("Semicolon"));
+            return parser;
+        });
+        modes.put("generated parser", GeneratedSyntaxAnalyzer::new);
+        return modes;
+    }
+
+    private static void expectSame(String name, Outcome expected, Outcome actual) {
+        Checks.expectEquals(name, expected.events(), actual.events());
+        Checks.expectEquals(name + " fails", expected.failed(), actual.failed());
+    }
+
+    private static Outcome run(TokenBuffer tokens, Function<SymbolTable, AbstractSyntaxAnalyzer> mode) {
+        final var parser = mode.apply(new SymbolTable());
+        final var recorder = new EventRecorder();
+        parser.registerObserver(recorder);
+        parser.loadTokens(tokens.cursor());
+        try {
+            parser.run();
+        } catch (RuntimeException e) {
+            return new Outcome(recorder.getEvents(), true);
+        }
+        return new Outcome(recorder.getEvents(), false);
+    }
+
+    /**
+     * @param events 发出的事件
+     * @param failed 是否报错
+     */
+    private record Outcome(List<String> events, boolean failed) {
+    }
+}
@@ -0,0 +1,138 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.symtab.ScopedSymbolTable;
+import cn.edu.hitsz.compiler.symtab.SourceCodeType;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolTableEntry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 以每层作用域一张 {@link HashMap} 的做法为参照, 检查 {@link ScopedSymbolTable} 在随机的进入, 退出作用域与声明之后,
+ * 按编号与按文本查找到的都是最内层的声明, 并检查其 {@code dumpTable} 的输出与只登记了同样符号的 {@link SymbolTable} 相同.
+ */
+public class ScopedSymbolTableCheck {
+    private static final int OPERATIONS = 100_000;
+    private static final int NAMES = 200;
+    private static final int MAX_DEPTH = 40;
+
+    public static void main(String[] args) {
+        final var table = new ScopedSymbolTable();
+        final var flat = new SymbolTable();
+        // 内层作用域由内向外排列, 全局作用域的声明单独记录
+        final var scopes = new ArrayDeque<Map<String, SymbolTableEntry>>();
+        final var globals = new HashMap<String, SymbolTableEntry>();
+        // 内层作用域中的声明, 未被内层声明遮蔽的名字应当查找到全局作用域中的条目而不是它们
+        final Set<SymbolTableEntry> innerEntries = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        final var random = new Random(23);
+        var mismatches = 0;
+        var wrongRejections = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            final var text = "s" + random.nextInt(NAMES);
+            switch (random.nextInt(10)) {
+                case 0 -> {
+                    if (scopes.size() < MAX_DEPTH) {
+                        table.enterScope();
+                        scopes.push(new HashMap<>());
+                    }
+                }
+                case 1 -> {
+                    if (scopes.isEmpty()) {
+                        Checks.expectThrows("exit the global scope", table::exitScope);
+                    } else {
+                        table.exitScope();
+                        scopes.pop();
+                    }
+                }
+                case 2, 3, 4 -> {
+                    flat.intern(text);
+                    if (scopes.isEmpty()) {
+                        final var entry = table.declare(text);
+                        if (globals.putIfAbsent(text, entry) == null) {
+                            entry.setType(SourceCodeType.Int);
+                            flat.get(text).setType(SourceCodeType.Int);
+                        } else if (globals.get(text) != entry) {
+                            mismatches++;
+                        }
+                    } else if (scopes.peek().containsKey(text)) {
+                        try {
+                            table.declare(text);
+                            wrongRejections++;
+                        } catch (RuntimeException e) {
+                            // 在同一内层作用域中重复声明应当报错
+                        }
+                    } else {
+                        final var entry = table.declare(text);
+                        scopes.peek().put(text, entry);
+                        innerEntries.add(entry);
+                    }
+                }
+                default -> {
+                    final var id = table.lookup(text);
+                    if (id < 0) {
+                        if (flat.has(text)) {
+                            mismatches++;
+                        }
+                        continue;
+                    }
+                    final var byId = table.get(id);
+                    if (byId != table.get(text) || !byId.getText().equals(text) || byId.getId() != id) {
+                        mismatches++;
+                    }
+                    final var expected = innermost(scopes, text);
+                    if (expected != null ? byId != expected : innerEntries.contains(byId)) {
+                        mismatches++;
+                    }
+                }
+            }
+        }
+        Checks.expectEquals("lookups match the innermost declaration", 0, mismatches);
+        Checks.expectEquals("redeclarations accepted in the same scope", 0, wrongRejections);
+
+        while (table.depth() > 0) {
+            table.exitScope();
+        }
+        var shadowedAfterExit = 0;
+        for (int id = 0; id < flat.size(); id++) {
+            final var entry = table.get(id);
+            if (innerEntries.contains(entry) || (globals.containsKey(entry.getText()) && globals.get(entry.getText()) != entry)) {
+                shadowedAfterExit++;
+            }
+        }
+        Checks.expectEquals("global entries visible after exiting all scopes", 0, shadowedAfterExit);
+        Checks.expectEquals("size", flat.size(), table.size());
+        Checks.expectEquals("dumpTable", dump(flat), dump(table));
+
+        Checks.finish();
+    }
+
+    private static SymbolTableEntry innermost(ArrayDeque<Map<String, SymbolTableEntry>> scopes, String text) {
+        for (final var scope : scopes) {
+            final var entry = scope.get(text);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static String dump(SymbolTable table) {
+        try {
+            final var path = Checks.sourceFile("");
+            table.dumpTable(path);
+            return Files.readString(Path.of(path));
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on reading the dumped table", e);
+        }
+    }
+}
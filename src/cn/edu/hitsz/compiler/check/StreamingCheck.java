@@ -0,0 +1,153 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.StreamingCompiler;
+import cn.edu.hitsz.compiler.asm.AssemblyGenerator;
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.IRGenerator;
+import cn.edu.hitsz.compiler.parser.ProductionCollector;
+import cn.edu.hitsz.compiler.parser.SemanticAnalyzer;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.LRTable;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+import cn.edu.hitsz.compiler.utils.IREmulator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * 检查 {@link StreamingCompiler} 的全部输出文件与 {@link cn.edu.hitsz.compiler.Main} 的批量流程相同
+ * <br>
+ * 两者都写入 data/out 下的输出文件, 这里在每次运行后读回比较. 寄存器分配不会溢出到内存, 所以随机生成的程序只使用三个变量;
+ * 表达式较深时寄存器仍可能不够用, 此时要求两者都报错. 汇编生成在变量的使用次数超过计数时报错, 所以批量流程成功也说明寄存器分配有效.
+ */
+public class StreamingCheck {
+    private static final List<String> OUTPUTS = List.of(
+        FilePathConfig.TOKEN_PATH, FilePathConfig.OLD_SYMBOL_TABLE, FilePathConfig.PARSER_PATH,
+        FilePathConfig.NEW_SYMBOL_TABLE, FilePathConfig.INTERMEDIATE_CODE_PATH,
+        FilePathConfig.EMULATE_RESULT, FilePathConfig.ASSEMBLY_LANGUAGE_PATH);
+
+    private static final String VARIABLES = "abc";
+
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+
+        final var sources = new ArrayList<String>();
+        sources.add(FilePathConfig.SRC_CODE_PATH);
+        final var random = new Random(9);
+        for (int i = 0; i < 100; i++) {
+            sources.add(Checks.sourceFile(program(random, 4 + i)));
+        }
+
+        var compiled = 0;
+        for (final var source : sources) {
+            final var batch = outputsOf(() -> compileBatch(table, source));
+            final var streaming = outputsOf(() -> new StreamingCompiler(table.compile()).compile(source));
+            if (batch == null || streaming == null) {
+                Checks.expect("both fail on " + source, batch == null && streaming == null);
+                continue;
+            }
+            compiled++;
+            for (int i = 0; i < OUTPUTS.size(); i++) {
+                Checks.expectEquals(OUTPUTS.get(i) + " on " + source, batch.get(i), streaming.get(i));
+            }
+        }
+        Checks.expect("%d of %d programs compiled".formatted(compiled, sources.size()), compiled > sources.size() / 2);
+
+        Checks.finish();
+    }
+
+    /**
+     * @return 只使用变量 a, b, c 的程序
+     */
+    private static String program(Random random, int statements) {
+        final var builder = new StringBuilder("int a;\nint b;\nint c;\na = 3;\nb = 5;\nc = 7;\n");
+        for (int i = 0; i < statements; i++) {
+            builder.append(VARIABLES.charAt(random.nextInt(3))).append(" = ");
+            expression(random, 2, builder);
+            builder.append(";\n");
+        }
+        return builder.append("return a;").toString();
+    }
+
+    private static void expression(Random random, int depth, StringBuilder builder) {
+        switch (depth == 0 ? random.nextInt(2) : random.nextInt(5)) {
+            case 0 -> builder.append(VARIABLES.charAt(random.nextInt(3)));
+            case 1 -> builder.append(random.nextInt(10));
+            case 2 -> {
+                builder.append("( ");
+                expression(random, depth - 1, builder);
+                builder.append(" )");
+            }
+            default -> {
+                expression(random, depth - 1, builder);
+                builder.append(' ').append("+-*".charAt(random.nextInt(3))).append(' ');
+                expression(random, depth - 1, builder);
+            }
+        }
+    }
+
+    /**
+     * @return 运行后各输出文件的内容; 运行失败时为 null
+     */
+    private static List<String> outputsOf(Runnable compile) {
+        try {
+            for (final var output : OUTPUTS) {
+                Files.deleteIfExists(Path.of(output));
+            }
+            compile.run();
+            final var contents = new ArrayList<String>();
+            for (final var output : OUTPUTS) {
+                contents.add(Files.readString(Path.of(output)));
+            }
+            return contents;
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on reading outputs", e);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 与 {@link cn.edu.hitsz.compiler.Main} 相同的批量流程
+     */
+    private static void compileBatch(LRTable table, String source) {
+        final var symbolTable = new SymbolTable();
+        final var lexer = new LexicalAnalyzer(symbolTable);
+        lexer.loadFile(source);
+        lexer.run();
+        lexer.dumpTokens(FilePathConfig.TOKEN_PATH);
+        symbolTable.dumpTable(FilePathConfig.OLD_SYMBOL_TABLE);
+
+        final var parser = new SyntaxAnalyzer(symbolTable);
+        parser.loadTokens(lexer.getTokens());
+        parser.loadLRTable(table);
+        final var productionCollector = new ProductionCollector(GrammarInfo.getBeginProduction());
+        parser.registerObserver(productionCollector);
+        parser.registerObserver(new SemanticAnalyzer());
+        final var irGenerator = new IRGenerator();
+        parser.registerObserver(irGenerator);
+        parser.run();
+
+        productionCollector.dumpToFile(FilePathConfig.PARSER_PATH);
+        symbolTable.dumpTable(FilePathConfig.NEW_SYMBOL_TABLE);
+        irGenerator.dumpIR(FilePathConfig.INTERMEDIATE_CODE_PATH);
+        final var emulator = IREmulator.load(irGenerator.getIR());
+        FileUtils.writeFile(FilePathConfig.EMULATE_RESULT, emulator.execute().map(Objects::toString).orElse("No return value"));
+
+        final var asmGenerator = new AssemblyGenerator();
+        asmGenerator.loadIR(irGenerator.getIR());
+        asmGenerator.run();
+        asmGenerator.dump(FilePathConfig.ASSEMBLY_LANGUAGE_PATH);
+    }
+}
@@ -0,0 +1,150 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.symtab.ConcurrentSymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 以 {@link HashMap} 为参照, 检查符号表在随机的登记, 查找与删除之后的内容, 以及被删除的编号会被重新使用
+ * <br>
+ * 另外让多个线程同时登记共同的符号, 并各自反复登记与删除自己的符号, 检查 {@link ConcurrentSymbolTable} 没有丢失或重复的条目.
+ */
+public class SymbolTableCheck {
+    private static final int OPERATIONS = 200_000;
+    private static final int NAMES = 600;
+    private static final int THREADS = 8;
+
+    public static void main(String[] args) {
+        check("SymbolTable", SymbolTable::new);
+        check("ConcurrentSymbolTable", ConcurrentSymbolTable::new);
+        checkConcurrent();
+        Checks.finish();
+    }
+
+    private static void check(String name, Supplier<SymbolStore> factory) {
+        final var table = factory.get();
+        final var expected = new HashMap<String, Integer>();
+        final var random = new Random(3);
+        var peak = 0;
+        var maxId = -1;
+        var mismatches = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            final var text = "v" + random.nextInt(NAMES);
+            final var known = expected.get(text);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    final var id = table.intern(new StringBuilder(text));
+                    if (known != null ? id != known : expected.containsValue(id)) {
+                        mismatches++;
+                    }
+                    expected.put(text, id);
+                    maxId = Math.max(maxId, id);
+                }
+                case 2 -> {
+                    if (known != null) {
+                        table.remove(text);
+                        expected.remove(text);
+                    }
+                }
+                default -> {
+                    if (table.lookup(text) != (known != null ? known : -1)) {
+                        mismatches++;
+                    }
+                }
+            }
+            peak = Math.max(peak, expected.size());
+        }
+
+        Checks.expectEquals(name + " mismatched operations", 0, mismatches);
+        Checks.expectEquals(name + " size", expected.size(), table.size());
+        var wrongEntries = 0;
+        for (final var entry : expected.entrySet()) {
+            final var symbol = table.get(entry.getValue());
+            if (!symbol.getText().equals(entry.getKey()) || symbol.getId() != entry.getValue() || !table.has(entry.getKey())) {
+                wrongEntries++;
+            }
+        }
+        Checks.expectEquals(name + " entries", 0, wrongEntries);
+        Checks.expect(name + " reuses removed ids: max id %d, peak size %d".formatted(maxId, peak), maxId < peak);
+
+        // 反复删除并登记新的符号, 如同在编辑器中逐字输入一个标识符
+        final var typing = factory.get();
+        final var names = new ArrayList<String>();
+        for (int i = 0; i < 10_000; i++) {
+            final var text = "typed" + i;
+            typing.intern(text);
+            names.add(text);
+            if (names.size() > 2) {
+                typing.remove(names.remove(0));
+            }
+        }
+        Checks.expect(name + " ids stay bounded while typing", typing.intern("last") < 4);
+        Checks.expectThrows(name + " get removed id", () -> typing.get(typing.lookup("typed0")));
+    }
+
+    private static void checkConcurrent() {
+        final var table = new ConcurrentSymbolTable();
+        // 各线程得到的每个共同符号的编号
+        final var seen = new ConcurrentHashMap<String, Integer>();
+        final var conflicts = new int[THREADS];
+        final var threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            final var thread = t;
+            threads.add(new Thread(() -> {
+                final var random = new Random(thread);
+                final var own = new ArrayList<String>();
+                for (int i = 0; i < OPERATIONS / THREADS; i++) {
+                    final var text = "shared" + random.nextInt(NAMES);
+                    final var previous = seen.putIfAbsent(text, table.intern(text));
+                    if (previous != null && previous != table.intern(text)) {
+                        conflicts[thread]++;
+                    }
+
+                    // 同时登记并删除只属于本线程的符号, 使编号被重新使用. 每个线程同时至多有 5 个这样的符号, 另有一个可能正在删除
+                    own.add(thread + "own" + i);
+                    table.intern(own.get(own.size() - 1));
+                    if (own.size() > 4) {
+                        table.remove(own.remove(random.nextInt(own.size())));
+                    }
+                }
+                for (final var text : own) {
+                    table.remove(text);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final var thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        var total = 0;
+        for (final var count : conflicts) {
+            total += count;
+        }
+        Checks.expectEquals("concurrent interning agrees on ids", 0, total);
+        Checks.expectEquals("concurrent size", seen.size(), table.size());
+        final var ids = new HashSet<Integer>();
+        var wrongEntries = 0;
+        for (final var entry : seen.entrySet()) {
+            if (table.lookup(entry.getKey()) != entry.getValue() || !table.get(entry.getValue()).getText().equals(entry.getKey())) {
+                wrongEntries++;
+            }
+            ids.add(entry.getValue());
+        }
+        Checks.expectEquals("concurrent entries", 0, wrongEntries);
+        Checks.expectEquals("concurrent ids are distinct", seen.size(), ids.size());
+        final var probe = table.intern("probe");
+        Checks.expect("concurrent ids stay bounded: next id %d".formatted(probe), probe < NAMES + THREADS * 6);
+    }
+}
@@ -0,0 +1,131 @@
+package cn.edu.hitsz.compiler.check;
+
+import cn.edu.hitsz.compiler.bench.SourceGenerator;
+import cn.edu.hitsz.compiler.ir.Instruction;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.AbstractSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.GeneratedSyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.GeneratedTranslator;
+import cn.edu.hitsz.compiler.parser.IRGenerator;
+import cn.edu.hitsz.compiler.parser.SemanticAnalyzer;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 检查由语义动作文件生成的 {@link GeneratedTranslator} 与手写的 {@link SemanticAnalyzer} 加 {@link IRGenerator}
+ * 得到的中间代码与符号表相同, 对各种驱动程序分别检查
+ * <br>
+ * 除合法的程序外, 还检查使用未声明变量的程序 (两者都照常生成中间代码) 与重复声明的程序 (两者都报错).
+ */
+public class TranslatorCheck {
+    private static final String[] SPECIAL_SOURCES = {
+        "int a;\na = b + 1;\nreturn a;",
+        "int a;\nint b;\na = ( ( 3 ) );\nb = a * ( a - 2 ) * 4 - 7;\nreturn ( b );",
+    };
+    private static final String REDECLARATION = "int a;\nint a;\na = 1;\nreturn a;";
+
+    public static void main(String[] args) {
+        TokenKind.loadTokenKinds();
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        final var compiled = table.compile();
+        final var bypassed = compiled.bypassUnitReductions();
+        final var semicolon = TokenKind.fromString("Semicolon");
+
+        final var drivers = new LinkedHashMap<String, Function<SymbolStore, AbstractSyntaxAnalyzer>>();
+        drivers.put("LR driver", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadLRTable(table);
+            return parser;
+        });
+        drivers.put("stack folding", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(compiled);
+            parser.enableStackFolding(semicolon);
+            return parser;
+        });
+        drivers.put("bypassed table", symbolTable -> {
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            parser.loadCompiledTable(bypassed);
+            return parser;
+        });
+        drivers.put("generated parser", GeneratedSyntaxAnalyzer::new);
+
+        final var sources = new ArrayList<String>();
+        sources.add(FilePathConfig.SRC_CODE_PATH);
+        for (int seed = 1; seed <= 5; seed++) {
+            sources.add(SourceGenerator.generateFile(200, seed, 8));
+        }
+        for (final var source : SPECIAL_SOURCES) {
+            sources.add(Checks.sourceFile(source));
+        }
+        final var redeclaration = Checks.sourceFile(REDECLARATION);
+        sources.add(redeclaration);
+
+        for (final var source : sources) {
+            final var expected = run(source, drivers.get("LR driver"), false);
+            Checks.expect("only the redeclaration fails: " + source, (expected == null) == source.equals(redeclaration));
+            for (final var driver : drivers.entrySet()) {
+                final var name = driver.getKey() + " on " + source;
+                Checks.expectEquals(name + " handwritten", expected, run(source, driver.getValue(), false));
+                Checks.expectEquals(name + " generated", expected, run(source, driver.getValue(), true));
+            }
+        }
+
+        Checks.finish();
+    }
+
+    /**
+     * @param generated 使用生成的翻译器, 否则使用手写的两个观察者
+     * @return 中间代码与输出的符号表; 分析报错时为 null
+     */
+    private static Outcome run(String source, Function<SymbolStore, AbstractSyntaxAnalyzer> driver, boolean generated) {
+        final var symbolTable = new SymbolTable();
+        final var tokens = Checks.lex(source, symbolTable);
+        final var parser = driver.apply(symbolTable);
+        final Supplier<List<Instruction>> ir;
+        if (generated) {
+            final var translator = new GeneratedTranslator();
+            parser.registerObserver(translator);
+            ir = translator::getIR;
+        } else {
+            final var irGenerator = new IRGenerator();
+            parser.registerObserver(new SemanticAnalyzer());
+            parser.registerObserver(irGenerator);
+            ir = irGenerator::getIR;
+        }
+        parser.loadTokens(tokens.cursor());
+        try {
+            parser.run();
+        } catch (RuntimeException e) {
+            return null;
+        }
+
+        try {
+            final var path = Checks.sourceFile("");
+            symbolTable.dumpTable(path);
+            return new Outcome(ir.get().stream().map(Objects::toString).toList(), Files.readString(Path.of(path)));
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on reading the dumped table", e);
+        }
+    }
+
+    /**
+     * @param ir      中间代码
+     * @param symbols 输出的符号表
+     */
+    private record Outcome(List<String> ir, String symbols) {
+    }
+}
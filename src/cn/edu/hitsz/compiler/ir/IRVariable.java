@@ -6,7 +6,7 @@ package cn.edu.hitsz.compiler.ir;
  * 我们允许 IR 中的变量保存一些有关源语言的信息 -- 比如它在源语言里对应的是具体的源语言变量还是源语言中的临时变量. 这些信息用一个字符串
  * name 来表示. 临时变量的 name 都是 "$[0-9]+", 而非临时变量的 name 都是 "[a-zA-Z_][a-zA-Z0-9_]*"
  * <br>
- * IR 变量的等价性由 name 唯一确定.
+ * IR 变量的等价性由 name 唯一确定. 由词法单元得到的具名变量还携带其在符号表中的编号, 以便之后的阶段不必再散列 name.
  */
 public class IRVariable implements IRValue {
     /**
@@ -14,20 +14,52 @@ public class IRVariable implements IRValue {
      * @return 一个对应于源语言中具体变量的 IRVariable
      */
     public static IRVariable named(String name) {
-        return new IRVariable(name);
+        return new IRVariable(name, -1);
+    }
+
+    /**
+     * @param name   源语言中变量的名字
+     * @param symbol 该变量在符号表中的编号, 未知时为 -1
+     * @return 一个对应于源语言中具体变量并携带符号编号的 IRVariable
+     * @see cn.edu.hitsz.compiler.symtab.SymbolTable#intern(CharSequence)
+     */
+    public static IRVariable named(String name, int symbol) {
+        return new IRVariable(name, symbol);
     }
 
     /**
      * @return 一个对应于源语言中的临时变量的新 IRVariable
      */
     public static IRVariable temp() {
-        return new IRVariable("$" + count++);
+        return new IRVariable("$" + count++, -1);
+    }
+
+    /**
+     * @param index 编号
+     * @return 编号为 index 的临时变量, 不影响 {@link #temp()} 的编号
+     */
+    public static IRVariable temp(int index) {
+        return new IRVariable("$" + index, -1);
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * @return 具名变量在符号表中的编号; 临时变量或编号未知时为 -1
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return 临时变量的编号; 具名变量为 -1
+     */
+    public int getTempIndex() {
+        return isTemp() ? Integer.parseInt(name, 1, name.length(), 10) : -1;
+    }
+
     public boolean isTemp() {
         return name.startsWith("$");
     }
@@ -51,10 +83,12 @@ public class IRVariable implements IRValue {
         return name.hashCode();
     }
 
-    private IRVariable(String name) {
+    private IRVariable(String name, int symbol) {
         this.name = name;
+        this.symbol = symbol;
     }
 
     private final String name;
+    private final int symbol;
     private static int count = 0;
 }
@@ -0,0 +1,285 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量的词法分析, 供编辑器在源代码被修改后只重新分析受影响的部分
+ * <br>
+ * 使用与 {@link LexicalAnalyzer#setLexerTable(LexerTable)} 相同的表驱动自动机, 并记录每个词法单元在源代码中的起始位置.
+ * 修改 ({@link #edit(int, int, String)}) 时从修改位置之前最近的安全重启点开始重新分析: 读入空白, 分界符或非法字符之后,
+ * 自动机无论处于何种状态都会回到初始状态, 所以紧跟在这样的字符之后的位置可以从初始状态重新开始.
+ * 越过被修改的文本后, 一旦再次读入这样的字符, 新旧两次分析的状态与词法单元的边界就重新对齐, 其后的词法单元只需平移位置.
+ * <br>
+ * 为了在修改后维护符号表, 这里记录每个标识符出现的次数: 新出现的标识符被登记到符号表中, 不再出现的标识符被从符号表中删除.
+ * 已被语义分析设置了类型的条目不会被重置. 被删除的标识符的编号由之后新出现的标识符重新使用 (见 {@link SymbolStore#intern(CharSequence)}),
+ * 所以逐字输入一个标识符时符号表不会随按键次数增长; 这里产生的词法单元不携带编号, 不会因编号被重新使用而指向其它符号.
+ * <br>
+ * 与 {@link LexicalAnalyzer} 一致, 换行符被直接丢弃, 到达输入末尾时尚未被终结的单词不会产生 token.
+ */
+public class IncrementalLexer {
+    /**
+     * 一次修改对词法单元串的影响: 下标在 [from, to) 内的词法单元被替换为 replacement, 可直接交给增量的语法分析
+     *
+     * @param from        被替换的第一个词法单元的下标
+     * @param to          被替换的最后一个词法单元的下标 + 1
+     * @param replacement 新的词法单元
+     */
+    public record TokenEdit(int from, int to, List<Token> replacement) {
+    }
+
+    /**
+     * @param symbolTable 符号表
+     * @param table       转移表
+     */
+    public IncrementalLexer(SymbolStore symbolTable, LexerTable table) {
+        this.symbolTable = symbolTable;
+        this.table = table;
+
+        // 从任何状态读入该类别的字符后都回到初始状态的类别
+        this.resets = new boolean[LexerTable.CLASS_COUNT];
+        for (int charClass = 0; charClass < LexerTable.CLASS_COUNT; charClass++) {
+            var reset = true;
+            for (int state = 0; state < LexerTable.STATE_COUNT; state++) {
+                reset &= (table.transitions[state][charClass] & LexerTable.STATE_MASK) == LexerTable.START;
+            }
+            resets[charClass] = reset;
+        }
+    }
+
+    /**
+     * 完整地分析源代码
+     *
+     * @param source 源代码
+     */
+    public void load(String source) {
+        for (int i = 0; i < size; i++) {
+            release(tokens.get(i));
+        }
+        text.setLength(0);
+        text.append(source);
+        tokens.clear();
+        size = 0;
+
+        final var newTokens = new ArrayList<Token>();
+        final var newOffsets = new int[][]{new int[16]};
+        lex(0, Integer.MAX_VALUE, newTokens, newOffsets);
+        splice(0, 0, newTokens, newOffsets[0], 0);
+        tokens.add(Token.eof());
+    }
+
+    /**
+     * 把源代码中 [offset, offset + removed) 内的字符替换为 inserted, 并增量地重新分析
+     *
+     * @param offset   被替换的第一个字符的位置
+     * @param removed  被替换的字符数
+     * @param inserted 插入的文本
+     * @return 词法单元串的变化
+     */
+    public TokenEdit edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new RuntimeException("Invalid edit range [%d, %d)".formatted(offset, offset + removed));
+        }
+
+        // 重启点: 修改位置之前最近的一个会使自动机回到初始状态的字符之后
+        var restart = offset;
+        while (restart > 0 && !resets[table.classOf(text.charAt(restart - 1))]) {
+            restart--;
+        }
+        if (removed == inserted.length()) {
+            // 长度不变时原地修改, 不必移动之后的全部字符
+            for (int i = 0; i < removed; i++) {
+                text.setCharAt(offset + i, inserted.charAt(i));
+            }
+        } else {
+            text.replace(offset, offset + removed, inserted);
+        }
+        final var delta = inserted.length() - removed;
+
+        // 起始位置不小于重启点的旧词法单元都由重启点之后的字符产生, 需要重新分析
+        final var from = lowerBound(restart);
+        final var newTokens = new ArrayList<Token>();
+        final var newOffsets = new int[][]{new int[16]};
+        final var synced = lex(restart, offset + inserted.length(), newTokens, newOffsets);
+
+        // 对齐之后的旧词法单元保持不变, 对齐位置在修改前的坐标为 synced - delta
+        final var to = synced < 0 ? size : lowerBound(synced - delta);
+        final var replacement = List.copyOf(newTokens);
+        splice(from, to, newTokens, newOffsets[0], delta);
+        return new TokenEdit(from, to, replacement);
+    }
+
+    /**
+     * @return 当前的源代码
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * @return 以 EOF 结尾的词法单元串
+     */
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @param index 词法单元的下标, 不能是 EOF
+     * @return 该词法单元在源代码中的起始位置
+     */
+    public int offsetOf(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * 从 start 处以初始状态开始分析, 直到越过 stopAfter 之后读入一个使自动机回到初始状态的字符, 或到达末尾
+     *
+     * @param start     开始位置
+     * @param stopAfter 在不小于该位置处才可以停止
+     * @param output    产生的词法单元
+     * @param offsets   offsets[0] 为产生的词法单元的起始位置, 容量不足时被替换
+     * @return 停止时下一个待读入字符的位置; 到达末尾时为 -1
+     */
+    private int lex(int start, int stopAfter, List<Token> output, int[][] offsets) {
+        final var transitions = table.transitions;
+        final var length = text.length();
+        var state = LexerTable.START;
+        var wordStart = 0;
+        for (int position = start; position < length; position++) {
+            final var c = text.charAt(position);
+            final var charClass = table.classOf(c);
+            final var entry = transitions[state][charClass];
+            if (entry > LexerTable.STATE_MASK) {
+                if ((entry & LexerTable.BEGIN) != 0) {
+                    word.setLength(0);
+                    wordStart = position;
+                }
+                if ((entry & LexerTable.APPEND) != 0) {
+                    word.append(c);
+                }
+                if ((entry & LexerTable.EMIT_WORD) != 0) {
+                    final var keyword = table.keyword(word);
+                    emit(keyword != null ? Token.simple(keyword) : Token.normal(table.id(), word.toString()), wordStart, output, offsets);
+                } else if ((entry & LexerTable.EMIT_ID) != 0) {
+                    emit(Token.normal(table.id(), word.toString()), wordStart, output, offsets);
+                } else if ((entry & LexerTable.EMIT_NUMBER) != 0) {
+                    emit(Token.normal(table.intConst(), word.toString()), wordStart, output, offsets);
+                }
+                if ((entry & LexerTable.EMIT_SYMBOL) != 0) {
+                    emit(Token.simple(table.symbolKind(c)), position, output, offsets);
+                }
+            }
+            state = entry & LexerTable.STATE_MASK;
+
+            if (position >= stopAfter && resets[charClass]) {
+                return position + 1;
+            }
+        }
+        return -1;
+    }
+
+    private void emit(Token token, int offset, List<Token> output, int[][] offsets) {
+        if (output.size() == offsets[0].length) {
+            offsets[0] = Arrays.copyOf(offsets[0], offsets[0].length * 2);
+        }
+        offsets[0][output.size()] = offset;
+        output.add(token);
+    }
+
+    /**
+     * 以新的词法单元替换下标在 [from, to) 内的词法单元, 并维护符号表
+     *
+     * @param delta 之后的词法单元的起始位置的变化量
+     */
+    private void splice(int from, int to, List<Token> newTokens, int[] newOffsets, int delta) {
+        // 先登记新的标识符, 再释放旧的, 避免只是移动位置的标识符被删除后又重新加入
+        for (final var token : newTokens) {
+            acquire(token);
+        }
+        for (int i = from; i < to; i++) {
+            release(tokens.get(i));
+        }
+
+        final var count = newTokens.size();
+        final var newSize = size - (to - from) + count;
+        if (newSize > offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(newSize, offsets.length * 2));
+        }
+        if (count != to - from) {
+            System.arraycopy(offsets, to, offsets, from + count, size - to);
+        }
+        System.arraycopy(newOffsets, 0, offsets, from, count);
+        if (delta != 0) {
+            for (int i = from + count; i < newSize; i++) {
+                offsets[i] += delta;
+            }
+        }
+        size = newSize;
+
+        if (count == to - from) {
+            for (int i = 0; i < count; i++) {
+                tokens.set(from + i, newTokens.get(i));
+            }
+        } else {
+            final var range = tokens.subList(from, to);
+            range.clear();
+            range.addAll(newTokens);
+        }
+    }
+
+    /**
+     * @return 第一个起始位置不小于 offset 的词法单元的下标
+     */
+    private int lowerBound(int offset) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (offsets[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void acquire(Token token) {
+        if (token.getKind() == table.id()) {
+            final var text = token.getText();
+            if (references.merge(text, 1, Integer::sum) == 1) {
+                symbolTable.intern(text);
+            }
+        }
+    }
+
+    private void release(Token token) {
+        if (token.getKind() == table.id()) {
+            final var text = token.getText();
+            if (references.merge(text, -1, Integer::sum) == 0) {
+                references.remove(text);
+                symbolTable.remove(text);
+            }
+        }
+    }
+
+    private final SymbolStore symbolTable;
+    private final LexerTable table;
+    private final boolean[] resets;
+
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder word = new StringBuilder();
+
+    // 以 EOF 结尾的词法单元串, 以及除 EOF 外各词法单元的起始位置
+    private final List<Token> tokens = new ArrayList<>();
+    private int[] offsets = new int[16];
+    private int size = 0;
+
+    // 各标识符在词法单元串中出现的次数
+    private final Map<String, Integer> references = new HashMap<>();
+}
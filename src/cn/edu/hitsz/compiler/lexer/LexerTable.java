@@ -0,0 +1,210 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 表驱动词法分析所用的状态转移表
+ * <br>
+ * 转移表由码点文件 (coding_map.csv) 中的全部 TokenKind 构造: 单个符号构成的类型 (如 {@code +}, {@code (}) 被视为分界符或运算符,
+ * 由字母构成的类型 (如 {@code int}, {@code return}) 被视为保留字, {@code id} 与 {@code IntConst} 则分别对应标识符与整数常量.
+ * 因此新增一种分界符或保留字只需要修改码点文件, 不需要改动自动机.
+ * <br>
+ * 输入字符先按 {@link #charClass} 映射为字符类别, 再以 (状态, 字符类别) 查 {@link #transitions} 得到一个表项.
+ * 表项的低 8 位为下一个状态, 其余各位为需要执行的动作. 自动机的行为与 {@link LexicalAnalyzer#run()} 中手写的自动机一致.
+ *
+ * @see LexicalAnalyzer#setLexerTable(LexerTable)
+ */
+public class LexerTable {
+    //============================== 字符类别 ==============================
+    /** 非法字符, 被当作空白忽略 */
+    static final int CLASS_OTHER = 0;
+    /** 空格与制表符 */
+    static final int CLASS_BLANK = 1;
+    /** 换行符, 与 loadFile 拼接各行的行为保持一致, 直接丢弃 */
+    static final int CLASS_NEWLINE = 2;
+    static final int CLASS_LETTER = 3;
+    static final int CLASS_DIGIT = 4;
+    /** 分界符与运算符 */
+    static final int CLASS_SYMBOL = 5;
+    static final int CLASS_COUNT = 6;
+
+    //============================== 状态 ==============================
+    /** 初始状态, 同时也是跳过空白的状态 */
+    static final int START = 0;
+    /** 只由字母组成的单词, 可能是保留字 */
+    static final int WORD = 1;
+    /** 含有数字的单词, 一定是标识符 */
+    static final int WORD_WITH_DIGIT = 2;
+    static final int NUMBER = 3;
+    static final int STATE_COUNT = 4;
+
+    //============================== 动作 ==============================
+    static final int STATE_MASK = 0xFF;
+    /** 开始记录一个新的单词 */
+    static final int BEGIN = 1 << 8;
+    /** 将当前字符拼接到单词中 */
+    static final int APPEND = 1 << 9;
+    /** 单词结束, 为保留字或标识符 */
+    static final int EMIT_WORD = 1 << 10;
+    /** 单词结束, 为标识符 */
+    static final int EMIT_ID = 1 << 11;
+    /** 单词结束, 为整数常量 */
+    static final int EMIT_NUMBER = 1 << 12;
+    /** 当前字符为分界符或运算符 */
+    static final int EMIT_SYMBOL = 1 << 13;
+
+    /**
+     * 码点文件中不能直接写成符号的分界符
+     */
+    private static final Map<String, Character> SYMBOL_ALIASES = Map.of("Semicolon", ';');
+
+    /**
+     * 从已读取的码点文件中构造转移表
+     *
+     * @return 转移表
+     * @throws RuntimeException 码点文件尚未被读取, 或其中含有无法识别的 TokenKind
+     */
+    public static LexerTable fromTokenKinds() {
+        final var kinds = TokenKind.allAllowedTokenKinds();
+        if (kinds.isEmpty()) {
+            throw new RuntimeException("Token kinds are not loaded");
+        }
+
+        return new LexerTable(kinds);
+    }
+
+    /**
+     * @param c 字符
+     * @return 该字符的类别
+     */
+    int classOf(int c) {
+        return c < charClass.length ? charClass[c] : CLASS_OTHER;
+    }
+
+    /**
+     * @param c 分界符或运算符
+     * @return 其对应的 TokenKind
+     */
+    TokenKind symbolKind(int c) {
+        return symbolKinds[c];
+    }
+
+    /**
+     * 不构造字符串地判断单词是否为保留字. 保留字的数量很少, 逐个比较即可
+     *
+     * @param word 只由字母组成的单词
+     * @return 若为保留字则返回其 TokenKind, 否则返回 null
+     */
+    TokenKind keyword(CharSequence word) {
+        for (int i = 0; i < keywordTexts.length; i++) {
+            if (keywordTexts[i].length() == word.length() && CharSequence.compare(keywordTexts[i], word) == 0) {
+                return keywordKinds[i];
+            }
+        }
+        return null;
+    }
+
+    TokenKind id() {
+        return id;
+    }
+
+    TokenKind intConst() {
+        return intConst;
+    }
+
+    /** 字符 (ASCII) 到字符类别的映射 */
+    final byte[] charClass = new byte[128];
+    /** 以状态与字符类别为下标的转移表 */
+    final int[][] transitions = new int[STATE_COUNT][CLASS_COUNT];
+
+    private final TokenKind[] symbolKinds = new TokenKind[128];
+    private final String[] keywordTexts;
+    private final TokenKind[] keywordKinds;
+    private final TokenKind id;
+    private final TokenKind intConst;
+
+    private LexerTable(Map<String, TokenKind> kinds) {
+        this.id = kinds.get("id");
+        this.intConst = kinds.get("IntConst");
+        if (id == null || intConst == null) {
+            throw new RuntimeException("Coding map must contain id and IntConst");
+        }
+
+        // 字符类别
+        for (int c = 'a'; c <= 'z'; c++) {
+            charClass[c] = CLASS_LETTER;
+            charClass[Character.toUpperCase(c)] = CLASS_LETTER;
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            charClass[c] = CLASS_DIGIT;
+        }
+        charClass[' '] = CLASS_BLANK;
+        charClass['\t'] = CLASS_BLANK;
+        charClass['\n'] = CLASS_NEWLINE;
+        charClass['\r'] = CLASS_NEWLINE;
+
+        // 根据码点文件中的各个 TokenKind 填充分界符与保留字
+        final var keywords = new HashMap<String, TokenKind>();
+        for (final var kind : kinds.values()) {
+            final var name = kind.getIdentifier();
+            if (kind == TokenKind.eof() || kind == id || kind == intConst) {
+                continue;
+            }
+
+            if (SYMBOL_ALIASES.containsKey(name)) {
+                addSymbol(SYMBOL_ALIASES.get(name), kind);
+            } else if (name.length() == 1 && classOf(name.charAt(0)) == CLASS_OTHER) {
+                addSymbol(name.charAt(0), kind);
+            } else if (name.chars().allMatch(c -> classOf(c) == CLASS_LETTER)) {
+                keywords.put(name, kind);
+            } else {
+                throw new RuntimeException("Unrecognized token kind in coding map: " + name);
+            }
+        }
+        this.keywordTexts = keywords.keySet().toArray(String[]::new);
+        this.keywordKinds = Arrays.stream(keywordTexts).map(keywords::get).toArray(TokenKind[]::new);
+
+        // 换行符在任何状态下都被直接丢弃, 不改变状态
+        for (int state = 0; state < STATE_COUNT; state++) {
+            transitions[state][CLASS_NEWLINE] = state;
+        }
+
+        final var start = transitions[START];
+        start[CLASS_OTHER] = START;
+        start[CLASS_BLANK] = START;
+        start[CLASS_LETTER] = WORD | BEGIN | APPEND;
+        start[CLASS_DIGIT] = NUMBER | BEGIN | APPEND;
+        start[CLASS_SYMBOL] = START | EMIT_SYMBOL;
+
+        // 各单词状态遇到不能接在其后的字符时结束单词, 该字符随即按分界符或运算符处理 (非法字符与空白被忽略)
+        fillTerminators(WORD, EMIT_WORD);
+        transitions[WORD][CLASS_LETTER] = WORD | APPEND;
+        transitions[WORD][CLASS_DIGIT] = WORD_WITH_DIGIT | APPEND;
+
+        fillTerminators(WORD_WITH_DIGIT, EMIT_ID);
+        transitions[WORD_WITH_DIGIT][CLASS_LETTER] = WORD_WITH_DIGIT | APPEND;
+        transitions[WORD_WITH_DIGIT][CLASS_DIGIT] = WORD_WITH_DIGIT | APPEND;
+
+        // 与手写自动机一致, 紧跟在数字后的字母结束整数常量, 并被当作非法字符忽略
+        fillTerminators(NUMBER, EMIT_NUMBER);
+        transitions[NUMBER][CLASS_LETTER] = START | EMIT_NUMBER;
+        transitions[NUMBER][CLASS_DIGIT] = NUMBER | APPEND;
+    }
+
+    private void addSymbol(char c, TokenKind kind) {
+        if (c >= charClass.length || charClass[c] != CLASS_OTHER) {
+            throw new RuntimeException("Illegal symbol in coding map: " + c);
+        }
+
+        charClass[c] = CLASS_SYMBOL;
+        symbolKinds[c] = kind;
+    }
+
+    private void fillTerminators(int state, int emit) {
+        transitions[state][CLASS_OTHER] = START | emit;
+        transitions[state][CLASS_BLANK] = START | emit;
+        transitions[state][CLASS_SYMBOL] = START | emit | EMIT_SYMBOL;
+    }
+}
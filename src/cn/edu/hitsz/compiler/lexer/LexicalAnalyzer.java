@@ -1,11 +1,20 @@
 package cn.edu.hitsz.compiler.lexer;
 
+import cn.edu.hitsz.compiler.symtab.ConcurrentSymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
 import cn.edu.hitsz.compiler.symtab.SymbolTable;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
 import java.io.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
 /**
@@ -17,13 +26,28 @@ import java.util.stream.StreamSupport;
  * @see TokenKind 词法单元类型的实现
  */
 public class LexicalAnalyzer {
-    private final SymbolTable symbolTable;
+    private final SymbolStore symbolTable;
 
     private final List<Token> tokenList = new ArrayList<>();
 
-    StringBuffer buffer = new StringBuffer();
+    StringBuilder buffer = new StringBuilder();
 
-    public LexicalAnalyzer(SymbolTable symbolTable) {
+    /** 以内存映射方式读取的源文件路径, 为 null 时使用 buffer 中的内容 */
+    private String mappedPath = null;
+
+    /** 表驱动词法分析所用的转移表, 为 null 时使用手写的自动机 */
+    private LexerTable lexerTable = null;
+
+    /** runToBuffer 并行分析各个分块所用的线程池, 为 null 时顺序分析 */
+    private ForkJoinPool parallelPool = null;
+
+    /** 并行分析时每个分块的最小字符数, 更小的输入不值得切分 */
+    static final int PARALLEL_MIN_CHUNK = 1 << 20;
+
+    /** 并行分析时分块数相对于并行度的倍数, 使各线程的负载大致均衡 */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    public LexicalAnalyzer(SymbolStore symbolTable) {
         this.symbolTable = symbolTable;
     }
 
@@ -56,11 +80,36 @@ public class LexicalAnalyzer {
 
     }
 
+    /**
+     * 以内存映射的方式加载源文件. 与 loadFile 不同, 文件内容不会被读入 buffer, 而是在 run 时按窗口映射并逐字节扫描,
+     * 适用于非常大的源文件. 此时总是使用表驱动的自动机.
+     *
+     * @param path 路径
+     * @see MappedSourceReader
+     */
+    public void loadMappedFile(String path) {
+        this.mappedPath = path;
+    }
+
+    /**
+     * 使用表驱动的自动机代替手写的自动机执行词法分析
+     *
+     * @param table 由码点文件构造的转移表
+     */
+    public void setLexerTable(LexerTable table) {
+        this.lexerTable = table;
+    }
+
     /**
      * 执行词法分析, 准备好用于返回的 token 列表 <br>
      * 需要维护实验一所需的符号表条目, 而得在语法分析中才能确定的符号表条目的成员可以先设置为 null
      */
     public void run() {
+        if (lexerTable != null || mappedPath != null) {
+            runTable();
+            return;
+        }
+
         // 自动机实现的词法分析过程
         int index = 0;                      // 待检查的符号的索引
         int lengthMax = buffer.length();    // 代码段的总长度
@@ -123,11 +172,8 @@ public class LexicalAnalyzer {
                                 break;
                             default:
                                 // 标识符的情况
-                                tokenList.add(Token.normal("id",text));
                                 // 在读到一个标识符时 (即生成类别为 id 的词法单元时), 检测符号表中是否已含有该标识符, 若无向符号表加入该标识符
-                                if (!symbolTable.has(text)) {
-                                    symbolTable.add(text);
-                                }
+                                tokenList.add(identifier(TokenKind.fromString("id"), text));
                                 break;
                         }
                         // 重置标识符的缓存str
@@ -152,11 +198,8 @@ public class LexicalAnalyzer {
                         // 标识符检测结束
                         // 先将标识符添加到Token列表
                         text = str.toString();
-                        tokenList.add(Token.normal("id",text));
                         // 在读到一个标识符时 (即生成类别为 id 的词法单元时), 检测符号表中是否已含有该标识符, 若无向符号表加入该标识符
-                        if (!symbolTable.has(text)) {
-                            symbolTable.add(text);
-                        }
+                        tokenList.add(identifier(TokenKind.fromString("id"), text));
                         // 重置标识符的缓存str
                         str = new StringBuffer();
 
@@ -205,6 +248,267 @@ public class LexicalAnalyzer {
     }
 
 
+    /**
+     * 使用转移表执行词法分析, 源代码可以来自 buffer 或内存映射的文件.
+     * 内存映射的文件总是由表驱动的自动机分析; 若尚未调用 setLexerTable, 则使用由码点文件构造的默认转移表
+     */
+    private void runTable() {
+        if (lexerTable == null) {
+            lexerTable = LexerTable.fromTokenKinds();
+        }
+        if (mappedPath != null) {
+            try (final var reader = MappedSourceReader.open(mappedPath)) {
+                runTable(reader);
+            }
+        } else {
+            runTable(new StringSourceReader(buffer));
+        }
+        tokenList.add(Token.eof());
+    }
+
+    /**
+     * 表驱动的自动机: 每个字符只需一次类别查找与一次转移表查找, 仅当表项带有动作时才进入分支
+     *
+     * @param reader 源代码读取器
+     */
+    private void runTable(SourceReader reader) {
+        final var word = new StringBuilder();
+        final Consumer<Token> output = tokenList::add;
+        int state = LexerTable.START;
+        int c;
+        while ((c = reader.read()) != -1) {
+            state = step(state, c, word, output);
+        }
+        // 与手写自动机一致, 到达输入末尾时尚未被终结的单词不会产生 token
+    }
+
+    /**
+     * 令表驱动的自动机读入一个字符
+     *
+     * @param state  当前状态
+     * @param c      读入的字符
+     * @param word   正在拼接的单词
+     * @param output 接收产生的词法单元, 一个字符最多产生两个词法单元 (被终结的单词与该字符本身)
+     * @return 下一个状态
+     */
+    private int step(int state, int c, StringBuilder word, Consumer<Token> output) {
+        final var table = lexerTable;
+        final var entry = table.transitions[state][table.classOf(c)];
+        if (entry > LexerTable.STATE_MASK) {
+            if ((entry & LexerTable.BEGIN) != 0) {
+                word.setLength(0);
+            }
+            if ((entry & LexerTable.APPEND) != 0) {
+                word.append((char) c);
+            }
+            if ((entry & LexerTable.EMIT_WORD) != 0) {
+                final var keyword = table.keyword(word);
+                output.accept(keyword != null ? Token.simple(keyword) : identifier(table.id(), word));
+            } else if ((entry & LexerTable.EMIT_ID) != 0) {
+                output.accept(identifier(table.id(), word));
+            } else if ((entry & LexerTable.EMIT_NUMBER) != 0) {
+                output.accept(Token.normal(table.intConst(), word.toString()));
+            }
+            if ((entry & LexerTable.EMIT_SYMBOL) != 0) {
+                output.accept(Token.simple(table.symbolKind(c)));
+            }
+        }
+        return entry & LexerTable.STATE_MASK;
+    }
+
+    /**
+     * 令 runToBuffer 在给定的线程池上并行地执行词法分析
+     * <br>
+     * 源语言中没有跨越分号的词法单元 (也没有注释与多行字符串), 读入分号后自动机总是回到初始状态,
+     * 所以源代码可以在分号之后切分为互不相关的若干块, 各块分别分析到自己的词法单元缓冲区中, 再按顺序拼接.
+     * 各块遇到的标识符先登记在块内的符号表中, 全部分析完毕后才统一登记到符号表, 符号表因此不必支持并发访问.
+     * 得到的词法单元与符号表和顺序分析完全相同; 输入太小时仍顺序分析.
+     * <br>
+     * 若符号表是 {@link ConcurrentSymbolTable}, 各块直接登记到符号表中, 省去合并的开销. 此时符号表的内容不变,
+     * 但标识符的编号不再按首次出现的顺序分配.
+     *
+     * @param pool 线程池, 为 null 时恢复顺序分析
+     */
+    public void enableParallelLexing(ForkJoinPool pool) {
+        this.parallelPool = pool;
+    }
+
+    /**
+     * 执行词法分析, 并将结果存入以并列数组存放的词法单元缓冲区, 用以代替 run.
+     * <br>
+     * 与 run 不同, 该方法不为每个词法单元构造对象, 也不复制词素; 整数常量的值在扫描时即被解析出来.
+     * 该模式总是使用表驱动的自动机; 若尚未调用 setLexerTable, 则使用由码点文件构造的默认转移表.
+     *
+     * @return 词法单元缓冲区
+     * @throws RuntimeException 整数常量超出 int 的表示范围
+     */
+    public TokenBuffer runToBuffer() {
+        if (lexerTable == null) {
+            lexerTable = LexerTable.fromTokenKinds();
+        }
+
+        if (mappedPath != null) {
+            try (final var reader = MappedSourceReader.open(mappedPath)) {
+                if (parallelPool != null) {
+                    return runParallel(reader, reader.size(), reader::range, offset -> reader.indexOf(';', offset));
+                }
+                return runToBuffer(reader);
+            }
+        } else {
+            if (parallelPool != null) {
+                return runParallel(new StringSourceReader(buffer), buffer.length(),
+                    (from, to) -> new StringSourceReader(buffer, from.intValue(), to.intValue()),
+                    offset -> buffer.indexOf(";", (int) offset));
+            }
+            return runToBuffer(new StringSourceReader(buffer));
+        }
+    }
+
+    private TokenBuffer runToBuffer(SourceReader reader) {
+        final var result = new TokenBuffer(reader);
+        scan(reader, result, symbolTable::intern);
+        result.add(TokenKind.eof(), reader.position(), 0, 0);
+        return result;
+    }
+
+    /**
+     * 在分号之后把源代码切分为若干块, 在线程池上分别分析后按顺序拼接
+     *
+     * @param source    整个源代码的读取器, 仅用于截取词素
+     * @param size      源代码的长度
+     * @param readers   获得源代码中 [from, to) 一段的读取器, 偏移以整个源代码为准
+     * @param separator 查找不早于给定位置的第一个分号, 找不到时返回 -1
+     * @return 词法单元缓冲区
+     */
+    private TokenBuffer runParallel(SourceReader source, long size, BiFunction<Long, Long, SourceReader> readers,
+                                    LongUnaryOperator separator) {
+        final var chunkCount = (int) Math.min((long) parallelPool.getParallelism() * CHUNKS_PER_THREAD, size / PARALLEL_MIN_CHUNK);
+        if (chunkCount <= 1) {
+            return runToBuffer(source);
+        }
+
+        // 各块的边界: 每个名义上的切分点之后的第一个分号之后
+        final var bounds = new ArrayList<Long>();
+        bounds.add(0L);
+        for (int i = 1; i < chunkCount; i++) {
+            final var nominal = Math.max(size / chunkCount * i, bounds.get(bounds.size() - 1));
+            final var semicolon = separator.applyAsLong(nominal);
+            if (semicolon < 0) {
+                break;
+            }
+            bounds.add(semicolon + 1);
+        }
+        bounds.add(size);
+
+        // 符号表可被多个线程同时使用时, 各块直接登记到符号表中, 但编号的顺序取决于各线程的进度
+        final var shared = symbolTable instanceof ConcurrentSymbolTable;
+        final var chunks = parallelPool.submit(() -> IntStream.range(0, bounds.size() - 1).parallel()
+            .mapToObj(i -> new Chunk(source, readers.apply(bounds.get(i), bounds.get(i + 1)),
+                shared ? symbolTable : new SymbolTable()))
+            .toList()).join();
+
+        // 否则按块的顺序把各块的标识符登记到符号表中, 并把块内的编号换成符号表中的编号.
+        // 各块内的编号按首次出现的顺序分配, 所以最终的编号与顺序分析时相同
+        final var result = new TokenBuffer(source);
+        for (final var chunk : chunks) {
+            if (shared) {
+                result.addAll(chunk.tokens, null);
+                continue;
+            }
+            final var symbols = new int[chunk.identifiers.size()];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = symbolTable.intern(chunk.identifiers.get(i).getText());
+            }
+            result.addAll(chunk.tokens, symbols);
+        }
+        result.add(TokenKind.eof(), size, 0, 0);
+        return result;
+    }
+
+    /**
+     * 并行分析中一个块的结果
+     */
+    private class Chunk {
+        final TokenBuffer tokens;
+        // 登记块内标识符的符号表; 为块内单独的符号表时, 不会删除其中的符号, 所以编号为 0 ~ size - 1
+        final SymbolStore identifiers;
+
+        Chunk(SourceReader source, SourceReader reader, SymbolStore identifiers) {
+            this.tokens = new TokenBuffer(source);
+            this.identifiers = identifiers;
+            scan(reader, tokens, identifiers::intern);
+        }
+    }
+
+    /**
+     * 表驱动的自动机, 把读取器中的全部词法单元存入缓冲区, 不加入 EOF
+     *
+     * @param reader      源代码读取器
+     * @param result      词法单元缓冲区
+     * @param identifiers 登记遇到的标识符并返回其编号, 编号存入缓冲区中该标识符的整数值
+     */
+    private void scan(SourceReader reader, TokenBuffer result, ToIntFunction<CharSequence> identifiers) {
+        final var table = lexerTable;
+        final var transitions = table.transitions;
+        // 单词的字符仍需暂存, 以便判断保留字并维护符号表, 但该缓存不会被词法单元引用
+        final var word = new StringBuilder();
+        long start = 0;
+        long value = 0;
+        int state = LexerTable.START;
+        int c;
+        while ((c = reader.read()) != -1) {
+            final var entry = transitions[state][table.classOf(c)];
+            if (entry > LexerTable.STATE_MASK) {
+                final var offset = reader.position() - 1;
+                if ((entry & LexerTable.BEGIN) != 0) {
+                    word.setLength(0);
+                    start = offset;
+                    value = 0;
+                }
+                if ((entry & LexerTable.APPEND) != 0) {
+                    word.append((char) c);
+                    if ((entry & LexerTable.STATE_MASK) == LexerTable.NUMBER) {
+                        value = value * 10 + (c - '0');
+                        if (value > Integer.MAX_VALUE) {
+                            throw new RuntimeException("Integer constant out of range at " + start);
+                        }
+                    }
+                }
+
+                final var length = (int) (offset - start);
+                if ((entry & LexerTable.EMIT_WORD) != 0) {
+                    final var keyword = table.keyword(word);
+                    if (keyword != null) {
+                        result.add(keyword, start, length, 0);
+                    } else {
+                        result.add(table.id(), start, length, identifiers.applyAsInt(word));
+                    }
+                } else if ((entry & LexerTable.EMIT_ID) != 0) {
+                    result.add(table.id(), start, length, identifiers.applyAsInt(word));
+                } else if ((entry & LexerTable.EMIT_NUMBER) != 0) {
+                    result.add(table.intConst(), start, length, (int) value);
+                }
+                if ((entry & LexerTable.EMIT_SYMBOL) != 0) {
+                    result.add(table.symbolKind(c), offset, 1, 0);
+                }
+            }
+            state = entry & LexerTable.STATE_MASK;
+        }
+        // 与手写自动机一致, 到达输入末尾时尚未被终结的单词不会产生 token
+    }
+
+    /**
+     * 构造标识符的词法单元, 并在符号表中尚无该标识符时登记它
+     *
+     * @param kind 标识符的 TokenKind
+     * @param text 标识符文本
+     * @return 携带符号编号的标识符的词法单元, 其文本与符号表条目共享同一个 String
+     */
+    private Token identifier(TokenKind kind, CharSequence text) {
+        final var symbol = symbolTable.intern(text);
+        return Token.identifier(kind, symbolTable.get(symbol).getText(), symbol);
+    }
+
     /**
      * 对于buffer，指定开始区间index，跳过无意义的代码段
      * @param index 开始检查的索引值
@@ -273,6 +577,72 @@ public class LexicalAnalyzer {
         return ((c >= '0') && (c <= '9'));
     }
 
+    /**
+     * 获得一个按需进行词法分析的词法单元来源, 用以代替 run.
+     * <br>
+     * 每次向其索取词法单元时, 才从源代码中读入恰好足够产生下一个词法单元的字符, 因此语法分析可以与词法分析交替进行,
+     * 而不必等待整个文件分析完毕. 通过该来源产生的词法单元不会被保存, 也就不会出现在 getTokens 与 dumpTokens 的结果中.
+     * 符号表仍随着词法分析的进行被逐步维护.
+     * <br>
+     * 该模式总是使用表驱动的自动机; 若尚未调用 setLexerTable, 则使用由码点文件构造的默认转移表.
+     *
+     * @return 词法单元来源
+     */
+    public TokenSource tokenStream() {
+        if (lexerTable == null) {
+            lexerTable = LexerTable.fromTokenKinds();
+        }
+
+        final SourceReader reader = mappedPath != null
+            ? MappedSourceReader.open(mappedPath)
+            : new StringSourceReader(buffer);
+        return new LazyTokenStream(reader);
+    }
+
+    /**
+     * 按需驱动表驱动自动机的词法单元来源
+     */
+    private class LazyTokenStream implements TokenSource {
+        private final SourceReader reader;
+        private final StringBuilder word = new StringBuilder();
+        // 一个字符最多产生两个词法单元, 用一个小队列暂存已产生但尚未被取走的词法单元
+        private final ArrayDeque<Token> pending = new ArrayDeque<>(2);
+        private final Consumer<Token> output = pending::addLast;
+        private int state = LexerTable.START;
+        private boolean finished = false;
+
+        LazyTokenStream(SourceReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Token peek() {
+            fill();
+            return pending.getFirst();
+        }
+
+        @Override
+        public Token consume() {
+            fill();
+            return pending.removeFirst();
+        }
+
+        private void fill() {
+            while (pending.isEmpty() && !finished) {
+                final var c = reader.read();
+                if (c == -1) {
+                    finished = true;
+                    pending.addLast(Token.eof());
+                    if (reader instanceof MappedSourceReader mapped) {
+                        mapped.close();
+                    }
+                } else {
+                    state = step(state, c, word, output);
+                }
+            }
+        }
+    }
+
     /**
      * 获得词法分析的结果, 保证在调用了 run 方法之后调用
      *
@@ -0,0 +1,233 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射的源文件读取器
+ * <br>
+ * 将源文件按固定大小的窗口依次映射到内存中, 并顺序地逐字节读取. 源文件内容不会被复制到堆上,
+ * 因此无论源文件有多大, 读取过程所占用的堆内存都是有界的.
+ * <br>
+ * 读取器只保留当前窗口的映射, 读过的窗口随即被释放. 词法单元截取其文本时, 若所在的窗口已被释放则重新映射该窗口
+ * (并缓存最近一次截取所用的窗口), 因此词法单元仍可直接引用源文件中的片段作为其文本, 而不必复制每个词素.
+ * 关闭读取器后截取文本时会临时重新打开源文件.
+ * <br>
+ * 源语言只包含 ASCII 字符, 所以词法分析器可以直接按字节扫描, 不需要先解码成 char.
+ */
+public class MappedSourceReader implements SourceReader, Closeable {
+    /**
+     * 默认的映射窗口大小 (64 MiB)
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+    /**
+     * 以默认的窗口大小打开源文件
+     *
+     * @param path 源文件路径
+     * @return 读取器
+     */
+    public static MappedSourceReader open(String path) {
+        return open(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * 以指定的窗口大小打开源文件
+     *
+     * @param path       源文件路径
+     * @param windowSize 每次映射的字节数
+     * @return 读取器
+     */
+    public static MappedSourceReader open(String path, int windowSize) {
+        if (windowSize <= 0) {
+            throw new RuntimeException("Window size must be positive");
+        }
+
+        try {
+            final var channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+            return new MappedSourceReader(path, channel, windowSize);
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on " + path, e);
+        }
+    }
+
+    /**
+     * @return 下一个字节 (0 ~ 255); 若已到达文件末尾则返回 -1
+     */
+    @Override
+    public int read() {
+        if (!window.hasRemaining() && !mapNextWindow()) {
+            return -1;
+        }
+
+        return window.get() & 0xFF;
+    }
+
+    /**
+     * @return 下一个待读取字节在文件中的偏移
+     */
+    @Override
+    public long position() {
+        return windowStart + window.position();
+    }
+
+    /**
+     * @return 源文件的总字节数
+     */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String slice(long offset, int length) {
+        final var bytes = new byte[length];
+        var copied = 0;
+        while (copied < length) {
+            final var position = offset + copied;
+            final var window = windowForSlice(position / windowSize);
+            final var inWindow = (int) (position % windowSize);
+            final var count = Math.min(length - copied, window.limit() - inWindow);
+            window.get(inWindow, bytes, copied, count);
+            copied += count;
+        }
+        return SourceReader.withoutLineTerminators(new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 查找字节 c 在 from 之后第一次出现的位置. 逐个窗口地映射并扫描, 不保留扫描过的窗口
+     *
+     * @param c    待查找的字节
+     * @param from 起始偏移
+     * @return 偏移; 找不到时返回 -1
+     */
+    public long indexOf(int c, long from) {
+        final var reader = range(from, size);
+        int b;
+        while ((b = reader.read()) != -1) {
+            if (b == c) {
+                return reader.position() - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 获得只读取 [from, to) 内字节的读取器, 偏移仍以整个文件为准. 各个读取器各自映射并只保留自己的当前窗口,
+     * 可以在不同线程中同时读取
+     *
+     * @param from 起始偏移
+     * @param to   结束偏移
+     * @return 读取器, 其 slice 截取的是整个文件中的片段
+     */
+    public SourceReader range(long from, long to) {
+        return new SourceReader() {
+            private long position = from;
+            private ByteBuffer window = ByteBuffer.allocate(0);
+            private long windowStart = from;
+
+            @Override
+            public int read() {
+                if (position >= to) {
+                    return -1;
+                }
+                if (position - windowStart >= window.limit()) {
+                    windowStart = position / windowSize * windowSize;
+                    window = map(windowStart);
+                }
+                return window.get((int) (position++ - windowStart)) & 0xFF;
+            }
+
+            @Override
+            public long position() {
+                return position;
+            }
+
+            @Override
+            public String slice(long offset, int length) {
+                return MappedSourceReader.this.slice(offset, length);
+            }
+        };
+    }
+
+    /**
+     * @param index 窗口的序号, 第 i 个窗口从文件偏移 i * windowSize 处开始
+     * @return 该窗口; 不是当前窗口时重新映射, 并缓存以供之后的截取使用
+     */
+    private ByteBuffer windowForSlice(long index) {
+        final var start = index * windowSize;
+        if (start == windowStart && window.limit() > 0) {
+            return window;
+        }
+        if (start != sliceWindowStart || sliceWindow == null) {
+            sliceWindow = map(start);
+            sliceWindowStart = start;
+        }
+        return sliceWindow;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on closing source file", e);
+        }
+    }
+
+    /**
+     * 映射紧接在当前窗口之后的下一个窗口, 并释放当前窗口
+     *
+     * @return 是否还有未读取的内容
+     */
+    private boolean mapNextWindow() {
+        final var nextStart = windowStart + window.limit();
+        if (nextStart >= size) {
+            return false;
+        }
+
+        window = map(nextStart);
+        windowStart = nextStart;
+        return true;
+    }
+
+    /**
+     * 映射从 start 开始的一个窗口. 映射一经建立便不再依赖于文件通道, 所以读取器关闭后临时重新打开源文件
+     */
+    private ByteBuffer map(long start) {
+        final var length = (int) Math.min(windowSize, size - start);
+        try {
+            if (channel.isOpen()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+            try (final var reopened = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                return reopened.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on mapping source file", e);
+        }
+    }
+
+    private MappedSourceReader(String path, FileChannel channel, int windowSize) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    private final String path;
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    // 当前窗口及其在文件中的起始偏移, 初始时为一个空窗口
+    private ByteBuffer window = ByteBuffer.allocate(0);
+    private long windowStart = 0;
+    // 最近一次截取已释放的窗口中的文本时映射的窗口
+    private ByteBuffer sliceWindow = null;
+    private long sliceWindowStart = -1;
+}
@@ -0,0 +1,44 @@
+package cn.edu.hitsz.compiler.lexer;
+
+/**
+ * 顺序读取源代码字符的读取器
+ * <br>
+ * 词法分析器的各种输入方式 (内存中的文本, 内存映射的文件) 都通过该接口向扫描过程提供字符,
+ * 扫描过程因此不必关心源代码具体存放在哪里.
+ *
+ * @see MappedSourceReader
+ * @see StringSourceReader
+ */
+public interface SourceReader {
+    /**
+     * @return 下一个字符; 若已到达末尾则返回 -1
+     */
+    int read();
+
+    /**
+     * @return 下一个待读取字符在源代码中的偏移
+     */
+    long position();
+
+    /**
+     * 截取已读取过的一段源代码, 供词法单元在需要时取得其文本. 与 loadFile 拼接各行的行为一致, 截取结果中不含换行符.
+     *
+     * @param offset 起始偏移
+     * @param length 长度
+     * @return 该段源代码的文本
+     */
+    String slice(long offset, int length);
+
+    /**
+     * 截取时去掉换行符
+     *
+     * @param text 截取出的原始文本
+     * @return 去掉换行符后的文本
+     */
+    static String withoutLineTerminators(String text) {
+        if (text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return text.replace("\n", "").replace("\r", "");
+    }
+}
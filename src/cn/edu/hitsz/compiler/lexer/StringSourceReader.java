@@ -0,0 +1,43 @@
+package cn.edu.hitsz.compiler.lexer;
+
+/**
+ * 读取内存中文本的读取器
+ */
+public class StringSourceReader implements SourceReader {
+    public StringSourceReader(CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    /**
+     * 只读取 [start, end) 内的字符, 偏移仍以整段文本为准
+     *
+     * @param text  文本
+     * @param start 起始偏移
+     * @param end   结束偏移
+     */
+    public StringSourceReader(CharSequence text, int start, int end) {
+        this.text = text;
+        this.index = start;
+        this.length = end;
+    }
+
+    @Override
+    public int read() {
+        return index < length ? text.charAt(index++) : -1;
+    }
+
+    @Override
+    public long position() {
+        return index;
+    }
+
+    @Override
+    public String slice(long offset, int length) {
+        final var start = (int) offset;
+        return SourceReader.withoutLineTerminators(text.subSequence(start, start + length).toString());
+    }
+
+    private final CharSequence text;
+    private final int length;
+    private int index;
+}
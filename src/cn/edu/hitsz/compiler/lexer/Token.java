@@ -54,6 +54,27 @@ public class Token {
         return new Token(kind, text);
     }
 
+    /**
+     * @param kind   token 类型
+     * @param text   标识符文本, 应为符号表条目中的文本, 以便各处共享同一个 String
+     * @param symbol 标识符在符号表中的编号
+     * @return 携带符号编号的标识符 token
+     * @see cn.edu.hitsz.compiler.symtab.SymbolTable#intern(CharSequence)
+     */
+    public static Token identifier(TokenKind kind, String text, int symbol) {
+        return new Token(kind, text, 0, false, symbol);
+    }
+
+    /**
+     * @param kind  token 类型
+     * @param text  源文本
+     * @param value 已从源文本中解析出的整数值
+     * @return 具有该 token 类型的整数常量 token, 其整数值不必再从文本中解析
+     */
+    public static Token number(TokenKind kind, String text, int value) {
+        return new Token(kind, text, value, true, -1);
+    }
+
     /**
      * @return 该 token 的类型的文本表示
      */
@@ -75,16 +96,41 @@ public class Token {
         return text;
     }
 
+    /**
+     * @return 该 token 的文本所表示的整数值; 若构造时已给出解析好的值, 则直接返回该值
+     * @throws NumberFormatException 文本不是合法的整数
+     */
+    public int getIntValue() {
+        return hasValue ? value : Integer.parseInt(text);
+    }
+
+    /**
+     * @return 标识符在符号表中的编号; 构造时未给出编号则为 -1
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
     @Override
     public String toString() {
         return "(%s,%s)".formatted(kind, text);
     }
 
     private Token(TokenKind kind, String text) {
+        this(kind, text, 0, false, -1);
+    }
+
+    private Token(TokenKind kind, String text, int value, boolean hasValue, int symbol) {
         this.kind = kind;
         this.text = text;
+        this.value = value;
+        this.hasValue = hasValue;
+        this.symbol = symbol;
     }
 
     private final TokenKind kind;
     private final String text;
+    private final int value;
+    private final boolean hasValue;
+    private final int symbol;
 }
@@ -0,0 +1,245 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 以并列数组 (struct-of-arrays) 形式存放的词法单元序列
+ * <br>
+ * 每个词法单元只占用各数组中的一格: 类型的序号, 在源代码中的偏移与长度, 以及预先解析好的整数值
+ * (对整数常量是其值, 对标识符是其在符号表中的编号).
+ * 词素不会被复制, 而是在需要时才从源代码中截取, 因此缓冲区中不存在逐个词法单元分配的对象.
+ * <br>
+ * 只有 {@code id} 与 {@code IntConst} 两种词法单元带有文本, 其余词法单元的文本恒为空字符串, 与 {@link Token} 的约定一致.
+ *
+ * @see LexicalAnalyzer#runToBuffer()
+ */
+public class TokenBuffer {
+    TokenBuffer(SourceReader source) {
+        this.source = source;
+        this.id = TokenKind.fromString("id");
+        this.intConst = TokenKind.fromString("IntConst");
+    }
+
+    /**
+     * 在末尾加入一个词法单元
+     *
+     * @param kind   类型
+     * @param offset 在源代码中的偏移
+     * @param length 在源代码中的长度
+     * @param value  整数常量的值, 或标识符在符号表中的编号
+     */
+    void add(TokenKind kind, long offset, int length, int value) {
+        if (size == kinds.length) {
+            final var capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw new RuntimeException("Source code is too large for a token buffer");
+        }
+
+        kinds[size] = kind.getOrdinal();
+        offsets[size] = (int) offset;
+        lengths[size] = length;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * 在末尾依次加入另一个缓冲区中的全部词法单元, 其偏移须同样以本缓冲区的源代码为准
+     *
+     * @param other   另一个缓冲区
+     * @param symbols 另一个缓冲区中的符号编号到本缓冲区的符号编号的映射; 为 null 时编号不变
+     */
+    void addAll(TokenBuffer other, int[] symbols) {
+        final var newSize = size + other.size;
+        if (newSize > kinds.length) {
+            final var capacity = Math.max(newSize, kinds.length * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(other.kinds, 0, kinds, size, other.size);
+        System.arraycopy(other.offsets, 0, offsets, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        final var idOrdinal = id.getOrdinal();
+        for (int i = size; symbols != null && i < newSize; i++) {
+            if (kinds[i] == idOrdinal) {
+                values[i] = symbols[values[i]];
+            }
+        }
+        size = newSize;
+    }
+
+    /**
+     * @return 词法单元的个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index 下标
+     * @return 该词法单元类型的序号
+     */
+    public int kindOrdinal(int index) {
+        return kinds[checkIndex(index)];
+    }
+
+    /**
+     * @param index 下标
+     * @return 该词法单元的类型
+     */
+    public TokenKind kind(int index) {
+        return TokenKind.fromOrdinal(kindOrdinal(index));
+    }
+
+    /**
+     * @param index 下标
+     * @return 该词法单元在源代码中的偏移
+     */
+    public int offset(int index) {
+        return offsets[checkIndex(index)];
+    }
+
+    /**
+     * @param index 下标
+     * @return 该词法单元在源代码中的长度
+     */
+    public int length(int index) {
+        return lengths[checkIndex(index)];
+    }
+
+    /**
+     * @param index 下标
+     * @return 整数常量预先解析好的值, 或标识符在符号表中的编号
+     */
+    public int value(int index) {
+        return values[checkIndex(index)];
+    }
+
+    /**
+     * @param index 下标
+     * @return 该词法单元的文本, 只有标识符与整数常量才从源代码中截取, 其余均为空字符串
+     */
+    public String text(int index) {
+        final var kind = kind(index);
+        if (kind == id || kind == intConst) {
+            return source.slice(offsets[index], lengths[index]);
+        }
+        return "";
+    }
+
+    /**
+     * 构造出该下标处的词法单元对象. 不带文本的词法单元对每种类型只构造一次
+     *
+     * @param index 下标
+     * @return 词法单元
+     */
+    public Token token(int index) {
+        final var kind = kind(index);
+        if (kind == id) {
+            return Token.identifier(kind, text(index), values[index]);
+        } else if (kind == intConst) {
+            return Token.number(kind, text(index), values[index]);
+        } else if (kind == TokenKind.eof()) {
+            return eofToken;
+        }
+
+        final var ordinal = kinds[index];
+        if (simpleTokens[ordinal] == null) {
+            simpleTokens[ordinal] = Token.simple(kind);
+        }
+        return simpleTokens[ordinal];
+    }
+
+    /**
+     * @return 从头开始依次读取该缓冲区的词法单元来源. 查看类型与跳过词法单元时不会构造词法单元对象
+     */
+    public TokenSource cursor() {
+        return new TokenSource() {
+            private int position = 0;
+            private Token current = null;
+
+            @Override
+            public TokenKind peekKind() {
+                return kind(checkRemaining());
+            }
+
+            @Override
+            public Token peek() {
+                if (current == null) {
+                    current = token(checkRemaining());
+                }
+                return current;
+            }
+
+            @Override
+            public Token consume() {
+                final var token = peek();
+                current = null;
+                position++;
+                return token;
+            }
+
+            @Override
+            public void skip() {
+                checkRemaining();
+                current = null;
+                position++;
+            }
+
+            private int checkRemaining() {
+                if (position >= size) {
+                    throw new NoSuchElementException();
+                }
+                return position;
+            }
+        };
+    }
+
+    /**
+     * 按 {@link Token#toString()} 的格式逐行输出所有词法单元, 不构造中间的词法单元对象与行列表
+     *
+     * @param path 输出文件路径
+     */
+    public void dump(String path) {
+        try (final var writer = FileUtils.newWriter(path)) {
+            for (int i = 0; i < size; i++) {
+                writer.append('(').append(kind(i).getIdentifier()).append(',').append(text(i)).append(')');
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception for " + path, e);
+        }
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+
+    private final SourceReader source;
+    private final TokenKind id;
+    private final TokenKind intConst;
+    private final Token eofToken = Token.eof();
+
+    private int size = 0;
+    private int[] kinds = new int[16];
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    private int[] values = new int[16];
+
+    // 不带文本的词法单元对象的缓存, 以类型的序号为下标
+    private final Token[] simpleTokens = new Token[TokenKind.count()];
+}
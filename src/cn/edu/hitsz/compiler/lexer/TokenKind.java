@@ -4,6 +4,7 @@ import cn.edu.hitsz.compiler.parser.table.Term;
 import cn.edu.hitsz.compiler.utils.FilePathConfig;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,7 +29,10 @@ import java.util.Map;
 public class TokenKind extends Term {
     // 允许用作 TokenKind 的 id 的字符串集合
     private static final Map<String, TokenKind> allowed = new HashMap<>();
-    private static final TokenKind eof = new TokenKind("$", -1);
+    // EOF 的序号恒为 0, 码点文件中的各类型按行序依次编号
+    private static final TokenKind eof = new TokenKind("$", -1, 0);
+    // 以序号为下标的 TokenKind 表
+    private static TokenKind[] byOrdinal = {eof};
 
     /**
      * 从码点文件中读取允许的标识符集合
@@ -47,7 +51,10 @@ public class TokenKind extends Term {
             final var code = Integer.parseInt(words[0]);
             final var id = words[1];
 
-            allowed.put(id, new TokenKind(id, code));
+            final var kind = new TokenKind(id, code, byOrdinal.length);
+            allowed.put(id, kind);
+            byOrdinal = Arrays.copyOf(byOrdinal, byOrdinal.length + 1);
+            byOrdinal[kind.getOrdinal()] = kind;
         }
 
         // EOF
@@ -86,6 +93,26 @@ public class TokenKind extends Term {
         return allowed.get(id);
     }
 
+    /**
+     * @param ordinal 序号
+     * @return 具有该序号的 TokenKind
+     * @throws RuntimeException 没有该序号的 TokenKind
+     */
+    public static TokenKind fromOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= byOrdinal.length) {
+            throw new RuntimeException("Illegal ordinal: " + ordinal);
+        }
+
+        return byOrdinal[ordinal];
+    }
+
+    /**
+     * @return TokenKind 的总数 (包括 EOF), 即序号的上界
+     */
+    public static int count() {
+        return byOrdinal.length;
+    }
+
     /**
      * @return 代表 EOF 的 TokenKind
      */
@@ -107,8 +134,8 @@ public class TokenKind extends Term {
         return code;
     }
 
-    private TokenKind(String id, int code) {
-        super(id);
+    private TokenKind(String id, int code, int ordinal) {
+        super(id, ordinal);
         this.code = code;
     }
 
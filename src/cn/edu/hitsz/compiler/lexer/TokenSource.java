@@ -0,0 +1,75 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 按需提供词法单元的来源
+ * <br>
+ * 语法分析驱动程序通过该接口逐个拉取词法单元, 而不必事先拿到完整的词法单元列表. 驱动程序经常需要查看下一个词法单元而不消耗它,
+ * 因此接口区分了 peek 与 consume.
+ *
+ * @see LexicalAnalyzer#tokenStream()
+ */
+public interface TokenSource {
+    /**
+     * 查看下一个词法单元, 但不消耗它
+     *
+     * @return 下一个词法单元
+     * @throws NoSuchElementException 已没有更多的词法单元
+     */
+    Token peek();
+
+    /**
+     * 查看下一个词法单元的类型. 驱动程序查表时只需要类型, 某些来源可以借此避免构造词法单元对象
+     *
+     * @return 下一个词法单元的类型
+     * @throws NoSuchElementException 已没有更多的词法单元
+     */
+    default TokenKind peekKind() {
+        return peek().getKind();
+    }
+
+    /**
+     * 消耗并返回下一个词法单元
+     *
+     * @return 下一个词法单元
+     * @throws NoSuchElementException 已没有更多的词法单元
+     */
+    Token consume();
+
+    /**
+     * 消耗下一个词法单元但不返回它. 调用者不需要词法单元对象时, 某些来源可以借此避免构造它
+     *
+     * @throws NoSuchElementException 已没有更多的词法单元
+     */
+    default void skip() {
+        consume();
+    }
+
+    /**
+     * @param tokens 词法单元序列
+     * @return 依次提供该序列中各词法单元的来源
+     */
+    static TokenSource of(Iterable<Token> tokens) {
+        final Iterator<Token> iterator = tokens.iterator();
+        return new TokenSource() {
+            private Token next = null;
+
+            @Override
+            public Token peek() {
+                if (next == null) {
+                    next = iterator.next();
+                }
+                return next;
+            }
+
+            @Override
+            public Token consume() {
+                final var token = peek();
+                next = null;
+                return token;
+            }
+        };
+    }
+}
@@ -0,0 +1,258 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenSource;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 语法分析驱动程序的公共部分: 词法单元的来源, 观察者的注册与事件分发
+ * <br>
+ * 子类在 {@link #parse()} 中实现具体的分析过程, 并在执行动作时调用 callWhenIn* 系列方法.
+ * {@link SyntaxAnalyzer} 读取分析表驱动分析, {@link cn.edu.hitsz.compiler.parser.table.ParserGenerator} 生成的分析器则内嵌分析表, 二者共用这里的事件分发.
+ *
+ * @see cn.edu.hitsz.compiler.parser.table.ParserGenerator
+ */
+public abstract class AbstractSyntaxAnalyzer {
+    private final SymbolStore symbolTable;
+    private final List<ActionObserver> observers = new ArrayList<>();
+    // 希望得知被越过的单产生式规约的观察者
+    private final List<ActionObserver> unitObservers = new ArrayList<>();
+    private final List<ConcurrentObserver> concurrentObservers = new ArrayList<>();
+    private boolean concurrentDispatch = false;
+    // 在驱动程序线程中执行的 AttributeObserver 共用的属性栈, 没有此类观察者时为 null
+    private AttributeStack attributes = null;
+    private TokenSource tokenInput;
+
+    protected AbstractSyntaxAnalyzer(SymbolStore symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * 注册新的观察者
+     *
+     * @param observer 观察者
+     */
+    public void registerObserver(ActionObserver observer) {
+        if (concurrentDispatch) {
+            final var concurrent = new ConcurrentObserver(observer, ConcurrentObserver.DEFAULT_CAPACITY);
+            concurrentObservers.add(concurrent);
+            observer = concurrent;
+        }
+        observers.add(observer);
+        if (observer.wantsUnitReductions()) {
+            unitObservers.add(observer);
+        }
+        observer.setSymbolTable(symbolTable);
+        if (observer instanceof AttributeObserver attributeObserver) {
+            if (attributes == null) {
+                attributes = new AttributeStack();
+            }
+            attributeObserver.setAttributeStack(attributes);
+        }
+    }
+
+    /**
+     * 使之后注册的观察者各自在独立的线程中处理动作事件, 须在注册任何观察者之前调用
+     * <br>
+     * 驱动程序只把事件写入各观察者的环形缓冲区, 因而语法分析, 语义分析与 IR 生成等工作可以重叠进行.
+     * {@link #run()} 返回时观察者可能仍在处理事件, 读取观察者的结果之前必须先调用 {@link #awaitObservers()}.
+     * {@link #run()} 抛出异常时, 观察者线程在处理完已发布的事件后即退出.
+     *
+     * @throws RuntimeException 已经注册了观察者
+     */
+    public void enableConcurrentDispatch() {
+        if (!observers.isEmpty()) {
+            throw new RuntimeException("Concurrent dispatch must be enabled before registering observers");
+        }
+        this.concurrentDispatch = true;
+    }
+
+    /**
+     * 等待所有在独立线程中运行的观察者处理完全部事件
+     *
+     * @throws RuntimeException 某个观察者在处理事件时抛出了异常
+     */
+    public void awaitObservers() {
+        RuntimeException failure = null;
+        for (final var observer : concurrentObservers) {
+            try {
+                observer.await();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        concurrentObservers.clear();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 分析失败时令在独立线程中运行的观察者处理完已发布的事件后退出, 以免其线程在之后一直等待新的事件
+     *
+     * @param failure 分析过程中抛出的异常, 观察者抛出的异常附加在其上
+     */
+    private void stopObservers(Throwable failure) {
+        for (final var observer : concurrentObservers) {
+            try {
+                observer.await();
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        concurrentObservers.clear();
+    }
+
+    /**
+     * 在执行 shift 动作时通知各个观察者
+     *
+     * @param currentStatus 当前状态
+     * @param currentToken  当前词法单元
+     */
+    public void callWhenInShift(Status currentStatus, Token currentToken) {
+        if (attributes != null) {
+            attributes.begin(0);
+        }
+        for (final var listener : observers) {
+            listener.whenShift(currentStatus, currentToken);
+        }
+        if (attributes != null) {
+            attributes.end();
+        }
+    }
+
+    /**
+     * 在执行 reduce 动作时通知各个观察者
+     *
+     * @param currentStatus 当前状态
+     * @param production    待规约的产生式
+     */
+    public void callWhenInReduce(Status currentStatus, Production production) {
+        if (attributes != null) {
+            attributes.begin(production.body().size());
+        }
+        for (final var listener : observers) {
+            listener.whenReduce(currentStatus, production);
+        }
+        if (attributes != null) {
+            attributes.end();
+        }
+    }
+
+    /**
+     * 在分析表越过单产生式的规约时, 通知希望得知这些规约的观察者
+     *
+     * @param currentStatus 规约后原先应到达的状态
+     * @param production    被越过的单产生式
+     */
+    void callWhenInUnitReduce(Status currentStatus, Production production) {
+        // 新行默认复制产生式体的属性, 不关心单产生式的观察者的属性因此原样传递
+        if (attributes != null) {
+            attributes.begin(1);
+        }
+        for (final var listener : unitObservers) {
+            listener.whenReduce(currentStatus, production);
+        }
+        if (attributes != null) {
+            attributes.end();
+        }
+    }
+
+    /**
+     * 在执行 accept 动作时通知各个观察者
+     *
+     * @param currentStatus 当前状态
+     */
+    public void callWhenInAccept(Status currentStatus) {
+        for (final var listener : observers) {
+            listener.whenAccept(currentStatus);
+        }
+        if (attributes != null) {
+            attributes.clear();
+        }
+    }
+
+    /**
+     * @return 已加载的词法单元来源, 供子类的驱动程序使用
+     */
+    protected TokenSource getTokenInput() {
+        return tokenInput;
+    }
+
+    /**
+     * @return 是否注册了观察者. 没有观察者时驱动程序不必构造通知所需的对象
+     */
+    protected boolean hasObservers() {
+        return !observers.isEmpty();
+    }
+
+    public void loadTokens(Iterable<Token> tokens) {
+        // 你可以自行选择要如何存储词法单元, 譬如使用迭代器, 或是栈, 或是干脆使用一个 list 全存起来
+        // 需要注意的是, 在实现驱动程序的过程中, 你会需要面对只读取一个 token 而不能消耗它的情况,
+        // 在自行设计的时候请加以考虑此种情况
+        // 构建一个从左向右扫描的符号栈，不妨使用队列实现
+        loadTokens(TokenSource.of(tokens));
+    }
+
+    /**
+     * 加载按需提供词法单元的来源. 驱动程序在需要时才从中拉取词法单元, 不会预先保存完整的词法单元列表,
+     * 配合 {@link cn.edu.hitsz.compiler.lexer.LexicalAnalyzer#tokenStream()} 即可让词法分析与语法分析交替进行.
+     *
+     * @param tokens 词法单元来源
+     */
+    public void loadTokens(TokenSource tokens) {
+        this.tokenInput = tokens;
+    }
+
+    public void run() {
+        // 上一次分析失败时属性栈中可能留有符号
+        if (attributes != null) {
+            attributes.clear();
+        }
+        try {
+            parse();
+        } catch (RuntimeException | Error e) {
+            stopObservers(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 执行语法分析, 由 {@link #run()} 调用
+     */
+    protected abstract void parse();
+
+    /**
+     * 在折叠状态栈时通知各个观察者, 参数含义见 {@link ActionObserver#whenFold(int, int)}
+     */
+    void callWhenInFold(int length, int above) {
+        for (final var listener : observers) {
+            listener.whenFold(length, above);
+        }
+        if (attributes != null) {
+            attributes.fold(length, above);
+        }
+    }
+
+    /**
+     * 在换回被折叠的状态时通知各个观察者, 参数含义见 {@link ActionObserver#whenUnfold(int, int)}
+     */
+    void callWhenInUnfold(int length, int above) {
+        for (final var listener : observers) {
+            listener.whenUnfold(length, above);
+        }
+        if (attributes != null) {
+            attributes.unfold(length, above);
+        }
+    }
+}
@@ -4,7 +4,7 @@ package cn.edu.hitsz.compiler.parser;
 import cn.edu.hitsz.compiler.lexer.Token;
 import cn.edu.hitsz.compiler.parser.table.Production;
 import cn.edu.hitsz.compiler.parser.table.Status;
-import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
 
 /**
  * LR 驱动程序动作观察者, 你不应该修改此文件
@@ -17,7 +17,7 @@ import cn.edu.hitsz.compiler.symtab.SymbolTable;
  * ProductionCollector 类
  * <br>
  * 注意观察者并不能访问到 LR 驱动程序维护着的状态栈, 观察者之间维护的栈信息也不应该互相访问. 每一个实现该接口的观察者需要自己定义自己需要的
- * 状态信息并维护自己的状态栈.
+ * 状态信息并维护自己的状态栈. 只需为每个文法符号记录若干属性的观察者也可以实现 {@link AttributeObserver}, 改用驱动程序维护的属性栈.
  *
  * @see ProductionCollector
  * @see SyntaxAnalyzer
@@ -48,10 +48,42 @@ public interface ActionObserver {
      */
     void whenAccept(Status currentStatus);
 
+    /**
+     * 分析表越过了单产生式 (如 A -> B) 的规约时, 驱动程序只向此方法返回 true 的观察者报告这些规约.
+     * 对单产生式只是原样传递属性的观察者可以返回 false, 省去这些规约的开销.
+     *
+     * @return 是否需要得知被越过的单产生式规约
+     * @see cn.edu.hitsz.compiler.parser.table.UnitBypassLRTable
+     */
+    default boolean wantsUnitReductions() {
+        return true;
+    }
+
+    /**
+     * 驱动程序折叠了状态栈中周期性重复的部分时会调用此函数 (见 {@link SyntaxAnalyzer#enableStackFolding}).
+     * 此时观察者栈顶 above 个符号之下的 length 个符号在被 {@link #whenUnfold(int, int)} 换回之前不会再被读取, 观察者可以丢弃它们.
+     * 默认保留这些符号, 结果不变, 只是栈仍随输入增长.
+     *
+     * @param length 可以丢弃的符号数
+     * @param above  位于这些符号之上的符号数
+     */
+    default void whenFold(int length, int above) {
+    }
+
+    /**
+     * 驱动程序即将弹出之前被折叠的状态时会调用此函数. 丢弃过符号的观察者应在栈顶 above 个符号之下补回 length 个占位符号,
+     * 它们随后只会被规约弹出
+     *
+     * @param length 需要补回的符号数
+     * @param above  位于这些符号之上的符号数
+     */
+    default void whenUnfold(int length, int above) {
+    }
+
     /**
      * 当驱动程序接受符号表时会调用此函数, 实现此接口的类可以自行决定是否存储这个符号表
      *
      * @param table 符号表
      */
-    void setSymbolTable(SymbolTable table);
+    void setSymbolTable(SymbolStore table);
 }
@@ -0,0 +1,18 @@
+package cn.edu.hitsz.compiler.parser;
+
+/**
+ * 把语义属性存放在共用的 {@link AttributeStack} 中的动作观察者
+ * <br>
+ * 与自行维护符号栈的 {@link ActionObserver} 不同, 此类观察者不必在每次移入与规约时压入新的符号对象, 也不必处理折叠与清空:
+ * 在 {@link #whenShift} 中写入被移入的词法单元的属性, 在 {@link #whenReduce} 中读取产生式体中各符号的属性并写入产生式头的属性即可.
+ * 注册到 {@link AbstractSyntaxAnalyzer} 时, 同一驱动程序中的此类观察者共用一个属性栈, 每个文法符号只占其中一行;
+ * 在独立线程中运行时 (见 {@link AbstractSyntaxAnalyzer#enableConcurrentDispatch()}), 观察者在自己的线程中使用一个单独的属性栈.
+ */
+public interface AttributeObserver extends ActionObserver {
+    /**
+     * 在观察者注册时, 分析开始之前调用. 观察者应在此声明需要的属性槽并保存该属性栈
+     *
+     * @param attributes 属性栈
+     */
+    void setAttributeStack(AttributeStack attributes);
+}
@@ -0,0 +1,157 @@
+package cn.edu.hitsz.compiler.parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 各观察者共用的属性栈
+ * <br>
+ * 栈中每个文法符号占一行, 每行由若干个以 long 存储的属性槽组成, 所有行连续地存放在同一个数组中. 观察者在注册时按名字声明自己需要的槽
+ * (同名的槽由声明它的观察者共用), 之后只需在动作中读取产生式体中各符号的属性, 并写入产生式头的属性;
+ * 压栈, 出栈, 折叠与清空都由分发动作事件的一方 (驱动程序) 统一完成. 因此移入或规约一个符号不再为每个观察者各分配一个对象.
+ * <br>
+ * 一次动作的过程为: {@link #begin(int)} 标出栈顶的产生式体并准备产生式头的新行, 各观察者读写属性, 最后 {@link #end()}
+ * 弹出产生式体并压入新行. 移入一个词法单元视作规约一条空产生式. 新行默认复制产生式体中第一个符号的属性 (同 yacc 的 $$ = $1),
+ * 没有显式写入某个槽的观察者 (例如不关心被越过的单产生式的观察者) 的属性因而原样向上传递; 移入时新行的各槽均为 0.
+ * <br>
+ * 属性栈只应在分发事件的线程中使用.
+ *
+ * @see AttributeObserver
+ */
+public class AttributeStack {
+    /**
+     * 声明一个属性槽. 同名的槽只会分配一次
+     *
+     * @param name 槽的名字
+     * @return 槽的编号
+     * @throws RuntimeException 栈中已有符号时不能再声明新的槽
+     */
+    public int declare(String name) {
+        final var existing = slots.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (size != 0) {
+            throw new RuntimeException("Can NOT declare attribute " + name + " while parsing");
+        }
+
+        final var slot = slots.size();
+        slots.put(name, slot);
+        width = slots.size();
+        rows = new long[Math.max(width * 64, rows.length)];
+        staging = new long[width];
+        return slot;
+    }
+
+    /**
+     * 读取当前产生式体中一个符号的属性
+     *
+     * @param slot  槽的编号
+     * @param index 符号在产生式体中的下标, 从 0 开始
+     * @return 属性值
+     */
+    public long get(int slot, int index) {
+        if (index < 0 || index >= length) {
+            throw new RuntimeException("Symbol %d is out of the production body of length %d".formatted(index, length));
+        }
+        return rows[(base + index) * width + slot];
+    }
+
+    /**
+     * @see #get(int, int)
+     */
+    public int getInt(int slot, int index) {
+        return (int) get(slot, index);
+    }
+
+    /**
+     * 写入产生式头 (或被移入的词法单元) 的属性
+     *
+     * @param slot  槽的编号
+     * @param value 属性值
+     */
+    public void set(int slot, long value) {
+        staging[slot] = value;
+    }
+
+    /**
+     * @return 栈中的符号数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 开始一次动作: 栈顶 length 个符号为产生式体, 并以其中第一个符号的属性初始化产生式头的新行
+     *
+     * @param length 产生式体的长度, 移入时为 0
+     */
+    void begin(int length) {
+        base = size - length;
+        this.length = length;
+        if (length > 0) {
+            System.arraycopy(rows, base * width, staging, 0, width);
+        } else {
+            Arrays.fill(staging, 0);
+        }
+    }
+
+    /**
+     * 结束一次动作: 弹出产生式体, 压入新行
+     */
+    void end() {
+        size = base + 1;
+        if (size * width > rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        System.arraycopy(staging, 0, rows, base * width, width);
+        length = 0;
+    }
+
+    /**
+     * 丢弃栈顶 above 个符号之下的 length 个符号
+     *
+     * @see ActionObserver#whenFold(int, int)
+     */
+    void fold(int length, int above) {
+        final var from = size - above - length;
+        System.arraycopy(rows, (from + length) * width, rows, from * width, above * width);
+        size -= length;
+    }
+
+    /**
+     * 在栈顶 above 个符号之下补回 length 个属性均为 0 的符号
+     *
+     * @see ActionObserver#whenUnfold(int, int)
+     */
+    void unfold(int length, int above) {
+        final var from = size - above;
+        if ((size + length) * width > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(rows.length * 2, (size + length) * width));
+        }
+        System.arraycopy(rows, from * width, rows, (from + length) * width, above * width);
+        Arrays.fill(rows, from * width, (from + length) * width, 0);
+        size += length;
+    }
+
+    /**
+     * 清空栈, 已声明的槽保持不变
+     */
+    void clear() {
+        size = 0;
+        length = 0;
+    }
+
+    // 槽的名字到编号
+    private final Map<String, Integer> slots = new HashMap<>();
+    // 每行的槽数
+    private int width = 0;
+    // 按行连续存放的属性, 第 i 个符号的第 s 个槽位于 rows[i * width + s]
+    private long[] rows = new long[0];
+    private int size = 0;
+    // 当前动作的产生式体的起始行与长度, 以及产生式头的新行
+    private int base = 0;
+    private int length = 0;
+    private long[] staging = new long[0];
+}
@@ -0,0 +1,327 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 在独立线程中运行的动作观察者
+ * <br>
+ * 驱动程序线程只把动作事件 (类型, 状态, 以及词法单元或产生式) 写入一个单生产者单消费者的环形缓冲区,
+ * 被包装的观察者则在自己的线程中按相同的顺序依次处理这些事件. 各观察者之间互不共享栈, 因此语法分析与各个观察者的工作可以重叠进行.
+ * 被包装的 {@link AttributeObserver} 使用一个只属于它的属性栈, 由观察者线程维护.
+ * <br>
+ * 缓冲区写满时驱动程序线程等待, 缓冲区为空时观察者线程等待: 先短暂自旋, 再挂起一小段时间, 以免长期占用处理器.
+ * <br>
+ * 注意被包装的观察者不再与驱动程序在同一线程中执行: 若它读写符号表, 则在 {@link #await()} 返回之前,
+ * 其它线程不应同时修改符号表 (例如边分析边进行词法分析时, 词法分析器会向符号表中加入新的标识符).
+ *
+ * @see AbstractSyntaxAnalyzer#enableConcurrentDispatch()
+ */
+class ConcurrentObserver implements ActionObserver {
+    static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final byte SHIFT = 0;
+    private static final byte REDUCE = 1;
+    private static final byte ACCEPT = 2;
+    private static final byte FOLD = 3;
+    private static final byte UNFOLD = 4;
+    private static final byte STOP = 5;
+
+    // 只有一个处理器时自旋等待只会白白占用另一方所需的时间片, 频繁唤醒观察者线程也只会增加线程切换
+    private static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+    private static final int SPIN_LIMIT = MULTIPROCESSOR ? 256 : 0;
+    private static final long PARK_NANOS = 20_000;
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+
+    static {
+        try {
+            final var lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(ConcurrentObserver.class, "head", long.class);
+            TAIL = lookup.findVarHandle(ConcurrentObserver.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * @param delegate 被包装的观察者
+     * @param capacity 环形缓冲区的容量, 必须为 2 的幂
+     */
+    ConcurrentObserver(ActionObserver delegate, int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new RuntimeException("Ring buffer capacity must be a power of two");
+        }
+
+        this.delegate = delegate;
+        this.mask = capacity - 1;
+        this.wakeThreshold = MULTIPROCESSOR ? 0 : capacity / 2;
+        this.kinds = new byte[capacity];
+        this.statuses = new Status[capacity];
+        this.payloads = new Object[capacity];
+        this.lengths = new int[capacity];
+        this.aboves = new int[capacity];
+        if (delegate instanceof AttributeObserver observer) {
+            // 观察者线程启动之前完成, 之后只由观察者线程使用
+            this.attributes = new AttributeStack();
+            observer.setAttributeStack(attributes);
+        } else {
+            this.attributes = null;
+        }
+        this.consumer = new Thread(this::consume, "observer-" + delegate.getClass().getSimpleName());
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public void whenShift(Status currentStatus, Token currentToken) {
+        publish(SHIFT, currentStatus, currentToken);
+    }
+
+    @Override
+    public void whenReduce(Status currentStatus, Production production) {
+        publish(REDUCE, currentStatus, production);
+    }
+
+    @Override
+    public void whenAccept(Status currentStatus) {
+        publish(ACCEPT, currentStatus, null);
+    }
+
+    @Override
+    public void whenFold(int length, int above) {
+        publish(FOLD, length, above);
+    }
+
+    @Override
+    public void whenUnfold(int length, int above) {
+        publish(UNFOLD, length, above);
+    }
+
+    @Override
+    public boolean wantsUnitReductions() {
+        return delegate.wantsUnitReductions();
+    }
+
+    @Override
+    public void setSymbolTable(SymbolStore table) {
+        // 在发布任何事件之前调用, 之后对尾指针的写入保证观察者线程能看到该符号表
+        delegate.setSymbolTable(table);
+    }
+
+    /**
+     * 等待观察者线程处理完已发布的所有事件并退出. 之后不能再向该观察者发布事件
+     *
+     * @throws RuntimeException 观察者在处理事件时抛出了异常
+     */
+    void await() {
+        publish(STOP, null, null);
+        stopped = true;
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for observer " + consumer.getName(), e);
+        }
+
+        if (failure != null) {
+            throw new RuntimeException("Observer " + consumer.getName() + " failed", failure);
+        }
+    }
+
+    /**
+     * 由驱动程序线程调用, 将一个事件写入缓冲区
+     */
+    private void publish(byte kind, Status status, Object payload) {
+        final var index = claim();
+        kinds[index] = kind;
+        statuses[index] = status;
+        payloads[index] = payload;
+        commit(kind);
+    }
+
+    /**
+     * 由驱动程序线程调用, 将一个折叠或展开事件写入缓冲区. 两个整数直接存入缓冲区, 不分配对象
+     */
+    private void publish(byte kind, int length, int above) {
+        final var index = claim();
+        kinds[index] = kind;
+        lengths[index] = length;
+        aboves[index] = above;
+        commit(kind);
+    }
+
+    /**
+     * 等待缓冲区中有空位
+     *
+     * @return 下一个事件在缓冲区中的下标
+     */
+    private int claim() {
+        if (stopped) {
+            throw new RuntimeException("Observer " + consumer.getName() + " has stopped");
+        }
+        final var position = tail;
+        var spins = 0;
+        while (position - cachedHead > mask) {
+            // 缓冲区看起来已满, 重新读取观察者线程的进度
+            cachedHead = (long) HEAD.getAcquire(this);
+            if (position - cachedHead > mask) {
+                spins = backOff(spins);
+            }
+        }
+
+        return (int) position & mask;
+    }
+
+    /**
+     * 发布已写入缓冲区的事件, 必要时唤醒观察者线程
+     */
+    private void commit(byte kind) {
+        final var position = tail;
+        TAIL.setRelease(this, position + 1);
+        if (consumerWaiting && (kind == STOP || position + 1 - cachedHead > wakeThreshold)) {
+            // 每次挂起只需唤醒一次
+            consumerWaiting = false;
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * 观察者线程的主循环: 成批取出已发布的事件并依次交给被包装的观察者
+     */
+    private void consume() {
+        var position = head;
+        var spins = 0;
+        while (true) {
+            final var available = (long) TAIL.getAcquire(this);
+            if (available == position) {
+                if (spins < SPIN_LIMIT) {
+                    spins++;
+                    Thread.onSpinWait();
+                } else {
+                    consumerWaiting = true;
+                    if ((long) TAIL.getAcquire(this) == position) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    consumerWaiting = false;
+                }
+                continue;
+            }
+
+            spins = 0;
+            for (; position < available; position++) {
+                final var index = (int) position & mask;
+                final var kind = kinds[index];
+                if (kind == STOP) {
+                    return;
+                }
+                dispatch(kind, index);
+                statuses[index] = null;
+                payloads[index] = null;
+            }
+            HEAD.setRelease(this, position);
+        }
+    }
+
+    private void dispatch(byte kind, int index) {
+        // 出错后继续取出事件但不再处理, 以免驱动程序线程因缓冲区写满而永远等待
+        if (failure != null) {
+            return;
+        }
+
+        try {
+            if (attributes != null) {
+                dispatchWithAttributes(kind, index);
+                return;
+            }
+            switch (kind) {
+                case SHIFT -> delegate.whenShift(statuses[index], (Token) payloads[index]);
+                case REDUCE -> delegate.whenReduce(statuses[index], (Production) payloads[index]);
+                case ACCEPT -> delegate.whenAccept(statuses[index]);
+                case FOLD -> delegate.whenFold(lengths[index], aboves[index]);
+                case UNFOLD -> delegate.whenUnfold(lengths[index], aboves[index]);
+                default -> throw new IllegalStateException("Unexpected event kind: " + kind);
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * 与 {@link AbstractSyntaxAnalyzer} 相同, 在把事件交给被包装的观察者前后维护其属性栈
+     */
+    private void dispatchWithAttributes(byte kind, int index) {
+        final var status = statuses[index];
+        final var payload = payloads[index];
+        switch (kind) {
+            case SHIFT -> {
+                attributes.begin(0);
+                delegate.whenShift(status, (Token) payload);
+                attributes.end();
+            }
+            case REDUCE -> {
+                attributes.begin(((Production) payload).body().size());
+                delegate.whenReduce(status, (Production) payload);
+                attributes.end();
+            }
+            case ACCEPT -> {
+                delegate.whenAccept(status);
+                attributes.clear();
+            }
+            case FOLD -> {
+                delegate.whenFold(lengths[index], aboves[index]);
+                attributes.fold(lengths[index], aboves[index]);
+            }
+            case UNFOLD -> {
+                delegate.whenUnfold(lengths[index], aboves[index]);
+                attributes.unfold(lengths[index], aboves[index]);
+            }
+            default -> throw new IllegalStateException("Unexpected event kind: " + kind);
+        }
+    }
+
+    private static int backOff(int spins) {
+        if (spins < SPIN_LIMIT) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return spins + 1;
+    }
+
+    private final ActionObserver delegate;
+    // 被包装的观察者的属性栈, 不是 AttributeObserver 时为 null
+    private final AttributeStack attributes;
+    private final Thread consumer;
+
+    // 环形缓冲区, 以位置对容量取模为下标. 各事件以并列数组的形式存储, 不为每个事件分配对象
+    private final int mask;
+    private final byte[] kinds;
+    private final Status[] statuses;
+    private final Object[] payloads;
+    // 折叠与展开事件的两个参数
+    private final int[] lengths;
+    private final int[] aboves;
+    // 观察者线程挂起时, 缓冲区中积累超过该数量的事件才唤醒它
+    private final int wakeThreshold;
+
+    // 下一个待处理事件的位置, 只由观察者线程写入
+    private volatile long head = 0;
+    // 下一个待发布事件的位置, 只由驱动程序线程写入
+    private volatile long tail = 0;
+    // 驱动程序线程最近一次读到的 head, 避免每次发布都读取观察者线程写入的变量
+    private long cachedHead = 0;
+    // 是否已发布 STOP, 只由驱动程序线程读写
+    private boolean stopped = false;
+
+    private volatile boolean consumerWaiting = false;
+    // 观察者线程中抛出的异常, 在 await 时重新抛出. consumer.join() 保证了其可见性
+    private Throwable failure = null;
+}
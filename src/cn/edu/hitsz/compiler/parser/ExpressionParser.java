@@ -0,0 +1,329 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.lexer.TokenSource;
+import cn.edu.hitsz.compiler.parser.table.NonTerminal;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+import cn.edu.hitsz.compiler.parser.table.Production;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * 算术表达式的优先级爬升子分析器, 供 {@link SyntaxAnalyzer} 的整数编码驱动程序在混合模式下使用
+ * <br>
+ * 从文法中识别出分层的表达式文法: 除最内层外, 每层非终结符 X 的产生式只有左结合的二元运算 {@code X -> X op Y} 与单产生式 {@code X -> Y},
+ * 其中 Y 为下一层的非终结符; 最内层的产生式只有 {@code B -> t} (t 为终结符) 与 {@code B -> ( E )} (E 为最外层).
+ * 以 grammar.txt 为例, 三层分别为 E, A 与 B.
+ * <br>
+ * 驱动程序处于某个只能由表达式继续的状态 (如 {@code S -> id = . E}) 时, 把整个表达式交给该子分析器,
+ * 它按递归下降的方式逐层解析, 不再逐个词法单元查 ACTION 表与维护状态栈. 为了让观察者看到与 LR 驱动程序完全相同的事件序列,
+ * 子分析器按 LR 分析的顺序发出 shift 与 reduce 事件, 并从分析表中取出事件对应的状态; 分析表越过了单产生式时, 同样只把这些规约报告给希望得知的观察者.
+ * 每次规约之前还检查此时 LR 驱动程序栈顶的状态对当前词法单元的动作确实是规约, 因此输入有误时也与 LR 驱动程序在同一位置报错, 不会多发出事件.
+ * <br>
+ * 文法中找不到这样的结构时构造函数抛出异常.
+ */
+class ExpressionParser {
+    /**
+     * @param table      驱动程序使用的分析表
+     * @param expression 最外层的表达式非终结符
+     * @throws RuntimeException 文法中以 expression 为根的部分不是分层的表达式文法
+     */
+    ExpressionParser(PackedLRTable table, NonTerminal expression) {
+        this.table = table;
+        this.terminalCount = table.getTerminalCount();
+
+        final var levels = new int[table.getNonTerminalCount()];
+        final var operators = new int[table.getNonTerminalCount()][];
+        final var units = new int[table.getNonTerminalCount()];
+        final var visited = new HashSet<Integer>();
+        var count = 0;
+        var current = expression.getOrdinal();
+
+        // 自外向内逐层识别, 直到遇到只有初等式的一层
+        while (true) {
+            if (!visited.add(current)) {
+                throw new RuntimeException("Expression grammar contains a cycle of unit productions");
+            }
+
+            final var levelOperators = new int[terminalCount];
+            Arrays.fill(levelOperators, -1);
+            var unit = -1;
+            var next = -1;
+            var primary = false;
+            for (int index = 0; index < table.getProductionCount(); index++) {
+                final var production = table.getProduction(index);
+                if (production == null || production.head().getOrdinal() != current) {
+                    continue;
+                }
+
+                final var body = production.body();
+                if (body.size() == 3 && isNonTerminal(production, 0, current)
+                    && body.get(1) instanceof TokenKind operator && body.get(2) instanceof NonTerminal operand) {
+                    // X -> X op Y
+                    next = expectSame(next, operand.getOrdinal());
+                    levelOperators[operator.getOrdinal()] = index;
+                } else if (body.size() == 1 && body.get(0) instanceof NonTerminal operand) {
+                    // X -> Y
+                    next = expectSame(next, operand.getOrdinal());
+                    if (unit >= 0) {
+                        throw new RuntimeException("Expression level %s has more than one unit production".formatted(production.head()));
+                    }
+                    unit = index;
+                } else {
+                    primary = true;
+                }
+            }
+
+            if (primary) {
+                if (unit >= 0 || next >= 0) {
+                    throw new RuntimeException("Expression level %d mixes operators and primaries".formatted(current));
+                }
+                levels[count++] = current;
+                break;
+            }
+            if (unit < 0) {
+                throw new RuntimeException("Expression level %d has no unit production".formatted(current));
+            }
+
+            levels[count] = current;
+            operators[count] = levelOperators;
+            units[count] = unit;
+            count++;
+            current = next;
+        }
+
+        this.primaryLevel = count - 1;
+        this.levels = Arrays.copyOf(levels, count);
+        this.operators = Arrays.copyOf(operators, count);
+        this.units = Arrays.copyOf(units, count);
+
+        // 最内层: B -> t 与 B -> ( E )
+        this.primaries = new int[terminalCount];
+        Arrays.fill(primaries, -1);
+        var parenthesized = -1;
+        for (int index = 0; index < table.getProductionCount(); index++) {
+            final var production = table.getProduction(index);
+            if (production == null || production.head().getOrdinal() != levels[primaryLevel]) {
+                continue;
+            }
+
+            final var body = production.body();
+            if (body.size() == 1 && body.get(0) instanceof TokenKind terminal) {
+                primaries[terminal.getOrdinal()] = index;
+            } else if (parenthesized < 0 && body.size() == 3 && body.get(0) instanceof TokenKind
+                && isNonTerminal(production, 1, levels[0]) && body.get(2) instanceof TokenKind) {
+                parenthesized = index;
+            } else {
+                throw new RuntimeException("Unsupported primary production " + production);
+            }
+        }
+        this.parenthesized = parenthesized;
+        this.open = parenthesized < 0 ? -1 : table.getProduction(parenthesized).body().get(0).getOrdinal();
+        this.close = parenthesized < 0 ? -1 : table.getProduction(parenthesized).body().get(2).getOrdinal();
+
+        this.entries = new boolean[table.getStateCount()];
+        for (int state = 0; state < entries.length; state++) {
+            entries[state] = isEntry(state);
+        }
+    }
+
+    /**
+     * @return 构造时所依据的分析表
+     */
+    PackedLRTable getTable() {
+        return table;
+    }
+
+    /**
+     * @param state    驱动程序栈顶的状态
+     * @param terminal 当前词法单元类型的序号
+     * @return 是否应由子分析器从此处解析一个完整的表达式
+     */
+    boolean startsAt(int state, int terminal) {
+        return entries[state] && (primaries[terminal] >= 0 || terminal == open);
+    }
+
+    /**
+     * 从状态 state 开始解析一个最外层的表达式, 并向观察者发出相应的事件
+     *
+     * @param driver 发出事件所用的驱动程序
+     * @param input  词法单元来源, 解析结束时当前词法单元为表达式之后的第一个词法单元
+     * @param state  表达式之前的状态
+     * @param notify 是否通知观察者
+     * @return 驱动程序接下来应压入的状态, 即 GOTO(state, E)
+     */
+    int parse(SyntaxAnalyzer driver, TokenSource input, int state, boolean notify) {
+        this.driver = driver;
+        this.input = input;
+        this.notify = notify;
+        try {
+            parseLevel(0, state);
+        } finally {
+            this.driver = null;
+            this.input = null;
+        }
+        return table.goto_(state, levels[0]);
+    }
+
+    /**
+     * 解析第 level 层的非终结符
+     *
+     * @param level 层号, 0 为最外层
+     * @param base  该非终结符之前的状态
+     */
+    private void parseLevel(int level, int base) {
+        if (level == primaryLevel) {
+            parsePrimary(base);
+            return;
+        }
+
+        // X -> Y
+        parseLevel(level + 1, base);
+        reduceUnit(units[level], base, levels[level + 1], levels[level]);
+
+        // X -> X op Y, 左结合
+        final var levelOperators = operators[level];
+        while (true) {
+            final var production = levelOperators[input.peekKind().getOrdinal()];
+            if (production < 0) {
+                return;
+            }
+            final var afterOperator = shift(table.goto_(base, levels[level]));
+            parseLevel(level + 1, afterOperator);
+            reduce(production, base, levels[level], table.goto_(afterOperator, levels[level + 1]));
+        }
+    }
+
+    private void parsePrimary(int base) {
+        final var terminal = input.peekKind().getOrdinal();
+        final var production = primaries[terminal];
+        if (production >= 0) {
+            // B -> t
+            final var top = shift(base);
+            reduce(production, base, levels[primaryLevel], top);
+        } else if (terminal == open) {
+            // B -> ( E )
+            final var inside = shift(base);
+            parseLevel(0, inside);
+            if (input.peekKind().getOrdinal() != close) {
+                throw new RuntimeException("LR分析失败: 输入符号可能有误");
+            }
+            final var top = shift(table.goto_(inside, levels[0]));
+            reduce(parenthesized, base, levels[primaryLevel], top);
+        } else {
+            throw new RuntimeException("LR分析失败: 输入符号可能有误");
+        }
+    }
+
+    /**
+     * 在状态 state 下移入当前词法单元
+     *
+     * @return 移入后的状态
+     */
+    private int shift(int state) {
+        final var cell = table.action(state, input.peekKind().getOrdinal());
+        if (PackedLRTable.kindOf(cell) != PackedLRTable.SHIFT) {
+            throw new RuntimeException("LR分析失败: 输入符号可能有误");
+        }
+        if (notify) {
+            driver.callWhenInShift(table.getStatus(state), input.peek());
+        }
+        input.skip();
+        return PackedLRTable.payloadOf(cell);
+    }
+
+    /**
+     * 通知观察者按 production 规约, 规约前栈顶 (弹出产生式体之后) 的状态为 base
+     *
+     * @param top LR 驱动程序此时栈顶的状态, 它对当前词法单元的动作不是规约时说明输入有误
+     */
+    private void reduce(int production, int base, int head, int top) {
+        if (PackedLRTable.kindOf(table.action(top, input.peekKind().getOrdinal())) != PackedLRTable.REDUCE) {
+            throw new RuntimeException("LR分析失败: 输入符号可能有误");
+        }
+        if (notify) {
+            final var chain = table.getUnitChain(base, head);
+            final var target = chain == null ? table.goto_(base, head) : chain[0];
+            driver.callWhenInReduce(table.getStatus(target), table.getProduction(production));
+        }
+    }
+
+    /**
+     * 通知观察者按单产生式 head -> operand 规约; 若分析表越过了该规约, 只通知希望得知的观察者
+     */
+    private void reduceUnit(int production, int base, int operand, int head) {
+        final var chain = table.getUnitChain(base, operand);
+        if (chain == null) {
+            reduce(production, base, head, table.goto_(base, operand));
+        } else if (notify) {
+            // 被越过的规约在 LR 驱动程序中没有对应的动作, 不需要检查
+            driver.callWhenInUnitReduce(table.getStatus(chain[2]), table.getProduction(production));
+        }
+    }
+
+    /**
+     * 只有表达式之前的状态才能交给子分析器: 该状态经最外层非终结符有转移, 经任何表达式的首终结符都是移入,
+     * 且除各层表达式的非终结符外没有其它转移, 这样从该状态开始的任何合法输入都必然先归约出一个最外层的表达式
+     */
+    private boolean isEntry(int state) {
+        if (table.goto_(state, levels[0]) < 0) {
+            return false;
+        }
+        for (int terminal = 0; terminal < terminalCount; terminal++) {
+            if ((primaries[terminal] >= 0 || terminal == open)
+                && PackedLRTable.kindOf(table.action(state, terminal)) != PackedLRTable.SHIFT) {
+                return false;
+            }
+        }
+        for (int nonTerminal = 0; nonTerminal < table.getNonTerminalCount(); nonTerminal++) {
+            if (table.goto_(state, nonTerminal) >= 0 && !isLevel(nonTerminal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isLevel(int nonTerminal) {
+        for (final var level : levels) {
+            if (level == nonTerminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNonTerminal(Production production, int position, int ordinal) {
+        return production.body().get(position) instanceof NonTerminal nonTerminal && nonTerminal.getOrdinal() == ordinal;
+    }
+
+    private static int expectSame(int expected, int actual) {
+        if (expected >= 0 && expected != actual) {
+            throw new RuntimeException("Expression level refers to more than one inner level");
+        }
+        return actual;
+    }
+
+    private final PackedLRTable table;
+    private final int terminalCount;
+
+    // 自外向内各层的非终结符序号; 除最内层外, 每层的二元运算 (以运算符序号为下标的产生式索引) 与单产生式
+    private final int[] levels;
+    private final int[][] operators;
+    private final int[] units;
+    private final int primaryLevel;
+
+    // 最内层: 以终结符序号为下标的 B -> t 的产生式索引, 以及 B -> ( E )
+    private final int[] primaries;
+    private final int parenthesized;
+    private final int open;
+    private final int close;
+
+    // 可以交给子分析器的状态
+    private final boolean[] entries;
+
+    // 解析过程中使用的驱动程序与词法单元来源
+    private SyntaxAnalyzer driver;
+    private TokenSource input;
+    private boolean notify;
+}
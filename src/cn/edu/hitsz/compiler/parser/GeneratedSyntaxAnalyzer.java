@@ -0,0 +1,178 @@
+// 该文件由 cn.edu.hitsz.compiler.parser.table.ParserGenerator 根据 LR 分析表自动生成, 请勿手动修改
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.NonTerminal;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.parser.table.Term;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+
+import java.util.Arrays;
+
+/**
+ * 内嵌 LR 分析表的专用语法分析器, 共 39 个状态, 14 个终结符, 7 个非终结符, 15 条产生式
+ * <br>
+ * 不需要读取分析表, 但码点文件与语法文件必须与生成时一致. 文法符号与产生式取自 {@link GrammarInfo}, 与其它驱动程序收到的是同一对象.
+ * 通知观察者时传入的状态对象只带有编号, 不带有 ACTION/GOTO 表项.
+ */
+public class GeneratedSyntaxAnalyzer extends AbstractSyntaxAnalyzer {
+    private static final int INIT = 0;
+    private static final int TERMINAL_COUNT = 14;
+    private static final int NON_TERMINAL_COUNT = 7;
+    private static final int BEGIN_PRODUCTION = 1;
+
+    private static final String[] TERMINALS = {"$", "int", "return", "=", ",", "Semicolon", "+", "-", "*", "/", "(", ")", "id", "IntConst"};
+    private static final String[] NON_TERMINALS = {"P", "S_list", "S", "D", "E", "A", "B"};
+    private static final int[] ACTION = unpack(546,
+        "\001\000\000\001\000\025\001\000\031\011\000\000\001\000\021\001\000\000\001\000\003\022\000\000\001\000\035\024\000\000\001\000\041\004\000\000\001\000\045\026\000\000\001\000\026\013\000\000" +
+        "\001\000\071\001\000\000\001\000\065\001\000\075\001\000\016\001\000\025\001\000\031\011\000\000\001\000\021\006\000\000\001\000\022\022\000\000\001\000\071\001\000\000\001\000\065\001\000\075" +
+        "\005\000\000\001\000\036\001\000\111\001\000\115\013\000\000\003\000\052\001\000\121\012\000\000\004\000\062\012\000\000\004\000\072\017\000\000\001\000\145\001\000\000\001\000\141\001\000\151" +
+        "\005\000\000\004\000\076\005\000\000\001\000\012\022\000\000\001\000\032\001\000\111\001\000\115\020\000\000\001\000\071\001\000\000\001\000\065\001\000\075\012\000\000\001\000\071\001\000\000" +
+        "\001\000\065\001\000\075\012\000\000\001\000\071\001\000\000\001\000\065\001\000\075\006\000\000\001\000\175\001\000\201\003\000\000\001\000\171\010\000\000\002\000\052\001\000\205\002\000\000" +
+        "\001\000\052\010\000\000\003\000\062\002\000\000\001\000\062\010\000\000\003\000\072\002\000\000\001\000\072\014\000\000\001\000\145\001\000\000\001\000\141\001\000\151\006\000\000\003\000\076" +
+        "\002\000\000\001\000\076\007\000\000\003\000\042\001\000\121\012\000\000\003\000\046\001\000\121\012\000\000\004\000\056\012\000\000\004\000\066\017\000\000\001\000\145\001\000\000\001\000\141" +
+        "\001\000\151\012\000\000\001\000\145\001\000\000\001\000\141\001\000\151\012\000\000\001\000\145\001\000\000\001\000\141\001\000\151\006\000\000\001\000\175\001\000\201\003\000\000\001\000\231" +
+        "\010\000\000\002\000\042\001\000\205\002\000\000\001\000\042\010\000\000\002\000\046\001\000\205\002\000\000\001\000\046\010\000\000\003\000\056\002\000\000\001\000\056\010\000\000\003\000\066" +
+        "\002\000\000\001\000\066\002\000\000");
+
+    private static final int[] GOTO = unpack(273,
+        "\001\uffff\uffff\001\000\001\001\000\002\001\000\003\052\uffff\uffff\001\000\012\001\000\013\001\000\014\001\uffff\uffff\001\000\020\001\000\002\001\000\003\016\uffff\uffff\001\000\021\001\000\013\001\000\014" +
+        "\040\uffff\uffff\001\000\025\001\000\026\001\000\027\032\uffff\uffff\001\000\033\001\000\014\005\uffff\uffff\001\000\034\001\000\014\006\uffff\uffff\001\000\035\040\uffff\uffff\001\000\042\001\000\026\001\000\027" +
+        "\050\uffff\uffff\001\000\043\001\000\027\005\uffff\uffff\001\000\044\001\000\027\006\uffff\uffff\001\000\045\043\uffff\uffff");
+
+    private static final int[] PRODUCTION_DATA = unpack(75,
+        "\001\000\001\001\000\000\001\000\001\001\uffff\ufffe\001\000\002\001\000\001\001\000\003\001\uffff\ufffd\001\000\005\001\uffff\ufffe\001\000\003\001\000\001\001\000\002\001\uffff\ufffd\001\000\005\001\000\004" +
+        "\002\000\002\001\uffff\ufffc\001\000\014\001\000\005\001\000\003\002\000\001\001\000\006\001\000\002\001\000\003\001\000\014\001\000\003\001\uffff\ufffb\001\000\007\003\000\002\001\uffff\ufffb\001\000\010" +
+        "\001\000\004\001\000\003\001\uffff\ufffb\001\000\006\001\uffff\ufffa\001\000\011\001\000\004\001\000\003\001\uffff\ufffb\001\000\007\001\uffff\ufffa\001\000\012\001\000\004\001\000\001\001\uffff\ufffa\001\000\013" +
+        "\001\000\005\001\000\003\001\uffff\ufffa\001\000\010\001\uffff\ufff9\001\000\014\001\000\005\001\000\001\001\uffff\ufff9\001\000\015\001\000\006\001\000\003\001\000\012\001\uffff\ufffb\001\000\013\001\000\016" +
+        "\001\000\006\001\000\001\001\000\014\001\000\017\001\000\006\001\000\001\001\000\015");
+
+    // 以下数组均以产生式索引为下标
+    private static final Production[] PRODUCTIONS = new Production[16];
+    private static final int[] PRODUCTION_LENGTH = new int[16];
+    private static final int[] PRODUCTION_HEAD = new int[16];
+    private static final Status[] STATUSES = new Status[39];
+
+    static {
+        for (int ordinal = 0; ordinal < TERMINAL_COUNT; ordinal++) {
+            if (ordinal >= TokenKind.count() || !TokenKind.fromOrdinal(ordinal).getIdentifier().equals(TERMINALS[ordinal])) {
+                throw new RuntimeException("Token kinds do not match the generated parser, regenerate it");
+            }
+        }
+
+        final var nonTerminals = new NonTerminal[NON_TERMINAL_COUNT];
+        for (int ordinal = 0; ordinal < NON_TERMINAL_COUNT; ordinal++) {
+            nonTerminals[ordinal] = GrammarInfo.getNonTerminal(NON_TERMINALS[ordinal]);
+            if (nonTerminals[ordinal].getOrdinal() != ordinal) {
+                throw new RuntimeException("Grammar does not match the generated parser, regenerate it");
+            }
+        }
+
+        final var productions = GrammarInfo.getProductionsInOrder();
+        for (int i = 0; i < PRODUCTION_DATA.length; ) {
+            final var index = PRODUCTION_DATA[i++];
+            final var head = PRODUCTION_DATA[i++];
+            final var length = PRODUCTION_DATA[i++];
+            final var production = productions.stream().filter(p -> p.index() == index).findFirst()
+                .orElseThrow(() -> new RuntimeException("Grammar does not match the generated parser, regenerate it"));
+            var matches = production.head() == nonTerminals[head] && production.body().size() == length;
+            for (int j = 0; j < length; j++) {
+                final var term = PRODUCTION_DATA[i++];
+                final Term expected = term >= 0 ? TokenKind.fromOrdinal(term) : nonTerminals[-1 - term];
+                matches = matches && production.body().get(j).equals(expected);
+            }
+            if (!matches) {
+                throw new RuntimeException("Grammar does not match the generated parser, regenerate it");
+            }
+            PRODUCTIONS[index] = production;
+            PRODUCTION_LENGTH[index] = length;
+            PRODUCTION_HEAD[index] = head;
+        }
+
+        for (int state = 0; state < STATUSES.length; state++) {
+            STATUSES[state] = Status.create(state);
+        }
+    }
+
+    // 状态栈, 在多次分析之间复用
+    private int[] stack = new int[64];
+
+    public GeneratedSyntaxAnalyzer(SymbolStore symbolTable) {
+        super(symbolTable);
+    }
+
+    /**
+     * @return 起始产生式
+     */
+    public static Production getBeginProduction() {
+        return PRODUCTIONS[BEGIN_PRODUCTION];
+    }
+
+    @Override
+    protected void parse() {
+        final var tokens = getTokenInput();
+        final var notify = hasObservers();
+        var stack = this.stack;
+        var top = 0;
+        stack[0] = INIT;
+
+        while (true) {
+            final var state = stack[top];
+            final var cell = ACTION[state * TERMINAL_COUNT + tokens.peekKind().getOrdinal()];
+            final var payload = cell >>> 2;
+            switch (cell & 0b11) {
+                case 1 -> {
+                    if (notify) {
+                        callWhenInShift(STATUSES[state], tokens.peek());
+                    }
+                    tokens.skip();
+                    if (++top == stack.length) {
+                        stack = this.stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top] = payload;
+                }
+                case 2 -> {
+                    top -= PRODUCTION_LENGTH[payload];
+                    final var next = GOTO[stack[top] * NON_TERMINAL_COUNT + PRODUCTION_HEAD[payload]];
+                    if (next < 0) {
+                        throw new RuntimeException("LR分析失败: 分析表中缺少对应的 Goto 表项");
+                    }
+                    if (++top == stack.length) {
+                        stack = this.stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top] = next;
+                    if (notify) {
+                        callWhenInReduce(STATUSES[next], PRODUCTIONS[payload]);
+                    }
+                }
+                case 3 -> {
+                    if (notify) {
+                        callWhenInAccept(STATUSES[state]);
+                    }
+                    return;
+                }
+                default -> throw new RuntimeException("LR分析失败: 输入符号可能有误");
+            }
+        }
+    }
+
+    /**
+     * 解码游程编码的整数数组: 每三个字符依次为重复次数, 值的高 16 位与低 16 位
+     */
+    private static int[] unpack(int length, String... chunks) {
+        final var result = new int[length];
+        var position = 0;
+        for (final var chunk : chunks) {
+            for (int i = 0; i < chunk.length(); i += 3) {
+                final var count = chunk.charAt(i);
+                final var value = (chunk.charAt(i + 1) << 16) | chunk.charAt(i + 2);
+                Arrays.fill(result, position, position + count, value);
+                position += count;
+            }
+        }
+        return result;
+    }
+}
+
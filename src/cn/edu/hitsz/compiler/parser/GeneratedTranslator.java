@@ -0,0 +1,326 @@
+// 该文件由 cn.edu.hitsz.compiler.parser.table.ActionCompiler 根据语义动作文件自动生成, 请勿手动修改
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.ir.IRImmediate;
+import cn.edu.hitsz.compiler.ir.IRValue;
+import cn.edu.hitsz.compiler.ir.IRVariable;
+import cn.edu.hitsz.compiler.ir.Instruction;
+import cn.edu.hitsz.compiler.symtab.SourceCodeType;
+import cn.edu.hitsz.compiler.symtab.SymbolTableEntry;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 由语义动作文件生成的动作观察者, 共 3 个属性, 10 条带有动作的产生式
+ * <br>
+ * 各属性存放在共用的属性栈中, 以带类型的方法读写. 每条带有动作的产生式对应一个方法, 规约时按产生式索引直接分派,
+ * 移入时按词法单元种类的序号直接分派;
+ * 没有动作的产生式, 其产生式头的属性与产生式体中第一个符号的相同.
+ */
+public class GeneratedTranslator implements AttributeObserver {
+    private SymbolStore symbolTable;
+    private AttributeStack attributes;
+    private int typeSlot;
+    private int symbolSlot;
+    private int irSlot;
+    private static final SourceCodeType[] TYPE_VALUES = SourceCodeType.values();
+
+    // 带有动作的词法单元种类及其在生成时的码点文件中的序号
+    private static final String[] TOKEN_KINDS = {"id", "IntConst"};
+    private static final int[] TOKEN_ORDINALS = {12, 13};
+
+    static {
+        for (int i = 0; i < TOKEN_KINDS.length; i++) {
+            final var ordinal = TOKEN_ORDINALS[i];
+            if (ordinal >= TokenKind.count() || !TokenKind.fromOrdinal(ordinal).getIdentifier().equals(TOKEN_KINDS[i])) {
+                throw new RuntimeException("Token kinds do not match the generated translator, regenerate it");
+            }
+        }
+    }
+
+    @Override
+    public void setSymbolTable(SymbolStore table) {
+        this.symbolTable = table;
+    }
+
+    @Override
+    public void setAttributeStack(AttributeStack attributes) {
+        this.attributes = attributes;
+        typeSlot = attributes.declare("GeneratedTranslator.type");
+        symbolSlot = attributes.declare("GeneratedTranslator.symbol");
+        irSlot = attributes.declare("GeneratedTranslator.ir");
+    }
+
+    @Override
+    public boolean wantsUnitReductions() {
+        return false;
+    }
+
+    @Override
+    public void whenShift(Status currentStatus, Token token) {
+        switch (token.getKind().getOrdinal()) {
+            case 12 -> shiftId(token); // id
+            case 13 -> shiftIntConst(token); // IntConst
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void whenReduce(Status currentStatus, Production production) {
+        switch (production.index()) {
+            case 4 -> reduce4();
+            case 5 -> reduce5();
+            case 6 -> reduce6();
+            case 7 -> reduce7();
+            case 8 -> reduce8();
+            case 9 -> reduce9();
+            case 11 -> reduce11();
+            case 13 -> reduce13();
+            case 14 -> reduce14();
+            case 15 -> reduce15();
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void whenAccept(Status currentStatus) {
+        unknownNames.clear();
+    }
+
+    //============================== 语义动作 ==============================//
+
+    /**
+     * 移入 id
+     */
+    private void shiftId(Token token) {
+        final var symbol = symbolOf(token);
+        setSymbol(symbol);
+        setIr(encode(NAMED, symbol));
+    }
+
+    /**
+     * 移入 IntConst
+     */
+    private void shiftIntConst(Token token) {
+        setIr(encode(IMMEDIATE, token.getIntValue()));
+    }
+
+    /**
+     * S -> D id
+     */
+    private void reduce4() {
+        // 将D的type传递给id
+        final var entry = entryOf(getSymbol(1));
+        if (entry != null) {
+            entry.setType(getType(0));
+        } else {
+            System.out.println(textOf(getSymbol(1)) + ": No Such id!");
+        }
+    }
+
+    /**
+     * D -> int
+     */
+    private void reduce5() {
+        setType(SourceCodeType.Int);
+    }
+
+    /**
+     * S -> id = E
+     */
+    private void reduce6() {
+        final var entry = entryOf(getSymbol(0));
+        if (entry == null) {
+            System.out.println(textOf(getSymbol(0)) + ": No Such id!");
+        }
+        setType(entry != null ? entry.getType() : null);
+        emit(Instruction.createMov(variableOf(getIr(0)), valueOf(getIr(2))));
+    }
+
+    /**
+     * S -> return E
+     */
+    private void reduce7() {
+        setType(getType(1));
+        emit(Instruction.createRet(valueOf(getIr(1))));
+    }
+
+    /**
+     * E -> E + A
+     */
+    private void reduce8() {
+        final var result = newTemp();
+        emit(Instruction.createAdd(variableOf(result), valueOf(getIr(0)), valueOf(getIr(2))));
+        setIr(result);
+    }
+
+    /**
+     * E -> E - A
+     */
+    private void reduce9() {
+        final var result = newTemp();
+        emit(Instruction.createSub(variableOf(result), valueOf(getIr(0)), valueOf(getIr(2))));
+        setIr(result);
+    }
+
+    /**
+     * A -> A * B
+     */
+    private void reduce11() {
+        final var result = newTemp();
+        emit(Instruction.createMul(variableOf(result), valueOf(getIr(0)), valueOf(getIr(2))));
+        setIr(result);
+    }
+
+    /**
+     * B -> ( E )
+     */
+    private void reduce13() {
+        setType(getType(1));
+        setIr(getIr(1));
+    }
+
+    /**
+     * B -> id
+     */
+    private void reduce14() {
+        final var entry = entryOf(getSymbol(0));
+        if (entry == null) {
+            System.out.println(textOf(getSymbol(0)) + ": No Such id!");
+        }
+        setType(entry != null ? entry.getType() : null);
+    }
+
+    /**
+     * B -> IntConst
+     */
+    private void reduce15() {
+        setType(SourceCodeType.Int);
+    }
+
+    //============================== 属性 ==============================//
+
+    private SourceCodeType getType(int index) {
+        final var value = attributes.get(typeSlot, index);
+        return value == 0 ? null : TYPE_VALUES[(int) value - 1];
+    }
+
+    private void setType(SourceCodeType value) {
+        attributes.set(typeSlot, value == null ? 0 : value.ordinal() + 1);
+    }
+
+    private int getSymbol(int index) {
+        return (int) attributes.get(symbolSlot, index);
+    }
+
+    private void setSymbol(int value) {
+        attributes.set(symbolSlot, value);
+    }
+
+    private long getIr(int index) {
+        return attributes.get(irSlot, index);
+    }
+
+    private void setIr(long value) {
+        attributes.set(irSlot, value);
+    }
+
+    //============================== 动作文件中的成员 ==============================//
+
+    /** 中间代码序列 */
+    private final List<Instruction> instructions = new ArrayList<>();
+    /** 中间代码的接收者, 为 null 时存入 instructions */
+    private Consumer<Instruction> instructionSink = null;
+    /** 下一个临时变量的编号 */
+    private int nextTemp = 0;
+    /** 不在符号表中的标识符, 只为输出错误信息与生成中间代码而保留其文本 */
+    private final List<String> unknownNames = new ArrayList<>();
+
+    /** IR 属性的种类 */
+    private static final int IMMEDIATE = 1;
+    private static final int TEMP = 2;
+    private static final int NAMED = 3;
+
+    public List<Instruction> getIR() {
+        return instructions;
+    }
+
+    public void dumpIR(String path) {
+        FileUtils.writeLines(path, getIR().stream().map(Instruction::toString).toList());
+    }
+
+    /**
+     * 令生成的中间代码逐条交给 sink, 而不再存入 {@link #getIR()} 的结果中
+     *
+     * @param sink 中间代码的接收者
+     */
+    public void setInstructionSink(Consumer<Instruction> sink) {
+        this.instructionSink = sink;
+    }
+
+    private void emit(Instruction instruction) {
+        if (instructionSink != null) {
+            instructionSink.accept(instruction);
+        } else {
+            instructions.add(instruction);
+        }
+    }
+
+    /**
+     * 词法分析给出了符号编号时直接使用该编号, 否则按文本查找一次
+     */
+    private int symbolOf(Token id) {
+        final var symbol = id.getSymbol() >= 0 ? id.getSymbol() : symbolTable.lookup(id.getText());
+        if (symbol >= 0) {
+            return symbol;
+        }
+        unknownNames.add(id.getText());
+        return -unknownNames.size();
+    }
+
+    private SymbolTableEntry entryOf(int symbol) {
+        return symbol >= 0 ? symbolTable.get(symbol) : null;
+    }
+
+    private String textOf(int symbol) {
+        return symbol >= 0 ? symbolTable.get(symbol).getText() : unknownNames.get(-symbol - 1);
+    }
+
+    private static long encode(int kind, int payload) {
+        return (long) kind << 32 | (payload & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return 新的临时变量的 IR 属性
+     */
+    private long newTemp() {
+        return encode(TEMP, nextTemp++);
+    }
+
+    private IRValue valueOf(long value) {
+        final var payload = (int) value;
+        return switch ((int) (value >>> 32)) {
+            case IMMEDIATE -> IRImmediate.of(payload);
+            case TEMP -> IRVariable.temp(payload);
+            case NAMED -> IRVariable.named(textOf(payload), payload >= 0 ? payload : -1);
+            default -> throw new RuntimeException("Symbol carries no IRValue");
+        };
+    }
+
+    private IRVariable variableOf(long value) {
+        if (valueOf(value) instanceof IRVariable variable) {
+            return variable;
+        }
+        throw new RuntimeException(valueOf(value) + " is not an IRVariable!");
+    }
+}
+
@@ -7,13 +7,12 @@ import cn.edu.hitsz.compiler.ir.Instruction;
 import cn.edu.hitsz.compiler.lexer.Token;
 import cn.edu.hitsz.compiler.parser.table.Production;
 import cn.edu.hitsz.compiler.parser.table.Status;
-import cn.edu.hitsz.compiler.parser.table.Symbol;
-import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
+import java.util.function.Consumer;
 
 // 实验三: 实现 IR 生成
 
@@ -22,30 +21,110 @@ import java.util.Stack;
  *  代表执行某种动作，如果有运算结果的话还会将结果存放于变量中。<br>
  *  而变量有可能被多条指令使用，代表某种能存放信息的位置，在指令之间传递信息与结果。
  */
-public class IRGenerator implements ActionObserver {
+public class IRGenerator implements AttributeObserver {
 
     /** 符号表 */
-    SymbolTable symbolTable;
-    /** 语义分析栈 */
-    Stack<Symbol> stack = new Stack<>();
+    SymbolStore symbolTable;
+    /** 语义分析栈, 注册到驱动程序后与其它观察者共用 */
+    AttributeStack attributes = new AttributeStack();
+    /** 是否使用自己的属性栈; 未注册到驱动程序时由本观察者自行压入与弹出 */
+    private boolean ownsAttributes = true;
+    /** IRValue 属性, 高 32 位为种类, 低 32 位为立即数的值, 临时变量的编号或符号编号; 0 表示没有 IRValue */
+    private int valueSlot;
+    /** 不在符号表中的标识符的名字 */
+    private final List<String> unknownNames = new ArrayList<>();
     /** 中间代码序列 */
     List<Instruction> instructions = new ArrayList<>();
+    /** 中间代码的接收者, 为 null 时存入 instructions */
+    private Consumer<Instruction> instructionSink = null;
+    /** 下一个临时变量的编号 */
+    private int nextTemp;
+
+    /** IRValue 属性的种类 */
+    private static final int IMMEDIATE = 1;
+    private static final int TEMP = 2;
+    private static final int NAMED = 3;
+    private static final int UNKNOWN = 4;
+
+    public IRGenerator() {
+        this(0);
+    }
+
+    /**
+     * @param firstTempIndex 生成的临时变量从该编号开始编号
+     */
+    public IRGenerator(int firstTempIndex) {
+        this.nextTemp = firstTempIndex;
+        this.valueSlot = attributes.declare("ir");
+    }
 
     @Override
     public void whenShift(Status currentStatus, Token currentToken) {
+        if (ownsAttributes) {
+            attributes.begin(0);
+        }
+        shift(currentToken);
+        if (ownsAttributes) {
+            attributes.end();
+        }
+    }
+
+    private void shift(Token currentToken) {
         if ("IntConst".equals(currentToken.getKindId())) {
-            IRImmediate irImmediate = IRImmediate.of(Integer.parseInt(currentToken.getText()));
-            stack.push(new Symbol(currentToken, irImmediate));
-        } else {
-            // 非id的终结符在Token里命名都为空串, 在规约时直接跳过也不会产生影响
-            // 故将所有非id的终结符视为名为""的id处理
-            IRVariable irVariable = IRVariable.named(currentToken.getText());
-            stack.push(new Symbol(currentToken, irVariable));
+            attributes.set(valueSlot, encode(IMMEDIATE, currentToken.getIntValue()));
+        } else if ("id".equals(currentToken.getKindId())) {
+            // 其余终结符不带 IRValue, 在规约时直接跳过
+            final var symbol = currentToken.getSymbol() >= 0 ? currentToken.getSymbol() : symbolTable.lookup(currentToken.getText());
+            if (symbol >= 0) {
+                attributes.set(valueSlot, encode(NAMED, symbol));
+            } else {
+                unknownNames.add(currentToken.getText());
+                attributes.set(valueSlot, encode(UNKNOWN, unknownNames.size() - 1));
+            }
         }
     }
 
+    /**
+     * @param index 符号在产生式体中的下标
+     * @return 该符号的 IRValue
+     */
+    private IRValue valueAt(int index) {
+        final var value = attributes.get(valueSlot, index);
+        final var payload = (int) value;
+        return switch ((int) (value >>> 32)) {
+            case IMMEDIATE -> IRImmediate.of(payload);
+            case TEMP -> IRVariable.temp(payload);
+            case NAMED -> IRVariable.named(symbolTable.get(payload).getText(), payload);
+            case UNKNOWN -> IRVariable.named(unknownNames.get(payload));
+            default -> throw new RuntimeException("Symbol %d carries no IRValue".formatted(index));
+        };
+    }
+
+    /**
+     * 生成一个新的临时变量, 并把它记为产生式头的 IRValue
+     */
+    private IRVariable newTemp() {
+        final var index = nextTemp++;
+        attributes.set(valueSlot, encode(TEMP, index));
+        return IRVariable.temp(index);
+    }
+
+    private static long encode(int kind, int payload) {
+        return (long) kind << 32 | (payload & 0xFFFFFFFFL);
+    }
+
     @Override
     public void whenReduce(Status currentStatus, Production production) {
+        if (ownsAttributes) {
+            attributes.begin(production.body().size());
+        }
+        reduce(production);
+        if (ownsAttributes) {
+            attributes.end();
+        }
+    }
+
+    private void reduce(Production production) {
         // 在执行 reduce 的时候生成中间代码
         IRVariable result;
         IRValue lhs;
@@ -57,70 +136,56 @@ public class IRGenerator implements ActionObserver {
                S -> D id
                D -> int */
             case 1, 2, 3, 4, 5 -> { // 不产生中间代码的表达式
-                // 直接将右部符号弹出, 将左部非终结符压入占位
-                for (int i = 0; i < production.body().size(); i++) {
-                    stack.pop();
-                }
-                stack.push(new Symbol(production.head()));
+                // 左部非终结符不带 IRValue
+                attributes.set(valueSlot, 0);
             }
             case 6 -> { // S -> id = E
                 // 赋值语句
-                rhs = stack.pop().getIrValue();
-                stack.pop();
-                lhs = stack.pop().getIrValue();
+                rhs = valueAt(2);
+                lhs = valueAt(0);
                 if (lhs.isIRVariable()) {
-                    instructions.add(Instruction.createMov((IRVariable) lhs, rhs));
+                    emit(Instruction.createMov((IRVariable) lhs, rhs));
                 } else {
                     throw new RuntimeException(lhs + " is not an IRVariable!");
                 }
-                stack.push(new Symbol(production.head()));
+                attributes.set(valueSlot, 0);
             }
             case 7 -> { // S -> return E
                 // 返回语句
-                instructions.add(Instruction.createRet(stack.pop().getIrValue()));
-                stack.push(new Symbol(production.head()));
+                emit(Instruction.createRet(valueAt(1)));
+                attributes.set(valueSlot, 0);
             }
             case 8 -> {  // E -> E + A
                 // 加法运算
-                rhs = stack.pop().getIrValue();
-                stack.pop();
-                lhs = stack.pop().getIrValue();
-                result = IRVariable.temp();
-                instructions.add(Instruction.createAdd(result, lhs, rhs));
-                stack.push(new Symbol(production.head(), result));
+                rhs = valueAt(2);
+                lhs = valueAt(0);
+                result = newTemp();
+                emit(Instruction.createAdd(result, lhs, rhs));
             }
             case 9 -> {  // E -> E - A
                 // 减法运算
-                rhs = stack.pop().getIrValue();
-                stack.pop();
-                lhs = stack.pop().getIrValue();
-                result = IRVariable.temp();
-                instructions.add(Instruction.createSub(result, lhs, rhs));
-                stack.push(new Symbol(production.head(), result));
+                rhs = valueAt(2);
+                lhs = valueAt(0);
+                result = newTemp();
+                emit(Instruction.createSub(result, lhs, rhs));
             }
             case 11 -> { // A -> A * B
                 // 乘法运算
-                rhs = stack.pop().getIrValue();
-                stack.pop();
-                lhs = stack.pop().getIrValue();
-                result = IRVariable.temp();
-                instructions.add(Instruction.createMul(result, lhs, rhs));
-                stack.push(new Symbol(production.head(), result));
+                rhs = valueAt(2);
+                lhs = valueAt(0);
+                result = newTemp();
+                emit(Instruction.createMul(result, lhs, rhs));
             }
             /* E -> A
                A -> B
                B -> id
                B -> IntConst */
             case 10, 12, 14, 15 -> { // 单纯传递IRValue的产生式
-                IRValue irValue = stack.pop().getIrValue();
-                stack.push(new Symbol(production.head(), irValue));
+                attributes.set(valueSlot, attributes.get(valueSlot, 0));
             }
             // 虽然也是传递IRValue的产生式, 但因为格式不同, 要单独处理
             case 13 -> { // B -> ( E )
-                stack.pop();
-                IRValue irValue = stack.pop().getIrValue();
-                stack.pop();
-                stack.push(new Symbol(production.head(), irValue));
+                attributes.set(valueSlot, attributes.get(valueSlot, 1));
             }
             default -> {
                 throw new RuntimeException("Unknown production index");
@@ -129,19 +194,71 @@ public class IRGenerator implements ActionObserver {
     }
 
 
+    @Override
+    public boolean wantsUnitReductions() {
+        // E -> A 与 A -> B 只是传递 IRValue, 越过它们不影响生成的中间代码
+        return false;
+    }
+
     @Override
     public void whenAccept(Status currentStatus) {
-        // 该过程在遇到 Accept 时清空当前栈
-        while (!stack.empty()) {
-            stack.pop();
+        // 共用的栈由驱动程序在遇到 Accept 时清空
+        if (ownsAttributes) {
+            attributes.clear();
+        }
+        unknownNames.clear();
+    }
+
+    @Override
+    public void whenFold(int length, int above) {
+        if (ownsAttributes) {
+            attributes.fold(length, above);
+        }
+    }
+
+    @Override
+    public void whenUnfold(int length, int above) {
+        if (ownsAttributes) {
+            attributes.unfold(length, above);
         }
     }
 
     @Override
-    public void setSymbolTable(SymbolTable table) {
+    public void setSymbolTable(SymbolStore table) {
         symbolTable = table;
     }
 
+    @Override
+    public void setAttributeStack(AttributeStack attributes) {
+        this.attributes = attributes;
+        ownsAttributes = false;
+        valueSlot = attributes.declare("ir");
+    }
+
+    /**
+     * 令生成的中间代码逐条交给 sink, 而不再存入 {@link #getIR()} 的结果中, 供逐条语句处理中间代码的流式编译使用
+     *
+     * @param sink 中间代码的接收者
+     */
+    public void setInstructionSink(Consumer<Instruction> sink) {
+        this.instructionSink = sink;
+    }
+
+    private void emit(Instruction instruction) {
+        if (instructionSink != null) {
+            instructionSink.accept(instruction);
+        } else {
+            instructions.add(instruction);
+        }
+    }
+
+    /**
+     * @return 下一个临时变量的编号, 即已生成的临时变量的编号的上界
+     */
+    public int nextTempIndex() {
+        return nextTemp;
+    }
+
     public List<Instruction> getIR() {
         return instructions;
     }
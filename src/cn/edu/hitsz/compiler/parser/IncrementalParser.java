@@ -0,0 +1,581 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.IncrementalLexer;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.table.PackedLRTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 增量的 LR 语法分析, 供编辑器在每次修改后重新分析同一个文件
+ * <br>
+ * 词法单元流在每个分隔符 (如 Semicolon) 被移入之后切分为片段, 对 grammar.txt 而言每个片段就是一条语句 S 连同其后的分号,
+ * 最后一个片段包含 EOF 以及对 S_list 的规约. 每个片段记录:
+ * <ul>
+ *     <li>分析该片段时读取过的栈中状态 (片段开始时的栈顶, 以及规约时弹出到的更低的状态);</li>
+ *     <li>片段结束时在这些状态之上压入的状态;</li>
+ *     <li>该片段中发生的全部观察者事件.</li>
+ * </ul>
+ * LR 分析的每一步只取决于栈中被读取的状态与当前的词法单元, 所以只要片段的词法单元未被修改, 且开始时栈中对应位置的状态与记录相同,
+ * 该片段的分析结果就可以直接复用: 把记录的状态压栈即可, 不必再查 ACTION 表.
+ * <br>
+ * 修改 ({@link #edit(int, int, List)}) 时从被修改的第一个片段开始重新分析, 之后遇到未被修改的旧片段时尝试复用;
+ * 一旦栈与修改前该片段开始时的栈完全相同, 其后的全部片段 (包括最后一个片段) 都不必再处理. 因此修改不改变栈的深度时,
+ * 重新分析的开销只与被修改的语句有关, 与文件大小无关. 插入或删除语句会改变之后每条语句开始时的栈, 这些片段仍可复用, 但需逐个比较并复制状态.
+ * 观察者事件由 {@link #replay(ActionObserver...)} 按原顺序重放给观察者.
+ * <br>
+ * 除最后一个片段外, 若有片段弹出了其开始时栈顶以下的状态, 之前各片段开始时的栈无法从保存的栈中取出, 修改会退化为从头逐个片段地复用.
+ * 分析失败时抛出 RuntimeException, 此后的修改会退化为完整的重新分析; 在再次分析成功之前, {@link #replay(ActionObserver...)}
+ * 与 {@link #getSegmentCount()} 也抛出 RuntimeException.
+ */
+public class IncrementalParser {
+    /**
+     * @param table     整数编码的分析表
+     * @param separator 切分片段所用的终结符
+     */
+    public IncrementalParser(PackedLRTable table, TokenKind separator) {
+        this.table = table;
+        this.separator = separator.getOrdinal();
+    }
+
+    /**
+     * 完整地分析词法单元串
+     *
+     * @param tokens 以 EOF 结尾的词法单元串
+     */
+    public void parse(List<Token> tokens) {
+        this.tokens = new ArrayList<>(tokens);
+        reparseAll();
+    }
+
+    /**
+     * 把下标在 [from, to) 内的词法单元替换为 replacement, 并增量地重新分析
+     *
+     * @param from        被替换的第一个词法单元的下标
+     * @param to          被替换的最后一个词法单元的下标 + 1
+     * @param replacement 新的词法单元
+     */
+    public void edit(int from, int to, List<Token> replacement) {
+        if (from < 0 || to > tokens.size() - 1 || from > to) {
+            // EOF 不能被替换
+            throw new RuntimeException("Invalid edit range [%d, %d)".formatted(from, to));
+        }
+
+        final var delta = replacement.size() - (to - from);
+        if (delta == 0) {
+            for (int i = 0; i < replacement.size(); i++) {
+                tokens.set(from + i, replacement.get(i));
+            }
+        } else {
+            tokens.subList(from, to).clear();
+            tokens.addAll(from, replacement);
+        }
+
+        if (segments == null) {
+            reparseAll();
+        } else {
+            reparse(from, to, delta);
+        }
+    }
+
+    /**
+     * 按增量词法分析得到的词法单元串的变化增量地重新分析
+     *
+     * @param edit 词法单元串的变化
+     */
+    public void edit(IncrementalLexer.TokenEdit edit) {
+        edit(edit.from(), edit.to(), edit.replacement());
+    }
+
+    /**
+     * 按分析时的顺序把全部事件重放给观察者. 其中的 {@link AttributeObserver} 共用一个新的属性栈
+     *
+     * @param observers 观察者
+     * @throws RuntimeException 最近一次分析或修改失败
+     */
+    public void replay(ActionObserver... observers) {
+        requireParsed();
+        final var unitObservers = Arrays.stream(observers).filter(ActionObserver::wantsUnitReductions).toArray(ActionObserver[]::new);
+        AttributeStack attributes = null;
+        for (final var observer : observers) {
+            if (observer instanceof AttributeObserver attributeObserver) {
+                if (attributes == null) {
+                    attributes = new AttributeStack();
+                }
+                attributeObserver.setAttributeStack(attributes);
+            }
+        }
+        for (int index = 0; index < segments.size(); index++) {
+            final var start = starts.get(index);
+            final var events = segments.get(index).events;
+            for (int i = 0; i < events.length; i += 3) {
+                final var status = table.getStatus(events[i + 1]);
+                final var payload = events[i + 2];
+                switch (events[i]) {
+                    case SHIFT -> {
+                        final var token = tokens.get(start + payload);
+                        if (attributes != null) {
+                            attributes.begin(0);
+                        }
+                        for (final var observer : observers) {
+                            observer.whenShift(status, token);
+                        }
+                        if (attributes != null) {
+                            attributes.end();
+                        }
+                    }
+                    case REDUCE, UNIT_REDUCE -> {
+                        final var production = table.getProduction(payload);
+                        if (attributes != null) {
+                            attributes.begin(production.body().size());
+                        }
+                        for (final var observer : events[i] == REDUCE ? observers : unitObservers) {
+                            observer.whenReduce(status, production);
+                        }
+                        if (attributes != null) {
+                            attributes.end();
+                        }
+                    }
+                    default -> {
+                        for (final var observer : observers) {
+                            observer.whenAccept(status);
+                        }
+                        if (attributes != null) {
+                            attributes.clear();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 当前的词法单元串
+     */
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @return 片段数
+     * @throws RuntimeException 最近一次分析或修改失败
+     */
+    public int getSegmentCount() {
+        requireParsed();
+        return segments.size();
+    }
+
+    /**
+     * @return 最近一次分析或修改中被重新分析的片段数
+     */
+    public int getReparsedSegmentCount() {
+        return reparsedSegments;
+    }
+
+    /**
+     * @return 最近一次分析或修改中被重新分析的词法单元数
+     */
+    public int getReparsedTokenCount() {
+        return reparsedTokens;
+    }
+
+    private void requireParsed() {
+        if (segments == null) {
+            throw new RuntimeException("No successful parse: the last parse or edit failed");
+        }
+    }
+
+    //============================== 片段 ==============================//
+
+    private static final int SHIFT = 0;
+    private static final int REDUCE = 1;
+    private static final int UNIT_REDUCE = 2;
+    private static final int ACCEPT = 3;
+
+    /**
+     * 分析结果的一个片段. 片段在词法单元串中的位置与开始时的栈顶位置随修改而变化, 另外保存在 {@link #starts} 等数组中
+     *
+     * @param length   词法单元数
+     * @param consumed 分析时读取过的栈中状态, 自栈中最低的被读取位置至片段开始时的栈顶
+     * @param pushed   片段结束时压在 consumed 的最低位置之上的状态
+     * @param events   观察者事件, 每个事件为 (种类, 状态编号, 载荷) 三个整数; 载荷为词法单元在片段中的下标或产生式索引
+     */
+    private record Segment(int length, int[] consumed, int[] pushed, int[] events) {
+    }
+
+    private void reparseAll() {
+        segments = new ArrayList<>();
+        starts.clear();
+        entryTops.clear();
+        lows.clear();
+        poppedBelow = 0;
+        stack[0] = table.getInitIndex();
+        // 没有修改前的栈需要保存
+        savedLow = 0;
+        savedHigh = Integer.MAX_VALUE;
+        walk(0, 0, -1, -1, 0, false);
+    }
+
+    /**
+     * 从包含第一个被修改的词法单元的片段开始重新分析
+     *
+     * @param from  被替换的第一个词法单元在修改前的下标
+     * @param to    被替换的最后一个词法单元在修改前的下标 + 1
+     * @param delta 修改后词法单元数的变化量
+     */
+    private void reparse(int from, int to, int delta) {
+        // 栈中保存的是最后一个片段开始时的栈. 之前的片段都不曾弹出其开始时栈顶以下的状态时, 各片段开始时的栈都是它的前缀
+        final var last = segments.size() - 1;
+        final var nested = poppedBelow - (lows.get(last) < entryTops.get(last) ? 1 : 0) == 0;
+
+        // 片段之间首尾相接, 第一个被修改的片段是最后一个开始位置不超过 from 的片段
+        final var first = nested ? starts.binarySearchLast(from) : 0;
+        savedLow = entryTops.get(first) + 1;
+        savedHigh = entryTops.get(first);
+        walk(first, starts.get(first), from, to, delta, nested);
+    }
+
+    /**
+     * 从第 first 个片段开始重建片段列表: 未被修改的旧片段若开始时的栈与记录一致则直接复用, 否则从该位置重新分析出新的片段.
+     * 允许提前结束时, 一旦栈与修改前某个旧片段开始时的栈完全相同就停止, 其后的旧片段原样保留
+     *
+     * @param first    开始重建的片段下标, 此时栈中 [0, entryTops[first]] 为该片段开始时的栈
+     * @param position 该片段的第一个词法单元的下标
+     * @param from     被替换的第一个词法单元在修改前的下标, 完整分析时为 -1
+     * @param to       被替换的最后一个词法单元在修改前的下标 + 1, 完整分析时为 -1
+     * @param delta    修改后词法单元数的变化量
+     * @param resync   是否允许提前结束
+     */
+    private void walk(int first, int position, int from, int to, int delta, boolean resync) {
+        reparsedSegments = 0;
+        reparsedTokens = 0;
+        top = first < entryTops.size() ? entryTops.get(first) : 0;
+
+        final var newSegments = new ArrayList<Segment>();
+        final var newStarts = new IntList();
+        final var newEntryTops = new IntList();
+        final var newLows = new IntList();
+        var next = first;
+        var resumed = false;
+        try {
+            while (position < tokens.size()) {
+                // 跳过开始位置已经落后的旧片段, 以及与修改范围重叠的旧片段
+                var reusable = -1;
+                while (next < segments.size()) {
+                    final var start = starts.get(next);
+                    final var shifted = start >= to ? start + delta : start;
+                    if (shifted > position) {
+                        break;
+                    }
+                    next++;
+                    if (shifted == position && (start + segments.get(next - 1).length <= from || start >= to)) {
+                        reusable = next - 1;
+                        break;
+                    }
+                }
+
+                if (resync && reusable >= 0 && entryTops.get(reusable) == top && isUnchanged()) {
+                    // 栈与修改前完全相同, 其后的片段都不会改变
+                    restore();
+                    next = reusable;
+                    resumed = true;
+                    break;
+                }
+
+                final var entryTop = top;
+                final Segment segment;
+                if (reusable >= 0 && matches(segments.get(reusable))) {
+                    segment = segments.get(reusable);
+                    apply(segment);
+                } else {
+                    segment = parseSegment(position);
+                    reparsedSegments++;
+                    reparsedTokens += segment.length;
+                }
+                newSegments.add(segment);
+                newStarts.add(position);
+                newEntryTops.add(entryTop);
+                newLows.add(entryTop - segment.consumed.length + 1);
+                position += segment.length;
+            }
+        } catch (RuntimeException e) {
+            segments = null;
+            throw e;
+        }
+
+        if (!resumed) {
+            next = segments.size();
+        }
+
+        // 以新的片段替换 [first, next), 之后的片段只需平移位置
+        for (int i = first; i < next; i++) {
+            poppedBelow -= lows.get(i) < entryTops.get(i) ? 1 : 0;
+        }
+        for (int i = 0; i < newSegments.size(); i++) {
+            poppedBelow += newLows.get(i) < newEntryTops.get(i) ? 1 : 0;
+        }
+        segments.subList(first, next).clear();
+        segments.addAll(first, newSegments);
+        starts.replace(first, next, newStarts);
+        entryTops.replace(first, next, newEntryTops);
+        lows.replace(first, next, newLows);
+        if (resumed && delta != 0) {
+            starts.addRange(first + newSegments.size(), delta);
+        }
+
+        if (!resumed) {
+            // 撤销最后一个片段, 使栈中保存该片段开始时的栈
+            final var last = segments.size() - 1;
+            final var consumed = segments.get(last).consumed;
+            System.arraycopy(consumed, 0, stack, lows.get(last), consumed.length);
+        }
+    }
+
+    /**
+     * @return 栈在 [0, top] 上是否与修改前相同. 只有 [savedLow, savedHigh] 中的位置可能被改写过
+     */
+    private boolean isUnchanged() {
+        final var high = Math.min(top, savedHigh);
+        return savedLow > high || Arrays.equals(stack, savedLow, high + 1, saved, 0, high + 1 - savedLow);
+    }
+
+    /**
+     * 恢复被改写过的位置, 使栈重新成为修改前最后一个片段开始时的栈
+     */
+    private void restore() {
+        if (savedLow <= savedHigh) {
+            System.arraycopy(saved, 0, stack, savedLow, savedHigh - savedLow + 1);
+        }
+    }
+
+    /**
+     * 在改写栈中的 [low, high] 之前保存其中尚未保存的旧状态, 保存的范围始终是连续的
+     */
+    private void protect(int low, int high) {
+        ensureCapacity(high);
+        if (savedLow <= low && high <= savedHigh) {
+            return;
+        }
+
+        final var newLow = Math.min(low, savedLow);
+        final var newHigh = Math.max(high, savedHigh);
+        final var copy = new int[Math.max(saved.length, newHigh - newLow + 1)];
+        if (savedLow <= savedHigh) {
+            System.arraycopy(saved, 0, copy, savedLow - newLow, savedHigh - savedLow + 1);
+            System.arraycopy(stack, newLow, copy, 0, savedLow - newLow);
+            System.arraycopy(stack, savedHigh + 1, copy, savedHigh + 1 - newLow, newHigh - savedHigh);
+        } else {
+            System.arraycopy(stack, newLow, copy, 0, newHigh - newLow + 1);
+        }
+        saved = copy;
+        savedLow = newLow;
+        savedHigh = newHigh;
+    }
+
+    /**
+     * @return 当前栈顶部的状态是否与片段分析时读取过的状态相同
+     */
+    private boolean matches(Segment segment) {
+        final var consumed = segment.consumed;
+        final var low = top - consumed.length + 1;
+        return low >= 0 && Arrays.equals(stack, low, top + 1, consumed, 0, consumed.length);
+    }
+
+    private void apply(Segment segment) {
+        top = top - segment.consumed.length + 1;
+        protect(top + 1, top + segment.pushed.length);
+        System.arraycopy(segment.pushed, 0, stack, top + 1, segment.pushed.length);
+        top += segment.pushed.length;
+    }
+
+    /**
+     * 从下标为 start 的词法单元开始分析, 直到移入一个分隔符或接受
+     *
+     * @return 新的片段
+     */
+    private Segment parseSegment(int start) {
+        var low = top;
+        events.clear();
+        reads.clear();
+        reads.add(stack[top]);
+
+        var position = start;
+        while (true) {
+            final var state = stack[top];
+            final var token = tokens.get(position);
+            final var cell = table.action(state, token.getKind().getOrdinal());
+            switch (PackedLRTable.kindOf(cell)) {
+                case PackedLRTable.SHIFT -> {
+                    events.add(SHIFT, state, position - start);
+                    protect(top + 1, top + 1);
+                    stack[++top] = PackedLRTable.payloadOf(cell);
+                    position++;
+                    if (token.getKind().getOrdinal() == separator) {
+                        return finish(start, position, low);
+                    }
+                }
+                case PackedLRTable.REDUCE -> {
+                    final var production = PackedLRTable.payloadOf(cell);
+                    top -= table.getProductionLength(production);
+                    // 低于 low 的位置在本片段中尚未被改写, 仍是片段开始时的状态
+                    for (; low > top; low--) {
+                        reads.add(stack[low - 1]);
+                    }
+                    final var below = stack[top];
+                    final var head = table.getProductionHead(production);
+                    final var target = table.goto_(below, head);
+                    if (target < 0) {
+                        throw new RuntimeException("LR分析失败: 分析表中缺少对应的 Goto 表项");
+                    }
+                    protect(top + 1, top + 1);
+                    stack[++top] = target;
+
+                    final var chain = table.getUnitChain(below, head);
+                    if (chain == null) {
+                        events.add(REDUCE, target, production);
+                    } else {
+                        events.add(REDUCE, chain[0], production);
+                        for (int i = 1; i < chain.length; i += 2) {
+                            events.add(UNIT_REDUCE, chain[i + 1], chain[i]);
+                        }
+                    }
+                }
+                case PackedLRTable.ACCEPT -> {
+                    events.add(ACCEPT, state, 0);
+                    return finish(start, position + 1, low);
+                }
+                default -> throw new RuntimeException("LR分析失败: 输入符号可能有误");
+            }
+        }
+    }
+
+    private Segment finish(int start, int end, int low) {
+        // reads 中的状态自栈顶向下排列
+        final var consumed = reads.toArray();
+        for (int i = 0, j = consumed.length - 1; i < j; i++, j--) {
+            final var swap = consumed[i];
+            consumed[i] = consumed[j];
+            consumed[j] = swap;
+        }
+        final var pushed = Arrays.copyOfRange(stack, low + 1, top + 1);
+        return new Segment(end - start, consumed, pushed, events.toArray());
+    }
+
+    //============================== 工具 ==============================//
+
+    private void ensureCapacity(int index) {
+        if (index >= stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(index + 1, stack.length * 2));
+        }
+    }
+
+    /**
+     * 可增长的 int 数组
+     */
+    private static class IntList {
+        int get(int index) {
+            return data[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(int value) {
+            grow(size + 1);
+            data[size++] = value;
+        }
+
+        void add(int a, int b, int c) {
+            grow(size + 3);
+            data[size++] = a;
+            data[size++] = b;
+            data[size++] = c;
+        }
+
+        /**
+         * 把下标不小于 from 的元素加上 delta
+         */
+        void addRange(int from, int delta) {
+            for (int i = from; i < size; i++) {
+                data[i] += delta;
+            }
+        }
+
+        /**
+         * 以 other 的全部元素替换 [from, to)
+         */
+        void replace(int from, int to, IntList other) {
+            final var newSize = size - (to - from) + other.size;
+            grow(newSize);
+            System.arraycopy(data, to, data, from + other.size, size - to);
+            System.arraycopy(other.data, 0, data, from, other.size);
+            size = newSize;
+        }
+
+        /**
+         * @return 最后一个不大于 value 的元素的下标, 要求元素递增且首个元素不大于 value
+         */
+        int binarySearchLast(int value) {
+            var low = 0;
+            var high = size - 1;
+            while (low < high) {
+                final var middle = (low + high + 1) >>> 1;
+                if (data[middle] <= value) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+
+        private void grow(int capacity) {
+            if (capacity > data.length) {
+                data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+            }
+        }
+
+        private int[] data = new int[48];
+        private int size = 0;
+    }
+
+    private final PackedLRTable table;
+    private final int separator;
+
+    private List<Token> tokens = new ArrayList<>();
+
+    // 各片段, 及其第一个词法单元的下标, 开始时的栈顶位置与分析时读取过的最低位置
+    private List<Segment> segments = null;
+    private final IntList starts = new IntList();
+    private final IntList entryTops = new IntList();
+    private final IntList lows = new IntList();
+    // 弹出了开始时栈顶以下状态的片段数
+    private int poppedBelow = 0;
+
+    // 分析栈; 两次分析之间保存最后一个片段开始时的栈
+    private int[] stack = new int[64];
+    private int top = 0;
+
+    // 本次修改中被改写的栈位置 [savedLow, savedHigh] 在修改前的状态
+    private int[] saved = new int[16];
+    private int savedLow = 0;
+    private int savedHigh = -1;
+
+    private final IntList events = new IntList();
+    private final IntList reads = new IntList();
+
+    private int reparsedSegments = 0;
+    private int reparsedTokens = 0;
+}
@@ -0,0 +1,69 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 边分析边输出规约到的产生式的观察者
+ * <br>
+ * 输出与 {@link ProductionCollector#dumpToFile(String)} 相同, 但每次规约时直接写入文件, 而不在内存中保存所有产生式.
+ * 分析结束后需要关闭.
+ */
+public class ProductionWriter implements ActionObserver, Closeable {
+    /**
+     * @param beginProduction 起始产生式, 在接受时输出
+     * @param path            输出文件路径
+     */
+    public ProductionWriter(Production beginProduction, String path) {
+        this.beginProduction = beginProduction;
+        this.writer = FileUtils.newWriter(path);
+    }
+
+    private final Production beginProduction;
+    private final BufferedWriter writer;
+
+    @Override
+    public void whenReduce(Status currentStatus, Production production) {
+        write(production);
+    }
+
+    @Override
+    public void whenShift(Status currentStatus, Token currentToken) {
+        // do nothing
+    }
+
+    @Override
+    public void whenAccept(Status currentStatus) {
+        write(beginProduction);
+    }
+
+    @Override
+    public void setSymbolTable(SymbolStore table) {
+        // do nothing
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on closing production output", e);
+        }
+    }
+
+    private void write(Production production) {
+        try {
+            writer.write(production.toString());
+            writer.newLine();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on writing production", e);
+        }
+    }
+}
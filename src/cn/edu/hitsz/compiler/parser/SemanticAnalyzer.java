@@ -3,29 +3,75 @@ package cn.edu.hitsz.compiler.parser;
 import cn.edu.hitsz.compiler.lexer.Token;
 import cn.edu.hitsz.compiler.parser.table.Production;
 import cn.edu.hitsz.compiler.parser.table.Status;
-import cn.edu.hitsz.compiler.parser.table.Symbol;
 import cn.edu.hitsz.compiler.symtab.SourceCodeType;
-import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
+import cn.edu.hitsz.compiler.symtab.SymbolTableEntry;
 
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.List;
 
 // 实验三: 实现语义分析
-public class SemanticAnalyzer implements ActionObserver {
+public class SemanticAnalyzer implements AttributeObserver {
     /** 符号表 */
-    SymbolTable symbolTable;
-    /** 语义分析栈 */
-    Stack<Symbol> stack = new Stack<>();
+    SymbolStore symbolTable;
+    /** 语义分析栈, 注册到驱动程序后与其它观察者共用 */
+    AttributeStack attributes = new AttributeStack();
+    /** 是否使用自己的属性栈; 未注册到驱动程序时由本观察者自行压入与弹出 */
+    private boolean ownsAttributes = true;
+    /** 类型属性: 类型的序号 + 1, 0 表示没有类型 */
+    private int typeSlot;
+    /** 标识符属性: 符号编号; 不在符号表中的标识符为 -(在 unknownNames 中的下标 + 1) */
+    private int symbolSlot;
+    /** 不在符号表中的标识符, 只为输出错误信息而保留其文本 */
+    private final List<String> unknownNames = new ArrayList<>();
+    private static final SourceCodeType[] TYPES = SourceCodeType.values();
+
+    public SemanticAnalyzer() {
+        typeSlot = attributes.declare("type");
+        symbolSlot = attributes.declare("symbol");
+    }
 
     @Override
     public void whenAccept(Status currentStatus) {
-        // 该过程在遇到 Accept 时清空当前栈
-        while (!stack.empty()) {
-            stack.pop();
+        // 共用的栈由驱动程序在遇到 Accept 时清空
+        if (ownsAttributes) {
+            attributes.clear();
+        }
+        unknownNames.clear();
+    }
+
+    @Override
+    public void whenFold(int length, int above) {
+        if (ownsAttributes) {
+            attributes.fold(length, above);
+        }
+    }
+
+    @Override
+    public void whenUnfold(int length, int above) {
+        if (ownsAttributes) {
+            attributes.unfold(length, above);
         }
     }
 
+    @Override
+    public boolean wantsUnitReductions() {
+        // E -> A 与 A -> B 只是传递类型, 越过它们不影响符号表
+        return false;
+    }
+
     @Override
     public void whenReduce(Status currentStatus, Production production) {
+        if (ownsAttributes) {
+            attributes.begin(production.body().size());
+        }
+        reduce(production);
+        if (ownsAttributes) {
+            attributes.end();
+        }
+    }
+
+    private void reduce(Production production) {
         // 该过程在遇到 reduce production 时更新符号表标识符的type 属性,根据 production 的 index 来判断当前是哪条产生式,
         // 编写该产生式的具体翻译动作
         switch (production.index()) {
@@ -33,54 +79,44 @@ public class SemanticAnalyzer implements ActionObserver {
             // 这样能比较清楚地看出产生式索引与产生式的对应关系
             case 4 -> { // S -> D id
                 // 取得id
-                String idName = stack.pop().getToken().getText();
+                final var id = attributes.get(symbolSlot, 1);
                 // 取得D的type
-                SourceCodeType type = stack.pop().getSourceCodeType();
-                if (symbolTable.has(idName)) {
+                SourceCodeType type = typeOf(attributes.get(typeSlot, 0));
+                SymbolTableEntry entry = entryOf(id);
+                if (entry != null) {
                     // 将D的type传递给id
-                    symbolTable.get(idName).setType(type);
+                    entry.setType(type);
                 } else {
-                    System.out.println(idName + ": No Such id!");
+                    System.out.println(textOf(id) + ": No Such id!");
                 }
-                // 将S压入栈中
-                stack.push(new Symbol(production.head(), type));
+                // 记录S的type
+                attributes.set(typeSlot, valueOf(type));
             }
             case 7 -> { // S -> return E
-                Symbol symbol = stack.pop();
-                stack.pop();
-                stack.push(new Symbol(production.head(), symbol.getSourceCodeType()));
+                attributes.set(typeSlot, attributes.get(typeSlot, 1));
             }
             case 1, 2, 3, 8, 9, 10, 11, 12 -> { // 其实这里可以作类型检验, 但不在本实验要求内了
-                // 从栈中弹出除第一个以外的符号, 再弹出第一个, 取得其type记录到产生式左侧的符号, 压入栈
-                for (int i = 0; i < production.body().size()-1; i++) {
-                    stack.pop();
-                }
-                stack.push(new Symbol(production.head(),stack.pop().getSourceCodeType()));
+                // 取得产生式体中第一个符号的type记录到产生式左侧的符号
+                attributes.set(typeSlot, attributes.get(typeSlot, 0));
             }
             case 13 -> { // B -> ( E )
-                stack.pop();
-                Symbol symbol = stack.pop();
-                stack.pop();
-                stack.push(new Symbol(production.head(), symbol.getSourceCodeType()));
+                attributes.set(typeSlot, attributes.get(typeSlot, 1));
             }
             case 6, 14 -> { // B -> id 或 S -> id = E
-                for (int i = 0; i < production.body().size()-1; i++) {
-                    stack.pop();
-                }
                 // 取得id
-                String idName = stack.pop().getToken().getText();
-                // 将B或S的type指定为id的type, 压入栈
-                if (symbolTable.has(idName)) {
-                    stack.push(new Symbol(production.head(), symbolTable.get(idName).getType()));
+                final var id = attributes.get(symbolSlot, 0);
+                // 将B或S的type指定为id的type
+                SymbolTableEntry entry = entryOf(id);
+                if (entry != null) {
+                    attributes.set(typeSlot, valueOf(entry.getType()));
                 } else {
-                    System.out.println(idName + ": No Such id!");
-                    stack.push(new Symbol(production.head()));
+                    System.out.println(textOf(id) + ": No Such id!");
+                    attributes.set(typeSlot, 0);
                 }
             }
             case 5, 15 -> { // D -> int 或 B -> IntConst
-                // 将D或B的type指定为Int, 压入栈
-                stack.pop();
-                stack.push(new Symbol(production.head(), SourceCodeType.Int));
+                // 将D或B的type指定为Int
+                attributes.set(typeSlot, valueOf(SourceCodeType.Int));
             }
             // ...
             default -> { //
@@ -90,13 +126,64 @@ public class SemanticAnalyzer implements ActionObserver {
         }
     }
 
+    /**
+     * 词法分析给出了符号编号时直接使用该编号, 否则按文本查找一次
+     *
+     * @param id 标识符的词法单元
+     * @return 标识符属性的值
+     */
+    private long symbolOf(Token id) {
+        final var symbol = id.getSymbol() >= 0 ? id.getSymbol() : symbolTable.lookup(id.getText());
+        if (symbol >= 0) {
+            return symbol;
+        }
+        unknownNames.add(id.getText());
+        return -unknownNames.size();
+    }
+
+    /**
+     * @param id 标识符属性的值
+     * @return 符号表条目; 不在表中时为 null
+     */
+    private SymbolTableEntry entryOf(long id) {
+        return id >= 0 ? symbolTable.get((int) id) : null;
+    }
+
+    private String textOf(long id) {
+        return id >= 0 ? symbolTable.get((int) id).getText() : unknownNames.get((int) -id - 1);
+    }
+
+    private static long valueOf(SourceCodeType type) {
+        return type == null ? 0 : type.ordinal() + 1;
+    }
+
+    private static SourceCodeType typeOf(long value) {
+        return value == 0 ? null : TYPES[(int) value - 1];
+    }
+
     @Override
     public void whenShift(Status currentStatus, Token currentToken) {
-        stack.push(new Symbol(currentToken));
+        if (ownsAttributes) {
+            attributes.begin(0);
+        }
+        if ("id".equals(currentToken.getKindId())) {
+            attributes.set(symbolSlot, symbolOf(currentToken));
+        }
+        if (ownsAttributes) {
+            attributes.end();
+        }
+    }
+
+    @Override
+    public void setAttributeStack(AttributeStack attributes) {
+        this.attributes = attributes;
+        ownsAttributes = false;
+        typeSlot = attributes.declare("type");
+        symbolSlot = attributes.declare("symbol");
     }
 
     @Override
-    public void setSymbolTable(SymbolTable table) {
+    public void setSymbolTable(SymbolStore table) {
         // 设计你可能需要的符号表存储结构
         // 如果需要使用符号表的话, 可以将它或者它的一部分信息存起来, 比如使用一个成员变量存储
         symbolTable = table;
@@ -1,8 +1,10 @@
 package cn.edu.hitsz.compiler.parser;
 
 import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.lexer.TokenSource;
 import cn.edu.hitsz.compiler.parser.table.*;
-import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.symtab.SymbolStore;
 
 import java.util.*;
 
@@ -16,77 +18,75 @@ import java.util.*;
  * 你应当按照被挖空的方法的文档实现对应方法, 你可以随意为该类添加你需要的私有成员对象, 但不应该再为此类添加公有接口, 也不应该改动未被挖空的方法,
  * 除非你已经同助教充分沟通, 并能证明你的修改的合理性, 且令助教确定可能被改动的评测方法. 随意修改该类的其它部分有可能导致自动评测出错而被扣分.
  */
-public class SyntaxAnalyzer {
-    private final SymbolTable symbolTable;
-    private final List<ActionObserver> observers = new ArrayList<>();
-    private final LinkedList<Token> tokenInput = new LinkedList<>();
+public class SyntaxAnalyzer extends AbstractSyntaxAnalyzer {
     private LRTable lrTable;
+    private PackedLRTable compiledTable;
+    // 混合模式下的表达式子分析器, 以及交给它解析的最外层表达式非终结符
+    private NonTerminal expressionRoot;
+    private ExpressionParser expressionParser;
+    // 整数编码驱动程序的状态栈, 在多次分析之间复用
+    private int[] stateStack = new int[64];
+    // 折叠状态栈时切分片段所用的终结符序号, 为 -1 时不折叠
+    private int foldSeparator = -1;
 
-    public SyntaxAnalyzer(SymbolTable symbolTable) {
-        this.symbolTable = symbolTable;
+    public SyntaxAnalyzer(SymbolStore symbolTable) {
+        super(symbolTable);
     }
 
-    /**
-     * 注册新的观察者
-     *
-     * @param observer 观察者
-     */
-    public void registerObserver(ActionObserver observer) {
-        observers.add(observer);
-        observer.setSymbolTable(symbolTable);
+    public void loadLRTable(LRTable table) {
+        // 加载 LR 分析表
+        // 你可以自行选择要如何使用该表格:
+        // 是直接对 LRTable 调用 getAction/getGoto, 抑或是直接将 initStatus 存起来使用
+        this.lrTable = table;
+        this.compiledTable = null;
     }
 
     /**
-     * 在执行 shift 动作时通知各个观察者
+     * 加载以整数编码的 LR 分析表. 加载后 {@link #run()} 将完全基于整数数组查表, 不再访问 {@link Action} 等对象
      *
-     * @param currentStatus 当前状态
-     * @param currentToken  当前词法单元
+     * @param table 编译后的分析表
+     * @see LRTable#compile()
+     * @see LRTable#compress()
      */
-    public void callWhenInShift(Status currentStatus, Token currentToken) {
-        for (final var listener : observers) {
-            listener.whenShift(currentStatus, currentToken);
-        }
+    public void loadCompiledTable(PackedLRTable table) {
+        this.compiledTable = table;
+        this.lrTable = null;
     }
 
     /**
-     * 在执行 reduce 动作时通知各个观察者
+     * 启用混合分析模式: 整数编码的驱动程序遇到以 expression 为根的算术表达式时, 交给优先级爬升的子分析器解析.
+     * 观察者收到的事件序列与纯 LR 分析时相同. 只对 {@link #loadCompiledTable(PackedLRTable)} 加载的分析表生效
      *
-     * @param currentStatus 当前状态
-     * @param production    待规约的产生式
+     * @param expression 最外层的表达式非终结符, 如 grammar.txt 中的 E
+     * @see ExpressionParser
      */
-    public void callWhenInReduce(Status currentStatus, Production production) {
-        for (final var listener : observers) {
-            listener.whenReduce(currentStatus, production);
-        }
+    public void enableExpressionFastPath(NonTerminal expression) {
+        this.expressionRoot = expression;
+        this.expressionParser = null;
     }
 
     /**
-     * 在执行 accept 动作时通知各个观察者
+     * 启用状态栈折叠: 整数编码的驱动程序每移入一个分隔符 (如 Semicolon) 就检查栈顶是否出现了周期性的重复.
+     * <br>
+     * 对 {@code S_list -> S Semicolon S_list} 这样的右递归, 每条语句分析完毕后都在栈中留下同样的几个状态, 直到输入结束才被逐一规约,
+     * 因此状态栈随语句条数线性增长. 若相邻两条语句各自压入的状态完全相同, 且都不曾弹出语句开始时栈顶以下的状态, 就只记录该周期重复的次数,
+     * 待规约需要弹出这些状态时再逐个周期地换回. 这样状态栈的大小只与单条语句有关. 观察者收到的事件序列不变,
+     * 另外通过 {@link ActionObserver#whenFold(int, int)} 与 {@link ActionObserver#whenUnfold(int, int)} 得知折叠, 以便同样丢弃自己栈中的符号.
+     * 只对 {@link #loadCompiledTable(PackedLRTable)} 加载的分析表生效
      *
-     * @param currentStatus 当前状态
+     * @param separator 切分片段所用的终结符
      */
-    public void callWhenInAccept(Status currentStatus) {
-        for (final var listener : observers) {
-            listener.whenAccept(currentStatus);
-        }
-    }
-
-    public void loadTokens(Iterable<Token> tokens) {
-        // 你可以自行选择要如何存储词法单元, 譬如使用迭代器, 或是栈, 或是干脆使用一个 list 全存起来
-        // 需要注意的是, 在实现驱动程序的过程中, 你会需要面对只读取一个 token 而不能消耗它的情况,
-        // 在自行设计的时候请加以考虑此种情况
-        // 构建一个从左向右扫描的符号栈，不妨使用队列实现
-        tokens.forEach(tokenInput::add);
+    public void enableStackFolding(TokenKind separator) {
+        this.foldSeparator = separator.getOrdinal();
     }
 
-    public void loadLRTable(LRTable table) {
-        // 加载 LR 分析表
-        // 你可以自行选择要如何使用该表格:
-        // 是直接对 LRTable 调用 getAction/getGoto, 抑或是直接将 initStatus 存起来使用
-        this.lrTable = table;
-    }
+    @Override
+    protected void parse() {
+        if (compiledTable != null) {
+            runCompiled(foldSeparator >= 0 ? new StackFolder(hasObservers()) : null);
+            return;
+        }
 
-    public void run() {
         // 实现驱动程序
         // 你需要根据上面的输入来实现 LR 语法分析的驱动程序
         // 请分别在遇到 Shift, Reduce, Accept 的时候调用上面的 callWhenInShift, callWhenInReduce, callWhenInAccept
@@ -95,6 +95,7 @@ public class SyntaxAnalyzer {
         Stack<Symbol> symbolStack = new Stack<>();
         //状态栈
         Stack<Status> statusStack = new Stack<>();
+        final var tokenInput = getTokenInput();
         // 初始化状态栈和字符栈
         statusStack.push(lrTable.getInit());
         symbolStack.push(new Symbol(Token.eof()));
@@ -102,15 +103,15 @@ public class SyntaxAnalyzer {
         boolean accepted = false;
         while (!accepted) {
             // 根据状态栈栈顶元素和待读入的下一个 token 查询判断下一个待执行动作
-            Action action = lrTable.getAction(statusStack.peek(), tokenInput.getFirst());
+            // 查表只需要词法单元的类型
+            Action action = statusStack.peek().getAction(tokenInput.peekKind());
             // 根据LR(1)分析表内容进行移进规约
             switch (action.getKind()) {
                 // 如果是 Shift，把 Action 的状态压入状态栈，对应的 token 压入符号栈
                 case Shift -> {
                     callWhenInShift(statusStack.peek(), tokenInput.peek());
                     statusStack.push(action.getStatus());
-                    symbolStack.push(new Symbol(tokenInput.getFirst()));
-                    tokenInput.removeFirst();
+                    symbolStack.push(new Symbol(tokenInput.consume()));
                 }
                 // 如果是 Reduce，根据产生式长度，符号栈和状态栈均弹出对应长度个 token 和状态
                 // 把产生式左侧的非终结符压入符号栈；根据符号栈和状态栈栈顶状态获取 Goto 表的状态，压入状态栈
@@ -141,4 +142,217 @@ public class SyntaxAnalyzer {
             }
         }
     }
+
+    /**
+     * 基于整数编码分析表的驱动程序
+     * <br>
+     * 状态栈为可增长的 int 数组, 不维护符号栈 (规约所需的产生式头已记录在分析表中, 观察者各自维护所需的符号), 查表时只使用词法单元类型的序号.
+     * 只在存在观察者时才取出对应的 {@link Status}, {@link Production} 与词法单元对象.
+     * 配合 {@link cn.edu.hitsz.compiler.lexer.TokenBuffer#cursor()} 且未注册观察者时, 状态栈增长到足够大之后分析过程不再分配任何对象.
+     *
+     * @param hook 改写状态栈的钩子, 为 null 时不改写
+     */
+    private void runCompiled(StackHook hook) {
+        final var table = compiledTable;
+        final var notify = hasObservers();
+        if (expressionRoot != null && (expressionParser == null || expressionParser.getTable() != table)) {
+            expressionParser = new ExpressionParser(table, expressionRoot);
+        }
+        final var expressions = expressionRoot != null ? expressionParser : null;
+        final var tokenInput = getTokenInput();
+        var stack = stateStack;
+        var top = 0;
+        stack[0] = table.getInitIndex();
+
+        while (true) {
+            final var state = stack[top];
+            final var terminal = tokenInput.peekKind().getOrdinal();
+            final var cell = table.action(state, terminal);
+            switch (PackedLRTable.kindOf(cell)) {
+                case PackedLRTable.SHIFT -> {
+                    if (expressions != null && expressions.startsAt(state, terminal)) {
+                        // 整个表达式由子分析器解析, 之后如同刚刚规约出该表达式一样转移
+                        final var next = expressions.parse(this, tokenInput, state, notify);
+                        if (++top == stack.length) {
+                            stack = stateStack = Arrays.copyOf(stack, top * 2);
+                        }
+                        stack[top] = next;
+                        continue;
+                    }
+                    if (notify) {
+                        callWhenInShift(table.getStatus(state), tokenInput.peek());
+                    }
+                    tokenInput.skip();
+                    if (++top == stack.length) {
+                        stack = stateStack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top] = PackedLRTable.payloadOf(cell);
+                    if (hook != null) {
+                        top = hook.afterShift(top, terminal);
+                    }
+                }
+                case PackedLRTable.REDUCE -> {
+                    final var production = PackedLRTable.payloadOf(cell);
+                    final var length = table.getProductionLength(production);
+                    if (hook != null) {
+                        // 钩子可能换回被折叠的状态而使栈增长
+                        top = hook.pop(top, length);
+                        stack = stateStack;
+                    } else {
+                        top -= length;
+                    }
+                    final var below = stack[top];
+                    final var head = table.getProductionHead(production);
+                    final var next = table.goto_(below, head);
+                    if (next < 0) {
+                        throw new RuntimeException("LR分析失败: 分析表中缺少对应的 Goto 表项");
+                    }
+                    // 只有空产生式可能使栈增长
+                    if (++top == stack.length) {
+                        stack = stateStack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top] = next;
+                    if (notify) {
+                        notifyReduce(table, below, head, next, production);
+                    }
+                }
+                case PackedLRTable.ACCEPT -> {
+                    if (notify) {
+                        callWhenInAccept(table.getStatus(state));
+                    }
+                    return;
+                }
+                default -> throw new RuntimeException("LR分析失败: 输入符号可能有误");
+            }
+        }
+    }
+
+    /**
+     * 整数编码驱动程序在移入与规约时调用的钩子, 可以在不改变分析结果的前提下改写状态栈 {@link #stateStack}
+     */
+    private interface StackHook {
+        /**
+         * 移入一个词法单元之后调用
+         *
+         * @param top      栈顶的位置
+         * @param terminal 被移入的终结符的序号
+         * @return 新的栈顶位置
+         */
+        int afterShift(int top, int terminal);
+
+        /**
+         * 规约时代替驱动程序弹出产生式体
+         *
+         * @param top    栈顶的位置
+         * @param length 产生式体的长度
+         * @return 弹出 length 个状态之后的栈顶位置
+         */
+        int pop(int top, int length);
+    }
+
+    /**
+     * 折叠状态栈的钩子, 见 {@link #enableStackFolding(TokenKind)}
+     * <br>
+     * 栈在逻辑上由三部分组成: 物理栈中 [0, foldBase) 的前缀, 其后重复 repeats 次的周期 pattern (不占用物理栈),
+     * 以及物理栈中自 foldBase 开始的其余部分. 折叠后物理栈中 foldBase 处总是紧接着一份完整的周期.
+     */
+    private final class StackFolder implements StackHook {
+        StackFolder(boolean notify) {
+            this.notify = notify;
+        }
+
+        @Override
+        public int afterShift(int top, int terminal) {
+            if (terminal != foldSeparator) {
+                return top;
+            }
+
+            // 一个片段结束: 它压入的状态为 (mark, top], 且不曾弹出 mark 以下的状态时才可能是周期
+            final var stack = stateStack;
+            final var intact = low >= mark;
+            final var length = top - mark;
+            if (pattern == null) {
+                if (intact && previousIntact && length == mark - previousMark
+                    && Arrays.equals(stack, previousMark + 1, mark + 1, stack, mark + 1, top + 1)) {
+                    pattern = Arrays.copyOfRange(stack, mark + 1, top + 1);
+                    foldBase = previousMark + 1;
+                    repeats = 1;
+                    top = mark;
+                    if (notify) {
+                        callWhenInFold(length, length);
+                    }
+                }
+            } else if (intact && length == pattern.length && mark == foldBase + length - 1
+                && Arrays.equals(stack, foldBase, mark + 1, pattern, 0, length)
+                && Arrays.equals(stack, mark + 1, top + 1, pattern, 0, length)) {
+                repeats++;
+                top = mark;
+                if (notify) {
+                    callWhenInFold(length, length);
+                }
+            }
+            previousMark = mark;
+            previousIntact = intact;
+            mark = top;
+            low = top;
+            return top;
+        }
+
+        @Override
+        public int pop(int top, int length) {
+            // 需要弹出到折叠的部分时, 先换回一个周期
+            while (repeats > 0 && top - length < foldBase) {
+                final var period = pattern.length;
+                if (top + period >= stateStack.length) {
+                    stateStack = Arrays.copyOf(stateStack, Math.max(stateStack.length * 2, top + period + 1));
+                }
+                System.arraycopy(stateStack, foldBase, stateStack, foldBase + period, top - foldBase + 1);
+                System.arraycopy(pattern, 0, stateStack, foldBase, period);
+                if (notify) {
+                    callWhenInUnfold(period, top - foldBase + 1);
+                }
+                top += period;
+                if (mark >= foldBase) {
+                    mark += period;
+                }
+                if (previousMark >= foldBase) {
+                    previousMark += period;
+                }
+                if (low >= foldBase) {
+                    low += period;
+                }
+                repeats--;
+            }
+
+            top -= length;
+            low = Math.min(low, top);
+            return top;
+        }
+
+        private final boolean notify;
+        private int[] pattern = null;
+        private int foldBase = 0;
+        private long repeats = 0;
+        // 最近两次移入分隔符后的栈顶, 以及此后栈顶曾降到的最低位置
+        private int previousMark = -1;
+        private boolean previousIntact = false;
+        private int mark = 0;
+        private int low = 0;
+    }
+
+    /**
+     * 通知观察者一次规约; 若 GOTO 表项越过了单产生式, 则随后向希望得知的观察者依次报告被越过的规约
+     */
+    private void notifyReduce(PackedLRTable table, int below, int head, int next, int production) {
+        final var chain = table.getUnitChain(below, head);
+        if (chain == null) {
+            callWhenInReduce(table.getStatus(next), table.getProduction(production));
+            return;
+        }
+
+        callWhenInReduce(table.getStatus(chain[0]), table.getProduction(production));
+        for (int i = 1; i < chain.length; i += 2) {
+            callWhenInUnitReduce(table.getStatus(chain[i + 1]), table.getProduction(chain[i]));
+        }
+    }
 }
@@ -0,0 +1,427 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 把附加在产生式上的语义动作编译为专用的动作观察者, 类似 yacc 对 .y 文件中动作的处理
+ * <br>
+ * 语义动作写在与 grammar.txt 对应的动作文件 (默认为 {@link FilePathConfig#GRAMMAR_ACTIONS_PATH}) 中, 其格式见该文件开头的注释.
+ * grammar.txt 本身保持不变, 因为产生式的索引就是它在 grammar.txt 中的行号. 动作文件由以下几部分组成:
+ * <ul>
+ *     <li>{@code %class} 生成的类名, {@code %import} 生成的类需要导入的类;</li>
+ *     <li>{@code %attribute 名字 类型} 声明每个文法符号带有的属性. int, long 与 boolean 直接存放, 其它类型须为枚举;</li>
+ *     <li>{@code %{ ... %}} 之间的内容原样复制到生成的类中, 供动作使用的字段与方法写在这里;</li>
+ *     <li>{@code %token 种类 { ... }} 移入该种词法单元时的动作, {@code 产生式; { ... }} 规约该产生式时的动作,
+ *     {@code %accept { ... }} 接受时的动作.</li>
+ * </ul>
+ * 生成的类实现 {@link cn.edu.hitsz.compiler.parser.AttributeObserver}: 每个属性对应属性栈中的一个槽以及一对带类型的读写方法,
+ * 动作中的 {@code $k.attr} 与 {@code $$.attr = ...;} 被改写为对这些方法的调用; 每条带有动作的产生式对应一个方法,
+ * 规约时按产生式索引直接分派, 移入时按词法单元种类在码点文件中的序号直接分派 (码点文件改变后须重新生成).
+ * 一个生成的观察者即可完成原先由多个观察者分别完成的工作, 驱动程序对每个动作只需通知一次,
+ * 各观察者也不再各自压栈出栈.
+ * <br>
+ * 作为程序运行时, 第一个参数为输出路径 (默认为 {@link #DEFAULT_OUTPUT_PATH}), 第二个参数为动作文件的路径.
+ */
+public class ActionCompiler {
+    public static final String DEFAULT_PACKAGE = "cn.edu.hitsz.compiler.parser";
+    public static final String DEFAULT_CLASS_NAME = "GeneratedTranslator";
+    public static final String DEFAULT_OUTPUT_PATH = "src/cn/edu/hitsz/compiler/parser/GeneratedTranslator.java";
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    // 对产生式头的属性的赋值: $$.attr = 表达式;
+    private static final Pattern HEAD_ASSIGNMENT = Pattern.compile("\\$\\$\\.(\\w+)\\s*=(?!=)\\s*(.*?);");
+    // 对产生式体中符号的属性的读取: $k.attr
+    private static final Pattern BODY_REFERENCE = Pattern.compile("\\$(\\d+)\\.(\\w+)");
+
+    public static void main(String[] args) {
+        final var output = args.length > 0 ? args[0] : DEFAULT_OUTPUT_PATH;
+        final var input = args.length > 1 ? args[1] : FilePathConfig.GRAMMAR_ACTIONS_PATH;
+
+        TokenKind.loadTokenKinds();
+        new ActionCompiler(FileUtils.readLines(input), GrammarInfo.getProductionsInOrder())
+            .write(output, DEFAULT_PACKAGE);
+    }
+
+    /**
+     * @param lines       动作文件的各行
+     * @param productions 文法的全部产生式, 动作文件中的产生式须与其中之一的文本相同
+     * @throws RuntimeException 动作文件有误
+     */
+    public ActionCompiler(List<String> lines, List<Production> productions) {
+        final var productionsByText = new HashMap<String, Production>();
+        for (final var production : productions) {
+            productionsByText.put(production.toString(), production);
+        }
+
+        for (int i = 0; i < lines.size(); i++) {
+            final var line = lines.get(i).strip();
+            final var lineNumber = i + 1;
+            if (line.isEmpty() || line.startsWith("//")) {
+                continue;
+            }
+
+            if (line.equals("%{")) {
+                i = readBlock(lines, i, "%}", members);
+            } else if (line.startsWith("%class ")) {
+                className = identifier(line.substring("%class ".length()).strip(), lineNumber);
+            } else if (line.startsWith("%import ")) {
+                imports.add(line.substring("%import ".length()).strip());
+            } else if (line.startsWith("%attribute ")) {
+                final var words = line.substring("%attribute ".length()).strip().split("\\s+");
+                if (words.length != 2) {
+                    throw error(lineNumber, "Expected `%attribute name type`");
+                }
+                final var name = identifier(words[0], lineNumber);
+                if (attributes.put(name, words[1]) != null) {
+                    throw error(lineNumber, "Duplicated attribute " + name);
+                }
+            } else if (line.startsWith("%token ") && line.endsWith("{")) {
+                final var kind = line.substring("%token ".length(), line.length() - 1).strip();
+                if (!TokenKind.isAllowed(kind)) {
+                    throw error(lineNumber, "Unknown token kind " + kind);
+                }
+                identifier(kind, lineNumber);
+                final var body = new ArrayList<String>();
+                i = readBlock(lines, i, "}", body);
+                if (tokenActions.put(kind, translate(body, 0, lineNumber)) != null) {
+                    throw error(lineNumber, "Duplicated action for token " + kind);
+                }
+            } else if (line.equals("%accept {")) {
+                i = readBlock(lines, i, "}", acceptAction);
+            } else if (line.contains(" -> ") && line.endsWith("{")) {
+                final var text = line.substring(0, line.lastIndexOf(';') < 0 ? line.length() - 1 : line.lastIndexOf(';')).strip();
+                final var production = productionsByText.get(text);
+                if (production == null) {
+                    throw error(lineNumber, "Unknown production " + text);
+                }
+                final var body = new ArrayList<String>();
+                i = readBlock(lines, i, "}", body);
+                if (productionActions.put(production.index(), translate(body, production.body().size(), lineNumber)) != null) {
+                    throw error(lineNumber, "Duplicated action for production " + text);
+                }
+                productionsByIndex.put(production.index(), production);
+            } else {
+                throw error(lineNumber, "Unrecognized line: " + line);
+            }
+        }
+    }
+
+    /**
+     * 生成源代码并写入文件
+     *
+     * @param path        输出路径
+     * @param packageName 生成的类所在的包
+     */
+    public void write(String path, String packageName) {
+        FileUtils.writeFile(path, generate(packageName));
+    }
+
+    /**
+     * @param packageName 生成的类所在的包
+     * @return 生成的源代码
+     */
+    public String generate(String packageName) {
+        final var builder = new StringBuilder();
+        builder.append("""
+            // 该文件由 %s 根据语义动作文件自动生成, 请勿手动修改
+            package %s;
+
+            import cn.edu.hitsz.compiler.lexer.Token;
+            import cn.edu.hitsz.compiler.lexer.TokenKind;
+            import cn.edu.hitsz.compiler.parser.table.Production;
+            import cn.edu.hitsz.compiler.parser.table.Status;
+            import cn.edu.hitsz.compiler.symtab.SymbolStore;
+            """.formatted(ActionCompiler.class.getName(), packageName));
+        for (final var imported : imports) {
+            builder.append("import ").append(imported).append(";\n");
+        }
+        builder.append("""
+
+            /**
+             * 由语义动作文件生成的动作观察者, 共 %d 个属性, %d 条带有动作的产生式
+             * <br>
+             * 各属性存放在共用的属性栈中, 以带类型的方法读写. 每条带有动作的产生式对应一个方法, 规约时按产生式索引直接分派,
+             * 移入时按词法单元种类的序号直接分派;
+             * 没有动作的产生式, 其产生式头的属性与产生式体中第一个符号的相同.
+             */
+            public class %s implements AttributeObserver {
+                private SymbolStore symbolTable;
+                private AttributeStack attributes;
+            """.formatted(attributes.size(), productionActions.size(), className));
+        for (final var attribute : attributes.entrySet()) {
+            builder.append("    private int %sSlot;\n".formatted(attribute.getKey()));
+        }
+        for (final var attribute : attributes.entrySet()) {
+            if (isEnum(attribute.getValue())) {
+                builder.append("    private static final %s[] %s_VALUES = %s.values();\n"
+                    .formatted(attribute.getValue(), attribute.getKey().toUpperCase(), attribute.getValue()));
+            }
+        }
+
+
+        // whenShift 按生成时码点文件中的序号分派, 类初始化时检查序号是否仍与码点文件一致
+        builder.append("""
+
+                // 带有动作的词法单元种类及其在生成时的码点文件中的序号
+                private static final String[] TOKEN_KINDS = {%s};
+                private static final int[] TOKEN_ORDINALS = {%s};
+
+                static {
+                    for (int i = 0; i < TOKEN_KINDS.length; i++) {
+                        final var ordinal = TOKEN_ORDINALS[i];
+                        if (ordinal >= TokenKind.count() || !TokenKind.fromOrdinal(ordinal).getIdentifier().equals(TOKEN_KINDS[i])) {
+                            throw new RuntimeException("Token kinds do not match the generated translator, regenerate it");
+                        }
+                    }
+                }
+            """.formatted(
+            String.join(", ", tokenActions.keySet().stream().map("\"%s\""::formatted).toList()),
+            String.join(", ", tokenActions.keySet().stream().map(kind -> String.valueOf(ordinalOf(kind))).toList())));
+
+        builder.append("""
+
+                @Override
+                public void setSymbolTable(SymbolStore table) {
+                    this.symbolTable = table;
+                }
+
+                @Override
+                public void setAttributeStack(AttributeStack attributes) {
+                    this.attributes = attributes;
+            """);
+        for (final var attribute : attributes.keySet()) {
+            // 以类名限定槽的名字, 以免与其它观察者的同名属性混用
+            builder.append("        %sSlot = attributes.declare(\"%s.%s\");\n".formatted(attribute, className, attribute));
+        }
+        builder.append("""
+                }
+
+                @Override
+                public boolean wantsUnitReductions() {
+                    return %s;
+                }
+
+                @Override
+                public void whenShift(Status currentStatus, Token token) {
+                    switch (token.getKind().getOrdinal()) {
+            """.formatted(productionsByIndex.values().stream().anyMatch(ActionCompiler::isUnit)));
+        for (final var kind : tokenActions.keySet()) {
+            builder.append("            case %d -> shift%s(token); // %s\n".formatted(ordinalOf(kind), capitalize(kind), kind));
+        }
+        builder.append("""
+                        default -> {
+                        }
+                    }
+                }
+
+                @Override
+                public void whenReduce(Status currentStatus, Production production) {
+                    switch (production.index()) {
+            """);
+        for (final var index : productionActions.keySet()) {
+            builder.append("            case %d -> reduce%d();\n".formatted(index, index));
+        }
+        builder.append("""
+                        default -> {
+                        }
+                    }
+                }
+
+                @Override
+                public void whenAccept(Status currentStatus) {
+            """);
+        appendBody(builder, acceptAction);
+        builder.append("    }\n");
+
+        builder.append("\n    //============================== 语义动作 ==============================//\n");
+        for (final var action : tokenActions.entrySet()) {
+            builder.append("\n    /**\n     * 移入 %s\n     */\n".formatted(action.getKey()));
+            builder.append("    private void shift%s(Token token) {\n".formatted(capitalize(action.getKey())));
+            appendBody(builder, action.getValue());
+            builder.append("    }\n");
+        }
+        for (final var action : productionActions.entrySet()) {
+            builder.append("\n    /**\n     * %s\n     */\n".formatted(productionsByIndex.get(action.getKey())));
+            builder.append("    private void reduce%d() {\n".formatted(action.getKey()));
+            appendBody(builder, action.getValue());
+            builder.append("    }\n");
+        }
+
+        builder.append("\n    //============================== 属性 ==============================//\n");
+        for (final var attribute : attributes.entrySet()) {
+            appendAccessors(builder, attribute.getKey(), attribute.getValue());
+        }
+
+        if (!members.isEmpty()) {
+            builder.append("\n    //============================== 动作文件中的成员 ==============================//\n\n");
+            for (final var member : members) {
+                builder.append(member.stripTrailing()).append('\n');
+            }
+        }
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    /**
+     * 生成一个属性的读写方法: 读取产生式体中第 index 个符号 (从 0 开始) 的属性, 以及写入产生式头的属性
+     */
+    private static void appendAccessors(StringBuilder builder, String name, String type) {
+        final var accessor = capitalize(name);
+        final String read;
+        final String write;
+        switch (type) {
+            case "int" -> {
+                read = "(int) attributes.get(%sSlot, index)".formatted(name);
+                write = "value";
+            }
+            case "long" -> {
+                read = "attributes.get(%sSlot, index)".formatted(name);
+                write = "value";
+            }
+            case "boolean" -> {
+                read = "attributes.get(%sSlot, index) != 0".formatted(name);
+                write = "value ? 1 : 0";
+            }
+            default -> {
+                // 枚举存放其序号 + 1, 0 表示 null
+                read = "value == 0 ? null : %s_VALUES[(int) value - 1]".formatted(name.toUpperCase());
+                write = "value == null ? 0 : value.ordinal() + 1";
+            }
+        }
+
+        builder.append('\n');
+        builder.append("    private %s get%s(int index) {\n".formatted(type, accessor));
+        if (isEnum(type)) {
+            builder.append("        final var value = attributes.get(%sSlot, index);\n".formatted(name));
+        }
+        builder.append("        return %s;\n".formatted(read));
+        builder.append("    }\n\n");
+        builder.append("    private void set%s(%s value) {\n".formatted(accessor, type));
+        builder.append("        attributes.set(%sSlot, %s);\n".formatted(name, write));
+        builder.append("    }\n");
+    }
+
+    /**
+     * 把动作中的 {@code $$.attr = 表达式;} 改写为 {@code setAttr(表达式);}, 把 {@code $k.attr} 改写为 {@code getAttr(k - 1)}
+     *
+     * @param body       动作的各行
+     * @param length     产生式体的长度, 移入时为 0
+     * @param lineNumber 动作开始的行号, 用于报告错误
+     * @return 改写后的各行
+     */
+    private List<String> translate(List<String> body, int length, int lineNumber) {
+        final var result = new ArrayList<String>(body.size());
+        for (int i = 0; i < body.size(); i++) {
+            final var number = lineNumber + 1 + i;
+            var line = body.get(i);
+
+            final var assignment = HEAD_ASSIGNMENT.matcher(line);
+            final var assigned = new StringBuilder();
+            while (assignment.find()) {
+                assignment.appendReplacement(assigned, Matcher.quoteReplacement(
+                    "set%s(%s);".formatted(capitalize(attribute(assignment.group(1), number)), assignment.group(2))));
+            }
+            assignment.appendTail(assigned);
+            line = assigned.toString();
+
+            final var reference = BODY_REFERENCE.matcher(line);
+            final var referenced = new StringBuilder();
+            while (reference.find()) {
+                final var position = Integer.parseInt(reference.group(1));
+                if (position < 1 || position > length) {
+                    throw error(number, "$%d is out of the production body of length %d".formatted(position, length));
+                }
+                reference.appendReplacement(referenced, Matcher.quoteReplacement(
+                    "get%s(%d)".formatted(capitalize(attribute(reference.group(2), number)), position - 1)));
+            }
+            reference.appendTail(referenced);
+            line = referenced.toString();
+
+            if (line.contains("$")) {
+                throw error(number, "Unsupported attribute reference, $$ can only be assigned in a statement of its own: " + line.strip());
+            }
+            result.add(line);
+        }
+        return result;
+    }
+
+    /**
+     * 读取一个块, 直到遇到内容为 end 的一行
+     *
+     * @return 结束行的下标
+     */
+    private static int readBlock(List<String> lines, int start, String end, List<String> block) {
+        for (int i = start + 1; i < lines.size(); i++) {
+            if (lines.get(i).stripTrailing().equals(end)) {
+                return i;
+            }
+            block.add(lines.get(i));
+        }
+        throw error(start + 1, "Block is not closed by " + end);
+    }
+
+    private static void appendBody(StringBuilder builder, List<String> body) {
+        for (final var line : body) {
+            builder.append(line.isBlank() ? "" : "    " + line.stripTrailing()).append('\n');
+        }
+    }
+
+    private String attribute(String name, int lineNumber) {
+        if (!attributes.containsKey(name)) {
+            throw error(lineNumber, "Unknown attribute " + name);
+        }
+        return name;
+    }
+
+    /**
+     * 分析表可能越过单产生式的规约, 只有单产生式带有动作时生成的观察者才需要得知这些规约
+     */
+    private static boolean isUnit(Production production) {
+        return production.body().size() == 1 && production.body().get(0) instanceof NonTerminal;
+    }
+
+    private static int ordinalOf(String kind) {
+        return TokenKind.fromString(kind).getOrdinal();
+    }
+
+    private static boolean isEnum(String type) {
+        return !type.equals("int") && !type.equals("long") && !type.equals("boolean");
+    }
+
+    private static String identifier(String text, int lineNumber) {
+        if (!IDENTIFIER.matcher(text).matches()) {
+            throw error(lineNumber, text + " is not a valid identifier");
+        }
+        return text;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static RuntimeException error(int lineNumber, String message) {
+        return new RuntimeException("Line %d: %s".formatted(lineNumber, message));
+    }
+
+    private String className = DEFAULT_CLASS_NAME;
+    private final List<String> imports = new ArrayList<>();
+    // 属性名到类型
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private final List<String> members = new ArrayList<>();
+    private final Map<String, List<String>> tokenActions = new LinkedHashMap<>();
+    // 以产生式索引为键的动作
+    private final Map<Integer, List<String>> productionActions = new TreeMap<>();
+    private final Map<Integer, Production> productionsByIndex = new HashMap<>();
+    private final List<String> acceptAction = new ArrayList<>();
+}
@@ -0,0 +1,114 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+
+import java.util.Arrays;
+
+/**
+ * 编译为稠密整数矩阵的 LR 分析表
+ * <br>
+ * {@link LRTable} 以对象图的形式存储分析表: 每个状态持有自己的 ACTION/GOTO 数组, 每个表项都是一个 {@link Action} 对象.
+ * 该类将其压平为两个以 {@code 状态编号 * 列数 + 文法符号序号} 为下标的 int 数组, 驱动程序查表时只需一次数组访问.
+ * 表项的编码方式见 {@link PackedLRTable}.
+ *
+ * @see LRTable#compile()
+ */
+public class CompiledLRTable extends PackedLRTable {
+    @Override
+    public int action(int state, int terminal) {
+        return actions[state * terminalCount + terminal];
+    }
+
+    @Override
+    public int goto_(int state, int nonTerminal) {
+        return gotos[state * nonTerminalCount + nonTerminal];
+    }
+
+    @Override
+    public long footprint() {
+        return 4L * (actions.length + gotos.length);
+    }
+
+    /**
+     * 将对象图形式的分析表编译为稠密矩阵
+     *
+     * @param table 分析表
+     * @return 编译后的分析表
+     */
+    static CompiledLRTable compile(LRTable table) {
+        final var statusList = table.getStatusInIndexOrder();
+        final var terminals = table.getTerminals();
+        final var nonTerminals = table.getNonTerminals();
+
+        final var stateCount = statusList.stream().mapToInt(Status::index).max().orElse(-1) + 1;
+        final var statuses = new Status[stateCount];
+        for (final var status : statusList) {
+            statuses[status.index()] = status;
+        }
+
+        // 收集分析表中出现的所有产生式, 以确定产生式表与非终结符序号的范围
+        final var terminalCount = TokenKind.count();
+        var nonTerminalCount = nonTerminals.stream().mapToInt(Term::getOrdinal).max().orElse(-1) + 1;
+        var productions = new Production[0];
+        for (final var status : statusList) {
+            for (final var terminal : terminals) {
+                final var action = status.getAction(terminal);
+                if (action.getKind() == Action.ActionKind.Reduce) {
+                    final var production = action.getProduction();
+                    if (production.index() >= productions.length) {
+                        productions = Arrays.copyOf(productions, production.index() + 1);
+                    }
+                    productions[production.index()] = production;
+                    nonTerminalCount = Math.max(nonTerminalCount, production.head().getOrdinal() + 1);
+                }
+            }
+        }
+
+        final var actions = new int[stateCount * terminalCount];
+        final var gotos = new int[stateCount * nonTerminalCount];
+        Arrays.fill(gotos, -1);
+        for (final var status : statusList) {
+            final var state = status.index();
+            for (final var terminal : terminals) {
+                final var action = status.getAction(terminal);
+                actions[state * terminalCount + terminal.getOrdinal()] = switch (action.getKind()) {
+                    case Shift -> encode(SHIFT, action.getStatus().index());
+                    case Reduce -> encode(REDUCE, action.getProduction().index());
+                    case Accept -> encode(ACCEPT, 0);
+                    case Error -> encode(ERROR, 0);
+                };
+            }
+
+            for (final var nonTerminal : nonTerminals) {
+                final var target = status.getGoto(nonTerminal);
+                if (!target.isError()) {
+                    gotos[state * nonTerminalCount + nonTerminal.getOrdinal()] = target.index();
+                }
+            }
+        }
+
+        final var productionLengths = new int[productions.length];
+        final var productionHeads = new int[productions.length];
+        for (final var production : productions) {
+            if (production != null) {
+                productionLengths[production.index()] = production.body().size();
+                productionHeads[production.index()] = production.head().getOrdinal();
+            }
+        }
+
+        return new CompiledLRTable(
+            statuses, table.getInit().index(), terminalCount, nonTerminalCount,
+            actions, gotos, productions, productionLengths, productionHeads);
+    }
+
+    CompiledLRTable(Status[] statuses, int initIndex, int terminalCount, int nonTerminalCount,
+                    int[] actions, int[] gotos,
+                    Production[] productions, int[] productionLengths, int[] productionHeads) {
+        super(statuses, initIndex, terminalCount, nonTerminalCount, productions, productionLengths, productionHeads);
+        this.actions = actions;
+        this.gotos = gotos;
+    }
+
+    private final int[] actions;
+    private final int[] gotos;
+}
@@ -0,0 +1,223 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * 以行位移 (row displacement, 又称 comb vector) 压缩存储的 LR 分析表
+ * <br>
+ * 状态数达到数千时, 稠密矩阵中绝大多数表项都是错误或同一个规约. 压缩分两步进行:
+ * <ol>
+ *     <li>默认动作: 每个状态取其出现最多的规约作为默认动作, 该规约与所有错误表项都不再显式存储
+ *     (没有规约的状态默认动作为错误). GOTO 表则按列取每个非终结符最常见的目标状态作为默认值.</li>
+ *     <li>行位移: 将各行剩余的显式表项错开叠放到同一个一维数组 {@code value} 中, 第 s 行从 {@code base[s]} 处开始.
+ *     并列的 {@code check} 数组记录每格属于哪一行, 查表时若 {@code check[base[s] + t] != s} 则该表项未显式存储, 取默认动作.</li>
+ * </ol>
+ * 数组在末尾留足一整行的余量, 所以查表无需检查越界: 一次加法, 两次数组访问与一次比较, 与稠密矩阵相差无几.
+ * <br>
+ * 采用默认规约后, 某些原本为错误的输入会先执行若干次规约, 直到下一次移入之前才报告错误.
+ * 这不会改变合法输入的分析过程, 也不会使错误输入被接受, 只是推迟了错误被发现的时机 (观察者可能先收到这些规约).
+ *
+ * @see LRTable#compress()
+ */
+public class CompressedLRTable extends PackedLRTable {
+    @Override
+    public int action(int state, int terminal) {
+        final var index = actionBase[state] + terminal;
+        return actionCheck[index] == state ? actionValue[index] : defaultAction[state];
+    }
+
+    @Override
+    public int goto_(int state, int nonTerminal) {
+        final var index = gotoBase[state] + nonTerminal;
+        return gotoCheck[index] == state ? gotoValue[index] : defaultGoto[nonTerminal];
+    }
+
+    @Override
+    public long footprint() {
+        return 4L * (actionBase.length + actionCheck.length + actionValue.length + defaultAction.length
+            + gotoBase.length + gotoCheck.length + gotoValue.length + defaultGoto.length);
+    }
+
+    /**
+     * @param dense 作为对比的未压缩分析表
+     * @return 两者占用内存的对比报告
+     */
+    public String footprintReport(PackedLRTable dense) {
+        final var explicitActions = Arrays.stream(actionCheck).filter(s -> s >= 0).count();
+        final var explicitGotos = Arrays.stream(gotoCheck).filter(s -> s >= 0).count();
+        return String.format(
+            "%d states, %d terminals, %d non-terminals%n" +
+                "explicit entries: %d action, %d goto%n" +
+                "comb vector length: %d action, %d goto%n" +
+                "footprint: %d bytes compressed vs %d bytes dense (%.1f%%)",
+            getStateCount(), terminalCount, nonTerminalCount,
+            explicitActions, explicitGotos,
+            actionValue.length, gotoValue.length,
+            footprint(), dense.footprint(), 100.0 * footprint() / dense.footprint());
+    }
+
+    /**
+     * 压缩稠密矩阵形式的分析表
+     *
+     * @param dense 分析表
+     * @return 压缩后的分析表
+     */
+    static CompressedLRTable compress(CompiledLRTable dense) {
+        final var stateCount = dense.getStateCount();
+        final var terminalCount = dense.terminalCount;
+        final var nonTerminalCount = dense.nonTerminalCount;
+
+        // ACTION 表: 每行以出现最多的规约为默认动作
+        final var defaultAction = new int[stateCount];
+        final var actionRows = new int[stateCount][terminalCount];
+        final var productionCounts = new int[dense.productions.length];
+        for (int state = 0; state < stateCount; state++) {
+            Arrays.fill(productionCounts, 0);
+            var best = -1;
+            for (int terminal = 0; terminal < terminalCount; terminal++) {
+                final var cell = dense.action(state, terminal);
+                if (kindOf(cell) == REDUCE) {
+                    final var production = payloadOf(cell);
+                    productionCounts[production]++;
+                    if (best < 0 || productionCounts[production] > productionCounts[best]) {
+                        best = production;
+                    }
+                }
+            }
+            defaultAction[state] = best < 0 ? encode(ERROR, 0) : encode(REDUCE, best);
+
+            for (int terminal = 0; terminal < terminalCount; terminal++) {
+                final var cell = dense.action(state, terminal);
+                // 错误表项也由默认动作覆盖, 显式存储的只有与默认动作不同的非错误表项
+                actionRows[state][terminal] = cell == defaultAction[state] || kindOf(cell) == ERROR ? -1 : cell;
+            }
+        }
+
+        // GOTO 表: 每列以出现最多的目标状态为默认值
+        final var defaultGoto = new int[nonTerminalCount];
+        final var targetCounts = new int[stateCount];
+        for (int nonTerminal = 0; nonTerminal < nonTerminalCount; nonTerminal++) {
+            Arrays.fill(targetCounts, 0);
+            var best = -1;
+            for (int state = 0; state < stateCount; state++) {
+                final var target = dense.goto_(state, nonTerminal);
+                if (target >= 0) {
+                    targetCounts[target]++;
+                    if (best < 0 || targetCounts[target] > targetCounts[best]) {
+                        best = target;
+                    }
+                }
+            }
+            defaultGoto[nonTerminal] = best;
+        }
+        final var gotoRows = new int[stateCount][nonTerminalCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int nonTerminal = 0; nonTerminal < nonTerminalCount; nonTerminal++) {
+                final var target = dense.goto_(state, nonTerminal);
+                gotoRows[state][nonTerminal] = target == defaultGoto[nonTerminal] ? -1 : target;
+            }
+        }
+
+        final var actionComb = new CombVector(actionRows, terminalCount);
+        final var gotoComb = new CombVector(gotoRows, nonTerminalCount);
+        return new CompressedLRTable(dense,
+            actionComb.base, actionComb.check, actionComb.value, defaultAction,
+            gotoComb.base, gotoComb.check, gotoComb.value, defaultGoto);
+    }
+
+    /**
+     * 以首次适配 (first fit) 将稀疏的行叠放到同一个一维数组中. 表项较多的行先放置, 以减少空隙
+     */
+    private static class CombVector {
+        final int[] base;
+        int[] check;
+        int[] value;
+
+        /**
+         * @param rows  各行, -1 表示不需要显式存储的表项
+         * @param width 每行的宽度
+         */
+        CombVector(int[][] rows, int width) {
+            this.base = new int[rows.length];
+            this.check = new int[width];
+            this.value = new int[width];
+            Arrays.fill(check, -1);
+
+            final var columns = new int[rows.length][];
+            for (int row = 0; row < rows.length; row++) {
+                final var cells = rows[row];
+                columns[row] = IntStream.range(0, width).filter(column -> cells[column] >= 0).toArray();
+            }
+            final var order = IntStream.range(0, rows.length).boxed()
+                .sorted(Comparator.comparingInt((Integer row) -> columns[row].length).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+            var length = 0;
+            for (final var row : order) {
+                var offset = 0;
+                while (!fits(columns[row], offset)) {
+                    offset++;
+                }
+                base[row] = offset;
+                for (final var column : columns[row]) {
+                    ensureCapacity(offset + column + 1);
+                    check[offset + column] = row;
+                    value[offset + column] = rows[row][column];
+                }
+                length = Math.max(length, offset + width);
+            }
+
+            // 末尾留足一整行的余量, 查表时 base[s] + t 总在数组范围内
+            ensureCapacity(length);
+            check = Arrays.copyOf(check, length);
+            value = Arrays.copyOf(value, length);
+        }
+
+        private boolean fits(int[] columns, int offset) {
+            for (final var column : columns) {
+                final var index = offset + column;
+                if (index < check.length && check[index] >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > check.length) {
+                final var oldLength = check.length;
+                final var newLength = Math.max(capacity, oldLength * 2);
+                check = Arrays.copyOf(check, newLength);
+                value = Arrays.copyOf(value, newLength);
+                Arrays.fill(check, oldLength, newLength, -1);
+            }
+        }
+    }
+
+    private CompressedLRTable(PackedLRTable dense,
+                              int[] actionBase, int[] actionCheck, int[] actionValue, int[] defaultAction,
+                              int[] gotoBase, int[] gotoCheck, int[] gotoValue, int[] defaultGoto) {
+        super(dense);
+        this.actionBase = actionBase;
+        this.actionCheck = actionCheck;
+        this.actionValue = actionValue;
+        this.defaultAction = defaultAction;
+        this.gotoBase = gotoBase;
+        this.gotoCheck = gotoCheck;
+        this.gotoValue = gotoValue;
+        this.defaultGoto = defaultGoto;
+    }
+
+    private final int[] actionBase;
+    private final int[] actionCheck;
+    private final int[] actionValue;
+    private final int[] defaultAction;
+
+    private final int[] gotoBase;
+    private final int[] gotoCheck;
+    private final int[] gotoValue;
+    private final int[] defaultGoto;
+}
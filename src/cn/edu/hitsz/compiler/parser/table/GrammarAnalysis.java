@@ -0,0 +1,320 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 文法的 nullable, FIRST 与 FOLLOW 集合
+ * <br>
+ * 三者都以不动点的方式求出: 先根据产生式建立非终结符之间的依赖关系, 再用工作表只沿依赖边传播发生了变化的集合,
+ * 每条依赖边被处理的次数不超过其源集合变化的次数, 所以总耗时与文法大小大致成线性关系, 且结果与非终结符的遍历顺序无关.
+ * FIRST 与 FOLLOW 集合是以终结符序号为下标的 long[] 位集.
+ * <br>
+ * 第一条产生式的头被视为开始符号, 其 FOLLOW 集合包含 EOF. 文法中可以有体为空的产生式.
+ */
+public class GrammarAnalysis {
+    /**
+     * @param productions 文法的全部产生式, 第一条产生式的头为开始符号
+     */
+    public GrammarAnalysis(List<Production> productions) {
+        this.productions = productions;
+        this.terminalCount = TokenKind.count();
+        this.words = (terminalCount + 63) / 64;
+
+        var count = 0;
+        for (final var production : productions) {
+            count = Math.max(count, production.head().getOrdinal() + 1);
+            for (final var term : production.body()) {
+                if (term instanceof NonTerminal) {
+                    count = Math.max(count, term.getOrdinal() + 1);
+                }
+            }
+        }
+        this.nonTerminalCount = count;
+
+        this.nullable = new boolean[nonTerminalCount];
+        this.first = new long[nonTerminalCount][words];
+        this.follow = new long[nonTerminalCount][words];
+
+        calcNullable();
+        calcFirst();
+        calcFollow();
+    }
+
+    /**
+     * @return 非终结符能否推导出空串
+     */
+    public boolean isNullable(NonTerminal nonTerminal) {
+        return nullable[nonTerminal.getOrdinal()];
+    }
+
+    /**
+     * @param term 文法符号
+     * @return 其 FIRST 集合 (不含空串), 按终结符序号排列; 终结符的 FIRST 就是它自身
+     */
+    public Set<TokenKind> getFirst(Term term) {
+        if (term instanceof TokenKind tokenKind) {
+            return Set.of(tokenKind);
+        }
+        return toSet(first[term.getOrdinal()]);
+    }
+
+    /**
+     * @param nonTerminal 非终结符
+     * @return 其 FOLLOW 集合, 按终结符序号排列
+     */
+    public Set<TokenKind> getFollow(NonTerminal nonTerminal) {
+        return toSet(follow[nonTerminal.getOrdinal()]);
+    }
+
+    /**
+     * 求符号串 {@code symbols[from..]} 的 FIRST 集合
+     *
+     * @param symbols 符号串
+     * @param from    起始下标
+     * @param into    结果并入的位集, 长度不小于 {@link #getWords()}
+     * @return 该符号串能否推导出空串
+     */
+    public boolean firstOf(List<Term> symbols, int from, long[] into) {
+        for (int i = from; i < symbols.size(); i++) {
+            final var term = symbols.get(i);
+            if (term instanceof TokenKind) {
+                into[term.getOrdinal() >>> 6] |= 1L << term.getOrdinal();
+                return false;
+            }
+
+            or(into, first[term.getOrdinal()]);
+            if (!nullable[term.getOrdinal()]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 位集的长度 (long 的个数)
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * @return 非终结符的个数 (最大序号 + 1)
+     */
+    public int getNonTerminalCount() {
+        return nonTerminalCount;
+    }
+
+    /**
+     * 一条产生式体中的符号若全部可空, 则其头可空. 为每条产生式记录尚未确认可空的符号个数,
+     * 每确认一个非终结符可空, 就把它出现的各产生式的计数减一, 减到零时其头可空
+     */
+    private void calcNullable() {
+        final var remaining = new int[productions.size()];
+        final var occurrences = new EdgeList(nonTerminalCount);
+        final var worklist = new int[nonTerminalCount];
+        var top = 0;
+
+        for (int p = 0; p < productions.size(); p++) {
+            final var production = productions.get(p);
+            remaining[p] = production.body().size();
+            for (final var term : production.body()) {
+                if (term instanceof NonTerminal) {
+                    occurrences.add(term.getOrdinal(), p);
+                }
+            }
+
+            final var head = production.head().getOrdinal();
+            if (remaining[p] == 0 && !nullable[head]) {
+                nullable[head] = true;
+                worklist[top++] = head;
+            }
+        }
+
+        final var occurrencesOf = occurrences.toAdjacency();
+        while (top > 0) {
+            final var nonTerminal = worklist[--top];
+            for (final var p : occurrencesOf[nonTerminal]) {
+                final var head = productions.get(p).head().getOrdinal();
+                if (--remaining[p] == 0 && !nullable[head]) {
+                    nullable[head] = true;
+                    worklist[top++] = head;
+                }
+            }
+        }
+    }
+
+    /**
+     * 对 A -> X1 X2 ... Xn, 若 X1 ... Xi-1 均可空, 则 Xi 为终结符时直接属于 FIRST(A), 为非终结符 B 时 FIRST(B) 流向 FIRST(A)
+     */
+    private void calcFirst() {
+        final var dependents = new EdgeList(nonTerminalCount);
+        for (final var production : productions) {
+            final var head = production.head().getOrdinal();
+            for (final var term : production.body()) {
+                if (term instanceof TokenKind) {
+                    first[head][term.getOrdinal() >>> 6] |= 1L << term.getOrdinal();
+                    break;
+                }
+
+                dependents.add(term.getOrdinal(), head);
+                if (!nullable[term.getOrdinal()]) {
+                    break;
+                }
+            }
+        }
+
+        propagate(first, dependents.toAdjacency());
+    }
+
+    /**
+     * 对 A -> α B β, FIRST(β) 属于 FOLLOW(B); 若 β 可空, 则 FOLLOW(A) 流向 FOLLOW(B)
+     */
+    private void calcFollow() {
+        final var eof = TokenKind.eof().getOrdinal();
+        follow[productions.get(0).head().getOrdinal()][eof >>> 6] |= 1L << eof;
+
+        final var dependents = new EdgeList(nonTerminalCount);
+        for (final var production : productions) {
+            final var head = production.head().getOrdinal();
+            final var body = production.body();
+
+            // 自后向前维护后缀的 FIRST 集合及其是否可空
+            final var suffixFirst = new long[words];
+            var suffixNullable = true;
+            for (int i = body.size() - 1; i >= 0; i--) {
+                final var term = body.get(i);
+                if (term instanceof TokenKind) {
+                    Arrays.fill(suffixFirst, 0);
+                    suffixFirst[term.getOrdinal() >>> 6] |= 1L << term.getOrdinal();
+                    suffixNullable = false;
+                    continue;
+                }
+
+                final var nonTerminal = term.getOrdinal();
+                or(follow[nonTerminal], suffixFirst);
+                if (suffixNullable) {
+                    dependents.add(head, nonTerminal);
+                }
+
+                if (!nullable[nonTerminal]) {
+                    Arrays.fill(suffixFirst, 0);
+                    suffixNullable = false;
+                }
+                or(suffixFirst, first[nonTerminal]);
+            }
+        }
+
+        propagate(follow, dependents.toAdjacency());
+    }
+
+    /**
+     * 沿依赖边把集合并入其后继, 直到不再变化
+     *
+     * @param sets       以非终结符序号为下标的集合
+     * @param dependents dependents[b] 为集合需要并入 sets[b] 的非终结符
+     */
+    private void propagate(long[][] sets, int[][] dependents) {
+        final var worklist = new int[nonTerminalCount];
+        final var inWorklist = new boolean[nonTerminalCount];
+        var top = 0;
+        for (int nonTerminal = 0; nonTerminal < nonTerminalCount; nonTerminal++) {
+            if (dependents[nonTerminal].length > 0) {
+                inWorklist[nonTerminal] = true;
+                worklist[top++] = nonTerminal;
+            }
+        }
+
+        while (top > 0) {
+            final var source = worklist[--top];
+            inWorklist[source] = false;
+            for (final var target : dependents[source]) {
+                if (or(sets[target], sets[source]) && !inWorklist[target]) {
+                    inWorklist[target] = true;
+                    worklist[top++] = target;
+                }
+            }
+        }
+    }
+
+    private Set<TokenKind> toSet(long[] bits) {
+        final var result = new LinkedHashSet<TokenKind>();
+        for (int t = 0; t < terminalCount; t++) {
+            if ((bits[t >>> 6] & (1L << t)) != 0) {
+                result.add(TokenKind.fromOrdinal(t));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * target |= source
+     *
+     * @return target 是否改变
+     */
+    private static boolean or(long[] target, long[] source) {
+        var changed = false;
+        for (int i = 0; i < source.length; i++) {
+            final var merged = target[i] | source[i];
+            if (merged != target[i]) {
+                target[i] = merged;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 以边表的形式收集有向边, 最后整理为邻接数组
+     */
+    private static class EdgeList {
+        EdgeList(int vertexCount) {
+            this.vertexCount = vertexCount;
+        }
+
+        void add(int from, int to) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            sources[size] = from;
+            targets[size] = to;
+            size++;
+        }
+
+        int[][] toAdjacency() {
+            final var degrees = new int[vertexCount];
+            for (int i = 0; i < size; i++) {
+                degrees[sources[i]]++;
+            }
+            final var result = new int[vertexCount][];
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                result[vertex] = new int[degrees[vertex]];
+                degrees[vertex] = 0;
+            }
+            for (int i = 0; i < size; i++) {
+                result[sources[i]][degrees[sources[i]]++] = targets[i];
+            }
+            return result;
+        }
+
+        private final int vertexCount;
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int size = 0;
+    }
+
+    private final List<Production> productions;
+    private final int terminalCount;
+    private final int nonTerminalCount;
+    private final int words;
+
+    // 以非终结符的序号为下标
+    private final boolean[] nullable;
+    private final long[][] first;
+    private final long[][] follow;
+}
@@ -13,12 +13,17 @@ import java.util.*;
  */
 public class GrammarInfo {
     private final Map<String, NonTerminal> nonTerminals = new HashMap<>();
+    private final List<NonTerminal> nonTerminalsInOrder = new ArrayList<>();
     private final Map<String, Production> productions = new HashMap<>();
     private final List<Production> productionsInOrder = new ArrayList<>();
 
     private NonTerminal getOrCreateNonTerminal(String name) {
-        nonTerminals.computeIfAbsent(name, NonTerminal::new);
-        return nonTerminals.get(name);
+        // 非终结符按其在语法文件中首次出现的顺序编号
+        return nonTerminals.computeIfAbsent(name, key -> {
+            final var nonTerminal = new NonTerminal(key, nonTerminalsInOrder.size());
+            nonTerminalsInOrder.add(nonTerminal);
+            return nonTerminal;
+        });
     }
 
     private GrammarInfo() {
@@ -70,6 +75,13 @@ public class GrammarInfo {
         return Collections.unmodifiableMap(getInstance().productions);
     }
 
+    /**
+     * @return 以序号为下标的全部非终结符
+     */
+    public static List<NonTerminal> getNonTerminalsInOrder() {
+        return Collections.unmodifiableList(getInstance().nonTerminalsInOrder);
+    }
+
     public static NonTerminal getNonTerminal(String name) {
         final var nonTerminals = getNonTerminals();
         if (!nonTerminals.containsKey(name)) {
@@ -0,0 +1,698 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * LALR(1) 与规范 LR(1) 项目集族及分析表的构造
+ * <br>
+ * 与 {@link TableGenerator} 中 SLR(1) 的实现不同, 这里的文法符号, 产生式与项目全部编码为整数:
+ * <ul>
+ *     <li>终结符 t 编码为其序号, 非终结符 n 编码为 终结符个数 + 其序号;</li>
+ *     <li>产生式按在列表中的位置编号, 并预先按产生式头建立索引, 求闭包时不必扫描全部产生式;</li>
+ *     <li>项目 (p, dot) 编码为 {@code itemBase[p] + dot}, 项目的后继就是编号加一;</li>
+ *     <li>展望符集合为以终结符序号为下标的 long[] 位集.</li>
+ * </ul>
+ * 状态只以其核 (按编号排序的核项目, LR(1) 模式下还包括各核项目的展望符) 表示与哈希, 闭包只在需要时临时求出.
+ * 闭包中以同一非终结符为头的非核项目总是具有相同的展望符, 所以闭包只需为每个非终结符维护一个展望符集合.
+ * <br>
+ * LALR(1) 模式先构造 LR(0) 项目集族, 再按龙书中的算法确定自发生成与传播的展望符, 并迭代传播至不动点.
+ * LR(1) 模式则直接以带展望符的核区分状态.
+ * <br>
+ * 给定线程池时, 项目集族按 BFS 的层次在线程池上并行展开, 状态的编号与顺序展开时相同.
+ */
+class LR1Automaton {
+    /**
+     * @param productions 产生式, 第一条必须为形如 S' -> S 的拓广产生式
+     * @param analysis    该文法的 nullable 与 FIRST 集合
+     * @param canonical   为 true 时构造规范 LR(1) 项目集族, 否则构造 LALR(1) 项目集族
+     * @param pool        并行展开项目集族所用的线程池, 为 null 时在当前线程中逐层展开
+     */
+    LR1Automaton(List<Production> productions, GrammarAnalysis analysis, boolean canonical, ForkJoinPool pool) {
+        this.productions = productions.toArray(Production[]::new);
+        this.pool = pool;
+        this.analysis = analysis;
+        this.terminalCount = TokenKind.count();
+        this.nonTerminalCount = analysis.getNonTerminalCount();
+        this.symbolCount = terminalCount + nonTerminalCount;
+        this.canonical = canonical;
+        // 多留一位作为 LALR(1) 求传播关系时的哑展望符 #
+        this.propagateBit = terminalCount;
+        this.words = (terminalCount + 1 + 63) / 64;
+
+        encodeGrammar();
+        encodeItems();
+    }
+
+    /**
+     * 构造项目集族与分析表
+     *
+     * @return 以编号为顺序的全部状态, 已填好 ACTION 与 GOTO 表项
+     * @throws RuntimeException 文法不是 LALR(1) 或 LR(1) 文法
+     */
+    List<Status> build() {
+        constructCollection();
+        if (!canonical) {
+            propagateLookaheads();
+        }
+        return genTable();
+    }
+
+    /**
+     * @return 各状态的核项目及其展望符, 用于调试
+     */
+    List<String> describeStates() {
+        final var lines = new ArrayList<String>();
+        for (int state = 0; state < kernels.size(); state++) {
+            lines.add("%d: ".formatted(state));
+            final var kernel = kernels.get(state);
+            for (int i = 0; i < kernel.length; i++) {
+                lines.add("    " + describeItem(kernel[i]) + ", " + describeLookahead(kernelLookaheads.get(state)[i]));
+            }
+        }
+        return lines;
+    }
+
+    //============================== 文法的编码 ==============================//
+
+    private void encodeGrammar() {
+        bodies = new int[productions.length][];
+        heads = new int[productions.length];
+        nonTerminals = new NonTerminal[nonTerminalCount];
+
+        final var countByHead = new int[nonTerminalCount];
+        for (int p = 0; p < productions.length; p++) {
+            final var production = productions[p];
+            heads[p] = production.head().getOrdinal();
+            nonTerminals[heads[p]] = production.head();
+            countByHead[heads[p]]++;
+
+            final var body = production.body();
+            bodies[p] = new int[body.size()];
+            for (int i = 0; i < body.size(); i++) {
+                final var term = body.get(i);
+                if (term instanceof NonTerminal nonTerminal) {
+                    bodies[p][i] = terminalCount + nonTerminal.getOrdinal();
+                    nonTerminals[nonTerminal.getOrdinal()] = nonTerminal;
+                } else {
+                    bodies[p][i] = term.getOrdinal();
+                }
+            }
+        }
+
+        productionsByHead = new int[nonTerminalCount][];
+        for (int n = 0; n < nonTerminalCount; n++) {
+            productionsByHead[n] = new int[countByHead[n]];
+            countByHead[n] = 0;
+        }
+        for (int p = 0; p < productions.length; p++) {
+            productionsByHead[heads[p]][countByHead[heads[p]]++] = p;
+        }
+    }
+
+    private void encodeItems() {
+        itemBase = new int[productions.length];
+        var itemCount = 0;
+        for (int p = 0; p < productions.length; p++) {
+            itemBase[p] = itemCount;
+            itemCount += bodies[p].length + 1;
+        }
+
+        itemProduction = new int[itemCount];
+        itemNext = new int[itemCount];
+        itemFollowFirst = new long[itemCount][];
+        itemFollowNullable = new boolean[itemCount];
+        for (int p = 0; p < productions.length; p++) {
+            final var body = productions[p].body();
+            for (int dot = 0; dot <= body.size(); dot++) {
+                final var item = itemBase[p] + dot;
+                itemProduction[item] = p;
+                itemNext[item] = dot < body.size() ? bodies[p][dot] : -1;
+                // 项目 A -> α . X β 需要的是 FIRST(β)
+                itemFollowFirst[item] = new long[words];
+                itemFollowNullable[item] = analysis.firstOf(body, dot + 1, itemFollowFirst[item]);
+            }
+        }
+    }
+
+    //============================== 项目集族 ==============================//
+
+    /**
+     * 状态的核: 按编号排序的核项目, 以及 (仅 LR(1) 模式下) 依次排列的各核项目的展望符
+     * <br>
+     * 相同的核在并发的哈希表中只保留一个实例, 状态的编号在每一层展开结束后按确定的顺序填入 {@link #state}
+     */
+    private static final class Kernel {
+        Kernel(int[] items, long[] key, long[][] lookaheads) {
+            this.items = items;
+            this.key = key;
+            this.lookaheads = lookaheads;
+            this.hash = 31 * Arrays.hashCode(items) + Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Kernel kernel
+                && hash == kernel.hash
+                && Arrays.equals(items, kernel.items)
+                && Arrays.equals(key, kernel.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private final int[] items;
+        private final long[] key;
+        private final long[][] lookaheads;
+        private final int hash;
+        private int state = -1;
+    }
+
+    private static final long[] NO_LOOKAHEAD = new long[0];
+
+    /**
+     * 每层并行展开时, 单个任务处理的状态数的下限
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 16;
+
+    private final List<int[]> kernels = new ArrayList<>();
+    private final List<long[][]> kernelLookaheads = new ArrayList<>();
+    private final List<int[]> transitions = new ArrayList<>();
+    private final Map<Kernel, Kernel> knownKernels = new ConcurrentHashMap<>();
+
+    /**
+     * 从拓广产生式的初始项目开始, 逐层构造全部状态及其转移
+     * <br>
+     * 每一层中各状态的后继核彼此独立, 可以在 fork-join 线程池上并行求出, 并通过并发哈希表去重;
+     * 随后按 "状态编号, 状态内符号出现的次序" 依次为新的核编号, 得到的编号与逐个状态 BFS 的结果完全相同
+     */
+    private void constructCollection() {
+        final var initLookahead = new long[words];
+        setBit(initLookahead, TokenKind.eof().getOrdinal());
+        final var init = canonicalize(new int[]{itemBase[0]}, new long[][]{initLookahead});
+        addState(init);
+
+        var levelBegin = 0;
+        while (levelBegin < kernels.size()) {
+            final var levelEnd = kernels.size();
+            final var successors = new Successors[levelEnd - levelBegin];
+            final var expand = new ExpandTask(levelBegin, levelEnd, successors, levelBegin);
+            if (pool == null || levelEnd - levelBegin <= SEQUENTIAL_THRESHOLD) {
+                expand.compute();
+            } else {
+                pool.invoke(expand);
+            }
+
+            for (int state = levelBegin; state < levelEnd; state++) {
+                final var row = transitions.get(state);
+                final var result = successors[state - levelBegin];
+                for (int i = 0; i < result.symbols.length; i++) {
+                    final var kernel = result.kernels[i];
+                    if (kernel.state < 0) {
+                        addState(kernel);
+                    }
+                    row[result.symbols[i]] = kernel.state;
+                }
+            }
+            levelBegin = levelEnd;
+        }
+    }
+
+    /**
+     * 一个状态经各文法符号转移后得到的核, 按符号在闭包中出现的次序排列
+     */
+    private record Successors(int[] symbols, Kernel[] kernels) {
+    }
+
+    /**
+     * 求出一层中编号在 [begin, end) 内的各状态的后继核
+     */
+    private class ExpandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param results    结果数组, 状态 state 的后继核存放在 results[state - levelBegin]
+         * @param levelBegin 本层第一个状态的编号
+         */
+        ExpandTask(int begin, int end, Successors[] results, int levelBegin) {
+            this.begin = begin;
+            this.end = end;
+            this.results = results;
+            this.levelBegin = levelBegin;
+        }
+
+        @Override
+        protected void compute() {
+            if (pool != null && end - begin > SEQUENTIAL_THRESHOLD) {
+                final var middle = (begin + end) >>> 1;
+                invokeAll(new ExpandTask(begin, middle, results, levelBegin),
+                    new ExpandTask(middle, end, results, levelBegin));
+                return;
+            }
+
+            final var workspace = workspaces.get();
+            for (int state = begin; state < end; state++) {
+                results[state - levelBegin] = workspace.successors(kernels.get(state), kernelLookaheads.get(state));
+            }
+        }
+
+        private final int begin;
+        private final int end;
+        private final Successors[] results;
+        private final int levelBegin;
+    }
+
+    /**
+     * @return 与给定的核相等的唯一实例
+     */
+    private Kernel canonicalize(int[] items, long[][] lookaheads) {
+        final var kernel = new Kernel(items, canonical ? flatten(lookaheads) : NO_LOOKAHEAD, lookaheads);
+        final var existing = knownKernels.putIfAbsent(kernel, kernel);
+        return existing == null ? kernel : existing;
+    }
+
+    private void addState(Kernel kernel) {
+        kernel.state = kernels.size();
+        kernels.add(kernel.items);
+        kernelLookaheads.add(kernel.lookaheads);
+        final var row = new int[symbolCount];
+        Arrays.fill(row, -1);
+        transitions.add(row);
+    }
+
+    private long[] flatten(long[][] lookaheads) {
+        final var result = new long[lookaheads.length * words];
+        for (int i = 0; i < lookaheads.length; i++) {
+            System.arraycopy(lookaheads[i], 0, result, i * words, words);
+        }
+        return result;
+    }
+
+    //============================== 闭包 ==============================//
+
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * 求闭包与后继核时复用的临时数组, 每个线程各有一份
+     */
+    private class Workspace {
+        // 闭包中的非终结符 (即以其为头的非核项目都在闭包中) 及其展望符
+        private final long[][] closureLookahead = new long[nonTerminalCount][words];
+        private final boolean[] inClosure = new boolean[nonTerminalCount];
+        private final boolean[] inWorklist = new boolean[nonTerminalCount];
+        private final int[] closureNonTerminals = new int[nonTerminalCount];
+        private int closureCount = 0;
+        private final int[] worklist = new int[nonTerminalCount];
+
+        // 闭包中的项目按点后的文法符号分组, 用于构造后继状态的核
+        private final int[][] bucketItems = new int[symbolCount][];
+        private final long[][][] bucketLookaheads = new long[symbolCount][][];
+        private final int[] bucketSizes = new int[symbolCount];
+        private final int[] touchedSymbols = new int[symbolCount];
+        private int touchedCount = 0;
+
+        /**
+         * 求核的 LR(1) 闭包, 结果存放在 closureNonTerminals 与 closureLookahead 中
+         *
+         * @param kernel     核项目
+         * @param lookaheads 各核项目的展望符
+         */
+        void closure(int[] kernel, long[][] lookaheads) {
+            for (int i = 0; i < closureCount; i++) {
+                final var nonTerminal = closureNonTerminals[i];
+                inClosure[nonTerminal] = false;
+                Arrays.fill(closureLookahead[nonTerminal], 0);
+            }
+            closureCount = 0;
+
+            var top = 0;
+            for (int i = 0; i < kernel.length; i++) {
+                top = expand(kernel[i], lookaheads[i], top);
+            }
+            while (top > 0) {
+                final var nonTerminal = worklist[--top];
+                inWorklist[nonTerminal] = false;
+                for (final var p : productionsByHead[nonTerminal]) {
+                    top = expand(itemBase[p], closureLookahead[nonTerminal], top);
+                }
+            }
+        }
+
+        /**
+         * 项目 [A -> α . B β, L] 使 B 进入闭包, 且 B 的展望符中加入 FIRST(β) 以及 (β 可空时的) L
+         *
+         * @return 工作表的新栈顶
+         */
+        private int expand(int item, long[] lookahead, int top) {
+            final var symbol = itemNext[item];
+            if (symbol < terminalCount) {
+                return top;
+            }
+
+            final var nonTerminal = symbol - terminalCount;
+            final var target = closureLookahead[nonTerminal];
+            var changed = or(target, itemFollowFirst[item]);
+            if (itemFollowNullable[item]) {
+                changed |= or(target, lookahead);
+            }
+            if (!inClosure[nonTerminal]) {
+                inClosure[nonTerminal] = true;
+                closureNonTerminals[closureCount++] = nonTerminal;
+                changed = true;
+            }
+            if (changed && !inWorklist[nonTerminal]) {
+                inWorklist[nonTerminal] = true;
+                worklist[top++] = nonTerminal;
+            }
+            return top;
+        }
+
+        /**
+         * 将刚求出的闭包中的各项目的后继项按点后的文法符号分组
+         */
+        void collectSuccessors(int[] kernel, long[][] lookaheads) {
+            for (int i = 0; i < touchedCount; i++) {
+                bucketSizes[touchedSymbols[i]] = 0;
+            }
+            touchedCount = 0;
+
+            for (int i = 0; i < kernel.length; i++) {
+                addToBucket(kernel[i], lookaheads[i]);
+            }
+            for (int i = 0; i < closureCount; i++) {
+                final var nonTerminal = closureNonTerminals[i];
+                for (final var p : productionsByHead[nonTerminal]) {
+                    addToBucket(itemBase[p], closureLookahead[nonTerminal]);
+                }
+            }
+        }
+
+        private void addToBucket(int item, long[] lookahead) {
+            final var symbol = itemNext[item];
+            if (symbol < 0) {
+                return;
+            }
+
+            if (bucketSizes[symbol] == 0) {
+                touchedSymbols[touchedCount++] = symbol;
+                if (bucketItems[symbol] == null) {
+                    bucketItems[symbol] = new int[4];
+                    bucketLookaheads[symbol] = new long[4][];
+                }
+            }
+            final var size = bucketSizes[symbol];
+            if (size == bucketItems[symbol].length) {
+                bucketItems[symbol] = Arrays.copyOf(bucketItems[symbol], size * 2);
+                bucketLookaheads[symbol] = Arrays.copyOf(bucketLookaheads[symbol], size * 2);
+            }
+            bucketItems[symbol][size] = item + 1;
+            bucketLookaheads[symbol][size] = lookahead;
+            bucketSizes[symbol] = size + 1;
+        }
+
+        /**
+         * @return 状态经各文法符号转移后得到的核, 均已在并发哈希表中去重
+         */
+        Successors successors(int[] kernel, long[][] lookaheads) {
+            closure(kernel, lookaheads);
+            collectSuccessors(kernel, lookaheads);
+
+            final var symbols = Arrays.copyOf(touchedSymbols, touchedCount);
+            final var result = new Kernel[touchedCount];
+            for (int i = 0; i < touchedCount; i++) {
+                result[i] = successorKernel(symbols[i]);
+            }
+            return new Successors(symbols, result);
+        }
+
+        /**
+         * 由闭包中点后为 symbol 的各项目构造后继状态的核
+         */
+        private Kernel successorKernel(int symbol) {
+            final var size = bucketSizes[symbol];
+            final var items = bucketItems[symbol];
+            final var lookaheads = bucketLookaheads[symbol];
+
+            // 按项目编号排序 (各项目互不相同, 数量很少, 插入排序即可)
+            for (int i = 1; i < size; i++) {
+                final var item = items[i];
+                final var lookahead = lookaheads[i];
+                var j = i - 1;
+                for (; j >= 0 && items[j] > item; j--) {
+                    items[j + 1] = items[j];
+                    lookaheads[j + 1] = lookaheads[j];
+                }
+                items[j + 1] = item;
+                lookaheads[j + 1] = lookahead;
+            }
+
+            final var kernelItems = Arrays.copyOf(items, size);
+            final var kernelLookahead = new long[size][];
+            for (int i = 0; i < size; i++) {
+                kernelLookahead[i] = canonical ? lookaheads[i].clone() : new long[words];
+            }
+            return canonicalize(kernelItems, kernelLookahead);
+        }
+    }
+
+    //============================== LALR(1) 展望符的传播 ==============================//
+
+    /**
+     * 对每个核项目 K 求 [K, #] 的闭包: 闭包中的项目移进后得到的核项目, 其展望符中除 # 以外的终结符是自发生成的,
+     * 而若含有 #, 则 K 的展望符都要传播给它. 随后沿传播关系迭代至不动点
+     */
+    private void propagateLookaheads() {
+        // 各状态的核项目在全局的编号从 kernelOffset[state] 开始
+        final var kernelOffset = new int[kernels.size() + 1];
+        for (int state = 0; state < kernels.size(); state++) {
+            kernelOffset[state + 1] = kernelOffset[state] + kernels.get(state).length;
+        }
+        final var edges = new int[kernelOffset[kernels.size()]][];
+        final var edgeCounts = new int[edges.length];
+
+        final var workspace = workspaces.get();
+        final var dummy = new long[words];
+        setBit(dummy, propagateBit);
+        final var single = new int[1];
+        final var singleLookahead = new long[][]{dummy};
+        for (int state = 0; state < kernels.size(); state++) {
+            final var kernel = kernels.get(state);
+            for (int i = 0; i < kernel.length; i++) {
+                single[0] = kernel[i];
+                workspace.closure(single, singleLookahead);
+                workspace.collectSuccessors(single, singleLookahead);
+
+                final var source = kernelOffset[state] + i;
+                for (int j = 0; j < workspace.touchedCount; j++) {
+                    final var symbol = workspace.touchedSymbols[j];
+                    final var target = transitions.get(state)[symbol];
+                    final var targetKernel = kernels.get(target);
+                    for (int k = 0; k < workspace.bucketSizes[symbol]; k++) {
+                        final var position = Arrays.binarySearch(targetKernel, workspace.bucketItems[symbol][k]);
+                        final var lookahead = workspace.bucketLookaheads[symbol][k];
+                        final var targetLookahead = kernelLookaheads.get(target)[position];
+                        // 自发生成的展望符
+                        or(targetLookahead, lookahead);
+                        clearBit(targetLookahead, propagateBit);
+                        if (testBit(lookahead, propagateBit)) {
+                            final var edge = kernelOffset[target] + position;
+                            if (edges[source] == null) {
+                                edges[source] = new int[2];
+                            } else if (edgeCounts[source] == edges[source].length) {
+                                edges[source] = Arrays.copyOf(edges[source], edgeCounts[source] * 2);
+                            }
+                            edges[source][edgeCounts[source]++] = edge;
+                        }
+                    }
+                }
+            }
+        }
+
+        // 全局编号到 (状态, 核项目位置) 的展望符
+        final var lookaheadOf = new long[edges.length][];
+        for (int state = 0; state < kernels.size(); state++) {
+            final var lookaheads = kernelLookaheads.get(state);
+            System.arraycopy(lookaheads, 0, lookaheadOf, kernelOffset[state], lookaheads.length);
+        }
+
+        final var pending = new boolean[edges.length];
+        final var queue = new int[edges.length];
+        var top = 0;
+        for (int source = 0; source < edges.length; source++) {
+            if (edgeCounts[source] > 0 && !isEmpty(lookaheadOf[source])) {
+                pending[source] = true;
+                queue[top++] = source;
+            }
+        }
+        while (top > 0) {
+            final var source = queue[--top];
+            pending[source] = false;
+            for (int i = 0; i < edgeCounts[source]; i++) {
+                final var target = edges[source][i];
+                if (or(lookaheadOf[target], lookaheadOf[source]) && edgeCounts[target] > 0 && !pending[target]) {
+                    pending[target] = true;
+                    queue[top++] = target;
+                }
+            }
+        }
+    }
+
+    //============================== 分析表 ==============================//
+
+    private List<Status> genTable() {
+        final var statuses = new ArrayList<Status>(kernels.size());
+        for (int state = 0; state < kernels.size(); state++) {
+            statuses.add(Status.create(state));
+        }
+
+        final var workspace = workspaces.get();
+        for (int state = 0; state < kernels.size(); state++) {
+            final var status = statuses.get(state);
+            final var kernel = kernels.get(state);
+            final var lookaheads = kernelLookaheads.get(state);
+            workspace.closure(kernel, lookaheads);
+
+            // 点在末尾的项目: 核项目, 以及产生式体为空的非核项目
+            for (int i = 0; i < kernel.length; i++) {
+                if (itemNext[kernel[i]] < 0) {
+                    setReduce(status, itemProduction[kernel[i]], lookaheads[i]);
+                }
+            }
+            for (int i = 0; i < workspace.closureCount; i++) {
+                final var nonTerminal = workspace.closureNonTerminals[i];
+                for (final var p : productionsByHead[nonTerminal]) {
+                    if (bodies[p].length == 0) {
+                        setReduce(status, p, workspace.closureLookahead[nonTerminal]);
+                    }
+                }
+            }
+
+            final var row = transitions.get(state);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                if (row[symbol] < 0) {
+                    continue;
+                }
+                final var target = statuses.get(row[symbol]);
+                if (symbol < terminalCount) {
+                    status.setAction(TokenKind.fromOrdinal(symbol), Action.shift(target));
+                } else {
+                    status.setGoto(nonTerminals[symbol - terminalCount], target);
+                }
+            }
+        }
+
+        return statuses;
+    }
+
+    private void setReduce(Status status, int production, long[] lookahead) {
+        if (production == 0) {
+            // S' -> S . 遇到 EOF 时接受
+            status.setAction(TokenKind.eof(), Action.accept());
+            return;
+        }
+
+        for (int t = 0; t < terminalCount; t++) {
+            if (testBit(lookahead, t)) {
+                status.setAction(TokenKind.fromOrdinal(t), Action.reduce(productions[production]));
+            }
+        }
+    }
+
+    //============================== 工具方法 ==============================//
+
+    private String describeItem(int item) {
+        final var production = itemProduction[item];
+        final var dot = item - itemBase[production];
+        final var builder = new StringBuilder().append(productions[production].head()).append(" ->");
+        final var body = productions[production].body();
+        for (int i = 0; i < body.size(); i++) {
+            builder.append(i == dot ? " . " : " ").append(body.get(i));
+        }
+        if (dot == body.size()) {
+            builder.append(" .");
+        }
+        return builder.toString();
+    }
+
+    private String describeLookahead(long[] lookahead) {
+        final var names = new ArrayList<String>();
+        for (int t = 0; t < terminalCount; t++) {
+            if (testBit(lookahead, t)) {
+                names.add(TokenKind.fromOrdinal(t).getIdentifier());
+            }
+        }
+        return String.join("/", names);
+    }
+
+    private static boolean setBit(long[] set, int bit) {
+        final var old = set[bit >>> 6];
+        set[bit >>> 6] = old | (1L << bit);
+        return set[bit >>> 6] != old;
+    }
+
+    private static void clearBit(long[] set, int bit) {
+        set[bit >>> 6] &= ~(1L << bit);
+    }
+
+    private static boolean testBit(long[] set, int bit) {
+        return (set[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static boolean isEmpty(long[] set) {
+        for (final var word : set) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * target |= source
+     *
+     * @return target 是否改变
+     */
+    private static boolean or(long[] target, long[] source) {
+        var changed = false;
+        for (int i = 0; i < source.length; i++) {
+            final var merged = target[i] | source[i];
+            if (merged != target[i]) {
+                target[i] = merged;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private final Production[] productions;
+    private final GrammarAnalysis analysis;
+    private final int terminalCount;
+    private final int nonTerminalCount;
+    private final int symbolCount;
+    private final boolean canonical;
+    private final ForkJoinPool pool;
+    private final int propagateBit;
+    private final int words;
+
+    // 以产生式位置为下标
+    private int[][] bodies;
+    private int[] heads;
+    private int[][] productionsByHead;
+    private NonTerminal[] nonTerminals;
+
+    // 以项目编号为下标
+    private int[] itemBase;
+    private int[] itemProduction;
+    private int[] itemNext;
+    private long[][] itemFollowFirst;
+    private boolean[] itemFollowNullable;
+}
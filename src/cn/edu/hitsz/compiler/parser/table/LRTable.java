@@ -42,6 +42,20 @@ public class LRTable {
         return statusInIndexOrder.get(0);
     }
 
+    /**
+     * @return 编译为稠密整数矩阵的分析表, 供 {@link cn.edu.hitsz.compiler.parser.SyntaxAnalyzer} 的快速驱动使用
+     */
+    public CompiledLRTable compile() {
+        return CompiledLRTable.compile(this);
+    }
+
+    /**
+     * @return 以默认规约与行位移压缩存储的分析表, 适用于状态数很多的文法
+     */
+    public CompressedLRTable compress() {
+        return CompressedLRTable.compress(compile());
+    }
+
     public void dumpTable(String path) {
         final var text = new StringBuilder();
         // table head
@@ -76,6 +90,18 @@ public class LRTable {
         }
     }
 
+    List<Status> getStatusInIndexOrder() {
+        return statusInIndexOrder;
+    }
+
+    List<TokenKind> getTerminals() {
+        return terminals;
+    }
+
+    List<NonTerminal> getNonTerminals() {
+        return nonTerminals;
+    }
+
     LRTable(List<Status> statusInIndexOrder, List<TokenKind> terminals, List<NonTerminal> nonTerminals) {
         this.statusInIndexOrder = statusInIndexOrder;
         this.terminals = terminals;
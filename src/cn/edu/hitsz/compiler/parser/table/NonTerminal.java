@@ -2,10 +2,17 @@ package cn.edu.hitsz.compiler.parser.table;
 
 /**
  * 表示文法符号中的非终结符, 你不应该修改此文件
+ * <br>
+ * 非终结符应当由其所属文法统一构造 (参见 {@link GrammarInfo#getNonTerminal(String)}), 以保证同名的非终结符是同一个对象,
+ * 且序号在该文法中稠密.
  */
 public class NonTerminal extends Term {
-    public NonTerminal(String id) {
-        super(id);
+    /**
+     * @param id      非终结符的名字
+     * @param ordinal 非终结符在其所属文法中的序号
+     */
+    public NonTerminal(String id, int ordinal) {
+        super(id, ordinal);
     }
 
     @Override
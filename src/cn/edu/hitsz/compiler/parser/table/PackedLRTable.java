@@ -0,0 +1,166 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+/**
+ * 以整数编码的 LR 分析表
+ * <br>
+ * 状态, 终结符与非终结符均以整数表示: 状态为其编号, 文法符号为其序号. ACTION 表项的低 2 位为动作类型
+ * ({@link #ERROR}, {@link #SHIFT}, {@link #REDUCE}, {@link #ACCEPT}), 其余各位为动作的载荷:
+ * 移入时为目标状态的编号, 规约时为产生式的索引. GOTO 表项为目标状态的编号, -1 表示错误.
+ * <br>
+ * 子类只决定两张表的存储方式, 驱动程序 {@link cn.edu.hitsz.compiler.parser.SyntaxAnalyzer} 只通过该类的接口查表.
+ *
+ * @see CompiledLRTable
+ * @see CompressedLRTable
+ * @see UnitBypassLRTable
+ */
+public abstract class PackedLRTable {
+    public static final int ERROR = 0;
+    public static final int SHIFT = 1;
+    public static final int REDUCE = 2;
+    public static final int ACCEPT = 3;
+
+    /**
+     * @param cell ACTION 表项
+     * @return 动作类型
+     */
+    public static int kindOf(int cell) {
+        return cell & 0b11;
+    }
+
+    /**
+     * @param cell ACTION 表项
+     * @return 动作的载荷: 移入的目标状态编号或规约的产生式索引
+     */
+    public static int payloadOf(int cell) {
+        return cell >>> 2;
+    }
+
+    /**
+     * @param kind    动作类型
+     * @param payload 动作的载荷
+     * @return 编码后的 ACTION 表项
+     */
+    public static int encode(int kind, int payload) {
+        return (payload << 2) | kind;
+    }
+
+    /**
+     * @param state    状态编号
+     * @param terminal 终结符的序号
+     * @return 编码后的 ACTION 表项
+     */
+    public abstract int action(int state, int terminal);
+
+    /**
+     * @param state       状态编号
+     * @param nonTerminal 非终结符的序号
+     * @return 目标状态编号, -1 表示错误
+     */
+    public abstract int goto_(int state, int nonTerminal);
+
+    /**
+     * @return 两张表所占用的字节数 (不含状态与产生式对象)
+     */
+    public abstract long footprint();
+
+    /**
+     * @param state       规约后栈顶的状态
+     * @param nonTerminal 规约出的非终结符的序号
+     * @return 该 GOTO 表项越过的单产生式链, 格式见 {@link UnitBypassLRTable#getUnitChain(int, int)}; 未越过时为 null
+     */
+    public int[] getUnitChain(int state, int nonTerminal) {
+        return null;
+    }
+
+    /**
+     * @return 越过单产生式规约的分析表
+     * @see UnitBypassLRTable
+     */
+    public UnitBypassLRTable bypassUnitReductions() {
+        return UnitBypassLRTable.bypass(this);
+    }
+
+    /**
+     * @return 起始状态的编号
+     */
+    public int getInitIndex() {
+        return initIndex;
+    }
+
+    /**
+     * @param state 状态编号
+     * @return 对应的状态对象, 供通知观察者时使用
+     */
+    public Status getStatus(int state) {
+        return statuses[state];
+    }
+
+    /**
+     * @param index 产生式索引
+     * @return 对应的产生式
+     */
+    public Production getProduction(int index) {
+        return productions[index];
+    }
+
+    /**
+     * @return 产生式索引的上界; 未出现在规约动作中的产生式 (如拓广产生式) 对应的 {@link #getProduction(int)} 为 null
+     */
+    public int getProductionCount() {
+        return productions.length;
+    }
+
+    /**
+     * @param index 产生式索引
+     * @return 产生式体的长度, 即规约时需要弹出的状态数
+     */
+    public int getProductionLength(int index) {
+        return productionLengths[index];
+    }
+
+    /**
+     * @param index 产生式索引
+     * @return 产生式头的序号
+     */
+    public int getProductionHead(int index) {
+        return productionHeads[index];
+    }
+
+    public int getStateCount() {
+        return statuses.length;
+    }
+
+    public int getTerminalCount() {
+        return terminalCount;
+    }
+
+    public int getNonTerminalCount() {
+        return nonTerminalCount;
+    }
+
+    PackedLRTable(PackedLRTable other) {
+        this(other.statuses, other.initIndex, other.terminalCount, other.nonTerminalCount,
+            other.productions, other.productionLengths, other.productionHeads);
+    }
+
+    PackedLRTable(Status[] statuses, int initIndex, int terminalCount, int nonTerminalCount,
+                  Production[] productions, int[] productionLengths, int[] productionHeads) {
+        this.statuses = statuses;
+        this.initIndex = initIndex;
+        this.terminalCount = terminalCount;
+        this.nonTerminalCount = nonTerminalCount;
+        this.productions = productions;
+        this.productionLengths = productionLengths;
+        this.productionHeads = productionHeads;
+    }
+
+    final Status[] statuses;
+    final int initIndex;
+    final int terminalCount;
+    final int nonTerminalCount;
+
+    // 以产生式索引为下标的产生式信息
+    final Production[] productions;
+    final int[] productionLengths;
+    final int[] productionHeads;
+}
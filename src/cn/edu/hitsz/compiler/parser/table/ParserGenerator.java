@@ -0,0 +1,349 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 根据 LR 分析表生成专用语法分析器的 Java 源代码
+ * <br>
+ * 生成的类继承自 {@link cn.edu.hitsz.compiler.parser.AbstractSyntaxAnalyzer}, ACTION/GOTO 表与产生式信息以 {@code static final} 数组的形式内嵌其中,
+ * 并实现 {@code parse()} 为直接读取这些数组的驱动程序. 使用生成的类时不需要读取 LR1_table.csv.
+ * 类在初始化时从码点文件与 {@link GrammarInfo} 取得各文法符号与产生式, 使观察者收到的对象与其它驱动程序相同,
+ * 并检查它们的序号与内容与生成时一致.
+ * <br>
+ * 生成的驱动程序只实现基本的 LR 分析, 没有 {@link cn.edu.hitsz.compiler.parser.SyntaxAnalyzer} 加载分析表,
+ * 表达式子分析器与状态栈折叠等方法, 与之共用的只有观察者的注册与事件分发.
+ * <br>
+ * 表项的编码方式与 {@link PackedLRTable} 相同. 为了不受单个方法 64KB 字节码的限制, 各整数数组以游程编码压缩成字符串常量,
+ * 在类初始化时解码, 这也是 JFlex 等工具采用的做法.
+ * <br>
+ * 作为程序运行时, 第一个参数为输出路径 (默认为 {@link #DEFAULT_OUTPUT_PATH}); 若带有 {@code --generate} 参数,
+ * 则使用 {@link TableGenerator} 从 grammar.txt 构造分析表, 否则读取 LR1_table.csv.
+ */
+public class ParserGenerator {
+    public static final String DEFAULT_PACKAGE = "cn.edu.hitsz.compiler.parser";
+    public static final String DEFAULT_CLASS_NAME = "GeneratedSyntaxAnalyzer";
+    public static final String DEFAULT_OUTPUT_PATH = "src/cn/edu/hitsz/compiler/parser/GeneratedSyntaxAnalyzer.java";
+
+    // 每个字符串常量的最大长度. 以修改后的 UTF-8 编码时每个字符至多占 3 字节, 不会超过常量池 65535 字节的限制
+    private static final int CHUNK_LENGTH = 16000;
+    private static final int LINE_LENGTH = 16;
+
+    public static void main(String[] args) {
+        var output = DEFAULT_OUTPUT_PATH;
+        var generate = false;
+        for (final var arg : args) {
+            if (arg.equals("--generate")) {
+                generate = true;
+            } else {
+                output = arg;
+            }
+        }
+
+        TokenKind.loadTokenKinds();
+        final LRTable table;
+        if (generate) {
+            final var tableGenerator = new TableGenerator();
+            tableGenerator.run();
+            table = tableGenerator.getTable();
+        } else {
+            table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        }
+
+        new ParserGenerator(table, GrammarInfo.getProductionsInOrder(), GrammarInfo.getBeginProduction())
+            .write(output, DEFAULT_PACKAGE, DEFAULT_CLASS_NAME);
+    }
+
+    /**
+     * @param table           LR 分析表
+     * @param productions     文法的全部产生式
+     * @param beginProduction 起始产生式, 接受时由 ProductionCollector 记录
+     */
+    public ParserGenerator(LRTable table, List<Production> productions, Production beginProduction) {
+        this.table = table.compile();
+        this.productions = productions;
+        this.beginProduction = beginProduction;
+    }
+
+    /**
+     * 生成源代码并写入文件
+     *
+     * @param path        输出路径
+     * @param packageName 生成的类所在的包
+     * @param className   生成的类名
+     */
+    public void write(String path, String packageName, String className) {
+        FileUtils.writeFile(path, generate(packageName, className));
+    }
+
+    /**
+     * @param packageName 生成的类所在的包
+     * @param className   生成的类名
+     * @return 生成的源代码
+     */
+    public String generate(String packageName, String className) {
+        final var stateCount = table.getStateCount();
+        final var terminalCount = table.getTerminalCount();
+        final var nonTerminalCount = table.getNonTerminalCount();
+
+        final var actions = new int[stateCount * terminalCount];
+        final var gotos = new int[stateCount * nonTerminalCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int terminal = 0; terminal < terminalCount; terminal++) {
+                actions[state * terminalCount + terminal] = table.action(state, terminal);
+            }
+            for (int nonTerminal = 0; nonTerminal < nonTerminalCount; nonTerminal++) {
+                gotos[state * nonTerminalCount + nonTerminal] = table.goto_(state, nonTerminal);
+            }
+        }
+
+        // 非终结符的名字以序号为下标
+        final var nonTerminalNames = new String[nonTerminalCount];
+        // 产生式依次编码为: 索引, 产生式头的序号, 产生式体的长度, 产生式体中各文法符号 (终结符为其序号 t, 非终结符为 -1 - 其序号)
+        final var productionInts = new ArrayList<Integer>();
+        var maxIndex = 0;
+        for (final var production : productions) {
+            nonTerminalNames[production.head().getOrdinal()] = production.head().getTermName();
+            productionInts.add(production.index());
+            productionInts.add(production.head().getOrdinal());
+            productionInts.add(production.body().size());
+            for (final var term : production.body()) {
+                if (term instanceof NonTerminal nonTerminal) {
+                    nonTerminalNames[nonTerminal.getOrdinal()] = nonTerminal.getTermName();
+                    productionInts.add(-1 - nonTerminal.getOrdinal());
+                } else {
+                    productionInts.add(term.getOrdinal());
+                }
+            }
+            maxIndex = Math.max(maxIndex, production.index());
+        }
+        final var productionArray = productionInts.stream().mapToInt(Integer::intValue).toArray();
+
+        final var terminalNames = new String[terminalCount];
+        for (int ordinal = 0; ordinal < terminalCount; ordinal++) {
+            terminalNames[ordinal] = TokenKind.fromOrdinal(ordinal).getIdentifier();
+        }
+
+        final var builder = new StringBuilder();
+        builder.append("""
+            // 该文件由 %s 根据 LR 分析表自动生成, 请勿手动修改
+            package %s;
+
+            import cn.edu.hitsz.compiler.lexer.TokenKind;
+            import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+            import cn.edu.hitsz.compiler.parser.table.NonTerminal;
+            import cn.edu.hitsz.compiler.parser.table.Production;
+            import cn.edu.hitsz.compiler.parser.table.Status;
+            import cn.edu.hitsz.compiler.parser.table.Term;
+            import cn.edu.hitsz.compiler.symtab.SymbolStore;
+
+            import java.util.Arrays;
+
+            /**
+             * 内嵌 LR 分析表的专用语法分析器, 共 %d 个状态, %d 个终结符, %d 个非终结符, %d 条产生式
+             * <br>
+             * 不需要读取分析表, 但码点文件与语法文件必须与生成时一致. 文法符号与产生式取自 {@link GrammarInfo}, 与其它驱动程序收到的是同一对象.
+             * 通知观察者时传入的状态对象只带有编号, 不带有 ACTION/GOTO 表项.
+             */
+            public class %s extends AbstractSyntaxAnalyzer {
+            """.formatted(ParserGenerator.class.getName(), packageName,
+            stateCount, terminalCount, nonTerminalCount, productions.size(), className));
+
+        builder.append("    private static final int INIT = ").append(table.getInitIndex()).append(";\n");
+        builder.append("    private static final int TERMINAL_COUNT = ").append(terminalCount).append(";\n");
+        builder.append("    private static final int NON_TERMINAL_COUNT = ").append(nonTerminalCount).append(";\n");
+        builder.append("    private static final int BEGIN_PRODUCTION = ").append(beginProduction.index()).append(";\n\n");
+        appendStrings(builder, "TERMINALS", terminalNames);
+        appendStrings(builder, "NON_TERMINALS", nonTerminalNames);
+        appendInts(builder, "ACTION", actions);
+        appendInts(builder, "GOTO", gotos);
+        appendInts(builder, "PRODUCTION_DATA", productionArray);
+
+        builder.append("""
+                // 以下数组均以产生式索引为下标
+                private static final Production[] PRODUCTIONS = new Production[%d];
+                private static final int[] PRODUCTION_LENGTH = new int[%d];
+                private static final int[] PRODUCTION_HEAD = new int[%d];
+                private static final Status[] STATUSES = new Status[%d];
+
+                static {
+                    for (int ordinal = 0; ordinal < TERMINAL_COUNT; ordinal++) {
+                        if (ordinal >= TokenKind.count() || !TokenKind.fromOrdinal(ordinal).getIdentifier().equals(TERMINALS[ordinal])) {
+                            throw new RuntimeException("Token kinds do not match the generated parser, regenerate it");
+                        }
+                    }
+
+                    final var nonTerminals = new NonTerminal[NON_TERMINAL_COUNT];
+                    for (int ordinal = 0; ordinal < NON_TERMINAL_COUNT; ordinal++) {
+                        nonTerminals[ordinal] = GrammarInfo.getNonTerminal(NON_TERMINALS[ordinal]);
+                        if (nonTerminals[ordinal].getOrdinal() != ordinal) {
+                            throw new RuntimeException("Grammar does not match the generated parser, regenerate it");
+                        }
+                    }
+
+                    final var productions = GrammarInfo.getProductionsInOrder();
+                    for (int i = 0; i < PRODUCTION_DATA.length; ) {
+                        final var index = PRODUCTION_DATA[i++];
+                        final var head = PRODUCTION_DATA[i++];
+                        final var length = PRODUCTION_DATA[i++];
+                        final var production = productions.stream().filter(p -> p.index() == index).findFirst()
+                            .orElseThrow(() -> new RuntimeException("Grammar does not match the generated parser, regenerate it"));
+                        var matches = production.head() == nonTerminals[head] && production.body().size() == length;
+                        for (int j = 0; j < length; j++) {
+                            final var term = PRODUCTION_DATA[i++];
+                            final Term expected = term >= 0 ? TokenKind.fromOrdinal(term) : nonTerminals[-1 - term];
+                            matches = matches && production.body().get(j).equals(expected);
+                        }
+                        if (!matches) {
+                            throw new RuntimeException("Grammar does not match the generated parser, regenerate it");
+                        }
+                        PRODUCTIONS[index] = production;
+                        PRODUCTION_LENGTH[index] = length;
+                        PRODUCTION_HEAD[index] = head;
+                    }
+
+                    for (int state = 0; state < STATUSES.length; state++) {
+                        STATUSES[state] = Status.create(state);
+                    }
+                }
+
+                // 状态栈, 在多次分析之间复用
+                private int[] stack = new int[64];
+
+                public %s(SymbolStore symbolTable) {
+                    super(symbolTable);
+                }
+
+                /**
+                 * @return 起始产生式
+                 */
+                public static Production getBeginProduction() {
+                    return PRODUCTIONS[BEGIN_PRODUCTION];
+                }
+
+                @Override
+                protected void parse() {
+                    final var tokens = getTokenInput();
+                    final var notify = hasObservers();
+                    var stack = this.stack;
+                    var top = 0;
+                    stack[0] = INIT;
+
+                    while (true) {
+                        final var state = stack[top];
+                        final var cell = ACTION[state * TERMINAL_COUNT + tokens.peekKind().getOrdinal()];
+                        final var payload = cell >>> 2;
+                        switch (cell & 0b11) {
+                            case %d -> {
+                                if (notify) {
+                                    callWhenInShift(STATUSES[state], tokens.peek());
+                                }
+                                tokens.skip();
+                                if (++top == stack.length) {
+                                    stack = this.stack = Arrays.copyOf(stack, top * 2);
+                                }
+                                stack[top] = payload;
+                            }
+                            case %d -> {
+                                top -= PRODUCTION_LENGTH[payload];
+                                final var next = GOTO[stack[top] * NON_TERMINAL_COUNT + PRODUCTION_HEAD[payload]];
+                                if (next < 0) {
+                                    throw new RuntimeException("LR分析失败: 分析表中缺少对应的 Goto 表项");
+                                }
+                                if (++top == stack.length) {
+                                    stack = this.stack = Arrays.copyOf(stack, top * 2);
+                                }
+                                stack[top] = next;
+                                if (notify) {
+                                    callWhenInReduce(STATUSES[next], PRODUCTIONS[payload]);
+                                }
+                            }
+                            case %d -> {
+                                if (notify) {
+                                    callWhenInAccept(STATUSES[state]);
+                                }
+                                return;
+                            }
+                            default -> throw new RuntimeException("LR分析失败: 输入符号可能有误");
+                        }
+                    }
+                }
+
+                /**
+                 * 解码游程编码的整数数组: 每三个字符依次为重复次数, 值的高 16 位与低 16 位
+                 */
+                private static int[] unpack(int length, String... chunks) {
+                    final var result = new int[length];
+                    var position = 0;
+                    for (final var chunk : chunks) {
+                        for (int i = 0; i < chunk.length(); i += 3) {
+                            final var count = chunk.charAt(i);
+                            final var value = (chunk.charAt(i + 1) << 16) | chunk.charAt(i + 2);
+                            Arrays.fill(result, position, position + count, value);
+                            position += count;
+                        }
+                    }
+                    return result;
+                }
+            }
+            """.formatted(maxIndex + 1, maxIndex + 1, maxIndex + 1, stateCount, className,
+            PackedLRTable.SHIFT, PackedLRTable.REDUCE, PackedLRTable.ACCEPT));
+        return builder.toString();
+    }
+
+    private static void appendStrings(StringBuilder builder, String name, String[] values) {
+        builder.append("    private static final String[] ").append(name).append(" = {")
+            .append(Arrays.stream(values).map(ParserGenerator::quote).collect(Collectors.joining(", ")))
+            .append("};\n");
+    }
+
+    /**
+     * 以游程编码将整数数组写成字符串常量, 每三个字符依次为重复次数, 值的高 16 位与低 16 位
+     */
+    private static void appendInts(StringBuilder builder, String name, int[] values) {
+        final var encoded = new StringBuilder();
+        for (int i = 0; i < values.length; ) {
+            var count = 1;
+            while (i + count < values.length && values[i + count] == values[i] && count < Character.MAX_VALUE) {
+                count++;
+            }
+            encoded.append((char) count).append((char) (values[i] >>> 16)).append((char) (values[i] & 0xFFFF));
+            i += count;
+        }
+
+        builder.append("    private static final int[] ").append(name).append(" = unpack(").append(values.length);
+        for (int chunk = 0; chunk < encoded.length(); chunk += CHUNK_LENGTH) {
+            final var end = Math.min(encoded.length(), chunk + CHUNK_LENGTH);
+            builder.append(",\n        \"");
+            for (int i = chunk; i < end; i++) {
+                if (i > chunk && (i - chunk) % (LINE_LENGTH * 3) == 0) {
+                    builder.append("\" +\n        \"");
+                }
+                builder.append(escape(encoded.charAt(i)));
+            }
+            builder.append('"');
+        }
+        builder.append(");\n\n");
+    }
+
+    /**
+     * 编译器在词法分析之前就会处理 Unicode 转义, 所以换行符, 引号与反斜杠不能写成 Unicode 转义, 这里对较小的字符统一使用八进制转义
+     */
+    private static String escape(char c) {
+        return c < 0x100 ? "\\%03o".formatted((int) c) : "\\u%04x".formatted((int) c);
+    }
+
+    private static String quote(String text) {
+        return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private final CompiledLRTable table;
+    private final List<Production> productions;
+    private final Production beginProduction;
+}
@@ -3,19 +3,17 @@ package cn.edu.hitsz.compiler.parser.table;
 import cn.edu.hitsz.compiler.lexer.Token;
 import cn.edu.hitsz.compiler.lexer.TokenKind;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * 表示 LR 分析表中的一个状态, 你不应该修改此文件
  * <br>
  * 状态的等价性由其编号唯一决定. 即两状态 equals 当且仅当它们的 index 相同
- *
- * @param index  状态在 LR 表中的索引/编号
- * @param action 在该状态下遇到终结符后应该转移到哪个状态
- * @param goto_  在该状态下规约到非终结符后应该转移到哪个状态
+ * <br>
+ * ACTION 与 GOTO 表项分别存放在以终结符序号与非终结符序号为下标的数组中 (参见 {@link Term#getOrdinal()}),
+ * 查表时不需要对文法符号做哈希.
  */
-public record Status(int index, Map<TokenKind, Action> action, Map<NonTerminal, Status> goto_) {
+public final class Status {
     /**
      * 构造一个状态
      *
@@ -37,6 +35,13 @@ public record Status(int index, Map<TokenKind, Action> action, Map<NonTerminal,
         return errorInstance;
     }
 
+    /**
+     * @return 状态在 LR 表中的索引/编号
+     */
+    public int index() {
+        return index;
+    }
+
     public boolean isError() {
         return this == errorInstance;
     }
@@ -64,7 +69,9 @@ public record Status(int index, Map<TokenKind, Action> action, Map<NonTerminal,
      * @return 应该转移到的状态
      */
     public Action getAction(TokenKind terminal) {
-        return action.getOrDefault(terminal, Action.error());
+        final var ordinal = terminal.getOrdinal();
+        final var result = ordinal < action.length ? action[ordinal] : null;
+        return result == null ? Action.error() : result;
     }
 
     /**
@@ -84,36 +91,57 @@ public record Status(int index, Map<TokenKind, Action> action, Map<NonTerminal,
      * @return 应该转移到的状态
      */
     public Status getGoto(NonTerminal nonTerminal) {
-        return goto_.getOrDefault(nonTerminal, Status.error());
+        final var ordinal = nonTerminal.getOrdinal();
+        final var result = ordinal < goto_.length ? goto_[ordinal] : null;
+        return result == null ? Status.error() : result;
     }
 
     //==================== 以下为实现相关代码 ==============================//
 
     void setAction(TokenKind terminal, Action action) {
+        final var ordinal = terminal.getOrdinal();
+        if (ordinal >= this.action.length) {
+            this.action = Arrays.copyOf(this.action, ordinal + 1);
+        }
+
         // 有可能 set 相同的 action, 这时候不能报错
-        if (inAndNotEqual(this.action, terminal, action)) {
+        if (inAndNotEqual(this.action[ordinal], action)) {
             throw new RuntimeException("Action conflict at %s on %d".formatted(terminal, index));
         }
 
-        this.action.put(terminal, action);
+        this.action[ordinal] = action;
     }
 
     void setGoto(NonTerminal nonTerminal, Status goto_) {
+        final var ordinal = nonTerminal.getOrdinal();
+        if (ordinal >= this.goto_.length) {
+            this.goto_ = Arrays.copyOf(this.goto_, ordinal + 1);
+        }
+
         // 有可能 set 相同的 goto, 这时候不能报错
-        if (inAndNotEqual(this.goto_, nonTerminal, goto_)) {
+        if (inAndNotEqual(this.goto_[ordinal], goto_)) {
             throw new RuntimeException("Goto conflict at %s on %d".formatted(nonTerminal, index));
         }
 
-        this.goto_.put(nonTerminal, goto_);
+        this.goto_[ordinal] = goto_;
     }
 
-    private static <K, V> boolean inAndNotEqual(Map<K, V> map, K key, V newValue) {
-        return map.containsKey(key) && !newValue.equals(map.get(key));
+    private static <V> boolean inAndNotEqual(V oldValue, V newValue) {
+        return oldValue != null && !newValue.equals(oldValue);
     }
 
     private Status(int index) {
-        this(index, new HashMap<>(), new HashMap<>());
+        this.index = index;
+        this.action = new Action[TokenKind.count()];
+        this.goto_ = new Status[0];
     }
 
     private static final Status errorInstance = new Status(-1);
+
+    /** 状态在 LR 表中的索引/编号 */
+    private final int index;
+    /** 在该状态下遇到终结符后应该采取的动作, 以终结符序号为下标, null 表示错误 */
+    private Action[] action;
+    /** 在该状态下规约到非终结符后应该转移到哪个状态, 以非终结符序号为下标, null 表示错误 */
+    private Status[] goto_;
 }
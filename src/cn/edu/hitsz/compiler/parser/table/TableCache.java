@@ -0,0 +1,282 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * LR 分析表的磁盘缓存
+ * <br>
+ * 分析表以紧凑的二进制格式保存, 文件名中带有缓存的名字与输入文件 (默认为 grammar.txt 与 coding_map.csv) 内容的 SHA-256 摘要.
+ * 输入文件不变时直接映射缓存文件并还原分析表, 不再重新计算 FIRST/FOLLOW 与规范项集族, 也不必解析 CSV;
+ * 输入文件改变后摘要随之改变, 缓存自然失效, 重新构造的分析表会被写回, 同名的旧缓存文件随即被删除.
+ * <br>
+ * 写入时先写到同一目录下的临时文件, 再以原子移动替换目标文件, 所以并发运行的其它进程要么看不到缓存, 要么看到完整的缓存.
+ * 缓存文件损坏或格式不符时视为未命中.
+ * <br>
+ * 文件格式 (大端序):
+ * <pre>
+ *     int 魔数, int 版本, byte[32] 摘要, int 状态数
+ *     int 终结符个数, 各终结符的名字; int 非终结符个数, 各非终结符的名字 (名字为 short 长度 + UTF-8 字节)
+ *     int[状态数 * 终结符个数] ACTION 表, 编码方式与 {@link PackedLRTable} 相同, 列按上面终结符的顺序排列
+ *     int[状态数 * 非终结符个数] GOTO 表, -1 表示错误
+ * </pre>
+ */
+public class TableCache {
+    private static final int MAGIC = 0x4C525443; // "LRTC"
+    // 文件格式或 TableGenerator 构造出的分析表改变时须增加版本号, 版本号也参与摘要, 旧的缓存因此失效
+    // 2: FOLLOW 集不再含有多余的 $, SLR 分析表少了相应的规约表项
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".lrt";
+
+    /**
+     * @return 以 grammar.txt 与 coding_map.csv 为键, 缓存由默认模式的 {@link TableGenerator} 构造的分析表
+     */
+    public static TableCache forGrammar() {
+        return forGrammar(TableGenerator.Mode.SLR);
+    }
+
+    /**
+     * @param mode 分析表的种类, 不同种类的分析表分别缓存
+     * @return 以 grammar.txt 与 coding_map.csv 为键, 缓存由给定模式的 {@link TableGenerator} 构造的分析表
+     */
+    public static TableCache forGrammar(TableGenerator.Mode mode) {
+        return new TableCache(FilePathConfig.TABLE_CACHE_DIR, "generated-" + mode.name().toLowerCase(),
+            FilePathConfig.GRAMMAR_PATH, FilePathConfig.CODING_MAP_PATH);
+    }
+
+    /**
+     * @param directory  缓存目录
+     * @param name       缓存的名字, 同一目录下同名的缓存只保留最新的一个. 名字也是缓存的键的一部分
+     * @param inputPaths 分析表所依赖的输入文件, 其内容共同决定缓存的键
+     */
+    public TableCache(String directory, String name, String... inputPaths) {
+        this.directory = Paths.get(directory);
+        this.name = name;
+        this.key = digest(name, inputPaths);
+        this.path = this.directory.resolve(name + "-" + HexFormat.of().formatHex(key) + SUFFIX);
+    }
+
+    /**
+     * 读取缓存, 未命中时构造分析表并写入缓存
+     *
+     * @param builder 构造分析表的方法
+     * @return 分析表
+     */
+    public LRTable getOrBuild(Supplier<LRTable> builder) {
+        return load().orElseGet(() -> {
+            final var table = builder.get();
+            store(table);
+            return table;
+        });
+    }
+
+    /**
+     * @return 缓存中的分析表; 缓存不存在, 已过期或已损坏时返回 empty
+     */
+    public Optional<LRTable> load() {
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        try (final var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return Optional.ofNullable(read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+        } catch (IOException | RuntimeException e) {
+            // 缓存文件残缺或与当前的码点文件, 语法文件不一致, 当作未命中处理
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 原子地写入缓存, 并删除同名的旧缓存
+     *
+     * @param table 分析表
+     */
+    public void store(LRTable table) {
+        try {
+            Files.createDirectories(directory);
+            final var temp = Files.createTempFile(directory, name + "-", ".tmp");
+            try {
+                try (final var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    final var buffer = write(table);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(true);
+                }
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            evictStale();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on writing table cache " + path, e);
+        }
+    }
+
+    /**
+     * @return 缓存文件的路径
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    private void evictStale() throws IOException {
+        try (final var entries = Files.newDirectoryStream(directory, name + "-*" + SUFFIX)) {
+            for (final var entry : entries) {
+                if (!entry.equals(path)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    private ByteBuffer write(LRTable table) {
+        final var statuses = table.getStatusInIndexOrder();
+        final var terminals = table.getTerminals();
+        final var nonTerminals = table.getNonTerminals();
+        final var names = new ArrayList<byte[]>();
+        terminals.forEach(terminal -> names.add(terminal.getTermName().getBytes(StandardCharsets.UTF_8)));
+        nonTerminals.forEach(nonTerminal -> names.add(nonTerminal.getTermName().getBytes(StandardCharsets.UTF_8)));
+
+        final var size = 4 * 3 + key.length + 4 * 2
+            + names.stream().mapToInt(bytes -> 2 + bytes.length).sum()
+            + 4 * statuses.size() * (terminals.size() + nonTerminals.size());
+        final var buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).put(key).putInt(statuses.size());
+
+        buffer.putInt(terminals.size());
+        names.subList(0, terminals.size()).forEach(bytes -> buffer.putShort((short) bytes.length).put(bytes));
+        buffer.putInt(nonTerminals.size());
+        names.subList(terminals.size(), names.size()).forEach(bytes -> buffer.putShort((short) bytes.length).put(bytes));
+
+        for (int state = 0; state < statuses.size(); state++) {
+            final var status = statuses.get(state);
+            if (status.index() != state) {
+                throw new RuntimeException("Statuses of the table must be indexed in order");
+            }
+            for (final var terminal : terminals) {
+                final var action = status.getAction(terminal);
+                buffer.putInt(switch (action.getKind()) {
+                    case Shift -> PackedLRTable.encode(PackedLRTable.SHIFT, action.getStatus().index());
+                    case Reduce -> PackedLRTable.encode(PackedLRTable.REDUCE, action.getProduction().index());
+                    case Accept -> PackedLRTable.encode(PackedLRTable.ACCEPT, 0);
+                    case Error -> PackedLRTable.encode(PackedLRTable.ERROR, 0);
+                });
+            }
+        }
+        for (final var status : statuses) {
+            for (final var nonTerminal : nonTerminals) {
+                final var target = status.getGoto(nonTerminal);
+                buffer.putInt(target.isError() ? -1 : target.index());
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    /**
+     * @return 还原出的分析表; 若魔数, 版本或摘要不符则返回 null
+     */
+    private LRTable read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        final var storedKey = new byte[key.length];
+        buffer.get(storedKey);
+        if (!MessageDigest.isEqual(storedKey, key)) {
+            return null;
+        }
+
+        final var statusCount = buffer.getInt();
+        final var terminals = new ArrayList<TokenKind>();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            terminals.add(TokenKind.fromString(readName(buffer)));
+        }
+        final var nonTerminals = new ArrayList<NonTerminal>();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            nonTerminals.add(GrammarInfo.getNonTerminal(readName(buffer)));
+        }
+
+        final var productions = new Production[GrammarInfo.getProductionsInOrder().size() + 1];
+        for (final var production : GrammarInfo.getProductionsInOrder()) {
+            productions[production.index()] = production;
+        }
+
+        final var statuses = new ArrayList<Status>(statusCount);
+        for (int state = 0; state < statusCount; state++) {
+            statuses.add(Status.create(state));
+        }
+        for (final var status : statuses) {
+            for (final var terminal : terminals) {
+                final var cell = buffer.getInt();
+                final var payload = PackedLRTable.payloadOf(cell);
+                switch (PackedLRTable.kindOf(cell)) {
+                    case PackedLRTable.SHIFT -> status.setAction(terminal, Action.shift(statuses.get(payload)));
+                    case PackedLRTable.REDUCE -> status.setAction(terminal, Action.reduce(productions[payload]));
+                    case PackedLRTable.ACCEPT -> status.setAction(terminal, Action.accept());
+                    default -> {
+                    }
+                }
+            }
+        }
+        for (final var status : statuses) {
+            for (final var nonTerminal : nonTerminals) {
+                final var target = buffer.getInt();
+                if (target >= 0) {
+                    status.setGoto(nonTerminal, statuses.get(target));
+                }
+            }
+        }
+
+        return new LRTable(statuses, terminals, nonTerminals);
+    }
+
+    private static String readName(ByteBuffer buffer) {
+        final var bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] digest(String name, String... inputPaths) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(4).putInt(VERSION).flip());
+            final var nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            digest.update(ByteBuffer.allocate(8).putLong(nameBytes.length).flip());
+            digest.update(nameBytes);
+            for (final var inputPath : inputPaths) {
+                final var content = Files.readAllBytes(Paths.get(inputPath));
+                // 以长度作为分隔, 使不同的文件划分不会得到相同的摘要
+                digest.update(ByteBuffer.allocate(8).putLong(content.length).flip());
+                digest.update(content);
+            }
+            return digest.digest();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on hashing table inputs", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    private final Path directory;
+    private final String name;
+    private final byte[] key;
+    private final Path path;
+}
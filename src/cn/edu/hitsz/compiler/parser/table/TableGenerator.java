@@ -4,6 +4,8 @@ import cn.edu.hitsz.compiler.lexer.TokenKind;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -11,33 +13,86 @@ import java.util.stream.Stream;
  * 根据语法文件构造 LR 分析表.
  * <br>
  * 此文件为非必需的框架文件, 用于提升整个编译器处理流程的统一性以及为学生提供 SLR(1) 分析表生成程序的参考. 正常情况下你不需要了解该文件.
+ * <br>
+ * 默认构造 SLR(1) 分析表; LALR(1) 与规范 LR(1) 分析表由 {@link LR1Automaton} 以整数编码的项目构造.
  */
 public class TableGenerator {
+    /**
+     * 分析表的种类
+     */
+    public enum Mode {
+        SLR, LALR, LR1
+    }
+
     public TableGenerator() {
-        this.productions = GrammarInfo.getProductionsInOrder();
+        this(Mode.SLR);
+    }
+
+    /**
+     * @param mode 分析表的种类
+     */
+    public TableGenerator(Mode mode) {
+        this(GrammarInfo.getProductionsInOrder(), GrammarInfo.getNonTerminals().values(), mode);
+    }
+
+    /**
+     * 为语法文件以外的文法构造分析表, 例如基准测试中生成的文法
+     *
+     * @param productions 产生式, 第一条必须为拓广产生式; 非终结符的序号须从 0 开始连续编排
+     * @param mode        分析表的种类
+     */
+    public TableGenerator(List<Production> productions, Mode mode) {
+        this(productions, productions.stream()
+            .flatMap(production -> Stream.concat(Stream.of(production.head()), production.body().stream()))
+            .filter(NonTerminal.class::isInstance).map(NonTerminal.class::cast)
+            .collect(Collectors.toCollection(LinkedHashSet::new)), mode);
+    }
+
+    private TableGenerator(List<Production> productions, Collection<NonTerminal> nonTerminals, Mode mode) {
+        this.productions = productions;
         this.terminals = new HashSet<>(TokenKind.allAllowedTokenKinds().values());
-        this.nonTerminals = new HashSet<>(GrammarInfo.getNonTerminals().values());
+        this.nonTerminals = new HashSet<>(nonTerminals);
+        this.mode = mode;
 
         if (productions.get(0).body().size() != 1) {
             throw new RuntimeException("The first production in grammar file must like S -> S'");
         }
     }
 
+    /**
+     * 在给定的线程池上逐层并行地构造项目集族, 需在 {@link #run()} 之前调用. 构造出的分析表与顺序构造时完全相同
+     *
+     * @param pool fork-join 线程池
+     */
+    public void enableParallelConstruction(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
     /**
      * 主体方法
      */
     public void run() {
-        calcFirst();
-        calcFollow();
+        analysis = new GrammarAnalysis(productions);
+        if (mode != Mode.SLR) {
+            automaton = new LR1Automaton(productions, analysis, mode == Mode.LR1, pool);
+            allStatusInIndexOrder.addAll(automaton.build());
+            return;
+        }
+
         constructDFA();
-        dumpItems();
         genTable();
     }
 
     /**
-     * 将该分析表生成的 LR(0) 规范集族打印到某个文件之中, 用于调试
+     * 将该分析表生成的 LR(0) 规范集族打印到某个文件之中, 用于调试. 需在 {@link #run()} 之后按需调用
      */
     public void dumpItems() {
+        if (automaton != null) {
+            // LALR(1) 与 LR(1) 只记录了各状态的核, 连同展望符一起输出
+            FileUtils.writeLines("data/out/items.txt", automaton.describeStates());
+            return;
+        }
+
         final var lines = new ArrayList<String>();
         for (final var status : allStatusInIndexOrder) {
             lines.add("%d: ".formatted(status.index()));
@@ -49,6 +104,13 @@ public class TableGenerator {
         FileUtils.writeLines("data/out/items.txt", lines);
     }
 
+    /**
+     * @return 文法的 nullable, first 与 follow 集合, 需在 {@link #run()} 之后调用
+     */
+    public GrammarAnalysis getAnalysis() {
+        return analysis;
+    }
+
     /**
      * @return 构造出的 LR 表
      */
@@ -59,123 +121,14 @@ public class TableGenerator {
     private final List<Production> productions;
     private final Set<TokenKind> terminals;
     private final Set<NonTerminal> nonTerminals;
+    private final Mode mode;
 
-    private final Map<Term, Set<TokenKind>> first = new HashMap<>();
-    private final Map<Term, Set<TokenKind>> follow = new HashMap<>();
-
-    private final Set<Term> visited = new HashSet<>();
-
-    /**
-     * 计算所有符号的 first 集合 <br>
-     * 终结符的 first 就是它自身, 非终结符的 first 则递归计算
-     */
-    private void calcFirst() {
-        for (final var terminal : terminals) {
-            first.put(terminal, Set.of(terminal));
-        }
+    // 仅在构造 LALR(1) 与 LR(1) 分析表时使用
+    private LR1Automaton automaton = null;
+    private ForkJoinPool pool = null;
 
-        for (final var nonTerminal : nonTerminals) {
-            visited.clear();
-            calcFirst(nonTerminal);
-        }
-
-    }
-
-    /**
-     * 递归计算特定非终结符的 first
-     *
-     * @param nonTerminal 非终结符
-     * @return 其 first 集合
-     */
-    private Set<TokenKind> calcFirst(Term nonTerminal) {
-        // 如果已经被计算, 则直接返回缓存的结果
-        if (first.containsKey(nonTerminal)) {
-            return first.get(nonTerminal);
-        }
-
-        final var result = new LinkedHashSet<TokenKind>();
-        for (final var production : productions) {
-            if (nonTerminal == production.head()) {
-                // 在文法中寻找以该非终结符为头的产生式
-                final var firstSymbol = production.body().get(0);
-                // 记录已经在栈中的递归过的非终结符, 防止直接或间接的左递归导致程序死循环
-                if (!visited.contains(firstSymbol)) {
-                    // 随后递归查找该产生式体的第一个文法符号的 first 集合
-                    // 它的 first 集合也是该非终结符的 first 集合
-                    visited.add(firstSymbol);
-                    result.addAll(calcFirst(firstSymbol));
-                }
-            }
-        }
-
-        first.put(nonTerminal, result);
-        return result;
-    }
-
-
-    /**
-     * 计算所有非终结符的 follow 集合
-     */
-    private void calcFollow() {
-        for (final var nonTerminal : nonTerminals) {
-            visited.clear();
-            calcFollow(nonTerminal);
-        }
-
-        // 对于找完所有产生式了都还没没有 follow 的非终结符
-        // 它必然是一个没有被使用的非终结符, 这意味着它的 follow 就是 EOF
-        nonTerminals.stream()
-            .map(follow::get).filter(Set::isEmpty)
-            .forEach(set -> set.add(TokenKind.eof()));
-    }
-
-    /**
-     * 递归计算给定非终结符的 follow 集合
-     *
-     * @param nonTerminal 给定的非终止符
-     * @return 其 follow 集合
-     */
-    private Set<TokenKind> calcFollow(NonTerminal nonTerminal) {
-        // 与 first 类似, 先查找缓存
-        if (follow.containsKey(nonTerminal)) {
-            return follow.get(nonTerminal);
-        }
-
-        final var result = new LinkedHashSet<TokenKind>();
-        for (final var production : productions) {
-            final var body = production.body();
-
-            // 对该非终结符在每条产生式体中的可能出现, 我们都要将紧跟在该出现后面的项的 first 加入其 follow 集合
-            // 我们直接枚举每条产生式体的每个项
-            for (int i = 0; i < body.size() - 1; i++) {
-                // 如果发现目前的 curr 的话, 后面跟着的符号的 first 就是它的 follow
-                final var symbol = body.get(i);
-                final var next = body.get(i + 1);
-
-                if (symbol.equals(nonTerminal)) {
-                    result.addAll(first.get(next));
-                }
-            }
-
-            // 如果该非终结符出现在产生式的末尾, 那么该产生式的头的 follow 集合也要加入其 follow 集合中
-            final var lastInBody = body.get(body.size() - 1);
-            if (lastInBody.equals(nonTerminal)) {
-                final var head = production.head();
-                if (visited.contains(head)) {
-                    // 如果该产生式头已经在栈中了, 那么意味着这个非终结符有可能一直展开自己
-                    // 这时候 EOF 也可能是它的 Follow
-                    result.add(TokenKind.eof());
-                } else {
-                    // 否则直接递归查找
-                    visited.add(head);
-                    result.addAll(calcFollow(head));
-                }
-            }
-        }
-
-        follow.put(nonTerminal, result);
-        return result;
-    }
+    // nullable, first 与 follow 集合
+    private GrammarAnalysis analysis = null;
 
     /**
      * 表示一个项目
@@ -308,16 +261,23 @@ public class TableGenerator {
      * @return I 关于 X 的后继项目集
      */
     private Set<Item> constructGoto(Set<Item> items, Term term) {
-        final var kernelForGoto = items.stream()
+        // 从后继项目集的核中构造闭包即可得到后继项目集
+        return constructClosure(constructGotoKernel(items, term));
+    }
+
+    /**
+     * @param items 当前项集 I
+     * @param term  文法符号 X
+     * @return GO(I, X) 的核
+     */
+    private Set<Item> constructGotoKernel(Set<Item> items, Term term) {
+        return items.stream()
             // 先筛选出 I 中所有点后面是 term 的项
             .filter(item -> item.getAfterDot().map(term::equals).orElse(false))
             // 然后分别求出每一个项的后继项
             // 这个项集就是后继项目集的核
             .map(Item::getNextItem).flatMap(Optional::stream)
             .collect(Collectors.toSet());
-
-        // 随后从后继项目集的核中构造闭包即可得到后继项目集
-        return constructClosure(kernelForGoto);
     }
 
     /**
@@ -337,6 +297,10 @@ public class TableGenerator {
 
         // 同样以 BFS 形式搜索
         final var result = new LinkedHashSet<>(Set.of(initClosure));
+        if (pool != null) {
+            return constructInLevels(initClosure, terms, result);
+        }
+
         final var unexpanded = new ArrayDeque<>(Set.of(initClosure));
 
         while (!unexpanded.isEmpty()) {
@@ -358,6 +322,43 @@ public class TableGenerator {
         return new ArrayList<>(result);
     }
 
+    /**
+     * 逐层并行地构造 LR(0) 规范项目集族
+     * <br>
+     * 同一层中各项目集关于各文法符号的后继在线程池上并行求出, 闭包以核为键缓存在并发哈希表中, 相同的核只求一次闭包;
+     * 随后按项目集的顺序与文法符号的顺序依次合并, 所以结果的顺序与 {@link #constructCanonicalLRCollection} 的 BFS 相同
+     *
+     * @param initClosure 初始项目集
+     * @param terms       按固定顺序排列的文法符号
+     * @param result      已包含初始项目集的结果
+     * @return 规范项目集族
+     */
+    private List<Set<Item>> constructInLevels(Set<Item> initClosure, Set<Term> terms, Set<Set<Item>> result) {
+        final var closures = new ConcurrentHashMap<Set<Item>, Set<Item>>();
+        var frontier = List.of(initClosure);
+        while (!frontier.isEmpty()) {
+            final var level = frontier;
+            // 在 pool 中执行的并行流会使用 pool 的工作线程
+            final var successors = pool.submit(() -> level.parallelStream()
+                .map(items -> terms.stream()
+                    .map(term -> closures.computeIfAbsent(constructGotoKernel(items, term), this::constructClosure))
+                    .toList())
+                .toList()).join();
+
+            final var next = new ArrayList<Set<Item>>();
+            for (final var targets : successors) {
+                for (final var to : targets) {
+                    if (!to.isEmpty() && result.add(to)) {
+                        next.add(to);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        return new ArrayList<>(result);
+    }
+
     /**
      * 构造 LR 分析表 (填充各个 status 中的 action 与 goto)
      */
@@ -379,7 +380,7 @@ public class TableGenerator {
                         // 如果项目代表某个产生式的末尾, 那么再遇到对于任何位于 follow(A) 内的文法符号都应该规约 A
                         final var production = item.production();
                         final var head = production.head();
-                        for (final var a : follow.get(head)) {
+                        for (final var a : analysis.getFollow(head)) {
                             status.setAction(a, Action.reduce(production));
                         }
                     }
@@ -37,7 +37,7 @@ public class TableLoader {
             .map(TokenKind::fromString).toList();
         final var nonTerminals = symbolHeader
             .subList(gotoColumnBegin, gotoColumnEnd).stream()
-            .map(NonTerminal::new).toList();
+            .map(GrammarInfo::getNonTerminal).toList();
 
         // 再往下便是表的主体部分
         final var statusRows = csv.subList(2, csv.size());
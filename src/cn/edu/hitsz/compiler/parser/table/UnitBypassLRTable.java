@@ -0,0 +1,142 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import java.util.Arrays;
+
+/**
+ * 越过单产生式规约的 LR 分析表
+ * <br>
+ * 形如 A -> B 的产生式 (产生式体只有一个非终结符) 称为单产生式. 若某个状态 t 的全部非错误动作都是按同一单产生式 A -> B 规约,
+ * 那么从状态 s 经 B 转移到 t 之后, 驱动程序必然立即弹出 t, 再经 A 从 s 转移. 这里把 GOTO(s, B) 直接改为 GOTO(s, A),
+ * 并沿着这样的单产生式链一直替换下去, 驱动程序就不必再执行这些规约. 被越过的状态 t 在 B 之后出现错误的词法单元,
+ * 改由 GOTO(s, A) 在移入之前发现.
+ * <br>
+ * 被越过的单产生式仍需报告给希望看到它们的观察者 (例如收集全部规约序列的 {@link cn.edu.hitsz.compiler.parser.ProductionCollector}),
+ * 所以对每个被改写的 GOTO 表项, 同时记录原先的目标状态以及依次越过的产生式与其原先的目标状态, 见 {@link #getUnitChain(int, int)}.
+ * <br>
+ * ACTION 表直接使用原表; 以产生式体为一个终结符的产生式 (如 B -> id) 需要 "移入并规约" 这一新的动作类型, 不在此处消除.
+ */
+public class UnitBypassLRTable extends PackedLRTable {
+    /**
+     * @param table 原分析表
+     * @return 越过单产生式规约的分析表, 与原表共享 ACTION 表
+     */
+    static UnitBypassLRTable bypass(PackedLRTable table) {
+        final var stateCount = table.getStateCount();
+        final var nonTerminalCount = table.getNonTerminalCount();
+
+        // 每个状态若只按某一单产生式规约, 记录该产生式的索引, 否则为 -1
+        final var unitReduction = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            unitReduction[state] = findUnitReduction(table, state);
+        }
+
+        final var gotos = new int[stateCount * nonTerminalCount];
+        final var chains = new int[stateCount * nonTerminalCount][];
+        for (int state = 0; state < stateCount; state++) {
+            for (int nonTerminal = 0; nonTerminal < nonTerminalCount; nonTerminal++) {
+                final var original = table.goto_(state, nonTerminal);
+                var target = original;
+                var chain = new int[]{original};
+                // 单产生式构成环时文法是二义的, 分析表中已有冲突; 这里仍以非终结符个数为限, 防止死循环
+                for (int step = 0; target >= 0 && unitReduction[target] >= 0 && step < nonTerminalCount; step++) {
+                    final var production = unitReduction[target];
+                    target = table.goto_(state, table.getProductionHead(production));
+                    chain = Arrays.copyOf(chain, chain.length + 2);
+                    chain[chain.length - 2] = production;
+                    chain[chain.length - 1] = target;
+                }
+
+                // 越过的链最终必须落在某个状态上, 否则保持原样, 由原先的状态报告错误
+                if (target < 0) {
+                    target = original;
+                    chain = null;
+                }
+                gotos[state * nonTerminalCount + nonTerminal] = target;
+                chains[state * nonTerminalCount + nonTerminal] = chain != null && chain.length > 1 ? chain : null;
+            }
+        }
+
+        return new UnitBypassLRTable(table, gotos, chains);
+    }
+
+    private static int findUnitReduction(PackedLRTable table, int state) {
+        var result = -1;
+        for (int terminal = 0; terminal < table.getTerminalCount(); terminal++) {
+            final var cell = table.action(state, terminal);
+            switch (kindOf(cell)) {
+                case ERROR -> {
+                }
+                case REDUCE -> {
+                    final var production = payloadOf(cell);
+                    if (result >= 0 && result != production || !isUnit(table.getProduction(production))) {
+                        return -1;
+                    }
+                    result = production;
+                }
+                default -> {
+                    return -1;
+                }
+            }
+        }
+        for (int nonTerminal = 0; nonTerminal < table.getNonTerminalCount(); nonTerminal++) {
+            if (table.goto_(state, nonTerminal) >= 0) {
+                return -1;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isUnit(Production production) {
+        return production.body().size() == 1 && production.body().get(0) instanceof NonTerminal;
+    }
+
+    private UnitBypassLRTable(PackedLRTable base, int[] gotos, int[][] chains) {
+        super(base);
+        this.base = base;
+        this.gotos = gotos;
+        this.chains = chains;
+    }
+
+    @Override
+    public int action(int state, int terminal) {
+        return base.action(state, terminal);
+    }
+
+    @Override
+    public int goto_(int state, int nonTerminal) {
+        return gotos[state * nonTerminalCount + nonTerminal];
+    }
+
+    /**
+     * @param state       规约后栈顶的状态
+     * @param nonTerminal 规约出的非终结符的序号
+     * @return 若该 GOTO 表项越过了单产生式, 返回 {@code [t0, p1, t1, p2, t2, ...]}: t0 为原先的目标状态,
+     * pi 为依次越过的单产生式的索引, ti 为规约 pi 之后原先的目标状态 (最后一个即为改写后的目标状态); 否则返回 null
+     */
+    @Override
+    public int[] getUnitChain(int state, int nonTerminal) {
+        return chains[state * nonTerminalCount + nonTerminal];
+    }
+
+    /**
+     * @return 越过了单产生式的 GOTO 表项数
+     */
+    public int getBypassedCount() {
+        return (int) Arrays.stream(chains).filter(chain -> chain != null).count();
+    }
+
+    @Override
+    public long footprint() {
+        var chainInts = 0L;
+        for (final var chain : chains) {
+            if (chain != null) {
+                chainInts += chain.length;
+            }
+        }
+        return base.footprint() + 4L * gotos.length + 4L * chains.length + 4L * chainInts;
+    }
+
+    private final PackedLRTable base;
+    private final int[] gotos;
+    private final int[][] chains;
+}
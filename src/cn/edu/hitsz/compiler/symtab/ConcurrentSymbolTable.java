@@ -0,0 +1,327 @@
+package cn.edu.hitsz.compiler.symtab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 可被多个线程同时使用的符号表
+ * <br>
+ * 散列表按散列值的高位分为若干段, 每段是一张独立的线性探测散列表, 由该段自己的锁保护写入. 查找不加锁:
+ * 已登记的符号 (词法分析中绝大多数的标识符) 只需一次无锁探测即可取得编号; 只有探测未命中时才锁住所在的段并重新探测,
+ * 所以不会重复登记同一个符号. 编号由全局的原子计数器分配, 仍然是稠密的, 但多个线程同时登记时分配的顺序不确定.
+ * 与 {@link SymbolTable} 相同, 被删除的符号的编号优先分配给之后新登记的符号; 无锁的读者可能读到编号已被重新使用的条目,
+ * 因此探测时总是比较条目的文本.
+ * <br>
+ * 条目按编号存放在按需分配的定长块中, 块一经分配不再移动, 所以按编号取得条目也不需要加锁.
+ * 条目的类型只能被设置一次, 由 {@link SymbolTableEntry#setType(SourceCodeType)} 以 CAS 保证.
+ * <br>
+ * 在多个线程中同时进行词法分析与语义分析时 (如并行词法分析, 或按需词法分析与 {@code enableConcurrentDispatch} 同时使用)
+ * 应使用该符号表.
+ */
+public class ConcurrentSymbolTable implements SymbolStore {
+    @Override
+    public int intern(CharSequence text) {
+        final var hash = SymbolTable.hash(text);
+        final var segment = segmentOf(hash);
+        final var id = segment.find(text, hash, this);
+        if (id >= 0) {
+            return id;
+        }
+
+        segment.lock.lock();
+        try {
+            final var slot = segment.probe(text, hash, this);
+            final var existing = segment.slots.get(slot) - 1;
+            return existing >= 0 ? existing : segment.insert(slot, text.toString(), hash, this).getId();
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public int lookup(CharSequence text) {
+        final var hash = SymbolTable.hash(text);
+        final var segment = segmentOf(hash);
+        final var id = segment.find(text, hash, this);
+        if (id >= 0) {
+            return id;
+        }
+
+        // 无锁探测可能恰好遇上其它线程的删除而漏掉符号, 加锁后再确认一次
+        segment.lock.lock();
+        try {
+            return segment.slots.get(segment.probe(text, hash, this)) - 1;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public SymbolTableEntry get(int id) {
+        final var entry = id >= 0 && id < count.get() ? entryAt(id) : null;
+        if (entry == null) {
+            throw new RuntimeException("该符号在表中不存在");
+        }
+        return entry;
+    }
+
+    @Override
+    public SymbolTableEntry add(String text) {
+        final var hash = SymbolTable.hash(text);
+        final var segment = segmentOf(hash);
+        segment.lock.lock();
+        try {
+            final var slot = segment.probe(text, hash, this);
+            if (segment.slots.get(slot) != 0) {
+                throw new RuntimeException("该符号已在表中存在");
+            }
+            return segment.insert(slot, text, hash, this);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public SymbolTableEntry remove(String text) {
+        final var hash = SymbolTable.hash(text);
+        final var segment = segmentOf(hash);
+        segment.lock.lock();
+        try {
+            final var slot = segment.probe(text, hash, this);
+            final var id = segment.slots.get(slot) - 1;
+            if (id < 0) {
+                throw new RuntimeException("该符号在表中不存在");
+            }
+
+            final var entry = entryAt(id);
+            segment.removeSlot(slot, this);
+            directory[id >>> CHUNK_BITS][id & CHUNK_MASK] = null;
+            size.decrementAndGet();
+            synchronized (freeLock) {
+                if (freeCount == freeIds.length) {
+                    freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+                }
+                freeIds[freeCount++] = id;
+            }
+            return entry;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void dumpTable(String path) {
+        SymbolTable.dumpEntries(getAllEntries(), path);
+    }
+
+    private List<SymbolTableEntry> getAllEntries() {
+        final var result = new ArrayList<SymbolTableEntry>(size());
+        final var allocated = count.get();
+        for (int id = 0; id < allocated; id++) {
+            final var entry = entryAt(id);
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private Segment segmentOf(int hash) {
+        // 段内的探测使用散列值的低位, 选择段使用高位
+        return segments[hash >>> (32 - SEGMENT_BITS)];
+    }
+
+    /**
+     * @return 编号对应的条目; 编号已分配但条目尚未写入, 或条目已被删除时为 null
+     */
+    private SymbolTableEntry entryAt(int id) {
+        final var current = directory;
+        final var index = id >>> CHUNK_BITS;
+        return index < current.length && current[index] != null ? current[index][id & CHUNK_MASK] : null;
+    }
+
+    /**
+     * 分配编号并写入条目. 须在持有某一段的锁时调用, 条目写入后才能把编号放进该段的槽中:
+     * 读者总是先读到槽中的编号, 再读取条目, 槽的 volatile 写入保证了条目对读者可见
+     */
+    private SymbolTableEntry allocate(String text) {
+        final var id = takeFreeId();
+        final var entry = new SymbolTableEntry(text, id);
+        chunkOf(id)[id & CHUNK_MASK] = entry;
+        size.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * @return 被删除的符号的编号; 没有时分配一个新编号
+     */
+    private int takeFreeId() {
+        // 没有删除过符号时不必加锁
+        if (freeCount > 0) {
+            synchronized (freeLock) {
+                if (freeCount > 0) {
+                    return freeIds[--freeCount];
+                }
+            }
+        }
+        return count.getAndIncrement();
+    }
+
+    /**
+     * @return 存放该编号的块, 必要时以写时复制的方式扩充目录并分配新块
+     */
+    private SymbolTableEntry[] chunkOf(int id) {
+        final var index = id >>> CHUNK_BITS;
+        final var current = directory;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+
+        synchronized (this) {
+            var grown = directory;
+            if (index >= grown.length || grown[index] == null) {
+                grown = Arrays.copyOf(grown, index < grown.length ? grown.length : Math.max(index + 1, grown.length * 2));
+                grown[index] = new SymbolTableEntry[CHUNK_SIZE];
+                directory = grown;
+            }
+            return grown[index];
+        }
+    }
+
+    /**
+     * 散列表的一段. 槽中存放符号的编号 + 1, 0 表示空槽; 写入只在持有 lock 时进行, 读取可以不加锁
+     */
+    private static class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        // 扩容时整体替换, 无锁的读者可能仍在旧表上探测, 旧表中的符号在新表中都还存在
+        volatile AtomicIntegerArray slots = new AtomicIntegerArray(16);
+        int used = 0;
+
+        /**
+         * 无锁探测
+         *
+         * @return 符号的编号; 未找到时返回 -1
+         */
+        int find(CharSequence text, int hash, ConcurrentSymbolTable table) {
+            final var current = slots;
+            final var mask = current.length() - 1;
+            var slot = hash & mask;
+            int id;
+            while ((id = current.get(slot) - 1) >= 0) {
+                final var entry = table.entryAt(id);
+                if (entry != null && matches(entry, text, hash)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * 须持有 lock
+         *
+         * @return 存放该符号的槽; 符号不在表中时为探测到的第一个空槽
+         */
+        int probe(CharSequence text, int hash, ConcurrentSymbolTable table) {
+            final var current = slots;
+            final var mask = current.length() - 1;
+            var slot = hash & mask;
+            int id;
+            while ((id = current.get(slot) - 1) >= 0) {
+                if (matches(table.entryAt(id), text, hash)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * 须持有 lock. 装载因子将超过 1/2 时先扩容, 再重新探测插入的位置
+         */
+        SymbolTableEntry insert(int slot, String text, int hash, ConcurrentSymbolTable table) {
+            if ((used + 1) * 2 > slots.length()) {
+                grow(table);
+                slot = probe(text, hash, table);
+            }
+
+            final var entry = table.allocate(text);
+            slots.set(slot, entry.getId() + 1);
+            used++;
+            return entry;
+        }
+
+        /**
+         * 须持有 lock. 清空一个槽, 并把其后同一探测序列中的符号前移
+         */
+        void removeSlot(int slot, ConcurrentSymbolTable table) {
+            final var current = slots;
+            final var mask = current.length() - 1;
+            var hole = slot;
+            var next = (slot + 1) & mask;
+            int id;
+            while ((id = current.get(next) - 1) >= 0) {
+                final var home = SymbolTable.hash(table.entryAt(id).getText()) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    current.set(hole, id + 1);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            current.set(hole, 0);
+            used--;
+        }
+
+        private void grow(ConcurrentSymbolTable table) {
+            final var current = slots;
+            final var grown = new AtomicIntegerArray(current.length() * 2);
+            final var mask = grown.length() - 1;
+            for (int i = 0; i < current.length(); i++) {
+                final var id = current.get(i) - 1;
+                if (id >= 0) {
+                    var slot = SymbolTable.hash(table.entryAt(id).getText()) & mask;
+                    while (grown.get(slot) != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    grown.set(slot, id + 1);
+                }
+            }
+            slots = grown;
+        }
+
+        private static boolean matches(SymbolTableEntry entry, CharSequence text, int hash) {
+            return SymbolTable.hash(entry.getText()) == hash && entry.getText().contentEquals(text);
+        }
+    }
+
+    private static final int SEGMENT_BITS = 5;
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    // 以编号为下标的条目, 按 CHUNK_SIZE 个一块按需分配. 目录只以写时复制的方式整体替换
+    private volatile SymbolTableEntry[][] directory = new SymbolTableEntry[4][];
+    // 已分配的编号数与现存的条目数
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+    // 被删除的符号的编号, 以栈的形式保存, 读写都须持有 freeLock (不加锁读取 freeCount 只用于跳过加锁)
+    private final Object freeLock = new Object();
+    private int[] freeIds = new int[16];
+    private volatile int freeCount = 0;
+
+    {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package cn.edu.hitsz.compiler.symtab;
+
+import java.util.Arrays;
+
+/**
+ * 支持嵌套作用域的符号表
+ * <br>
+ * 全局作用域就是 {@link SymbolTable} 本身, 不进入任何作用域时两者的行为与 {@code dumpTable} 的输出完全相同.
+ * 内层作用域中的声明不进入散列表, 而是以符号编号为下标, 挂在一条由内向外的绑定链上: {@link #get(int)} 直接取链头,
+ * 所以按编号查找总是得到最内层的声明, 不需要逐层查找, 也不需要散列.
+ * <br>
+ * 每个作用域在撤销日志中记录自己声明过的符号编号. 进入作用域只需记下日志的长度; 退出作用域时按日志逐个恢复被遮蔽的外层声明,
+ * 耗时与该作用域中的声明数成正比, 摊还到每个声明上是常数, 与外层作用域的大小以及嵌套深度无关.
+ * <br>
+ * 符号的编号仍由全局的散列表分配, 因此只在内层作用域中声明过的名字也会在全局作用域中留下一个没有类型的条目,
+ * 这与词法分析把所有标识符都登记到符号表中的做法一致. {@code dumpTable} 只输出全局作用域中的条目.
+ */
+public class ScopedSymbolTable extends SymbolTable {
+    /**
+     * 进入一个新的内层作用域
+     */
+    public void enterScope() {
+        if (depth == marks.length) {
+            marks = Arrays.copyOf(marks, depth * 2);
+        }
+        marks[depth++] = logSize;
+    }
+
+    /**
+     * 退出当前作用域, 恢复被其中的声明遮蔽的外层声明
+     *
+     * @throws RuntimeException 当前已是全局作用域
+     */
+    public void exitScope() {
+        if (depth == 0) {
+            throw new RuntimeException("Can NOT exit the global scope");
+        }
+
+        final var mark = marks[--depth];
+        while (logSize > mark) {
+            final var symbol = log[--logSize];
+            bindings[symbol] = bindings[symbol].shadowed();
+        }
+    }
+
+    /**
+     * @return 当前作用域的嵌套深度, 全局作用域为 0
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * 在当前作用域中声明一个符号. 在全局作用域中声明即登记到符号表中; 在内层作用域中声明会遮蔽外层的同名声明
+     *
+     * @param text 符号的文本表示
+     * @return 该声明的条目
+     * @throws RuntimeException 该符号已在当前的内层作用域中声明过
+     */
+    public SymbolTableEntry declare(CharSequence text) {
+        final var symbol = intern(text);
+        if (depth == 0) {
+            return super.get(symbol);
+        }
+
+        if (symbol >= bindings.length) {
+            bindings = Arrays.copyOf(bindings, Math.max(symbol + 1, bindings.length * 2));
+        }
+        final var current = bindings[symbol];
+        if (current != null && current.depth() == depth) {
+            throw new RuntimeException("该符号已在当前作用域中存在");
+        }
+
+        final var entry = new SymbolTableEntry(super.get(symbol).getText(), symbol);
+        bindings[symbol] = new Binding(entry, current, depth);
+        if (logSize == log.length) {
+            log = Arrays.copyOf(log, logSize * 2);
+        }
+        log[logSize++] = symbol;
+        return entry;
+    }
+
+    /**
+     * @param id 符号的编号
+     * @return 该符号在当前作用域中可见的最内层声明的条目
+     * @throws RuntimeException 该符号在表中不存在
+     */
+    @Override
+    public SymbolTableEntry get(int id) {
+        final var binding = id >= 0 && id < bindings.length ? bindings[id] : null;
+        return binding != null ? binding.entry() : super.get(id);
+    }
+
+    /**
+     * 内层作用域中的一个声明
+     *
+     * @param entry    声明的条目
+     * @param shadowed 被遮蔽的外层声明; 为 null 时外层可见的是全局作用域中的条目
+     * @param depth    声明所在的作用域深度
+     */
+    private record Binding(SymbolTableEntry entry, Binding shadowed, int depth) {
+    }
+
+    // 以符号编号为下标的最内层声明, 为 null 时可见的是全局作用域中的条目
+    private Binding[] bindings = new Binding[16];
+
+    // 撤销日志: 内层作用域中依次声明的符号编号
+    private int[] log = new int[16];
+    private int logSize = 0;
+
+    // 各层作用域进入时撤销日志的长度
+    private int[] marks = new int[16];
+    private int depth = 0;
+}
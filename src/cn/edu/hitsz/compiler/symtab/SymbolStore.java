@@ -0,0 +1,88 @@
+package cn.edu.hitsz.compiler.symtab;
+
+/**
+ * 词法分析, 语法分析与各观察者使用的符号表操作
+ * <br>
+ * 单线程使用的 {@link SymbolTable} 与可被多个线程同时使用的 {@link ConcurrentSymbolTable} 各自管理存储, 只共享该接口.
+ * 符号以稠密的整数编号标识, 被删除的符号的编号之后可能分配给其它符号.
+ */
+public interface SymbolStore {
+    /**
+     * 登记一个符号并返回其编号; 已登记过的符号直接返回原有的编号
+     * <br>
+     * 词法单元, IR 变量与语义分析栈可以携带该编号, 此后通过 {@link #get(int)} 直接取得条目, 而不必再次散列符号的文本;
+     * 符号被删除之后, 仍携带其编号的对象不能再用于访问符号表.
+     *
+     * @param text 符号的文本表示
+     * @return 该符号的编号
+     */
+    int intern(CharSequence text);
+
+    /**
+     * 查找符号的编号
+     *
+     * @param text 符号的文本表示
+     * @return 该符号的编号; 不在表中时返回 -1
+     */
+    int lookup(CharSequence text);
+
+    /**
+     * 按编号获取符号表中已有的条目
+     *
+     * @param id 符号的编号
+     * @return 该符号在符号表中的条目
+     * @throws RuntimeException 该符号在表中不存在
+     */
+    SymbolTableEntry get(int id);
+
+    /**
+     * 获取符号表中已有的条目
+     *
+     * @param text 符号的文本表示
+     * @return 该符号在符号表中的条目
+     * @throws RuntimeException 该符号在表中不存在
+     */
+    default SymbolTableEntry get(String text) {
+        return get(lookup(text));
+    }
+
+    /**
+     * 在符号表中新增条目
+     *
+     * @param text 待加入符号表中的新符号的文本表示
+     * @return 该符号在符号表中对应的新条目
+     * @throws RuntimeException 该符号已在表中存在
+     */
+    SymbolTableEntry add(String text);
+
+    /**
+     * 从符号表中删除条目. 该条目的编号随后可能分配给其它符号
+     *
+     * @param text 待删除符号的文本表示
+     * @return 被删除的条目
+     * @throws RuntimeException 该符号在表中不存在
+     */
+    SymbolTableEntry remove(String text);
+
+    /**
+     * 判断符号表中有无条目
+     *
+     * @param text 待判断符号的文本表示
+     * @return 该符号的条目是否位于符号表中
+     */
+    default boolean has(String text) {
+        return lookup(text) >= 0;
+    }
+
+    /**
+     * @return 符号表中现存的条目数
+     */
+    int size();
+
+    /**
+     * 将符号表按格式输出
+     *
+     * @param path 输出文件路径
+     */
+    void dumpTable(String path);
+}
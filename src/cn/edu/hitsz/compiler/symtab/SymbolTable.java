@@ -3,9 +3,9 @@ package cn.edu.hitsz.compiler.symtab;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * 符号表
@@ -13,23 +13,51 @@ import java.util.Map;
  * 由于源语言比较简易, 加之 Java 中具有非常好用的通用数据结构类型, 本项目其实并不一定需要一个集中的 "符号表" 来存储源语言中的
  * <b>所有符号的所有信息</b>. 但为了切合理论课程教学, 提高实验实践技能的通用性, 我们按照一般编译器项目中符号表的设计设计了该符号表.
  * 其在代码中的作用可能并不明显, 但我们希望同学们可以借此体验符号表的设计思想.
+ * <br>
+ * 符号表以线性探测的开放定址散列表实现, 每个符号被分配一个稠密的整数编号. 词法分析通过 {@link #intern(CharSequence)}
+ * 一次完成查找与登记, 之后的各阶段凭编号直接访问条目. 该符号表只能在一个线程中使用, 多个线程同时使用时见 {@link ConcurrentSymbolTable}.
  */
-public class SymbolTable {
-
-    private final Map<String, SymbolTableEntry> symbolTable = new HashMap<>();
+public class SymbolTable implements SymbolStore {
+    /**
+     * 登记一个符号并返回其编号; 已登记过的符号直接返回原有的编号. 只探测一遍散列表
+     * <br>
+     * 编号从 0 开始分配, 被删除的符号的编号优先分配给之后新登记的符号, 所以编号总小于表中曾同时存在的条目数的最大值.
+     * 词法单元, IR 变量与语义分析栈可以携带该编号, 此后通过 {@link #get(int)} 直接取得条目, 而不必再次散列符号的文本;
+     * 符号被删除之后, 仍携带其编号的对象不能再用于访问符号表. 查找时不需要先把文本转换为 String, 只有新登记的符号才会构造 String.
+     *
+     * @param text 符号的文本表示
+     * @return 该符号的编号
+     */
+    public int intern(CharSequence text) {
+        ensureCapacity();
+        final var hash = hash(text);
+        final var slot = probe(text, hash);
+        final var id = slots[slot] - 1;
+        return id >= 0 ? id : insert(slot, text.toString(), hash).getId();
+    }
 
     /**
-     * 获取符号表中已有的条目
+     * 查找符号的编号
      *
      * @param text 符号的文本表示
+     * @return 该符号的编号; 不在表中时返回 -1
+     */
+    public int lookup(CharSequence text) {
+        return slots[probe(text, hash(text))] - 1;
+    }
+
+    /**
+     * 按编号获取符号表中已有的条目
+     *
+     * @param id 符号的编号
      * @return 该符号在符号表中的条目
      * @throws RuntimeException 该符号在表中不存在
      */
-    public SymbolTableEntry get(String text) {
-        if (symbolTable.containsKey(text)) {
-            return symbolTable.get(text);
+    public SymbolTableEntry get(int id) {
+        if (id < 0 || id >= count || entries[id] == null) {
+            throw new RuntimeException("该符号在表中不存在");
         }
-        throw new RuntimeException("该符号在表中不存在");
+        return entries[id];
     }
 
     /**
@@ -40,23 +68,43 @@ public class SymbolTable {
      * @throws RuntimeException 该符号已在表中存在
      */
     public SymbolTableEntry add(String text) {
-        if (symbolTable.containsKey(text)) {
+        ensureCapacity();
+        final var hash = hash(text);
+        final var slot = probe(text, hash);
+        if (slots[slot] != 0) {
             throw new RuntimeException("该符号已在表中存在");
-        } else {
-            SymbolTableEntry symbolTableEntry = new SymbolTableEntry(text);
-            symbolTable.put(text, symbolTableEntry);
-            return symbolTableEntry;
         }
+        return insert(slot, text, hash);
     }
 
     /**
-     * 判断符号表中有无条目
+     * 从符号表中删除条目, 供增量词法分析在某个标识符不再出现于源代码中时使用. 该条目的编号随后可能分配给其它符号
      *
-     * @param text 待判断符号的文本表示
-     * @return 该符号的条目是否位于符号表中
+     * @param text 待删除符号的文本表示
+     * @return 被删除的条目
+     * @throws RuntimeException 该符号在表中不存在
      */
-    public boolean has(String text) {
-        return symbolTable.containsKey(text);
+    public SymbolTableEntry remove(String text) {
+        final var slot = probe(text, hash(text));
+        final var id = slots[slot] - 1;
+        if (id < 0) {
+            throw new RuntimeException("该符号在表中不存在");
+        }
+
+        final var entry = entries[id];
+        entries[id] = null;
+        size--;
+        removeSlot(slot);
+        hashes[id] = freeHead;
+        freeHead = id;
+        return entry;
+    }
+
+    /**
+     * @return 符号表中现存的条目数
+     */
+    public int size() {
+        return size;
     }
 
     /**
@@ -64,8 +112,14 @@ public class SymbolTable {
      *
      * @return 符号表的所有条目
      */
-    private Map<String, SymbolTableEntry> getAllEntries() {
-        return symbolTable;
+    protected List<SymbolTableEntry> getAllEntries() {
+        final var result = new ArrayList<SymbolTableEntry>(size);
+        for (int id = 0; id < count; id++) {
+            if (entries[id] != null) {
+                result.add(entries[id]);
+            }
+        }
+        return result;
     }
 
     /**
@@ -74,7 +128,16 @@ public class SymbolTable {
      * @param path 输出文件路径
      */
     public void dumpTable(String path) {
-        final var entriesInOrder = new ArrayList<>(getAllEntries().values());
+        dumpEntries(getAllEntries(), path);
+    }
+
+    /**
+     * 将条目按文本排序后按格式输出, 与 {@link ConcurrentSymbolTable} 共用
+     *
+     * @param entriesInOrder 符号表的所有条目, 会被排序
+     * @param path           输出文件路径
+     */
+    static void dumpEntries(List<SymbolTableEntry> entriesInOrder, String path) {
         entriesInOrder.sort(Comparator.comparing(SymbolTableEntry::getText));
 
         final var lines = new ArrayList<String>();
@@ -85,5 +148,110 @@ public class SymbolTable {
 
         FileUtils.writeLines(path, lines);
     }
-}
 
+    /**
+     * 与 {@link String#hashCode()} 相同的散列值, 再把高位混入低位. String 会缓存其散列值, 因此不必逐字符计算.
+     * {@link ConcurrentSymbolTable} 也使用该散列值
+     */
+    static int hash(CharSequence text) {
+        int hash;
+        if (text instanceof String string) {
+            hash = string.hashCode();
+        } else {
+            hash = 0;
+            for (int i = 0; i < text.length(); i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 线性探测
+     *
+     * @return 存放该符号的槽; 符号不在表中时为探测到的第一个空槽
+     */
+    private int probe(CharSequence text, int hash) {
+        final var mask = slots.length - 1;
+        var slot = hash & mask;
+        int id;
+        while ((id = slots[slot] - 1) >= 0) {
+            if (hashes[id] == hash && entries[id].getText().contentEquals(text)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private SymbolTableEntry insert(int slot, String text, int hash) {
+        final int id;
+        if (freeHead >= 0) {
+            id = freeHead;
+            freeHead = hashes[id];
+        } else {
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, count * 2);
+                hashes = Arrays.copyOf(hashes, count * 2);
+            }
+            id = count++;
+        }
+        final var entry = new SymbolTableEntry(text, id);
+        entries[id] = entry;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        size++;
+        return entry;
+    }
+
+    /**
+     * 清空一个槽, 并把其后同一探测序列中的符号前移, 使线性探测不必使用删除标记
+     */
+    private void removeSlot(int slot) {
+        final var mask = slots.length - 1;
+        var hole = slot;
+        var next = (slot + 1) & mask;
+        while (slots[next] != 0) {
+            final var home = hashes[slots[next] - 1] & mask;
+            // 从 home 探测到 next 的途中经过了空出的槽时, 该符号可以移入其中
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[hole] = 0;
+    }
+
+    /**
+     * 保证再插入一个符号后装载因子不超过 1/2
+     */
+    private void ensureCapacity() {
+        if ((size + 1) * 2 <= slots.length) {
+            return;
+        }
+
+        slots = new int[slots.length * 2];
+        final var mask = slots.length - 1;
+        for (int id = 0; id < count; id++) {
+            if (entries[id] != null) {
+                var slot = hashes[id] & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = id + 1;
+            }
+        }
+    }
+
+    // 开放定址的散列表, 槽中存放符号的编号 + 1, 0 表示空槽. 容量恒为 2 的幂
+    private int[] slots = new int[16];
+    // 以编号为下标的条目及其散列值, 被删除的符号的条目为 null
+    private SymbolTableEntry[] entries = new SymbolTableEntry[16];
+    private int[] hashes = new int[16];
+    // 已分配的编号数与现存的条目数
+    private int count = 0;
+    private int size = 0;
+    // 空闲编号的链表头, 为 -1 时没有空闲编号. 空闲编号的 hashes 中存放链表中的下一个空闲编号
+    private int freeHead = -1;
+}
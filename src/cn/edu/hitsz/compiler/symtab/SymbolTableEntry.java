@@ -1,14 +1,18 @@
 package cn.edu.hitsz.compiler.symtab;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 /**
  * 符号表条目
  */
 public class SymbolTableEntry {
     /**
      * @param text 符号的文本表示. 对于标识符符号, 该参数应该为标识符文本.
+     * @param id   符号在符号表中的编号
      */
-    public SymbolTableEntry(String text) {
+    public SymbolTableEntry(String text, int id) {
         this.text = text;
+        this.id = id;
         this.type = null;
     }
 
@@ -19,6 +23,14 @@ public class SymbolTableEntry {
         return text;
     }
 
+    /**
+     * @return 符号在符号表中的编号
+     * @see SymbolStore#intern(CharSequence)
+     */
+    public int getId() {
+        return id;
+    }
+
     /**
      * @return 该标识符符号可以绑定到的源语言对象的类型
      */
@@ -29,17 +41,21 @@ public class SymbolTableEntry {
     /**
      * 由于这个类型严格来说只能在语法分析后才能获得, 所以为了在词法分析时就构造出符号表,
      * 我们只能暴露出该接口用以修改该成员. 该成员应该且只应该被修改一次.
+     * <br>
+     * 设置以 CAS 完成, 多个线程同时设置时恰有一个成功, 其余的抛出异常.
      *
      * @param type 该标识符符号可以绑定到的源语言对象的类型
      */
     public void setType(SourceCodeType type) {
-        if (this.type != null) {
+        if (!TYPE.compareAndSet(this, null, type)) {
             throw new RuntimeException("Can NOT set type for an entry twice");
         }
-
-        this.type = type;
     }
 
     private final String text;
-    private SourceCodeType type;
+    private final int id;
+    private volatile SourceCodeType type;
+
+    private static final AtomicReferenceFieldUpdater<SymbolTableEntry, SourceCodeType> TYPE =
+        AtomicReferenceFieldUpdater.newUpdater(SymbolTableEntry.class, SourceCodeType.class, "type");
 }
@@ -20,11 +20,21 @@ public final class FilePathConfig {
      */
     public final static String GRAMMAR_PATH = "data/in/grammar.txt";
 
+    /**
+     * 语法文件中各产生式的语义动作
+     */
+    public final static String GRAMMAR_ACTIONS_PATH = "data/in/grammar_actions.txt";
+
     /**
      * 第三方工具构造的 LR 分析表
      */
     public final static String LR1_TABLE_PATH = "data/in/LR1_table.csv";
 
+    /**
+     * LR 分析表的磁盘缓存目录
+     */
+    public final static String TABLE_CACHE_DIR = "data/cache";
+
 
     //==================================== 输出文件 ========================================//
     /**
@@ -1,5 +1,6 @@
 package cn.edu.hitsz.compiler.utils;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
@@ -54,6 +55,20 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * 打开一个写入指定文件的缓冲输出流, 用于逐行输出大量内容而不必先把所有行收集到内存中
+     *
+     * @param path 要写入的文件路径
+     * @return 输出流, 使用完毕后需要关闭
+     */
+    public static BufferedWriter newWriter(String path) {
+        try {
+            return Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception for " + path, e);
+        }
+    }
+
     /**
      * 创建空文件
      *
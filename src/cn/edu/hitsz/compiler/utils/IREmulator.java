@@ -5,6 +5,7 @@ import cn.edu.hitsz.compiler.ir.IRValue;
 import cn.edu.hitsz.compiler.ir.IRVariable;
 import cn.edu.hitsz.compiler.ir.Instruction;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,58 +19,114 @@ public class IREmulator {
         return new IREmulator(instructions);
     }
 
+    /**
+     * @return 不含指令的模拟器, 供逐条执行指令使用
+     */
+    public static IREmulator empty() {
+        return new IREmulator(List.of());
+    }
+
     public Optional<Integer> execute() {
         for (final var instruction : instructions) {
-            switch (instruction.getKind()) {
-                case MOV -> {
-                    final var from = eval(instruction.getFrom());
-                    environment.put(instruction.getResult(), from);
-                }
-
-                case ADD -> {
-                    final var lhs = eval(instruction.getLHS());
-                    final var rhs = eval(instruction.getRHS());
-                    environment.put(instruction.getResult(), lhs + rhs);
-                }
-
-                case SUB -> {
-                    final var lhs = eval(instruction.getLHS());
-                    final var rhs = eval(instruction.getRHS());
-                    environment.put(instruction.getResult(), lhs - rhs);
-                }
-
-                case MUL -> {
-                    final var lhs = eval(instruction.getLHS());
-                    final var rhs = eval(instruction.getRHS());
-                    environment.put(instruction.getResult(), lhs * rhs);
-                }
-
-                case RET -> this.returnValue = eval(instruction.getReturnValue());
-
-                default -> throw new RuntimeException("Unknown instruction kind: " + instruction.getKind());
+            execute(instruction);
+        }
+
+        return getReturnValue();
+    }
+
+    /**
+     * 执行一条指令
+     *
+     * @param instruction 指令
+     */
+    public void execute(Instruction instruction) {
+        switch (instruction.getKind()) {
+            case MOV -> {
+                final var from = eval(instruction.getFrom());
+                assign(instruction.getResult(), from);
+            }
+
+            case ADD -> {
+                final var lhs = eval(instruction.getLHS());
+                final var rhs = eval(instruction.getRHS());
+                assign(instruction.getResult(), lhs + rhs);
+            }
+
+            case SUB -> {
+                final var lhs = eval(instruction.getLHS());
+                final var rhs = eval(instruction.getRHS());
+                assign(instruction.getResult(), lhs - rhs);
+            }
+
+            case MUL -> {
+                final var lhs = eval(instruction.getLHS());
+                final var rhs = eval(instruction.getRHS());
+                assign(instruction.getResult(), lhs * rhs);
             }
+
+            case RET -> this.returnValue = eval(instruction.getReturnValue());
+
+            default -> throw new RuntimeException("Unknown instruction kind: " + instruction.getKind());
         }
+    }
 
+    /**
+     * @return 最后一次执行的 Ret 指令的返回值
+     */
+    public Optional<Integer> getReturnValue() {
         return Optional.ofNullable(this.returnValue);
     }
 
+    /**
+     * 丢弃所有临时变量的值. 临时变量只在产生它的语句中使用, 逐条语句执行时可以在每条语句之后调用, 使内存占用不随语句条数增长
+     */
+    public void discardTemps() {
+        temps.clear();
+    }
+
     public Integer eval(IRValue value) {
         if (value instanceof IRImmediate immediate) {
             return immediate.getValue();
         } else if (value instanceof IRVariable variable) {
+            if (variable.isTemp()) {
+                return temps.get(variable);
+            }
+            final var symbol = variable.getSymbol();
+            if (symbol >= 0) {
+                return symbol < symbolValues.length ? symbolValues[symbol] : null;
+            }
             return environment.get(variable);
         } else {
             throw new RuntimeException("Unknown IR value type");
         }
     }
 
+    private void assign(IRVariable variable, Integer value) {
+        final var symbol = variable.getSymbol();
+        if (variable.isTemp()) {
+            temps.put(variable, value);
+        } else if (symbol >= 0) {
+            if (symbol >= symbolValues.length) {
+                symbolValues = Arrays.copyOf(symbolValues, Math.max(symbol + 1, symbolValues.length * 2));
+            }
+            symbolValues[symbol] = value;
+        } else {
+            environment.put(variable, value);
+        }
+    }
+
     private IREmulator(List<Instruction> instructions) {
         this.instructions = instructions;
         this.environment = new HashMap<>();
+        this.temps = new HashMap<>();
         this.returnValue = null;
     }
 
     private final List<Instruction> instructions;
     private final Map<IRVariable, Integer> environment;
+    // 携带符号编号的具名变量的值, 以编号为下标, 不必散列变量名.
+    // 同一段中间代码中的具名变量来自同一个词法分析器, 要么都携带编号, 要么都不携带
+    private Integer[] symbolValues = new Integer[16];
+    private final Map<IRVariable, Integer> temps;
     private Integer returnValue;
 }